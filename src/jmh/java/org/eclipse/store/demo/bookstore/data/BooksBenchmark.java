@@ -0,0 +1,171 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the catalog queries of {@link Books}: full text search with one to all available threads,
+ * lookups by ISBN and author, and the sorted list of all books.
+ * <p>
+ * The full text index of the books is either memory mapped (mmap) or heap based (memory),
+ * see {@link IndexBenchmark}. The data set is the one in <code>target/jmh-storage/&lt;dataAmount&gt;</code>,
+ * see {@link PurchasesBenchmark}. Result caching of {@link Books} is disabled,
+ * so every invocation computes its result.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -Pjmh -Djmh.args="BooksBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class BooksBenchmark
+{
+	private final static int SAMPLE_SIZE = 1024;
+
+	@Param({"small", "medium"})
+	public String dataAmount;
+
+	/**
+	 * mmap: MMapDirectory in a temporary directory<br>
+	 * memory: ByteBuffersDirectory
+	 */
+	@Param({"mmap", "memory"})
+	public String directory;
+
+	private BookStoreDemo bookStoreDemo ;
+	private Path          indexDirectory;
+	private Books         books         ;
+	private String[]      titleQueries  ;
+	private String[]      isbns         ;
+	private Author[]      authors       ;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		ResultCache.configure(Books.class, 0);
+		this.indexDirectory = IndexBenchmark.createIndexDirectory();
+		Index.configure(Book.class, IndexBenchmark.directoryFactory(this.directory, this.indexDirectory));
+
+		this.bookStoreDemo = PurchasesBenchmark.createBookStoreDemo(this.dataAmount);
+		this.books         = this.bookStoreDemo.data().books();
+
+		final List<Book> all    = this.books.all();
+		final Random     random = new Random(42);
+		this.titleQueries = new String[SAMPLE_SIZE];
+		this.isbns        = new String[SAMPLE_SIZE];
+		this.authors      = new Author[SAMPLE_SIZE];
+		for(int i = 0; i < SAMPLE_SIZE; i++)
+		{
+			final Book book = all.get(random.nextInt(all.size()));
+			// first word of the title, which matches a few other books as well
+			this.titleQueries[i] = book.title().split("\\s+")[0];
+			this.isbns[i]        = book.isbn13();
+			this.authors[i]      = book.author();
+		}
+
+		// builds the index
+		this.books.searchByTitle(this.titleQueries[0]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		this.bookStoreDemo.shutdown();
+		IndexBenchmark.deleteIndexDirectory(this.indexDirectory);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<Book> searchByTitle(final Cursor cursor)
+	{
+		return this.books.searchByTitle(this.titleQueries[cursor.next()]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public List<Book> searchByTitle4Threads(final Cursor cursor)
+	{
+		return this.books.searchByTitle(this.titleQueries[cursor.next()]);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public List<Book> searchByTitleMaxThreads(final Cursor cursor)
+	{
+		return this.books.searchByTitle(this.titleQueries[cursor.next()]);
+	}
+
+	@Benchmark
+	public Book ofIsbn13(final Cursor cursor)
+	{
+		return this.books.ofIsbn13(this.isbns[cursor.next()]);
+	}
+
+	@Benchmark
+	public List<Book> allByAuthor(final Cursor cursor)
+	{
+		return this.books.allByAuthor(this.authors[cursor.next()]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Book> all()
+	{
+		return this.books.all();
+	}
+
+
+	/**
+	 * Per thread position in the sampled query parameters.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor
+	{
+		private int position;
+
+		int next()
+		{
+			return this.position++ & (SAMPLE_SIZE - 1);
+		}
+	}
+
+}
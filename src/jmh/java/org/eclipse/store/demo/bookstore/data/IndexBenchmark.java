@@ -0,0 +1,193 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.Index.DirectoryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single and bulk indexing of books with an {@link Index},
+ * either in a memory mapped (mmap) or a heap based (memory) directory.
+ * <p>
+ * Every iteration starts with an empty index. The books are taken from the data set in
+ * <code>target/jmh-storage/&lt;dataAmount&gt;</code>, see {@link PurchasesBenchmark}.
+ * Memory mapped indices are written to a temporary directory in <code>target/jmh-index</code>,
+ * which is deleted afterwards.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -Pjmh -Djmh.args="IndexBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class IndexBenchmark
+{
+	@Param({"small", "medium"})
+	public String dataAmount;
+
+	/**
+	 * mmap: MMapDirectory in a temporary directory<br>
+	 * memory: ByteBuffersDirectory
+	 */
+	@Param({"mmap", "memory"})
+	public String directory;
+
+	private List<Book>       books           ;
+	private Path             indexDirectory  ;
+	private DirectoryFactory directoryFactory;
+	private Index<Book>      index           ;
+	private int              next            ;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		final BookStoreDemo bookStoreDemo = PurchasesBenchmark.createBookStoreDemo(this.dataAmount);
+		try
+		{
+			this.books = bookStoreDemo.data().books().all();
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+		this.indexDirectory   = createIndexDirectory();
+		this.directoryFactory = directoryFactory(this.directory, this.indexDirectory);
+	}
+
+	@Setup(Level.Iteration)
+	public void createIndex()
+	{
+		this.index = new Index<>(
+			Book.class,
+			(document, book) -> {
+				document.add(new StringField("isbn13", book.isbn13(), Store.YES));
+				document.add(new TextField("title", book.title(), Store.YES));
+				document.add(new TextField("author", book.author().name(), Store.YES));
+			},
+			document -> null,
+			this.directoryFactory
+		);
+		this.index.clear();
+		this.next = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeIndex() throws IOException
+	{
+		this.index.close();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		deleteIndexDirectory(this.indexDirectory);
+	}
+
+	/**
+	 * Adds one book per invocation, which flushes and commits the index writer every time.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void add()
+	{
+		this.index.add(this.books.get(this.next++ % this.books.size()));
+	}
+
+	/**
+	 * Adds all books at once, with a single commit.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public void addAll()
+	{
+		this.index.addAll(this.books);
+	}
+
+
+	static Path createIndexDirectory() throws IOException
+	{
+		final Path baseDirectory = Files.createDirectories(Paths.get("target", "jmh-index"));
+		return Files.createTempDirectory(baseDirectory, "index");
+	}
+
+	static DirectoryFactory directoryFactory(final String directory, final Path indexDirectory)
+	{
+		switch(directory)
+		{
+			case "mmap":
+				return DirectoryFactory.MMap(indexDirectory);
+
+			case "memory":
+				return DirectoryFactory.InMemory();
+
+			default:
+				throw new IllegalArgumentException("Unknown directory: " + directory);
+		}
+	}
+
+	static void deleteIndexDirectory(final Path indexDirectory)
+	{
+		try(Stream<Path> paths = Files.walk(indexDirectory))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(path ->
+			{
+				try
+				{
+					Files.delete(path);
+				}
+				catch(final IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch(final IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.money.MonetaryAmount;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.StorageFixture;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.eclipse.store.demo.bookstore.util.concurrent.SingleFlight;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the analytics of {@link Purchases}, with the purchases of the benchmarked year
+ * either unloaded before every invocation (cold) or kept in memory (warm).
+ * <p>
+ * The data is generated by the {@link RandomDataGenerator} with a fixed seed once, kept as {@link StorageFixture}
+ * in <code>target/fixtures</code> and cloned to <code>target/jmh-storage/&lt;dataAmount&gt;</code> on first use,
+ * so all following runs use the same data set. Delete the directory to start with a fresh copy.
+ * Other data amounts, e.g. scaled presets, can be benchmarked with <code>-p dataAmount=humongous:10</code>.
+ * <p>
+ * Result caching and coalescing of {@link Purchases} are disabled, so every invocation computes its result.
+ * <p>
+ * Run with (the GC profiler, which reports the allocation rate, is enabled by the profile):
+ * <pre>
+ * mvn -Pjmh -Djmh.args="PurchasesBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PurchasesBenchmark
+{
+	/**
+	 * Seed and reference date of the generated data sets, shared by all benchmarks which use <code>target/jmh-storage</code>.
+	 */
+	public final static long      SEED           = 42;
+	public final static LocalDate REFERENCE_DATE = LocalDate.of(2024, 12, 31);
+
+	@Param({"small", "medium", "large"})
+	public String dataAmount;
+
+	/**
+	 * cold: the purchases are loaded from the storage in every invocation<br>
+	 * warm: the purchases are already loaded
+	 */
+	@Param({"cold", "warm"})
+	public String mode;
+
+	private BookStoreDemo bookStoreDemo;
+	private Purchases     purchases    ;
+	private int           year         ;
+	private Shop          shop         ;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		ResultCache.configure(Purchases.class, 0);
+		SingleFlight.configure(Purchases.class, Duration.ZERO);
+
+		this.bookStoreDemo = createBookStoreDemo(this.dataAmount);
+		this.purchases     = this.bookStoreDemo.data().purchases();
+		// the last year may be incomplete, use the one before if available
+		final int lastYear = this.purchases.years().upperEndpoint();
+		this.year          = this.purchases.years().contains(lastYear - 1)
+			? lastYear - 1
+			: lastYear;
+		this.shop          = this.bookStoreDemo.data().shops().all().stream()
+			.min(Comparator.comparing(Shop::name))
+			.orElseThrow();
+	}
+
+	@Setup(Level.Invocation)
+	public void unload()
+	{
+		if("cold".equals(this.mode))
+		{
+			this.purchases.clear(this.year);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		this.bookStoreDemo.shutdown();
+	}
+
+	/**
+	 * Creates a demo with the data set of a data amount, which is cloned from a {@link StorageFixture} on first use.
+	 * Besides the presets, the data amount can be a scaled preset or a profile, see {@link RandomDataAmount#valueOf(String)}.
+	 */
+	static BookStoreDemo createBookStoreDemo(final String dataAmount)
+	{
+		final RandomDataAmount amount  = RandomDataAmount.valueOf(dataAmount);
+		final StorageSettings  storage = StorageSettings.Default(Paths.get(
+			"target",
+			"jmh-storage",
+			dataAmount.replaceAll("[^A-Za-z0-9.-]", "_")
+		));
+		StorageFixture.cloneIfEmpty(
+			Paths.get("target", "fixtures"),
+			amount,
+			SEED,
+			REFERENCE_DATE,
+			storage,
+			null,
+			StorageFixture.CloneMode.COPY
+		);
+		return new BookStoreDemo(amount, storage, SEED, REFERENCE_DATE);
+	}
+
+	@Benchmark
+	public List<BookSales> bestSellerList()
+	{
+		return this.purchases.bestSellerList(this.year);
+	}
+
+	@Benchmark
+	public Employee employeeOfTheYear()
+	{
+		return this.purchases.employeeOfTheYear(this.year);
+	}
+
+	@Benchmark
+	public long countPurchasesOfForeigners()
+	{
+		return this.purchases.countPurchasesOfForeigners(this.year);
+	}
+
+	@Benchmark
+	public MonetaryAmount revenueOfShopInYear()
+	{
+		return this.purchases.revenueOfShopInYear(this.shop, this.year);
+	}
+
+}
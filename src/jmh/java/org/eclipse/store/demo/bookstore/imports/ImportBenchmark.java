@@ -0,0 +1,212 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.StorageFixture;
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.Purchases;
+import org.eclipse.store.demo.bookstore.data.PurchasesBenchmark;
+import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures the {@link BulkImporter} with purchases in NDJSON, end to end from parsing to the storage commits.
+ * <p>
+ * The input consists of copies of the purchases of the last year of the data set, which is a fresh copy
+ * of the {@link StorageFixture} in <code>target/jmh-storage-import</code> in every trial, since imports change the storage.
+ * Besides the time per import, the <code>purchases</code> counter reports the imported purchases per second.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -Pjmh -Djmh.args="ImportBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class ImportBenchmark
+{
+	/**
+	 * Amount of purchases per import.
+	 */
+	private final static int RECORDS = 100_000;
+
+	@Param({"medium"})
+	public String dataAmount;
+
+	@Param({"1000", "10000"})
+	public String batchSize;
+
+	private StorageSettings storageSettings;
+	private BookStoreDemo   bookStoreDemo  ;
+	private BulkImporter    importer       ;
+	private byte[]          input          ;
+
+	/**
+	 * Imported purchases, reported as rate.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters
+	{
+		public long purchases;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		final RandomDataAmount amount = RandomDataAmount.valueOf(this.dataAmount);
+		this.storageSettings = StorageSettings.Default(Paths.get("target", "jmh-storage-import"));
+		deleteDirectory(this.storageSettings.storageDirectory());
+		StorageFixture.cloneIfEmpty(
+			Paths.get("target", "fixtures"),
+			amount,
+			PurchasesBenchmark.SEED,
+			PurchasesBenchmark.REFERENCE_DATE,
+			this.storageSettings,
+			null,
+			StorageFixture.CloneMode.COPY
+		);
+
+		this.bookStoreDemo = new BookStoreDemo(
+			amount,
+			this.storageSettings,
+			PurchasesBenchmark.SEED,
+			PurchasesBenchmark.REFERENCE_DATE
+		);
+		this.importer      = new BulkImporter(
+			this.bookStoreDemo,
+			Integer.parseInt(this.batchSize),
+			BulkImporter.DEFAULT_WINDOW
+		);
+		final Purchases purchases = this.bookStoreDemo.data().purchases();
+		this.input         = ndjson(purchases.computeByYear(
+			purchases.years().upperEndpoint(),
+			stream -> stream.limit(RECORDS).collect(toList())
+		));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		this.bookStoreDemo.shutdown();
+		deleteDirectory(this.storageSettings.storageDirectory());
+	}
+
+	@Benchmark
+	public ImportProgress importPurchases(final Counters counters) throws IOException
+	{
+		final ImportProgress progress = this.importer.run(
+			new ByteArrayInputStream(this.input),
+			ImportKind.PURCHASES,
+			ImportFormat.NDJSON,
+			p -> {}
+		);
+		if(progress.failure() != null || progress.rejected() > 0)
+		{
+			throw new IllegalStateException("Import failed: " + progress);
+		}
+		counters.purchases += progress.imported();
+		return progress;
+	}
+
+	/**
+	 * Writes purchases in the format of {@link ImportKind#PURCHASES}, repeated up to {@link #RECORDS}.
+	 */
+	private static byte[] ndjson(final List<Purchase> purchases) throws IOException
+	{
+		final ObjectMapper          mapper = new ObjectMapper();
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		for(int i = 0; i < RECORDS; i++)
+		{
+			final Purchase            purchase = purchases.get(i % purchases.size());
+			final Map<String, Object> record   = new LinkedHashMap<>();
+			record.put("timestamp", purchase.timestamp().toString());
+			record.put("shop", purchase.shop().name());
+			record.put("employee", purchase.employee().name());
+			record.put("customerId", purchase.customer().customerId());
+			record.put("items", purchase.items()
+				.map(item -> Map.of("isbn13", item.book().isbn13(), "amount", item.amount()))
+				.collect(toList())
+			);
+			output.write(mapper.writeValueAsBytes(record));
+			output.write('\n');
+		}
+		return output.toByteArray();
+	}
+
+	private static void deleteDirectory(final Path directory)
+	{
+		if(!Files.exists(directory))
+		{
+			return;
+		}
+		try(Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(path ->
+			{
+				try
+				{
+					Files.delete(path);
+				}
+				catch(final IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch(final IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,203 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.StorageFixture;
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.PurchaseItem;
+import org.eclipse.store.demo.bookstore.data.Purchases;
+import org.eclipse.store.demo.bookstore.data.PurchasesBenchmark;
+import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.eclipse.store.demo.bookstore.util.concurrent.SingleFlight;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the storage with different {@link StorageSettings}, which is used by the {@link StorageGuide}.
+ * <p>
+ * Every trial starts with a fresh copy of the {@link StorageFixture} in <code>target/jmh-storage-tuning</code>,
+ * since stores change the storage. The channel count can't be changed for an existing storage,
+ * so a fixture is generated for every channel count on first use.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -Pjmh -Djmh.args="StorageBenchmark -p channelCount=1,2,4"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class StorageBenchmark
+{
+	private final static int SAMPLE_SIZE = 1024;
+
+	@Param({"medium"})
+	public String dataAmount;
+
+	@Param({"1", "2", "4"})
+	public String channelCount;
+
+	/**
+	 * Time after which unused data is evicted from the storage's entity cache.
+	 */
+	@Param({"10s", "1d"})
+	public String entityCacheTimeout;
+
+	/**
+	 * Abstract threshold of the storage's entity cache, EclipseStore's default is 1000000000.
+	 */
+	@Param({"1000000000"})
+	public String entityCacheThreshold;
+
+	private StorageSettings storageSettings;
+	private BookStoreDemo   bookStoreDemo  ;
+	private Purchases       purchases      ;
+	private int             year           ;
+	private List<Purchase>  samples        ;
+	private Random          random         ;
+
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		ResultCache.configure(Purchases.class, 0);
+		SingleFlight.configure(Purchases.class, Duration.ZERO);
+
+		final RandomDataAmount amount = RandomDataAmount.valueOf(this.dataAmount);
+		this.storageSettings = StorageSettings.Default(Paths.get("target", "jmh-storage-tuning"))
+			.with(StorageSettings.CHANNEL_COUNT, this.channelCount)
+			.with("entity-cache-timeout", this.entityCacheTimeout)
+			.with("entity-cache-threshold", this.entityCacheThreshold);
+		deleteDirectory(this.storageSettings.storageDirectory());
+		StorageFixture.cloneIfEmpty(
+			Paths.get("target", "fixtures"),
+			amount,
+			PurchasesBenchmark.SEED,
+			PurchasesBenchmark.REFERENCE_DATE,
+			this.storageSettings,
+			null,
+			StorageFixture.CloneMode.COPY
+		);
+
+		this.bookStoreDemo = new BookStoreDemo(
+			amount,
+			this.storageSettings,
+			PurchasesBenchmark.SEED,
+			PurchasesBenchmark.REFERENCE_DATE
+		);
+		this.purchases     = this.bookStoreDemo.data().purchases();
+		this.year          = this.purchases.years().upperEndpoint();
+		this.samples       = this.purchases.computeByYear(
+			this.year,
+			stream -> stream.limit(SAMPLE_SIZE).collect(toList())
+		);
+		this.random        = new Random(42);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		this.bookStoreDemo.shutdown();
+		deleteDirectory(this.storageSettings.storageDirectory());
+	}
+
+	/**
+	 * Loads all purchases of a year, which are unloaded before, from the storage or its entity cache.
+	 */
+	@Benchmark
+	public long load()
+	{
+		this.purchases.clear(this.year);
+		return this.purchases.computeByYear(this.year, Stream::count);
+	}
+
+	/**
+	 * Stores a new purchase, a copy of a random existing one, which is a single commit.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Purchase store()
+	{
+		final Purchase sample   = this.samples.get(this.random.nextInt(this.samples.size()));
+		final Purchase purchase = new Purchase(
+			sample.shop(),
+			sample.employee(),
+			sample.customer(),
+			sample.timestamp(),
+			sample.items()
+				.map(item -> new PurchaseItem(item.book(), item.amount()))
+				.collect(toList())
+		);
+		this.purchases.add(purchase, this.bookStoreDemo.storageManager());
+		return purchase;
+	}
+
+	private static void deleteDirectory(final Path directory)
+	{
+		if(!Files.exists(directory))
+		{
+			return;
+		}
+		try(Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(Comparator.reverseOrder()).forEach(path ->
+			{
+				try
+				{
+					Files.delete(path);
+				}
+				catch(final IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch(final IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
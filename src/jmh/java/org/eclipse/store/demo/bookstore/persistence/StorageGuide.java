@@ -0,0 +1,139 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.eclipse.store.demo.bookstore.ReplApplication;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Sweeps storage settings with the {@link StorageBenchmark} for a workload and reports the best configuration.
+ * <p>
+ * Options, all storage properties accept comma separated lists of values to compare:
+ * <ul>
+ * <li><code>--workload</code>: <code>load</code> (default) or <code>store</code>, see {@link StorageBenchmark}</li>
+ * <li><code>--data-amount</code>: the data set, defaults to <code>medium</code></li>
+ * <li><code>--channel-count</code>: defaults to all powers of two up to the amount of processors</li>
+ * <li><code>--entity-cache-timeout</code>: defaults to <code>10s,1d</code></li>
+ * <li><code>--entity-cache-threshold</code>: defaults to <code>1000000000</code></li>
+ * </ul>
+ * Run with:
+ * <pre>
+ * mvn -Pjmh -Djmh.main=org.eclipse.store.demo.bookstore.persistence.StorageGuide -Djmh.profilers= -Djmh.args="--workload=load --channel-count=1,2,4"
+ * </pre>
+ */
+public final class StorageGuide
+{
+	private final static String WORKLOAD    = "workload"   ;
+	private final static String DATA_AMOUNT = "data-amount";
+
+	/**
+	 * Storage properties and the corresponding parameters of the {@link StorageBenchmark}.
+	 */
+	private final static Map<String, String> PARAMETERS = Map.of(
+		StorageSettings.CHANNEL_COUNT, "channelCount"        ,
+		"entity-cache-timeout"       , "entityCacheTimeout"  ,
+		"entity-cache-threshold"     , "entityCacheThreshold"
+	);
+
+	public static void main(final String[] args) throws RunnerException
+	{
+		final Map<String, String> options  = ReplApplication.parseOptions(args, List.of(WORKLOAD, DATA_AMOUNT));
+		final String              workload = options.getOrDefault(WORKLOAD, "load");
+		if(!List.of("load", "store").contains(workload))
+		{
+			throw new IllegalArgumentException("Unknown workload: " + workload + ", supported: load, store");
+		}
+
+		final Options jmhOptions = new OptionsBuilder()
+			.include(StorageBenchmark.class.getSimpleName() + "\\." + workload + "$")
+			.param("dataAmount", options.getOrDefault(DATA_AMOUNT, "medium"))
+			.param("channelCount", values(options, StorageSettings.CHANNEL_COUNT, defaultChannelCounts()))
+			.param("entityCacheTimeout", values(options, "entity-cache-timeout", "10s,1d"))
+			.param("entityCacheThreshold", values(options, "entity-cache-threshold", "1000000000"))
+			.build();
+
+		final List<RunResult> results = new ArrayList<>(new Runner(jmhOptions).run());
+		if(results.isEmpty())
+		{
+			throw new IllegalStateException("No results");
+		}
+		// average time, lower is better
+		results.sort(Comparator.comparingDouble(result -> result.getPrimaryResult().getScore()));
+
+		System.out.println();
+		System.out.println("Storage settings for workload '" + workload + "', best first:");
+		for(final RunResult result : results)
+		{
+			System.out.println(String.format(
+				"  %12.3f \u00B1 %10.3f %-6s %s",
+				result.getPrimaryResult().getScore(),
+				result.getPrimaryResult().getScoreError(),
+				result.getPrimaryResult().getScoreUnit(),
+				settings(result, ", ")
+			));
+		}
+
+		System.out.println();
+		System.out.println("Recommended configuration (application.yml):");
+		System.out.println("bookstore:");
+		System.out.println("  storage:");
+		PARAMETERS.keySet().stream().sorted().forEach(property ->
+			System.out.println("    " + property + ": " + results.get(0).getParams().getParam(PARAMETERS.get(property)))
+		);
+		System.out.println("or for the REPL: " + settings(results.get(0), " "));
+	}
+
+	private static String[] values(
+		final Map<String, String> options     ,
+		final String              property    ,
+		final String              defaultValue
+	)
+	{
+		return options.getOrDefault(property, defaultValue).split("\\s*,\\s*");
+	}
+
+	private static String defaultChannelCounts()
+	{
+		final int processors = Runtime.getRuntime().availableProcessors();
+		return IntStream.iterate(1, channels -> channels <= processors, channels -> channels * 2)
+			.mapToObj(Integer::toString)
+			.collect(joining(","));
+	}
+
+	private static String settings(
+		final RunResult result   ,
+		final String    separator
+	)
+	{
+		return PARAMETERS.keySet().stream()
+			.sorted()
+			.map(property -> "--" + property + "=" + result.getParams().getParam(PARAMETERS.get(property)))
+			.collect(joining(separator));
+	}
+
+}
@@ -0,0 +1,147 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ReadWriteLocked} and {@link ReadWriteLockedOptimistic} under mixed read/write ratios.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -Pjmh -Djmh.args="ReadWriteLockedBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadWriteLockedBenchmark
+{
+	/**
+	 * reentrant: read lock of a ReentrantReadWriteLock<br>
+	 * stamped: read lock of a StampedLock<br>
+	 * optimistic: optimistic read of a StampedLock
+	 */
+	@Param({"reentrant", "stamped", "optimistic"})
+	public String lockType;
+
+	@Param({"0", "1", "10", "50"})
+	public int writePercent;
+
+	private Counter counter;
+
+	@Setup
+	public void setup()
+	{
+		switch(this.lockType)
+		{
+			case "reentrant":
+				this.counter = new ReentrantCounter();
+			break;
+
+			case "stamped":
+				this.counter = new StampedCounter(false);
+			break;
+
+			case "optimistic":
+				this.counter = new StampedCounter(true);
+			break;
+
+			default:
+				throw new IllegalArgumentException("Unknown lock type: " + this.lockType);
+		}
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public long mixed()
+	{
+		return ThreadLocalRandom.current().nextInt(100) < this.writePercent
+			? this.counter.increment()
+			: this.counter.get();
+	}
+
+
+	static interface Counter
+	{
+		public long get();
+
+		public long increment();
+	}
+
+
+	static class ReentrantCounter extends ReadWriteLocked implements Counter
+	{
+		private long value;
+
+		@Override
+		public long get()
+		{
+			return this.read(() -> this.value);
+		}
+
+		@Override
+		public long increment()
+		{
+			return this.write(() -> ++this.value);
+		}
+	}
+
+
+	static class StampedCounter extends ReadWriteLockedOptimistic implements Counter
+	{
+		private final boolean optimistic;
+		private       long    value;
+
+		StampedCounter(final boolean optimistic)
+		{
+			super();
+			this.optimistic = optimistic;
+		}
+
+		@Override
+		public long get()
+		{
+			return this.optimistic
+				? this.readOptimistic(() -> this.value)
+				: this.read(() -> this.value);
+		}
+
+		@Override
+		public long increment()
+		{
+			return this.write(() -> ++this.value);
+		}
+	}
+
+}
@@ -17,8 +17,13 @@ package org.eclipse.store.demo.bookstore;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.money.CurrencyUnit;
 import javax.money.Monetary;
@@ -27,12 +32,13 @@ import javax.money.format.AmountFormatQueryBuilder;
 import javax.money.format.MonetaryAmountFormat;
 import javax.money.format.MonetaryFormats;
 
-import org.eclipse.serializer.persistence.binary.jdk8.types.BinaryHandlersJDK8;
 import org.eclipse.store.demo.bookstore.data.Data;
 import org.eclipse.store.demo.bookstore.data.DataMetrics;
 import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
-import org.eclipse.store.storage.embedded.configuration.types.EmbeddedStorageConfiguration;
-import org.eclipse.store.storage.embedded.types.EmbeddedStorageFoundation;
+import org.eclipse.store.demo.bookstore.data.RandomDataGenerator;
+import org.eclipse.store.demo.bookstore.persistence.StorageFormat;
+import org.eclipse.store.demo.bookstore.persistence.StorageMigration;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 import org.javamoney.moneta.RoundedMoney;
 import org.javamoney.moneta.format.CurrencyStyle;
@@ -130,20 +136,106 @@ public final class BookStoreDemo implements HasLogger
 
 
 	private final    RandomDataAmount       initialDataAmount;
+	private final    StorageSettings        storageSettings  ;
+	private final    long                   seed             ;
+	private final    LocalDate              referenceDate    ;
 	private volatile EmbeddedStorageManager storageManager   ;
 
 	/**
-	 * Creates a new demo instance.
+	 * Creates a new demo instance, which uses the storage directory <code>data/storage</code>.
 	 *
 	 * @param initialDataAmount the amount of data which should be generated if the database is empty
 	 */
 	public BookStoreDemo(final RandomDataAmount initialDataAmount)
+	{
+		this(initialDataAmount, Paths.get("data", "storage"));
+	}
+
+	/**
+	 * Creates a new demo instance, which generates different data with every new storage.
+	 *
+	 * @param initialDataAmount the amount of data which should be generated if the database is empty
+	 * @param storageDirectory the directory of the storage
+	 */
+	public BookStoreDemo(
+		final RandomDataAmount initialDataAmount,
+		final Path             storageDirectory
+	)
+	{
+		this(
+			initialDataAmount,
+			StorageSettings.Default(storageDirectory),
+			ThreadLocalRandom.current().nextLong(),
+			LocalDate.now().minusDays(1)
+		);
+	}
+
+	/**
+	 * Creates a new demo instance, which always generates the same data for the same seed within a month.
+	 *
+	 * @param initialDataAmount the amount of data which should be generated if the database is empty
+	 * @param storageDirectory the directory of the storage
+	 * @param seed the seed of the random data
+	 */
+	public BookStoreDemo(
+		final RandomDataAmount initialDataAmount,
+		final Path             storageDirectory ,
+		final long             seed
+	)
+	{
+		this(initialDataAmount, StorageSettings.Default(storageDirectory), seed);
+	}
+
+	/**
+	 * Creates a new demo instance with specific storage settings,
+	 * which always generates the same data for the same seed within a month,
+	 * see {@link RandomDataGenerator#defaultReferenceDate()}.
+	 *
+	 * @param initialDataAmount the amount of data which should be generated if the database is empty
+	 * @param storageSettings the settings of the storage
+	 * @param seed the seed of the random data
+	 */
+	public BookStoreDemo(
+		final RandomDataAmount initialDataAmount,
+		final StorageSettings  storageSettings  ,
+		final long             seed
+	)
+	{
+		this(initialDataAmount, storageSettings, seed, RandomDataGenerator.defaultReferenceDate());
+	}
+
+	/**
+	 * Creates a new demo instance with specific storage settings,
+	 * which always generates the same data for the same seed and reference date.
+	 *
+	 * @param initialDataAmount the amount of data which should be generated if the database is empty
+	 * @param storageSettings the settings of the storage
+	 * @param seed the seed of the random data
+	 * @param referenceDate the last day with generated purchases
+	 */
+	public BookStoreDemo(
+		final RandomDataAmount initialDataAmount,
+		final StorageSettings  storageSettings  ,
+		final long             seed             ,
+		final LocalDate        referenceDate
+	)
 	{
 		super();
 		this.initialDataAmount = initialDataAmount;
+		this.storageSettings   = storageSettings  ;
+		this.seed              = seed             ;
+		this.referenceDate     = referenceDate    ;
 		BookStoreDemo.instance = this;
 	}
 
+	/**
+	 * @return the settings of the storage
+	 */
+	public StorageSettings storageSettings()
+	{
+		return this.storageSettings;
+	}
+
 	/**
 	 * Gets the lazily initialized {@link EmbeddedStorageManager} used by this demo.
 	 * If no storage data is found, a {@link Data} root object is generated randomly,
@@ -177,33 +269,52 @@ public final class BookStoreDemo implements HasLogger
 	 */
 	private EmbeddedStorageManager createStorageManager()
 	{
-		this.logger().info("Initializing EclipseStore StorageManager");
-		
-		final EmbeddedStorageFoundation<?> foundation = EmbeddedStorageConfiguration.Builder()
-			.setStorageDirectory("data/storage")
-			.setChannelCount(Math.max(
-				1, // minimum one channel, if only 1 core is available
-				Integer.highestOneBit(Runtime.getRuntime().availableProcessors() - 1)
-			))
-			.createEmbeddedStorageFoundation();
+		this.logger().info("Initializing EclipseStore StorageManager: " + this.storageSettings);
+
+		this.storageSettings.checkChannelCount();
 
-		foundation.onConnectionFoundation(BinaryHandlersJDK8::registerJDK8TypeHandlers);
-		final EmbeddedStorageManager storageManager = foundation.createEmbeddedStorageManager().start();
+		final Path          storageDirectory = this.storageSettings.storageDirectory();
+		final StorageFormat format           = StorageFormat.detect(storageDirectory);
+		if(format == StorageFormat.LEGACY)
+		{
+			this.logger().warning(
+				"Storage " + storageDirectory + " uses the legacy format, convert it with "
+					+ StorageMigration.class.getName()
+			);
+		}
+
+		final EmbeddedStorageManager storageManager = this.storageSettings.createFoundation(format)
+			.createEmbeddedStorageManager()
+			.start();
 
 		if(storageManager.root() == null)
 		{
-			this.logger().info("No data found, initializing random data");
+			this.logger().info("No data found, initializing random data: " + this.initialDataAmount);
 
 			final Data data = new Data();
 			storageManager.setRoot(data);
 			storageManager.storeRoot();
 			final DataMetrics metrics = data.populate(
 				this.initialDataAmount,
+				this.seed,
+				this.referenceDate,
 				storageManager
 			);
 
 			this.logger().info("Random data generated: " + metrics.toString());
 		}
+		else
+		{
+			final Data        data           = (Data)storageManager.root();
+			final Set<Object> changedObjects = data.upgrade();
+			if(!changedObjects.isEmpty())
+			{
+				storageManager.storeAll(changedObjects);
+				// the upgrade loaded all inventories
+				data.shops().clear();
+				this.logger().info("Data upgraded from a previous version: " + changedObjects.size() + " objects stored");
+			}
+		}
 
 		return storageManager;
 	}
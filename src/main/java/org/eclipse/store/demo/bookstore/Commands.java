@@ -14,14 +14,29 @@ package org.eclipse.store.demo.bookstore;
  * #L%
  */
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Year;
 import java.util.List;
 
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.eclipse.store.demo.bookstore.backup.Backup;
+import org.eclipse.store.demo.bookstore.backup.BackupMode;
+import org.eclipse.store.demo.bookstore.backup.BackupService;
 import org.eclipse.store.demo.bookstore.data.Book;
 import org.eclipse.store.demo.bookstore.data.BookSales;
 import org.eclipse.store.demo.bookstore.data.Country;
 import org.eclipse.store.demo.bookstore.data.Data;
 import org.eclipse.store.demo.bookstore.data.Employee;
+import org.eclipse.store.demo.bookstore.data.ReorderItem;
+import org.eclipse.store.demo.bookstore.imports.BulkImporter;
+import org.eclipse.store.demo.bookstore.imports.ImportFormat;
+import org.eclipse.store.demo.bookstore.imports.ImportKind;
+import org.eclipse.store.demo.bookstore.imports.ImportProgress;
+import org.eclipse.store.demo.bookstore.statistics.Statistics;
+import org.eclipse.store.demo.bookstore.statistics.StatisticsService;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -42,6 +57,11 @@ public class Commands
 		cli.addSubcommand(new BestSellerList(bookStoreDemo));
 		cli.addSubcommand(new PurchasesOfForeigners(bookStoreDemo));
 		cli.addSubcommand(new EmployeeOfTheYear(bookStoreDemo));
+		cli.addSubcommand(new ReorderList(bookStoreDemo));
+		cli.addSubcommand(new Import(bookStoreDemo));
+		cli.addSubcommand(new StatisticsCommand(bookStoreDemo));
+		cli.addSubcommand(new BackupCommand(bookStoreDemo));
+		cli.addSubcommand(new VerifyBackup(bookStoreDemo));
 		cli.addSubcommand(new Exit(bookStoreDemo));
 		return cli;
 	}
@@ -314,6 +334,260 @@ public class Commands
 		}
 	}
 
+	@Command(
+		name = "reorderList",
+		aliases = {"rol"},
+		description = "Prints the inventory slots which are running low, most urgent first.",
+		mixinStandardHelpOptions = true
+	)
+	static class ReorderList extends Abstract
+	{
+		@Option(
+			names = {"--limit", "-l"},
+			description = "the maximum amount of slots to print",
+			required = false,
+			defaultValue = "10"
+		)
+		int limit;
+
+		ReorderList(final BookStoreDemo bookStoreDemo)
+		{
+			super(bookStoreDemo);
+		}
+
+		@Override
+		public void run()
+		{
+			final List<ReorderItem> reorderList = this.data().reorders().reorderList(this.limit);
+			if(reorderList.isEmpty())
+			{
+				System.out.println("Nothing to reorder");
+			}
+			else
+			{
+				System.out.println("Reorder list (" + this.data().reorders().reorderCount() + " slots in total)");
+				reorderList.forEach(item ->
+				{
+					System.out.println(item.reorderAmount() + " x "
+						+ item.book().title() + " for "
+						+ item.shop().name() + " ("
+						+ item.amount() + " of " + item.threshold() + " in stock)"
+					);
+				});
+			}
+		}
+	}
+
+	@Command(
+		name = "import",
+		description = "Imports books, customers or purchases from a CSV or NDJSON file.",
+		mixinStandardHelpOptions = true
+	)
+	static class Import extends Abstract
+	{
+		@Option(
+			names = {"--kind", "-k"},
+			description = "books, customers or purchases",
+			required = true
+		)
+		String kind;
+
+		@Option(
+			names = {"--file", "-f"},
+			description = "the file to import",
+			required = true
+		)
+		Path   file;
+
+		@Option(
+			names = {"--format"},
+			description = "csv or ndjson, derived from the file extension by default",
+			required = false,
+			defaultValue = ""
+		)
+		String format;
+
+		@Option(
+			names = {"--batch-size", "-b"},
+			description = "the amount of records per storage commit",
+			required = false,
+			defaultValue = "" + BulkImporter.DEFAULT_BATCH_SIZE
+		)
+		int    batchSize;
+
+		Import(final BookStoreDemo bookStoreDemo)
+		{
+			super(bookStoreDemo);
+		}
+
+		@Override
+		public void run()
+		{
+			final String         fileName = this.file.getFileName().toString();
+			final ImportProgress progress;
+			try(final InputStream input = Files.newInputStream(this.file))
+			{
+				progress = new BulkImporter(this.bookStoreDemo, this.batchSize, BulkImporter.DEFAULT_WINDOW).run(
+					input,
+					ImportKind.ofName(this.kind),
+					ImportFormat.ofName(this.format.isEmpty()
+						? fileName.substring(fileName.lastIndexOf('.') + 1)
+						: this.format
+					),
+					p -> System.out.print("\r" + p)
+				);
+			}
+			catch(final IOException | IllegalArgumentException e)
+			{
+				System.out.println("Import failed: " + e.getMessage());
+				return;
+			}
+			System.out.println();
+			progress.errors().stream().limit(10).forEach(System.out::println);
+			if(progress.rejected() > 10)
+			{
+				System.out.println("...");
+			}
+		}
+	}
+
+	@Command(
+		name = "statistics",
+		aliases = {"stats"},
+		description = "Prints the heap footprint of the data and the storage file statistics.",
+		mixinStandardHelpOptions = true
+	)
+	static class StatisticsCommand extends Abstract
+	{
+		@Option(
+			names = {"--years", "-y"},
+			description = "print the purchases of each year separately",
+			required = false
+		)
+		boolean years;
+
+		StatisticsCommand(final BookStoreDemo bookStoreDemo)
+		{
+			super(bookStoreDemo);
+		}
+
+		@Override
+		public void run()
+		{
+			final Statistics statistics = new StatisticsService(this.bookStoreDemo).refresh();
+			(this.years ? statistics.footprints() : statistics.domains())
+				.forEach(System.out::println);
+			System.out.println(statistics.total());
+			System.out.println("storage: " + statistics.storage());
+			System.out.println("collected in " + statistics.duration().toMillis() + " ms");
+		}
+	}
+
+	static abstract class AbstractBackup extends Abstract
+	{
+		@Option(
+			names = {"--directory", "-d"},
+			description = "the base directory of the backups",
+			required = false,
+			defaultValue = "backups"
+		)
+		Path   directory;
+
+		@Option(
+			names = {"--rate-limit", "-r"},
+			description = "the maximum transfer rate in MiB per second, 0 for no limit",
+			required = false,
+			defaultValue = "" + BackupService.DEFAULT_RATE_LIMIT
+		)
+		double rateLimit;
+
+		AbstractBackup(final BookStoreDemo bookStoreDemo)
+		{
+			super(bookStoreDemo);
+		}
+
+		BackupService service()
+		{
+			return new BackupService(
+				this.bookStoreDemo,
+				this.directory,
+				BackupService.defaultStagingDirectory(this.bookStoreDemo.storageSettings()),
+				this.rateLimit
+			);
+		}
+	}
+
+	@Command(
+		name = "backup",
+		description = "Creates a backup of the storage and the full text index while the application is running.",
+		mixinStandardHelpOptions = true
+	)
+	static class BackupCommand extends AbstractBackup
+	{
+		@Option(
+			names = {"--mode", "-m"},
+			description = "full or incremental",
+			required = false,
+			defaultValue = "incremental"
+		)
+		String mode;
+
+		BackupCommand(final BookStoreDemo bookStoreDemo)
+		{
+			super(bookStoreDemo);
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				System.out.println(this.service().backup(BackupMode.ofName(this.mode)));
+			}
+			catch(final IllegalArgumentException | IORuntimeException e)
+			{
+				System.out.println("Backup failed: " + e.getMessage());
+			}
+		}
+	}
+
+	@Command(
+		name = "verifyBackup",
+		aliases = {"vb"},
+		description = "Verifies that a backup can be restored, without modifying it or the running application.",
+		mixinStandardHelpOptions = true
+	)
+	static class VerifyBackup extends AbstractBackup
+	{
+		@Option(
+			names = {"--id", "-i"},
+			description = "the id of the backup, the most recent one by default",
+			required = false
+		)
+		String id;
+
+		VerifyBackup(final BookStoreDemo bookStoreDemo)
+		{
+			super(bookStoreDemo);
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				final BackupService service = this.service();
+				final Backup        backup  = service.backup(this.id);
+				System.out.println("Verifying " + backup);
+				System.out.println(service.verify(backup));
+			}
+			catch(final IllegalStateException | IORuntimeException e)
+			{
+				System.out.println("Verification failed: " + e.getMessage());
+			}
+		}
+	}
+
 	@Command(
 		name = "exit",
 		aliases = {"quit"},
@@ -14,20 +14,124 @@ package org.eclipse.store.demo.bookstore;
  * #L%
  */
 
+import static java.util.stream.Collectors.joining;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
 import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
+import org.eclipse.store.demo.bookstore.data.RandomDataGenerator;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
 
 /**
  * Entry point for the demo application variant with a simple console.
+ * <p>
+ * The random data, which is generated if the storage is empty, can be defined with options in the form
+ * <code>--name=value</code>: <code>--seed</code> and all properties of {@link RandomDataAmount#PROPERTIES},
+ * e.g. <code>--base=humongous --scale-factor=10</code> or <code>--profile=many-shops.properties</code>.
+ * <p>
+ * With a seed and <code>--fixtures=&lt;directory&gt;</code> an empty storage is cloned from a {@link StorageFixture}
+ * instead of generating the data.
+ * The last day with purchases can be fixed with <code>--reference-date=&lt;yyyy-mm-dd&gt;</code>,
+ * see {@link RandomDataGenerator#defaultReferenceDate()}.
+ * <p>
+ * The storage is configured with the properties of {@link StorageSettings#PROPERTIES},
+ * e.g. <code>--storage-directory=data/storage --channel-count=4</code>.
  *
  */
 public class ReplApplication
 {
+	/**
+	 * Option of the last day with generated purchases, see {@link RandomDataGenerator}.
+	 */
+	public final static String REFERENCE_DATE = "reference-date";
+
 	public static void main(final String[] args)
 	{
+		final Map<String, String> options       = parseOptions(args, List.of("seed", "fixtures", REFERENCE_DATE));
+		final String              seed          = options.get("seed");
+		final String              fixtures      = options.get("fixtures");
+		final RandomDataAmount    dataAmount    = RandomDataAmount.fromProperties(options::get);
+		final StorageSettings     storage       = StorageSettings.fromProperties(options::get);
+		final LocalDate           referenceDate = referenceDate(options);
+
+		if(seed != null && fixtures != null)
+		{
+			StorageFixture.cloneIfEmpty(
+				Paths.get(fixtures),
+				dataAmount,
+				Long.parseLong(seed),
+				referenceDate,
+				storage,
+				Paths.get("data", "index"),
+				StorageFixture.CloneMode.COPY
+			);
+		}
+
 		final BookStoreDemo bookStoreDemo = new BookStoreDemo(
-			RandomDataAmount.Medium()
+			dataAmount,
+			storage,
+			seed != null
+				? Long.parseLong(seed)
+				: ThreadLocalRandom.current().nextLong(),
+			referenceDate
 		);
 
 		new Repl(bookStoreDemo).run();
 	}
+
+	/**
+	 * Gets the reference date option, see {@link #REFERENCE_DATE}.
+	 *
+	 * @param options the parsed options
+	 * @return the given reference date or {@link RandomDataGenerator#defaultReferenceDate()}
+	 */
+	public static LocalDate referenceDate(final Map<String, String> options)
+	{
+		final String referenceDate = options.get(REFERENCE_DATE);
+		return referenceDate != null
+			? LocalDate.parse(referenceDate.trim())
+			: RandomDataGenerator.defaultReferenceDate();
+	}
+
+	/**
+	 * Parses options in the form <code>--name=value</code>.
+	 *
+	 * @param args the command line arguments
+	 * @param names the supported options besides the properties of {@link RandomDataAmount} and {@link StorageSettings}
+	 * @return the options by name
+	 */
+	public static Map<String, String> parseOptions(
+		final String[]     args ,
+		final List<String> names
+	)
+	{
+		final Map<String, String> options = new HashMap<>();
+		for(final String arg : args)
+		{
+			final int separator = arg.indexOf('=');
+			final String name = arg.startsWith("--") && separator > 2
+				? arg.substring(2, separator)
+				: null;
+			if(name == null || !(names.contains(name)
+				|| RandomDataAmount.PROPERTIES.contains(name)
+				|| StorageSettings.PROPERTIES.contains(name))
+			)
+			{
+				throw new IllegalArgumentException("Invalid option: " + arg
+					+ ", supported: " + Stream.of(names, RandomDataAmount.PROPERTIES, StorageSettings.PROPERTIES)
+						.flatMap(List::stream)
+						.map(property -> "--" + property + "=<value>")
+						.collect(joining(", "))
+				);
+			}
+			options.put(name, arg.substring(separator + 1));
+		}
+		return options;
+	}
 }
@@ -0,0 +1,514 @@
+package org.eclipse.store.demo.bookstore;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.eclipse.store.demo.bookstore.data.Book;
+import org.eclipse.store.demo.bookstore.data.Index;
+import org.eclipse.store.demo.bookstore.data.Index.DirectoryFactory;
+import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
+import org.eclipse.store.demo.bookstore.data.RandomDataGenerator;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+
+/**
+ * Pre-generated storage and index snapshot of the random data for a specific {@link RandomDataAmount}, seed and reference date.
+ * <p>
+ * A fixture is generated once and then cloned by file copy or hard links, which takes seconds instead of
+ * minutes for large data sets. It is located in
+ * <code>&lt;fixtures&gt;/v&lt;version&gt;/&lt;amount&gt;-&lt;seed&gt;-&lt;reference date&gt;-c&lt;channels&gt;</code>,
+ * where the amount is a hash of all dimensions, the reference date is the last day with purchases
+ * and channels the channel count of the storage, which can't be changed afterwards. It contains:
+ * <ul>
+ * <li><code>storage/</code>: the EclipseStore storage</li>
+ * <li><code>index/</code>: the Lucene indices</li>
+ * <li><code>fixture.properties</code>: description of the data</li>
+ * <li><code>checksums.sha256</code>: SHA-256 checksums of all files, which are verified before cloning</li>
+ * </ul>
+ * The {@link #VERSION} has to be increased if the generated data or its persistent format changes,
+ * so outdated fixtures are not used anymore.
+ * <p>
+ * Fixtures can be generated in advance with:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=org.eclipse.store.demo.bookstore.StorageFixture -Dexec.args="--fixtures=target/fixtures --seed=42 --reference-date=2024-12-31 --base=large"
+ * </pre>
+ * Without a reference date, {@link RandomDataGenerator#defaultReferenceDate()} is used, so fixtures are renewed monthly.
+ */
+public final class StorageFixture implements HasLogger
+{
+	/**
+	 * Version of the fixtures' content.
+	 */
+	public final static int VERSION = 3;
+
+	private final static String CHECKSUMS  = "checksums.sha256"  ;
+	private final static String PROPERTIES = "fixture.properties";
+	private final static String STORAGE    = "storage"           ;
+	private final static String INDEX      = "index"             ;
+
+	/**
+	 * The lock file of Lucene is neither checksummed nor cloned.
+	 */
+	private final static String INDEX_LOCK = "write.lock";
+
+	/**
+	 * How the files of a fixture are cloned.
+	 */
+	public static enum CloneMode
+	{
+		/**
+		 * Copies of all files, the clone can be used without any restrictions.
+		 */
+		COPY
+		{
+			@Override
+			void clone(final Path source, final Path target) throws IOException
+			{
+				Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+			}
+		},
+
+		/**
+		 * Hard links to all files, which is the fastest way but only suitable for read-only usage,
+		 * since EclipseStore appends to existing storage files, which would change the fixture.
+		 * Falls back to copies if the file system doesn't support hard links.
+		 */
+		LINK
+		{
+			@Override
+			void clone(final Path source, final Path target) throws IOException
+			{
+				try
+				{
+					Files.createLink(target, source);
+				}
+				catch(final UnsupportedOperationException | FileSystemException e)
+				{
+					COPY.clone(source, target);
+				}
+			}
+		};
+
+		abstract void clone(Path source, Path target) throws IOException;
+
+		public static CloneMode ofName(final String name)
+		{
+			return valueOf(name.trim().toUpperCase());
+		}
+	}
+
+
+	/**
+	 * Gets the fixture for a data amount, seed and channel count, which is generated if not available yet.
+	 *
+	 * @param fixturesDirectory the base directory of all fixtures
+	 * @param dataAmount the data amount
+	 * @param seed the seed of the random data
+	 * @param referenceDate the last day with generated purchases
+	 * @param channelCount the channel count of the storage
+	 * @return the fixture
+	 */
+	public static StorageFixture get(
+		final Path             fixturesDirectory,
+		final RandomDataAmount dataAmount       ,
+		final long             seed             ,
+		final LocalDate        referenceDate    ,
+		final int              channelCount
+	)
+	{
+		final Path           directory = fixturesDirectory
+			.resolve("v" + VERSION)
+			.resolve(
+				key(dataAmount) + "-" + seed
+					+ "-" + referenceDate.format(DateTimeFormatter.BASIC_ISO_DATE)
+					+ "-c" + channelCount
+			);
+		final StorageFixture fixture   = new StorageFixture(directory);
+		if(!Files.exists(directory.resolve(CHECKSUMS)))
+		{
+			fixture.generate(dataAmount, seed, referenceDate, channelCount);
+		}
+		return fixture;
+	}
+
+	/**
+	 * Clones the fixture for a data amount, seed and reference date into the given directories,
+	 * if the storage directory doesn't exist or is empty.
+	 *
+	 * @param fixturesDirectory the base directory of all fixtures
+	 * @param dataAmount the data amount
+	 * @param seed the seed of the random data
+	 * @param referenceDate the last day with generated purchases
+	 * @param storage the settings of the target storage, which define its directory and channel count
+	 * @param indexDirectory the target index directory, or <code>null</code> if the indices shouldn't be cloned
+	 * @param mode how the files are cloned
+	 * @return <code>true</code> if the fixture was cloned
+	 */
+	public static boolean cloneIfEmpty(
+		final Path             fixturesDirectory,
+		final RandomDataAmount dataAmount       ,
+		final long             seed             ,
+		final LocalDate        referenceDate    ,
+		final StorageSettings  storage          ,
+		final Path             indexDirectory   ,
+		final CloneMode        mode
+	)
+	{
+		if(!isEmpty(storage.storageDirectory()))
+		{
+			return false;
+		}
+		get(fixturesDirectory, dataAmount, seed, referenceDate, storage.channelCount())
+			.cloneTo(storage.storageDirectory(), indexDirectory, mode);
+		return true;
+	}
+
+	private static String key(final RandomDataAmount dataAmount)
+	{
+		return HexFormat.of().formatHex(
+			sha256().digest(dataAmount.toString().getBytes(StandardCharsets.UTF_8)),
+			0,
+			8
+		);
+	}
+
+	private static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean isEmpty(final Path directory)
+	{
+		if(!Files.isDirectory(directory))
+		{
+			return true;
+		}
+		try(Stream<Path> entries = Files.list(directory))
+		{
+			return entries.findAny().isEmpty();
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+
+	private final Path directory;
+
+	private StorageFixture(final Path directory)
+	{
+		super();
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the directory of this fixture
+	 */
+	public Path directory()
+	{
+		return this.directory;
+	}
+
+	/**
+	 * Verifies the checksums of all files of this fixture.
+	 *
+	 * @throws IllegalStateException if a file is missing or has been changed
+	 */
+	public void verify()
+	{
+		final Map<String, String> expected = this.readChecksums();
+		final Map<String, String> actual   = this.computeChecksums();
+		if(!expected.equals(actual))
+		{
+			throw new IllegalStateException(
+				"Fixture " + this.directory + " has been changed, delete it to generate it again"
+			);
+		}
+	}
+
+	/**
+	 * Verifies this fixture and clones it into the given directories.
+	 *
+	 * @param storageDirectory the target storage directory, which must not contain any files
+	 * @param indexDirectory the target index directory, or <code>null</code> if the indices shouldn't be cloned
+	 * @param mode how the files are cloned
+	 */
+	public void cloneTo(
+		final Path      storageDirectory,
+		final Path      indexDirectory  ,
+		final CloneMode mode
+	)
+	{
+		final long start = System.nanoTime();
+
+		this.verify();
+		this.cloneDirectory(this.directory.resolve(STORAGE), storageDirectory, mode);
+		if(indexDirectory != null)
+		{
+			this.cloneDirectory(this.directory.resolve(INDEX), indexDirectory, mode);
+		}
+
+		this.logger().info(
+			"Fixture " + this.directory + " cloned (" + mode + ") in "
+				+ Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms"
+		);
+	}
+
+	private void cloneDirectory(
+		final Path      source,
+		final Path      target,
+		final CloneMode mode
+	)
+	{
+		try(Stream<Path> paths = Files.walk(source))
+		{
+			for(final Path path : (Iterable<Path>)paths::iterator)
+			{
+				final Path targetPath = target.resolve(source.relativize(path).toString());
+				if(Files.isDirectory(path))
+				{
+					Files.createDirectories(targetPath);
+				}
+				else if(!path.getFileName().toString().equals(INDEX_LOCK))
+				{
+					mode.clone(path, targetPath);
+				}
+			}
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * Generates the data into a temporary directory, which is moved to the fixture's directory when completed,
+	 * so concurrent or aborted generations never leave an incomplete fixture.
+	 */
+	private void generate(
+		final RandomDataAmount dataAmount   ,
+		final long             seed         ,
+		final LocalDate        referenceDate,
+		final int              channelCount
+	)
+	{
+		this.logger().info(
+			"Generating fixture " + this.directory + ": " + dataAmount + ", seed " + seed + ", reference date " + referenceDate
+		);
+
+		try
+		{
+			Files.createDirectories(this.directory.getParent());
+			final Path temporaryDirectory = Files.createTempDirectory(
+				this.directory.getParent(),
+				this.directory.getFileName() + ".tmp"
+			);
+
+			final DirectoryFactory previousIndex = Index.configure(
+				Book.class,
+				DirectoryFactory.MMap(temporaryDirectory.resolve(INDEX))
+			);
+			final BookStoreDemo demo = new BookStoreDemo(
+				dataAmount,
+				StorageSettings.Default(temporaryDirectory.resolve(STORAGE))
+					.with(StorageSettings.CHANNEL_COUNT, Integer.toString(channelCount)),
+				seed,
+				referenceDate
+			);
+			try
+			{
+				// builds the index
+				demo.data().books().searchByTitle("fixture");
+			}
+			finally
+			{
+				demo.shutdown();
+				Index.configure(Book.class, previousIndex != null ? previousIndex : DirectoryFactory.MMap());
+			}
+
+			Files.writeString(
+				temporaryDirectory.resolve(PROPERTIES),
+				"version=" + VERSION + "\n"
+					+ "seed=" + seed + "\n"
+					+ "reference-date=" + referenceDate + "\n"
+					+ "channel-count=" + channelCount + "\n"
+					+ "data-amount=" + dataAmount + "\n"
+			);
+			final StorageFixture temporary = new StorageFixture(temporaryDirectory);
+			temporary.writeChecksums(temporary.computeChecksums());
+
+			try
+			{
+				Files.move(temporaryDirectory, this.directory, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(final FileSystemException e)
+			{
+				if(!Files.exists(this.directory.resolve(CHECKSUMS)))
+				{
+					throw e;
+				}
+				// generated concurrently by someone else
+				temporary.delete();
+			}
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private void delete() throws IOException
+	{
+		try(Stream<Path> paths = Files.walk(this.directory))
+		{
+			for(final Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator)
+			{
+				Files.delete(path);
+			}
+		}
+	}
+
+	private Map<String, String> computeChecksums()
+	{
+		try(Stream<Path> paths = Files.walk(this.directory))
+		{
+			final List<Path> files = paths
+				.filter(Files::isRegularFile)
+				.filter(path -> !path.getFileName().toString().equals(CHECKSUMS))
+				.filter(path -> !path.getFileName().toString().equals(INDEX_LOCK))
+				.collect(Collectors.toList());
+			final Map<String, String> checksums = new TreeMap<>();
+			for(final Path file : files)
+			{
+				checksums.put(
+					this.directory.relativize(file).toString().replace('\\', '/'),
+					checksum(file)
+				);
+			}
+			return checksums;
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private static String checksum(final Path file) throws IOException
+	{
+		final MessageDigest digest = sha256();
+		try(InputStream input = new DigestInputStream(Files.newInputStream(file), digest))
+		{
+			input.transferTo(OutputStream.nullOutputStream());
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Writes the checksums in the format of <code>sha256sum</code>.
+	 */
+	private void writeChecksums(final Map<String, String> checksums) throws IOException
+	{
+		try(BufferedWriter writer = Files.newBufferedWriter(this.directory.resolve(CHECKSUMS)))
+		{
+			for(final Map.Entry<String, String> entry : checksums.entrySet())
+			{
+				writer.write(entry.getValue() + "  " + entry.getKey());
+				writer.newLine();
+			}
+		}
+	}
+
+	private Map<String, String> readChecksums()
+	{
+		try(Stream<String> lines = Files.lines(this.directory.resolve(CHECKSUMS)))
+		{
+			return lines
+				.filter(line -> !line.isBlank())
+				.collect(Collectors.toMap(
+					line -> line.substring(line.indexOf("  ") + 2),
+					line -> line.substring(0, line.indexOf("  ")),
+					(a, b) -> a,
+					TreeMap::new
+				));
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+
+	/**
+	 * Generates fixtures in advance, see {@link StorageFixture} and {@link ReplApplication} for the options.
+	 *
+	 * @param args <code>--fixtures=&lt;directory&gt;</code>, <code>--seed=&lt;long&gt;</code>,
+	 * the properties of the data amount and optionally <code>--reference-date=&lt;yyyy-mm-dd&gt;</code>
+	 * and <code>--channel-count=&lt;int&gt;</code>
+	 */
+	public static void main(final String[] args)
+	{
+		final Map<String, String> options = ReplApplication.parseOptions(
+			args,
+			List.of("fixtures", "seed", ReplApplication.REFERENCE_DATE)
+		);
+		final String              seed    = options.get("seed");
+		if(seed == null)
+		{
+			throw new IllegalArgumentException("Fixtures need a fixed seed: --seed=<long>");
+		}
+		final StorageFixture fixture = get(
+			Paths.get(options.getOrDefault("fixtures", "fixtures")),
+			RandomDataAmount.fromProperties(options::get),
+			Long.parseLong(seed),
+			ReplApplication.referenceDate(options),
+			StorageSettings.fromProperties(options::get).channelCount()
+		);
+		fixture.verify();
+		fixture.logger().info("Fixture ready: " + fixture.directory());
+	}
+
+}
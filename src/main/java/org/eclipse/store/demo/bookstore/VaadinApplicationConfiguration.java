@@ -14,9 +14,37 @@ package org.eclipse.store.demo.bookstore;
  * #L%
  */
 
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.store.demo.bookstore.backup.BackupService;
+import org.eclipse.store.demo.bookstore.data.Books;
+import org.eclipse.store.demo.bookstore.data.Purchases;
 import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
+import org.eclipse.store.demo.bookstore.data.RandomDataGenerator;
+import org.eclipse.store.demo.bookstore.data.Reorders;
+import org.eclipse.store.demo.bookstore.data.Shops;
+import org.eclipse.store.demo.bookstore.data.WarmUp;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+import org.eclipse.store.demo.bookstore.statistics.StatisticsService;
+import org.eclipse.store.demo.bookstore.util.concurrent.AsyncExecutor;
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
+import org.eclipse.store.demo.bookstore.util.concurrent.LockMetrics;
+import org.eclipse.store.demo.bookstore.util.concurrent.LockStriping;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.eclipse.store.demo.bookstore.util.concurrent.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
 
 @Configuration
 public class VaadinApplicationConfiguration
@@ -28,12 +56,207 @@ public class VaadinApplicationConfiguration
 
 	/**
 	 * Manages the creation and disposal of the {@link BookStoreDemo} singleton.
+	 * The lock striping, compute pools, single flights and result caches of the domain classes
+	 * have to be configured beforehand.
 	 */
 	@Bean(destroyMethod = "shutdown")
-	public BookStoreDemo getBookStoreDemo()
+	public BookStoreDemo getBookStoreDemo(final Environment environment)
 	{
-		final BookStoreDemo demo = new BookStoreDemo(RandomDataAmount.Medium());
+		LockStriping.configure(
+			Purchases.class,
+			LockStriping.valueOf(environment.getProperty("bookstore.locks.purchases", "per-key"))
+		);
+		SingleFlight.configure(
+			Purchases.class,
+			environment.getProperty("bookstore.coalescing.purchases", Duration.class, Duration.ofSeconds(1))
+		);
+		List.of(Purchases.class, Books.class, Shops.class).forEach(domain ->
+			ResultCache.configure(
+				domain,
+				environment.getProperty(
+					"bookstore.cache." + domain.getSimpleName().toLowerCase() + ".max-entries",
+					Long.class,
+					1000L
+				)
+			)
+		);
+		ComputePool.WORKLOADS.forEach(workload ->
+			ComputePool.configure(
+				workload,
+				environment.getProperty(
+					"bookstore.pools." + workload + ".parallelism",
+					Integer.class,
+					ComputePool.DEFAULT_PARALLELISM
+				)
+			)
+		);
+
+		AsyncExecutor.configure(
+			environment.getProperty("bookstore.async.executor", AsyncExecutor.VIRTUAL),
+			environment.getProperty("bookstore.async.threads", Integer.class, AsyncExecutor.DEFAULT_THREADS)
+		);
+
+		final RandomDataAmount dataAmount    = RandomDataAmount.fromProperties(
+			key -> environment.getProperty("bookstore.data." + key)
+		);
+		final StorageSettings  storage       = StorageSettings.fromProperties(
+			key -> environment.getProperty("bookstore.storage." + key)
+		);
+		final Long             seed          = environment.getProperty("bookstore.data.seed", Long.class);
+		final String           fixtures      = environment.getProperty("bookstore.data.fixtures");
+		final String           reference     = environment.getProperty("bookstore.data.reference-date");
+		final LocalDate        referenceDate = reference != null
+			? LocalDate.parse(reference.trim())
+			: RandomDataGenerator.defaultReferenceDate();
+		if(seed != null && fixtures != null)
+		{
+			StorageFixture.cloneIfEmpty(
+				Paths.get(fixtures),
+				dataAmount,
+				seed,
+				referenceDate,
+				storage,
+				Paths.get("data", "index"),
+				// the application writes to its storage, so the fixture must never be linked
+				StorageFixture.CloneMode.COPY
+			);
+		}
+
+		final BookStoreDemo demo = new BookStoreDemo(
+			dataAmount,
+			storage,
+			seed != null
+				? seed
+				: ThreadLocalRandom.current().nextLong(),
+			referenceDate
+		);
 		demo.storageManager(); // eager init
 		return demo;
 	}
+
+	/**
+	 * Starts the {@link Reorders} engine of the {@link BookStoreDemo} with the configured thresholds.
+	 */
+	@Bean
+	public Reorders getReorders(
+		final BookStoreDemo demo,
+		@Value("${bookstore.reorder.min-amount:5}")         final int minAmount      ,
+		@Value("${bookstore.reorder.target-amount:20}")     final int targetAmount   ,
+		@Value("${bookstore.reorder.lead-time-days:14}")    final int leadTimeDays   ,
+		@Value("${bookstore.reorder.sales-window-days:30}") final int salesWindowDays
+	)
+	{
+		final Reorders reorders = demo.data().reorders();
+		reorders.thresholds(new Reorders.Thresholds(minAmount, targetAmount, leadTimeDays, salesWindowDays));
+		return reorders;
+	}
+
+	/**
+	 * Starts the {@link WarmUp} of the {@link BookStoreDemo} right after the storage manager.
+	 * The partitions which are loaded at shutdown are recorded next to the storage and preloaded on the next start.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	public WarmUp getWarmUp(
+		final BookStoreDemo demo,
+		@Value("${bookstore.warm-up.years:}")              final Set<Integer> years        ,
+		@Value("${bookstore.warm-up.recent-years:1}")      final int          recentYears  ,
+		@Value("${bookstore.warm-up.hot-partitions:true}") final boolean      hotPartitions
+	)
+	{
+		final WarmUp warmUp = new WarmUp(
+			demo.data(),
+			years,
+			recentYears,
+			hotPartitions
+				? demo.storageSettings().storageDirectory().resolve("hot-partitions")
+				: null
+		);
+		warmUp.start();
+		return warmUp;
+	}
+
+	/**
+	 * Reports the progress of the {@link WarmUp}, which is part of the readiness group,
+	 * so <code>/actuator/health/readiness</code> is out of service until the warm-up is completed.
+	 */
+	@Bean("warmUp")
+	public HealthIndicator getWarmUpHealthIndicator(final WarmUp warmUp)
+	{
+		return () -> (warmUp.isReady() ? Health.up() : Health.outOfService())
+			.withDetail("state"           , warmUp.state()              )
+			.withDetail("loadedPartitions", warmUp.loadedPartitions()   )
+			.withDetail("totalPartitions" , warmUp.totalPartitions()    )
+			.withDetail("durationMillis"  , warmUp.duration().toMillis())
+			.build();
+	}
+
+	/**
+	 * Creates online backups, which are exposed via <code>/backup</code>.
+	 * Every backup first copies the whole storage into the staging directory, without the rate limit.
+	 */
+	@Bean
+	public BackupService getBackupService(
+		final BookStoreDemo demo,
+		@Value("${bookstore.backup.directory:backups}")  final String directory       ,
+		@Value("${bookstore.backup.staging-directory:}") final String stagingDirectory,
+		@Value("${bookstore.backup.rate-limit:50}")      final double rateLimit
+	)
+	{
+		return new BackupService(
+			demo,
+			Paths.get(directory),
+			stagingDirectory.isBlank()
+				? BackupService.defaultStagingDirectory(demo.storageSettings())
+				: Paths.get(stagingDirectory),
+			rateLimit
+		);
+	}
+
+	/**
+	 * Collects the heap footprint and storage file statistics, which are exposed via <code>/statistics</code>.
+	 */
+	@Bean
+	public StatisticsService getStatisticsService(
+		final BookStoreDemo demo,
+		@Value("${bookstore.statistics.max-age:10s}") final Duration maxAge
+	)
+	{
+		return new StatisticsService(demo, maxAge);
+	}
+
+	/**
+	 * Records the gauges of the {@link StatisticsService}, which are available via the metrics endpoint and JMX.
+	 */
+	@Bean
+	public MeterBinder getStatisticsBinder(final StatisticsService statisticsService)
+	{
+		return statisticsService::bindTo;
+	}
+
+	/**
+	 * Records the queue depth of the {@link ComputePool}s.
+	 */
+	@Bean
+	public MeterBinder getComputePoolBinder()
+	{
+		return ComputePool::bindTo;
+	}
+
+	/**
+	 * Enables the {@link LockMetrics} if configured, which are then available
+	 * via the metrics endpoint and JMX.
+	 */
+	@Bean
+	public MeterBinder getLockMetricsBinder(
+		@Value("${bookstore.lock-metrics.enabled:false}") final boolean enabled
+	)
+	{
+		return registry ->
+		{
+			if(enabled)
+			{
+				LockMetrics.enable(registry);
+			}
+		};
+	}
 }
@@ -0,0 +1,417 @@
+package org.eclipse.store.demo.bookstore.backup;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.eclipse.store.demo.bookstore.persistence.StorageFormat;
+
+/**
+ * A completed backup of the storage and the full text index, created by the {@link BackupService}.
+ * <p>
+ * It is located in <code>&lt;backups&gt;/&lt;yyyyMMdd-HHmmss&gt;-&lt;mode&gt;</code> and contains:
+ * <ul>
+ * <li><code>storage/</code>: the EclipseStore storage</li>
+ * <li><code>index/</code>: the Lucene indices</li>
+ * <li><code>backup.properties</code>: description of the backup, written last, so only complete backups have it</li>
+ * <li><code>checksums.sha256</code>: SHA-256 checksums of all files, see {@link #verify()}</li>
+ * </ul>
+ * To restore a backup, the application has to be stopped and the content of <code>storage/</code> and
+ * <code>index/</code> copied into the storage and index directories.
+ */
+public final class Backup
+{
+	public  final static String STORAGE    = "storage"          ;
+	public  final static String INDEX      = "index"            ;
+	        final static String CHECKSUMS  = "checksums.sha256" ;
+	        final static String PROPERTIES = "backup.properties";
+
+	private final static DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+		.withZone(ZoneOffset.UTC);
+
+	static String id(
+		final Instant    created,
+		final BackupMode mode
+	)
+	{
+		return ID_FORMAT.format(created) + "-" + mode.name().toLowerCase();
+	}
+
+	static boolean isId(final String id)
+	{
+		return id.matches("\\d{8}-\\d{6}-[a-z]+");
+	}
+
+	/**
+	 * Gets all complete backups in a directory.
+	 *
+	 * @param backupsDirectory the base directory of the backups
+	 * @return the backups, the oldest first
+	 */
+	public static List<Backup> list(final Path backupsDirectory)
+	{
+		if(!Files.isDirectory(backupsDirectory))
+		{
+			return Collections.emptyList();
+		}
+		try(Stream<Path> paths = Files.list(backupsDirectory))
+		{
+			return paths
+				.filter(path -> Files.isRegularFile(path.resolve(PROPERTIES)))
+				.sorted()
+				.map(Backup::open)
+				.collect(Collectors.toList());
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * @param backupsDirectory the base directory of the backups
+	 * @return the most recent complete backup, or <code>null</code> if there is none
+	 */
+	public static Backup latest(final Path backupsDirectory)
+	{
+		final List<Backup> backups = list(backupsDirectory);
+		return backups.isEmpty()
+			? null
+			: backups.get(backups.size() - 1);
+	}
+
+	/**
+	 * Opens a complete backup.
+	 *
+	 * @param directory the directory of the backup
+	 * @return the backup
+	 * @throws IllegalStateException if the backup is incomplete
+	 */
+	public static Backup open(final Path directory)
+	{
+		final Path file = directory.resolve(PROPERTIES);
+		if(!Files.isRegularFile(file))
+		{
+			throw new IllegalStateException("No complete backup found: " + directory);
+		}
+		final Properties properties = new Properties();
+		try(Reader reader = Files.newBufferedReader(file))
+		{
+			properties.load(reader);
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+		return new Backup(
+			directory,
+			BackupMode.ofName(properties.getProperty("mode")),
+			properties.getProperty("base"),
+			Instant.parse(properties.getProperty("created")),
+			StorageFormat.ofName(properties.getProperty("storage-format")),
+			Integer.parseInt(properties.getProperty("channel-count")),
+			Integer.parseInt(properties.getProperty("files")),
+			Long.parseLong(properties.getProperty("transferred-bytes")),
+			Long.parseLong(properties.getProperty("linked-bytes")),
+			Duration.parse(properties.getProperty("duration"))
+		);
+	}
+
+	static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	private final Path          directory       ;
+	private final String        id              ;
+	private final BackupMode    mode            ;
+	private final String        base            ;
+	private final Instant       created         ;
+	private final StorageFormat storageFormat   ;
+	private final int           channelCount    ;
+	private final int           files           ;
+	private final long          transferredBytes;
+	private final long          linkedBytes     ;
+	private final Duration      duration        ;
+
+	Backup(
+		final Path          directory       ,
+		final BackupMode    mode            ,
+		final String        base            ,
+		final Instant       created         ,
+		final StorageFormat storageFormat   ,
+		final int           channelCount    ,
+		final int           files           ,
+		final long          transferredBytes,
+		final long          linkedBytes     ,
+		final Duration      duration
+	)
+	{
+		super();
+		this.directory        = directory                         ;
+		this.id               = directory.getFileName().toString();
+		this.mode             = mode                              ;
+		this.base             = base                              ;
+		this.created          = created                           ;
+		this.storageFormat    = storageFormat                     ;
+		this.channelCount     = channelCount                      ;
+		this.files            = files                             ;
+		this.transferredBytes = transferredBytes                  ;
+		this.linkedBytes      = linkedBytes                       ;
+		this.duration         = duration                          ;
+	}
+
+	public Path directory()
+	{
+		return this.directory;
+	}
+
+	public String id()
+	{
+		return this.id;
+	}
+
+	public BackupMode mode()
+	{
+		return this.mode;
+	}
+
+	/**
+	 * @return the id of the backup an incremental backup is based on, <code>null</code> for full backups
+	 */
+	public String base()
+	{
+		return this.base;
+	}
+
+	/**
+	 * @return the point in time the storage was backed up
+	 */
+	public Instant created()
+	{
+		return this.created;
+	}
+
+	public StorageFormat storageFormat()
+	{
+		return this.storageFormat;
+	}
+
+	public int channelCount()
+	{
+		return this.channelCount;
+	}
+
+	/**
+	 * @return the amount of files in this backup
+	 */
+	public int files()
+	{
+		return this.files;
+	}
+
+	/**
+	 * @return the amount of bytes which have been copied
+	 */
+	public long transferredBytes()
+	{
+		return this.transferredBytes;
+	}
+
+	/**
+	 * @return the amount of bytes which are hard links to the base backup
+	 */
+	public long linkedBytes()
+	{
+		return this.linkedBytes;
+	}
+
+	/**
+	 * @return the time it took to create this backup
+	 */
+	public Duration duration()
+	{
+		return this.duration;
+	}
+
+	public Path storageDirectory()
+	{
+		return this.directory.resolve(STORAGE);
+	}
+
+	public Path indexDirectory()
+	{
+		return this.directory.resolve(INDEX);
+	}
+
+	/**
+	 * Verifies the checksums of all files of this backup.
+	 *
+	 * @throws IllegalStateException if a file is missing or has been changed
+	 */
+	public void verify()
+	{
+		final Map<String, String> expected = this.checksums();
+		final Map<String, String> actual   = computeChecksums(this.directory);
+		if(!expected.equals(actual))
+		{
+			final List<String> changed = expected.keySet().stream()
+				.filter(path -> !expected.get(path).equals(actual.get(path)))
+				.limit(10)
+				.collect(Collectors.toList());
+			throw new IllegalStateException(
+				"Backup " + this.directory + " is damaged, changed or missing files: " + changed
+			);
+		}
+	}
+
+	/**
+	 * Reads the checksums, in the format of <code>sha256sum</code>.
+	 *
+	 * @return the checksums, indexed by the relative path of the files
+	 */
+	Map<String, String> checksums()
+	{
+		try(Stream<String> lines = Files.lines(this.directory.resolve(CHECKSUMS)))
+		{
+			return lines
+				.filter(line -> !line.isBlank())
+				.collect(Collectors.toMap(
+					line -> line.substring(line.indexOf("  ") + 2),
+					line -> line.substring(0, line.indexOf("  ")),
+					(a, b) -> a,
+					TreeMap::new
+				));
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes the checksums and the properties, which completes this backup.
+	 */
+	void write(final Map<String, String> checksums) throws IOException
+	{
+		try(BufferedWriter writer = Files.newBufferedWriter(this.directory.resolve(CHECKSUMS)))
+		{
+			for(final Map.Entry<String, String> entry : checksums.entrySet())
+			{
+				writer.write(entry.getValue() + "  " + entry.getKey());
+				writer.newLine();
+			}
+		}
+
+		final Properties properties = new Properties();
+		properties.setProperty("mode"             , this.mode.name()                    );
+		properties.setProperty("created"          , this.created.toString()             );
+		properties.setProperty("storage-format"   , this.storageFormat.name()           );
+		properties.setProperty("channel-count"    , Integer.toString(this.channelCount) );
+		properties.setProperty("files"            , Integer.toString(this.files)        );
+		properties.setProperty("transferred-bytes", Long.toString(this.transferredBytes));
+		properties.setProperty("linked-bytes"     , Long.toString(this.linkedBytes)     );
+		properties.setProperty("duration"         , this.duration.toString()            );
+		if(this.base != null)
+		{
+			properties.setProperty("base", this.base);
+		}
+		try(Writer writer = Files.newBufferedWriter(this.directory.resolve(PROPERTIES)))
+		{
+			properties.store(writer, "EclipseStore BookStore Demo backup");
+		}
+	}
+
+	private static Map<String, String> computeChecksums(final Path directory)
+	{
+		try(Stream<Path> paths = Files.walk(directory))
+		{
+			final List<Path> files = paths
+				.filter(Files::isRegularFile)
+				.filter(path -> !path.getFileName().toString().equals(CHECKSUMS))
+				.filter(path -> !path.getFileName().toString().equals(PROPERTIES))
+				.collect(Collectors.toList());
+			final Map<String, String> checksums = new TreeMap<>();
+			for(final Path file : files)
+			{
+				checksums.put(
+					directory.relativize(file).toString().replace('\\', '/'),
+					checksum(file)
+				);
+			}
+			return checksums;
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 checksum of a file
+	 */
+	static String checksum(final Path file) throws IOException
+	{
+		final MessageDigest digest = sha256();
+		try(InputStream input = new DigestInputStream(Files.newInputStream(file), digest))
+		{
+			input.transferTo(OutputStream.nullOutputStream());
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.id                              + ": "
+			+ this.files                            + " files, "
+			+ this.transferredBytes / (1024 * 1024) + " MiB transferred, "
+			+ this.linkedBytes / (1024 * 1024)      + " MiB linked in "
+			+ this.duration.toMillis()              + " ms";
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.eclipse.store.demo.bookstore.backup;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.util.List;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for online backups, see {@link BackupService}.
+ * <ul>
+ * <li>POST /backup?mode=full|incremental creates a backup and returns it</li>
+ * <li>GET /backup returns all complete backups, the oldest first</li>
+ * <li>POST /backup/{id}/verify verifies that a backup can be restored, <code>latest</code> for the most recent one</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/backup")
+public class BackupController implements HasLogger
+{
+	private final BackupService service;
+
+	BackupController(final BackupService service)
+	{
+		super();
+		this.service = service;
+	}
+
+	@PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<?> backup(
+		@RequestParam(name = "mode", defaultValue = "incremental") final String modeName
+	)
+	{
+		final BackupMode mode;
+		try
+		{
+			mode = BackupMode.ofName(modeName);
+		}
+		catch(final IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+
+		try
+		{
+			return ResponseEntity.ok(this.service.backup(mode));
+		}
+		catch(final IORuntimeException e)
+		{
+			this.logger().warning("Backup failed", e);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+		}
+	}
+
+	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	List<Backup> backups()
+	{
+		return this.service.backups();
+	}
+
+	@PostMapping(
+		value    = "/{id}/verify",
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	ResponseEntity<?> verify(@PathVariable("id") final String id)
+	{
+		final Backup backup;
+		try
+		{
+			backup = this.service.backup("latest".equals(id) ? null : id);
+		}
+		catch(final IllegalStateException e)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+		}
+
+		try
+		{
+			final RestoreVerification verification = this.service.verify(backup);
+			return verification.consistent()
+				? ResponseEntity.ok(verification)
+				: ResponseEntity.status(HttpStatus.CONFLICT).body(verification);
+		}
+		catch(final IllegalStateException | IORuntimeException e)
+		{
+			this.logger().warning("Verification of backup " + backup.id() + " failed", e);
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+		}
+	}
+
+}
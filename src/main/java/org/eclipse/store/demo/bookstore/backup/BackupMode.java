@@ -0,0 +1,52 @@
+package org.eclipse.store.demo.bookstore.backup;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+/**
+ * Mode of a {@link Backup}.
+ */
+public enum BackupMode
+{
+	/**
+	 * All files are transferred.
+	 */
+	FULL,
+
+	/**
+	 * Only files which changed since the last backup are transferred, unchanged files are hard links
+	 * to the last backup, so each backup is still complete on its own.
+	 * Falls back to a full backup if there is no previous one.
+	 */
+	INCREMENTAL;
+
+	/**
+	 * @param name the name of the mode, case insensitive
+	 * @return the according mode
+	 * @throws IllegalArgumentException if no mode with the given name exists
+	 */
+	public static BackupMode ofName(final String name)
+	{
+		for(final BackupMode mode : values())
+		{
+			if(mode.name().equalsIgnoreCase(name))
+			{
+				return mode;
+			}
+		}
+		throw new IllegalArgumentException("Unknown backup mode: " + name);
+	}
+
+}
@@ -0,0 +1,631 @@
+package org.eclipse.store.demo.bookstore.backup;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.eclipse.serializer.afs.nio.types.NioFileSystem;
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.Book;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Index;
+import org.eclipse.store.demo.bookstore.data.Index.DirectoryFactory;
+import org.eclipse.store.demo.bookstore.persistence.StorageFormat;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Creates {@link Backup}s of the running application and verifies that they can be restored.
+ * <p>
+ * A backup is created in three steps:
+ * <ol>
+ * <li>EclipseStore copies a consistent image of the whole storage into the staging directory,
+ * see {@link EmbeddedStorageManager#issueFullBackup(org.eclipse.serializer.afs.types.ADirectory)}.
+ * It is a local copy which can't be throttled, and the storage channels are busy until it is done.</li>
+ * <li>The files of the last commit of the full text index are retained by a snapshot, see {@link Index#snapshot(Index.SnapshotConsumer)}.</li>
+ * <li>The staged storage files and the index files are transferred into the backup directory,
+ * which is usually on another volume. The transfer is throttled by the rate limit,
+ * so it doesn't starve the storage writes of the application.</li>
+ * </ol>
+ * Incremental backups only transfer files which changed since the last backup, unchanged files are hard links to it.
+ * Every file is hashed, and it is linked only if its SHA-256 checksum equals the one recorded by the last backup.
+ * <p>
+ * If the storage has a continuous backup, see {@link StorageSettings#BACKUP_DIRECTORY}, incremental backups
+ * are transferred from it instead of a staged copy, so nothing is copied on the storage's volume at all.
+ * EclipseStore updates the continuous backup with every store, so it is written while it is transferred.
+ * The transaction logs are transferred first, so the data files are at least as long as the logs state,
+ * trailing bytes of incomplete stores are truncated by EclipseStore on start.
+ * Each of these backups is verified, see {@link #verify(Backup)}, and created from a staged copy
+ * if it can't be restored, e.g. because the housekeeping deleted a file during the transfer.
+ * <p>
+ * Only one backup is created at a time.
+ */
+public class BackupService implements HasLogger
+{
+	public final static double DEFAULT_RATE_LIMIT = 50;
+
+	private final static int    BUFFER_SIZE              = 64 * 1024;
+	/*
+	 * EclipseStore's transaction logs, see transferContinuousBackup.
+	 */
+	private final static String TRANSACTIONS_FILE_SUFFIX = ".sft"   ;
+
+	/**
+	 * @param storageSettings the settings of the storage to back up
+	 * @return the default staging directory, next to the storage directory
+	 */
+	public static Path defaultStagingDirectory(final StorageSettings storageSettings)
+	{
+		return storageSettings.storageDirectory().toAbsolutePath().resolveSibling("backup-staging");
+	}
+
+
+	private final BookStoreDemo bookStoreDemo   ;
+	private final Path          directory       ;
+	private final Path          stagingDirectory;
+	private final RateLimiter   rateLimiter     ;
+
+	/**
+	 * @param bookStoreDemo the demo to back up
+	 * @param directory the base directory of the backups
+	 * @param stagingDirectory the directory the storage image is copied into first, should be on the same volume as the storage
+	 * @param rateLimit the maximum transfer rate in MiB per second, 0 for no limit
+	 */
+	public BackupService(
+		final BookStoreDemo bookStoreDemo   ,
+		final Path          directory       ,
+		final Path          stagingDirectory,
+		final double        rateLimit
+	)
+	{
+		super();
+		if(rateLimit < 0)
+		{
+			throw new IllegalArgumentException("Rate limit must not be negative: " + rateLimit);
+		}
+		this.bookStoreDemo    = bookStoreDemo   ;
+		this.directory        = directory       ;
+		this.stagingDirectory = stagingDirectory;
+		this.rateLimiter      = rateLimit > 0
+			? RateLimiter.create(rateLimit * 1024 * 1024)
+			: null;
+	}
+
+	/**
+	 * @return the base directory of the backups
+	 */
+	public Path directory()
+	{
+		return this.directory;
+	}
+
+	/**
+	 * @return all complete backups, the oldest first
+	 */
+	public List<Backup> backups()
+	{
+		return Backup.list(this.directory);
+	}
+
+	/**
+	 * Gets a complete backup.
+	 *
+	 * @param id the id of the backup, or <code>null</code> for the most recent one
+	 * @return the backup
+	 * @throws IllegalStateException if there is no such backup
+	 */
+	public Backup backup(final String id)
+	{
+		if(id == null)
+		{
+			final Backup latest = Backup.latest(this.directory);
+			if(latest == null)
+			{
+				throw new IllegalStateException("No backup found in " + this.directory);
+			}
+			return latest;
+		}
+		if(!Backup.isId(id))
+		{
+			throw new IllegalStateException("Invalid backup id: " + id);
+		}
+		return Backup.open(this.directory.resolve(id));
+	}
+
+	/**
+	 * Creates a new backup while the application is running.
+	 * <p>
+	 * Full backups copy the whole storage into the staging directory first, unthrottled, see {@link BackupService}.
+	 * Incremental backups are transferred from the continuous backup, if the storage has one.
+	 *
+	 * @param mode full or incremental
+	 * @return the new backup
+	 */
+	public synchronized Backup backup(final BackupMode mode)
+	{
+		final long    start   = System.nanoTime();
+		final Instant created = Instant.now();
+		final Backup  base    = mode == BackupMode.INCREMENTAL
+			? Backup.latest(this.directory)
+			: null;
+		if(mode == BackupMode.INCREMENTAL && base == null)
+		{
+			this.logger().info("No previous backup found in " + this.directory + ", creating a full backup");
+		}
+		final BackupMode actualMode       = base == null ? BackupMode.FULL : mode;
+		final Path       target           = this.directory.resolve(Backup.id(created, actualMode));
+		final Path       continuousBackup = this.bookStoreDemo.storageSettings().backupDirectory();
+
+		try
+		{
+			if(actualMode == BackupMode.INCREMENTAL && continuousBackup != null)
+			{
+				try
+				{
+					final Backup backup = this.create(target, actualMode, base, created, start, continuousBackup);
+					if(this.verify(backup).consistent())
+					{
+						return backup;
+					}
+					this.logger().warning("Backup of the continuous backup is inconsistent, staging the storage");
+				}
+				catch(final IOException | RuntimeException e)
+				{
+					this.logger().warning("Backup of the continuous backup failed, staging the storage", e);
+				}
+				delete(target);
+			}
+
+			return this.create(target, actualMode, base, created, start, null);
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * Creates a backup, either from a staged copy of the storage or from its continuous backup.
+	 *
+	 * @param continuousBackup the directory of the continuous backup, or <code>null</code> to stage the storage
+	 */
+	private Backup create(
+		final Path       target          ,
+		final BackupMode mode            ,
+		final Backup     base            ,
+		final Instant    created         ,
+		final long       start           ,
+		final Path       continuousBackup
+	)
+		throws IOException
+	{
+		this.deleteIncompleteBackups();
+		Files.createDirectories(target);
+
+		final Path          storageDirectory = this.bookStoreDemo.storageSettings().storageDirectory();
+		final StorageFormat format           = StorageFormat.detect(storageDirectory);
+		final Transfer      transfer         = new Transfer(target, base);
+		final int           channelCount;
+		if(continuousBackup != null)
+		{
+			channelCount = this.transferContinuousBackup(continuousBackup, transfer);
+			transfer.files(storageDirectory, List.of(StorageFormat.MARKER), Backup.STORAGE);
+		}
+		else
+		{
+			channelCount = this.transferStaged(format, transfer);
+		}
+		this.bookStoreDemo.data().books().snapshotIndex((indexDirectory, fileNames) ->
+			transfer.files(indexDirectory, fileNames, Backup.INDEX + "/" + indexDirectory.getFileName())
+		);
+
+		final Backup backup = new Backup(
+			target,
+			mode,
+			base != null ? base.id() : null,
+			created,
+			format,
+			channelCount,
+			transfer.checksums.size(),
+			transfer.transferredBytes,
+			transfer.linkedBytes,
+			Duration.ofNanos(System.nanoTime() - start)
+		);
+		backup.write(transfer.checksums);
+		this.logger().info("Backup created: " + backup);
+		return backup;
+	}
+
+	/**
+	 * Stages a consistent copy of the storage and transfers it.
+	 *
+	 * @return the channel count of the storage
+	 */
+	private int transferStaged(
+		final StorageFormat format  ,
+		final Transfer      transfer
+	)
+		throws IOException
+	{
+		try
+		{
+			delete(this.stagingDirectory);
+			this.bookStoreDemo.storageManager().issueFullBackup(
+				NioFileSystem.New().ensureDirectory(this.stagingDirectory.toAbsolutePath())
+			);
+			format.mark(this.stagingDirectory);
+			this.logger().info("Storage staged for backup in " + this.stagingDirectory);
+
+			transfer.directory(this.stagingDirectory, Backup.STORAGE);
+			return StorageSettings.Default(this.stagingDirectory).existingChannelCount();
+		}
+		finally
+		{
+			try
+			{
+				delete(this.stagingDirectory);
+			}
+			catch(final IOException e)
+			{
+				this.logger().warning("Staging directory could not be deleted: " + this.stagingDirectory, e);
+			}
+		}
+	}
+
+	/**
+	 * Transfers the continuous backup of the storage, the transaction logs first, see {@link BackupService}.
+	 *
+	 * @return the channel count of the storage
+	 */
+	private int transferContinuousBackup(
+		final Path     continuousBackup,
+		final Transfer transfer
+	)
+		throws IOException
+	{
+		final List<String> fileNames = new ArrayList<>(fileNames(continuousBackup));
+		fileNames.sort(Comparator.comparing(fileName -> !fileName.endsWith(TRANSACTIONS_FILE_SUFFIX)));
+		transfer.files(continuousBackup, fileNames, Backup.STORAGE);
+		this.logger().info("Continuous backup transferred from " + continuousBackup);
+		return StorageSettings.Default(continuousBackup).existingChannelCount();
+	}
+
+	/**
+	 * Verifies that a backup can be restored: the checksums are verified, a copy of the storage is started
+	 * and all data is loaded, and the full text index is opened and compared to the books.
+	 * Neither the backup nor the running application is modified.
+	 *
+	 * @param backup the backup to verify
+	 * @return the result of the verification
+	 * @throws IllegalStateException if the backup is damaged or cannot be loaded
+	 */
+	public RestoreVerification verify(final Backup backup)
+	{
+		final long start = System.nanoTime();
+
+		backup.verify();
+
+		try
+		{
+			final Path restoreDirectory = Files.createTempDirectory("bookstore-restore");
+			try
+			{
+				new Transfer(restoreDirectory, null).directory(backup.storageDirectory(), Backup.STORAGE);
+
+				final RestoreVerification verification = this.verify(
+					backup,
+					StorageSettings.Default(restoreDirectory.resolve(Backup.STORAGE)).with(
+						StorageSettings.CHANNEL_COUNT,
+						Integer.toString(backup.channelCount())
+					),
+					start
+				);
+				if(verification.consistent())
+				{
+					this.logger().info("Backup verified: " + verification);
+				}
+				else
+				{
+					this.logger().warning("Backup verified: " + verification);
+				}
+				return verification;
+			}
+			finally
+			{
+				delete(restoreDirectory);
+			}
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private RestoreVerification verify(
+		final Backup          backup  ,
+		final StorageSettings settings,
+		final long            start
+	)
+		throws IOException
+	{
+		final int books    ;
+		final int customers;
+		final int shops    ;
+		long      purchases = 0;
+
+		final EmbeddedStorageManager storage = settings
+			.createFoundation(backup.storageFormat())
+			.createEmbeddedStorageManager()
+			.start();
+		try
+		{
+			final Data data = (Data)storage.root();
+			if(data == null)
+			{
+				throw new IllegalStateException("No data found in backup " + backup.id());
+			}
+			// the restored books are indexed in memory only, if at all
+			data.books().indexDirectoryFactory(DirectoryFactory.InMemory());
+			books     = data.books().bookCount();
+			customers = data.customers().customerCount();
+			shops     = data.shops().shopCount();
+			data.shops().all().forEach(shop -> shop.inventory().slotCount());
+
+			final Range<Integer> years = data.purchases().years();
+			for(int year = years.lowerEndpoint(); year <= years.upperEndpoint(); year++)
+			{
+				purchases += data.purchases().computeByYear(year, stream -> stream.count());
+				data.purchases().clear(year);
+			}
+		}
+		finally
+		{
+			storage.shutdown();
+		}
+
+		int indexedBooks = -1;
+		final Path indexDirectory = backup.indexDirectory().resolve(Book.class.getSimpleName());
+		if(Files.isDirectory(indexDirectory))
+		{
+			try(Directory directory = FSDirectory.open(indexDirectory);
+				DirectoryReader reader = DirectoryReader.open(directory))
+			{
+				indexedBooks = reader.numDocs();
+			}
+		}
+
+		return new RestoreVerification(
+			backup.id(),
+			books,
+			customers,
+			shops,
+			purchases,
+			indexedBooks,
+			Duration.ofNanos(System.nanoTime() - start)
+		);
+	}
+
+	/**
+	 * Deletes the remains of interrupted backups, which have no properties.
+	 */
+	private void deleteIncompleteBackups() throws IOException
+	{
+		if(!Files.isDirectory(this.directory))
+		{
+			return;
+		}
+		final List<Path> incomplete;
+		try(Stream<Path> paths = Files.list(this.directory))
+		{
+			incomplete = paths
+				.filter(Files::isDirectory)
+				.filter(path -> !Files.exists(path.resolve(Backup.PROPERTIES)))
+				.collect(Collectors.toList());
+		}
+		for(final Path path : incomplete)
+		{
+			this.logger().info("Deleting incomplete backup " + path);
+			delete(path);
+		}
+	}
+
+	/**
+	 * @return the paths of all files in a directory, relative to it and with forward slashes
+	 */
+	private static List<String> fileNames(final Path directory) throws IOException
+	{
+		try(Stream<Path> paths = Files.walk(directory))
+		{
+			return paths
+				.filter(Files::isRegularFile)
+				.map(path -> directory.relativize(path).toString().replace('\\', '/'))
+				.collect(Collectors.toList());
+		}
+	}
+
+	private static void delete(final Path directory) throws IOException
+	{
+		if(!Files.exists(directory))
+		{
+			return;
+		}
+		try(Stream<Path> paths = Files.walk(directory))
+		{
+			for(final Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator)
+			{
+				Files.delete(path);
+			}
+		}
+	}
+
+
+	/**
+	 * Transfer of files into a backup, which records their checksums.
+	 */
+	private class Transfer
+	{
+		final Path                target          ;
+		final Backup              base            ;
+		final Map<String, String> baseChecksums   ;
+		final Map<String, String> checksums       = new TreeMap<>();
+		long                      transferredBytes;
+		long                      linkedBytes     ;
+
+		Transfer(
+			final Path   target,
+			final Backup base
+		)
+		{
+			super();
+			this.target        = target;
+			this.base          = base  ;
+			this.baseChecksums = base != null
+				? base.checksums()
+				: Map.of();
+		}
+
+		/**
+		 * Transfers all files of a directory.
+		 */
+		void directory(
+			final Path   source,
+			final String prefix
+		)
+			throws IOException
+		{
+			this.files(source, fileNames(source), prefix);
+		}
+
+		/**
+		 * Transfers specific files of a directory.
+		 */
+		void files(
+			final Path               source   ,
+			final Collection<String> fileNames,
+			final String             prefix
+		)
+			throws IOException
+		{
+			for(final String fileName : fileNames)
+			{
+				final String path = prefix + "/" + fileName;
+				final Path   file = this.target.resolve(path);
+				Files.createDirectories(file.getParent());
+				if(!this.link(source.resolve(fileName), file, path))
+				{
+					this.copy(source.resolve(fileName), file, path);
+				}
+			}
+		}
+
+		/**
+		 * Links a file to the base backup if its checksum is unchanged.
+		 * The file is hashed locally, without the rate limit.
+		 */
+		private boolean link(
+			final Path   source,
+			final Path   target,
+			final String path
+		)
+			throws IOException
+		{
+			final String baseChecksum = this.baseChecksums.get(path);
+			if(baseChecksum == null)
+			{
+				return false;
+			}
+			final Path baseFile = this.base.directory().resolve(path);
+			final long size     = Files.size(source);
+			// different sizes can't have the same content, no need to hash
+			if(!Files.isRegularFile(baseFile) || Files.size(baseFile) != size)
+			{
+				return false;
+			}
+			final String checksum = Backup.checksum(source);
+			if(!checksum.equals(baseChecksum))
+			{
+				return false;
+			}
+			try
+			{
+				Files.createLink(target, baseFile);
+			}
+			catch(final UnsupportedOperationException | FileSystemException e)
+			{
+				return false;
+			}
+			this.checksums.put(path, checksum);
+			this.linkedBytes += size;
+			return true;
+		}
+
+		/**
+		 * Copies a file, throttled by the rate limit.
+		 */
+		private void copy(
+			final Path   source,
+			final Path   target,
+			final String path
+		)
+			throws IOException
+		{
+			final MessageDigest digest = Backup.sha256();
+			final byte[]        buffer = new byte[BUFFER_SIZE];
+			try(InputStream  input  = Files.newInputStream(source);
+				OutputStream output = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW))
+			{
+				for(int read; (read = input.read(buffer)) > 0;)
+				{
+					if(BackupService.this.rateLimiter != null)
+					{
+						BackupService.this.rateLimiter.acquire(read);
+					}
+					digest.update(buffer, 0, read);
+					output.write(buffer, 0, read);
+					this.transferredBytes += read;
+				}
+			}
+			this.checksums.put(path, HexFormat.of().formatHex(digest.digest()));
+		}
+	}
+
+}
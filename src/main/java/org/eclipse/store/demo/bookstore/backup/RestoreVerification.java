@@ -0,0 +1,115 @@
+package org.eclipse.store.demo.bookstore.backup;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.time.Duration;
+
+/**
+ * Result of a restore verification, see {@link BackupService#verify(Backup)}.
+ */
+public class RestoreVerification
+{
+	private final String   backup      ;
+	private final int      books       ;
+	private final int      customers   ;
+	private final int      shops       ;
+	private final long     purchases   ;
+	private final int      indexedBooks;
+	private final Duration duration    ;
+
+	public RestoreVerification(
+		final String   backup      ,
+		final int      books       ,
+		final int      customers   ,
+		final int      shops       ,
+		final long     purchases   ,
+		final int      indexedBooks,
+		final Duration duration
+	)
+	{
+		super();
+		this.backup       = backup      ;
+		this.books        = books       ;
+		this.customers    = customers   ;
+		this.shops        = shops       ;
+		this.purchases    = purchases   ;
+		this.indexedBooks = indexedBooks;
+		this.duration     = duration    ;
+	}
+
+	/**
+	 * @return the id of the verified backup
+	 */
+	public String backup()
+	{
+		return this.backup;
+	}
+
+	public int books()
+	{
+		return this.books;
+	}
+
+	public int customers()
+	{
+		return this.customers;
+	}
+
+	public int shops()
+	{
+		return this.shops;
+	}
+
+	public long purchases()
+	{
+		return this.purchases;
+	}
+
+	/**
+	 * @return the amount of books in the full text index, -1 if the backup contains no index
+	 */
+	public int indexedBooks()
+	{
+		return this.indexedBooks;
+	}
+
+	public Duration duration()
+	{
+		return this.duration;
+	}
+
+	/**
+	 * @return <code>true</code> if the full text index matches the books of the storage
+	 */
+	public boolean consistent()
+	{
+		return this.indexedBooks < 0 || this.indexedBooks == this.books;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.backup             + ": "
+			+ this.books               + " books ("
+			+ this.indexedBooks        + " indexed), "
+			+ this.customers           + " customers, "
+			+ this.shops               + " shops, "
+			+ this.purchases           + " purchases, "
+			+ (this.consistent() ? "consistent" : "INCONSISTENT") + ", verified in "
+			+ this.duration.toMillis() + " ms";
+	}
+
+}
@@ -0,0 +1,169 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.eclipse.store.demo.bookstore.util.concurrent.AsyncExecutor;
+import org.eclipse.store.demo.bookstore.util.concurrent.ValueOperation;
+import org.eclipse.store.demo.bookstore.util.concurrent.VoidOperation;
+
+/**
+ * Asynchronous facade of a {@link Data} node.
+ * <p>
+ * All methods of {@link Books}, {@link Shops}, {@link Customers} and {@link Purchases} are blocking,
+ * they wait for locks and for partitions to be loaded from the storage.
+ * This facade executes queries and writes in the {@link AsyncExecutor} instead and returns
+ * {@link CompletableFuture}s, so that the calling thread is not blocked and independent operations run concurrently.
+ * <pre>
+ * data.async().purchases(purchases -&gt; purchases.bestSellerList(year))
+ *     .thenAccept(list -&gt; ...);
+ * </pre>
+ *
+ * @see Data#async()
+ */
+public class AsyncData
+{
+	private final Data          data    ;
+	private final AsyncExecutor executor;
+
+	AsyncData(
+		final Data          data    ,
+		final AsyncExecutor executor
+	)
+	{
+		super();
+		this.data     = data    ;
+		this.executor = executor;
+	}
+
+	/**
+	 * Executes a query of the {@link Books} asynchronously.
+	 *
+	 * @param <T> the query's return type
+	 * @param query the query to execute
+	 * @return a future of the query's result
+	 */
+	public <T> CompletableFuture<T> books(final Function<Books, T> query)
+	{
+		return this.executor.supply(() -> query.apply(this.data.books()));
+	}
+
+	/**
+	 * Executes a query of the {@link Shops} asynchronously.
+	 *
+	 * @param <T> the query's return type
+	 * @param query the query to execute
+	 * @return a future of the query's result
+	 */
+	public <T> CompletableFuture<T> shops(final Function<Shops, T> query)
+	{
+		return this.executor.supply(() -> query.apply(this.data.shops()));
+	}
+
+	/**
+	 * Executes a query of the {@link Customers} asynchronously.
+	 *
+	 * @param <T> the query's return type
+	 * @param query the query to execute
+	 * @return a future of the query's result
+	 */
+	public <T> CompletableFuture<T> customers(final Function<Customers, T> query)
+	{
+		return this.executor.supply(() -> query.apply(this.data.customers()));
+	}
+
+	/**
+	 * Executes a query of the {@link Purchases} asynchronously.
+	 *
+	 * @param <T> the query's return type
+	 * @param query the query to execute
+	 * @return a future of the query's result
+	 */
+	public <T> CompletableFuture<T> purchases(final Function<Purchases, T> query)
+	{
+		return this.executor.supply(() -> query.apply(this.data.purchases()));
+	}
+
+	/**
+	 * Executes a write to the {@link Books} asynchronously.
+	 *
+	 * @param write the write to execute
+	 * @return a future which completes when the write is done
+	 */
+	public CompletableFuture<Void> updateBooks(final Consumer<Books> write)
+	{
+		return this.executor.run(() -> write.accept(this.data.books()));
+	}
+
+	/**
+	 * Executes a write to the {@link Shops} asynchronously.
+	 *
+	 * @param write the write to execute
+	 * @return a future which completes when the write is done
+	 */
+	public CompletableFuture<Void> updateShops(final Consumer<Shops> write)
+	{
+		return this.executor.run(() -> write.accept(this.data.shops()));
+	}
+
+	/**
+	 * Executes a write to the {@link Customers} asynchronously.
+	 *
+	 * @param write the write to execute
+	 * @return a future which completes when the write is done
+	 */
+	public CompletableFuture<Void> updateCustomers(final Consumer<Customers> write)
+	{
+		return this.executor.run(() -> write.accept(this.data.customers()));
+	}
+
+	/**
+	 * Executes a write to the {@link Purchases} asynchronously.
+	 *
+	 * @param write the write to execute
+	 * @return a future which completes when the write is done
+	 */
+	public CompletableFuture<Void> updatePurchases(final Consumer<Purchases> write)
+	{
+		return this.executor.run(() -> write.accept(this.data.purchases()));
+	}
+
+	/**
+	 * Executes an arbitrary operation, e.g. spanning multiple domains, asynchronously.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return a future of the operation's result
+	 */
+	public <T> CompletableFuture<T> supply(final ValueOperation<T> operation)
+	{
+		return this.executor.supply(operation);
+	}
+
+	/**
+	 * Executes an arbitrary operation, e.g. spanning multiple domains, asynchronously.
+	 *
+	 * @param operation the operation to execute
+	 * @return a future which completes when the operation is done
+	 */
+	public CompletableFuture<Void> run(final VoidOperation operation)
+	{
+		return this.executor.run(operation);
+	}
+
+}
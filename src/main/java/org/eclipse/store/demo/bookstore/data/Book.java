@@ -39,6 +39,10 @@ public class Book extends Named
 	private final Language       language     ;
 	private final MonetaryAmount purchasePrice;
 	private final MonetaryAmount retailPrice  ;
+	/*
+	 * Dense catalog number, assigned once by Books when the book is added, -1 until then.
+	 */
+	private       int            ordinal       = -1;
 	
 	/**
 	 * Constructor to create a new {@link Book} instance.
@@ -154,6 +158,44 @@ public class Book extends Named
 		return this.retailPrice;
 	}
 
+	/**
+	 * Get the dense catalog number of this book, which is assigned by {@link Books} when the book is added.
+	 * It is used as compact key by {@link Inventory}.
+	 *
+	 * @return the ordinal
+	 */
+	int ordinal()
+	{
+		return this.ordinal;
+	}
+
+	/**
+	 * Package-private setter used by {@link Books}.
+	 * The ordinal is write-once, inventories of all storages sharing this book rely on it.
+	 *
+	 * @throws IllegalStateException if a different ordinal has already been assigned
+	 */
+	void ordinal(final int ordinal)
+	{
+		if(this.ordinal >= 0 && this.ordinal != ordinal)
+		{
+			throw new IllegalStateException(
+				"Ordinal of book " + this.isbn13 + " is already assigned: " + this.ordinal + ", requested: " + ordinal
+			);
+		}
+		this.ordinal = ordinal;
+	}
+
+	/**
+	 * Package-private setter used by {@link Books#upgrade(java.util.Set)}.
+	 * Books of storages from older versions are loaded with ordinal 0, since EclipseStore doesn't run
+	 * field initializers, so the write-once check of {@link #ordinal(int)} doesn't apply.
+	 */
+	void upgradeOrdinal(final int ordinal)
+	{
+		this.ordinal = ordinal;
+	}
+
 	@Override
 	public String toString()
 	{
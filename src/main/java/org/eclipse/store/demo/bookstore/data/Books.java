@@ -16,13 +16,18 @@ package org.eclipse.store.demo.bookstore.data;
  */
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableList;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Stream;
 
 import org.apache.lucene.document.Field.Store;
@@ -32,9 +37,14 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.util.QueryBuilder;
 import org.eclipse.serializer.persistence.types.PersistenceStoring;
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.Index.DirectoryFactory;
 import org.eclipse.store.demo.bookstore.data.Index.DocumentPopulator;
 import org.eclipse.store.demo.bookstore.data.Index.EntityMatcher;
+import org.eclipse.store.demo.bookstore.data.Index.SnapshotConsumer;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
 import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLocked;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.eclipse.store.demo.bookstore.util.concurrent.ValueOperation;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 
 /**
@@ -44,12 +54,20 @@ import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
  * {@link Publisher}s and {@link Language}s.
  * <p>
  * All operations on this type are thread safe.
+ * <p>
+ * Search results are cached until the next book is added, see {@link ResultCache}.
+ * The returned lists are shared and therefore unmodifiable.
  *
  * @see Data#books()
  * @see ReadWriteLocked
  */
 public class Books extends ReadWriteLocked
 {
+	/**
+	 * All results depend on the whole range of books, so there is only one partition in the {@link ResultCache}.
+	 */
+	private final static String BOOKS = "books";
+
 	/*
 	 * Multiple maps holding references to the books, for a faster lookup.
 	 */
@@ -58,13 +76,19 @@ public class Books extends ReadWriteLocked
 	private final Map<Genre, List<Book>>     genreToBooks     = new HashMap<>();
 	private final Map<Publisher, List<Book>> publisherToBooks = new HashMap<>();
 	private final Map<Language, List<Book>>  languageToBooks  = new HashMap<>();
+	/**
+	 * All books in the order they were added, the position is the {@link Book#ordinal()}.
+	 */
+	private       List<Book>                 ordinalToBook    = new ArrayList<>(4096);
 	/**
 	 * Index used by {@link #searchByTitle(String)}.
 	 */
 	/*
 	 * Transient means it is not persisted by EclipseStore, but created on demand.
 	 */
-	private transient volatile Index<Book>   index;
+	private transient volatile Index<Book>      index;
+	private transient volatile ResultCache      results;
+	private transient volatile DirectoryFactory indexDirectoryFactory;
 	
 	public Books()
 	{
@@ -98,9 +122,11 @@ public class Books extends ReadWriteLocked
 	{
 		this.write(() ->
 		{
+			this.requireAssignable(book, this.ordinalToBook.size());
 			this.ensureIndex().add(book);
 			this.addToCollections(book);
 			this.storeCollections(persister);
+			this.results().invalidate(BOOKS);
 		});
 	}
 
@@ -130,9 +156,15 @@ public class Books extends ReadWriteLocked
 	{
 		this.write(() ->
 		{
+			int ordinal = this.ordinalToBook.size();
+			for(final Book book : books)
+			{
+				this.requireAssignable(book, ordinal++);
+			}
 			this.ensureIndex().addAll(books);
 			books.forEach(this::addToCollections);
 			this.storeCollections(persister);
+			this.results().invalidate(BOOKS);
 		});
 	}
 
@@ -144,6 +176,7 @@ public class Books extends ReadWriteLocked
 	private void storeCollections(final PersistenceStoring persister)
 	{
 		persister.storeAll(
+			this.ordinalToBook   ,
 			this.isbn13ToBook    ,
 			this.authorToBooks   ,
 			this.genreToBooks    ,
@@ -152,6 +185,28 @@ public class Books extends ReadWriteLocked
 		);
 	}
 	
+	/**
+	 * Ensures that a book either has no ordinal yet or already the one it would get,
+	 * which is the case if books are copied in ordinal order, see {@link #allInOrdinalOrder()}.
+	 * Ordinals are write-once, since inventories keep them instead of the books.
+	 *
+	 * @param book the book to add
+	 * @param ordinal the ordinal the book would get
+	 * @throws IllegalArgumentException if the book has a different ordinal
+	 */
+	private void requireAssignable(
+		final Book book   ,
+		final int  ordinal
+	)
+	{
+		if(book.ordinal() >= 0 && book.ordinal() != ordinal)
+		{
+			throw new IllegalArgumentException(
+				"Book " + book.isbn13() + " already has ordinal " + book.ordinal() + ", cannot reassign " + ordinal
+			);
+		}
+	}
+
 	/**
 	 * Adds a book to all collections used by this implementation.
 	 *
@@ -159,6 +214,9 @@ public class Books extends ReadWriteLocked
 	 */
 	private void addToCollections(final Book book)
 	{
+		this.requireAssignable(book, this.ordinalToBook.size());
+		book.ordinal(this.ordinalToBook.size());
+		this.ordinalToBook.add(book);
 		this.isbn13ToBook.put(book.isbn13(), book);
 		this.addToMap(this.authorToBooks   , book.author()   , book);
 		this.addToMap(this.genreToBooks    , book.genre()    , book);
@@ -188,6 +246,40 @@ public class Books extends ReadWriteLocked
 		.add(book);
 	}
 
+	/**
+	 * Upgrades books which were loaded from a storage of a previous version, which had no ordinals yet.
+	 * Then {@link #ordinalToBook} is <code>null</code> and all books have the ordinal 0.
+	 * The ordinals are assigned in the order of the ISBN-13s, so the upgrade is deterministic.
+	 * <p>
+	 * Inventories of such storages have to be upgraded afterwards, see {@link Shops#upgradeInventories(Set)}.
+	 *
+	 * @param changedObjects collects the objects which have to be stored to persist the upgrade
+	 * @return <code>true</code> if the books were upgraded, <code>false</code> if they were up to date
+	 */
+	boolean upgrade(final Set<Object> changedObjects)
+	{
+		return this.write(() ->
+		{
+			if(this.ordinalToBook != null)
+			{
+				return false;
+			}
+
+			final List<Book> books = new ArrayList<>(Math.max(4096, this.isbn13ToBook.size()));
+			this.isbn13ToBook.values().stream()
+				.sorted(Comparator.comparing(Book::isbn13))
+				.forEach(book ->
+				{
+					book.upgradeOrdinal(books.size());
+					books.add(book);
+					changedObjects.add(book);
+				});
+			this.ordinalToBook = books;
+			changedObjects.add(this);
+			return true;
+		});
+	}
+
 	/**
 	 * Gets all books as a sorted {@link List}.
 	 * Modifications to the returned list are not reflected to the backed data.
@@ -203,6 +295,21 @@ public class Books extends ReadWriteLocked
 		);
 	}
 
+	/**
+	 * Gets all books in the order they were added.
+	 * Books added in this order to another {@link Books} keep their ordinals,
+	 * so inventories stay valid, see {@link Inventory}.
+	 * Modifications to the returned list are not reflected to the backed data.
+	 *
+	 * @return all books in the order they were added
+	 */
+	public List<Book> allInOrdinalOrder()
+	{
+		return this.read(() ->
+			new ArrayList<>(this.ordinalToBook)
+		);
+	}
+
 	/**
 	 * Gets all authors as a sorted {@link List}.
 	 * Modifications to the returned list are not reflected to the backed data.
@@ -295,7 +402,7 @@ public class Books extends ReadWriteLocked
 	public <T> T compute(final Function<Stream<Book>, T> streamFunction)
 	{
 		return this.read(() ->
-			streamFunction.apply(this.isbn13ToBook.values().stream())
+			streamFunction.apply(Deadline.current().guard(this.isbn13ToBook.values().stream()))
 		);
 	}
 
@@ -318,7 +425,7 @@ public class Books extends ReadWriteLocked
 			final List<Book> list = this.authorToBooks.get(author);
 			return streamFunction.apply(
 				list != null
-					? list.stream()
+					? Deadline.current().guard(list.stream())
 					: Stream.empty()
 			);
 		});
@@ -343,7 +450,7 @@ public class Books extends ReadWriteLocked
 			final List<Book> list = this.genreToBooks.get(genre);
 			return streamFunction.apply(
 				list != null
-					? list.stream()
+					? Deadline.current().guard(list.stream())
 					: Stream.empty()
 			);
 		});
@@ -368,7 +475,7 @@ public class Books extends ReadWriteLocked
 			final List<Book> list = this.publisherToBooks.get(publisher);
 			return streamFunction.apply(
 				list != null
-					? list.stream()
+					? Deadline.current().guard(list.stream())
 					: Stream.empty()
 			);
 		});
@@ -393,7 +500,7 @@ public class Books extends ReadWriteLocked
 			final List<Book> list = this.languageToBooks.get(language);
 			return streamFunction.apply(
 				list != null
-					? list.stream()
+					? Deadline.current().guard(list.stream())
 					: Stream.empty()
 			);
 		});
@@ -412,6 +519,22 @@ public class Books extends ReadWriteLocked
 		);
 	}
 
+	/**
+	 * Executes a function with a resolver of {@link Book#ordinal()}s to books and returns the computed value.
+	 * <p>
+	 * The resolver must not escape the function, since it is only valid while the read lock is held.
+	 *
+	 * @param <T> the return type
+	 * @param function computing function
+	 * @return the computed result
+	 */
+	<T> T computeByOrdinals(final Function<IntFunction<Book>, T> function)
+	{
+		return this.read(() ->
+			function.apply(this.ordinalToBook::get)
+		);
+	}
+
 	/**
 	 * Executes a function with a {@link Stream} of {@link Genre}s and returns the computed value.
 	 *
@@ -479,10 +602,97 @@ public class Books extends ReadWriteLocked
 	 */
 	public List<Book> searchByTitle(final String queryText)
 	{
-		final Index<Book>  index        = this.ensureIndex();
-		final QueryBuilder queryBuilder = index.createQueryBuilder();
-		final Query        query        = queryBuilder.createPhraseQuery("title", queryText);
-		return index.search(query, Integer.MAX_VALUE);
+		if(queryText == null)
+		{
+			return List.of();
+		}
+		return this.results().get(BOOKS, List.of("searchByTitle", queryText), () ->
+		{
+			final Index<Book>  index        = this.ensureIndex();
+			final QueryBuilder queryBuilder = index.createQueryBuilder();
+			final Query        query        = queryBuilder.createPhraseQuery("title", queryText);
+			return Collections.unmodifiableList(index.search(query, Integer.MAX_VALUE));
+		});
+	}
+
+	/**
+	 * Sets the directory factory of the full text index of these books, instead of the one configured
+	 * for all books, see {@link Index#configure(Class, DirectoryFactory)}.
+	 * This is used for temporary copies of a storage, whose index must not replace the application's one.
+	 *
+	 * @param directoryFactory the factory of the index directory
+	 * @throws IllegalStateException if the index is already open
+	 */
+	public void indexDirectoryFactory(final DirectoryFactory directoryFactory)
+	{
+		synchronized(this)
+		{
+			if(this.index != null)
+			{
+				throw new IllegalStateException("Index is already open");
+			}
+			this.indexDirectoryFactory = directoryFactory;
+		}
+	}
+
+	/**
+	 * Opens the full text index, so the first search doesn't have to wait for it.
+	 */
+	public void warmUp()
+	{
+		this.ensureIndex().size();
+	}
+
+	/**
+	 * Collects the heap footprint of all books and their lookup maps.
+	 * Authors, genres, publishers and languages are counted here as well,
+	 * the transient full text index is not.
+	 *
+	 * @return the footprint of the books
+	 */
+	public Footprint footprint()
+	{
+		return this.read(() ->
+		{
+			long bytes = Footprint.hashMap(this.isbn13ToBook.size())
+				+ Footprint.arrayList(this.ordinalToBook.size())
+				+ footprint(this.authorToBooks   )
+				+ footprint(this.genreToBooks    )
+				+ footprint(this.publisherToBooks)
+				+ footprint(this.languageToBooks );
+			for(final Book book : this.ordinalToBook)
+			{
+				bytes += Footprint.object(8, 4)
+					+ Footprint.string(book.title() )
+					+ Footprint.string(book.isbn13())
+					+ 2 * Footprint.MONEY;
+			}
+			return new Footprint("books", this.ordinalToBook.size(), 0, 0, bytes);
+		});
+	}
+
+	private static long footprint(
+		final Map<? extends Named, List<Book>> map
+	)
+	{
+		long bytes = Footprint.hashMap(map.size());
+		for(final Map.Entry<? extends Named, List<Book>> entry : map.entrySet())
+		{
+			bytes += Footprint.named(entry.getKey())
+				+ Footprint.arrayList(entry.getValue().size());
+		}
+		return bytes;
+	}
+
+	/**
+	 * Hands a consistent snapshot of the full text index files to a consumer, see {@link Index#snapshot(SnapshotConsumer)}.
+	 *
+	 * @param consumer the consumer of the snapshot
+	 * @return <code>true</code> if the index is file based and the consumer was called
+	 */
+	public boolean snapshotIndex(final SnapshotConsumer consumer)
+	{
+		return this.ensureIndex().snapshot(consumer);
 	}
 
 	/**
@@ -493,9 +703,11 @@ public class Books extends ReadWriteLocked
 	 */
 	public List<Book> allByAuthor(final Author author)
 	{
-		return this.computeByAuthor(
-			author,
-			books -> books.collect(toList())
+		return this.cached("allByAuthor", author, () ->
+			this.computeByAuthor(
+				author,
+				books -> books.collect(toUnmodifiableList())
+			)
 		);
 	}
 
@@ -507,9 +719,11 @@ public class Books extends ReadWriteLocked
 	 */
 	public List<Book> allByGenre(final Genre genre)
 	{
-		return this.computeByGenre(
-			genre,
-			books -> books.collect(toList())
+		return this.cached("allByGenre", genre, () ->
+			this.computeByGenre(
+				genre,
+				books -> books.collect(toUnmodifiableList())
+			)
 		);
 	}
 
@@ -521,9 +735,11 @@ public class Books extends ReadWriteLocked
 	 */
 	public List<Book> allByPublisher(final Publisher publisher)
 	{
-		return this.computeByPublisher(
-			publisher,
-			books -> books.collect(toList())
+		return this.cached("allByPublisher", publisher, () ->
+			this.computeByPublisher(
+				publisher,
+				books -> books.collect(toUnmodifiableList())
+			)
 		);
 	}
 
@@ -535,12 +751,53 @@ public class Books extends ReadWriteLocked
 	 */
 	public List<Book> allByLanguage(final Language language)
 	{
-		return this.computeByLanguage(
-			language,
-			books -> books.collect(toList())
+		return this.cached("allByLanguage", language, () ->
+			this.computeByLanguage(
+				language,
+				books -> books.collect(toUnmodifiableList())
+			)
 		);
 	}
 
+	/**
+	 * Gets the cached result of a lookup by a single argument, or executes the lookup and caches its result.
+	 * Lookups by <code>null</code> are executed without the cache, the key of the result can't hold it.
+	 */
+	private <T> T cached(
+		final String            method   ,
+		final Object            argument ,
+		final ValueOperation<T> operation
+	)
+	{
+		return argument != null
+			? this.results().get(BOOKS, List.of(method, argument), operation)
+			: operation.execute();
+	}
+
+	/**
+	 * Lazy initializes the result cache of the lookups.
+	 */
+	private ResultCache results()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.results) has to be volatile.
+		 */
+		ResultCache results = this.results;
+		if(results == null)
+		{
+			synchronized(this)
+			{
+				if((results = this.results) == null)
+				{
+					results = this.results = ResultCache.New(Books.class);
+				}
+			}
+		}
+		return results;
+	}
+
 	/**
 	 * Lazy initializes the full text search index.
 	 */
@@ -582,11 +839,10 @@ public class Books extends ReadWriteLocked
 			this.isbn13ToBook.get(document.get("isbn13"))
 		;
 
-		final Index<Book> index = new Index<>(
-			Book.class,
-			documentPopulator,
-			entityMatcher
-		);
+		final DirectoryFactory directoryFactory = this.indexDirectoryFactory;
+		final Index<Book>      index            = directoryFactory != null
+			? new Index<>(Book.class, documentPopulator, entityMatcher, directoryFactory)
+			: new Index<>(Book.class, documentPopulator, entityMatcher);
 
 		if(index.size() == 0 && this.bookCount() > 0)
 		{
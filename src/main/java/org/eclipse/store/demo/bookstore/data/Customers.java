@@ -14,18 +14,26 @@ package org.eclipse.store.demo.bookstore.data;
  * #L%
  */
 
+import static org.eclipse.store.demo.bookstore.util.concurrent.ComputePool.CUSTOMERS;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Flow;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.eclipse.serializer.persistence.types.PersistenceStoring;
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.ChunkedPublisher;
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
 import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLocked;
+import org.eclipse.store.demo.bookstore.util.concurrent.ValueOperation;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 
 /**
@@ -40,6 +48,11 @@ import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
  */
 public class Customers extends ReadWriteLocked
 {
+	/**
+	 * Amount of customers per chunk of {@link #publishAll()}.
+	 */
+	public final static int PAGE_SIZE = 1024;
+
 	/**
 	 * Map with {@link Customer#customerId()} as key
 	 */
@@ -126,6 +139,25 @@ public class Customers extends ReadWriteLocked
 		);
 	}
 
+	/**
+	 * Collects the heap footprint of all customers.
+	 *
+	 * @return the footprint of the customers
+	 */
+	public Footprint footprint()
+	{
+		return this.read(() ->
+		{
+			long bytes = Footprint.hashMap(this.customers.size());
+			for(final Customer customer : this.customers.values())
+			{
+				bytes += Footprint.named(customer)
+					+ Footprint.BOXED_INTEGER;
+			}
+			return new Footprint("customers", this.customers.size(), 0, 0, bytes);
+		});
+	}
+
 	/**
 	 * Gets all customers as a {@link List}.
 	 * Modifications to the returned list are not reflected to the backed data.
@@ -139,6 +171,55 @@ public class Customers extends ReadWriteLocked
 		);
 	}
 
+	/**
+	 * Publishes all customers, without copying them into a single list first.
+	 * <p>
+	 * The customers are published in pages of {@value #PAGE_SIZE}, as subscribers request items.
+	 * Customers removed in the meantime are skipped, customers added in the meantime are not published.
+	 *
+	 * @return a publisher of all customers
+	 * @see ChunkedPublisher
+	 */
+	public Flow.Publisher<Customer> publishAll()
+	{
+		return ChunkedPublisher.New(() ->
+		{
+			final int[] customerIds = this.read(() ->
+				this.customers.keySet().stream()
+					.mapToInt(Integer::intValue)
+					.toArray()
+			);
+			return IntStream.range(0, (customerIds.length + PAGE_SIZE - 1) / PAGE_SIZE)
+				.mapToObj(page -> (ValueOperation<List<Customer>>)() -> this.loadPage(
+					customerIds,
+					page * PAGE_SIZE,
+					Math.min(customerIds.length, (page + 1) * PAGE_SIZE)
+				))
+				.collect(Collectors.toList());
+		});
+	}
+
+	private List<Customer> loadPage(
+		final int[] customerIds,
+		final int   from       ,
+		final int   to
+	)
+	{
+		return this.read(() ->
+		{
+			final List<Customer> page = new ArrayList<>(to - from);
+			for(int i = from; i < to; i++)
+			{
+				final Customer customer = this.customers.get(customerIds[i]);
+				if(customer != null)
+				{
+					page.add(customer);
+				}
+			}
+			return page;
+		});
+	}
+
 	/**
 	 * Executes a function with a {@link Stream} of {@link Customer}s and returns the computed value.
 	 *
@@ -149,8 +230,10 @@ public class Customers extends ReadWriteLocked
 	public <T> T compute(final Function<Stream<Customer>, T> streamFunction)
 	{
 		return this.read(() ->
-			streamFunction.apply(
-				this.customers.values().parallelStream()
+			ComputePool.get(CUSTOMERS).compute(() ->
+				streamFunction.apply(
+					Deadline.current().guard(this.customers.values().parallelStream())
+				)
 			)
 		);
 	}
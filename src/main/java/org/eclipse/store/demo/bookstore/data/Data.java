@@ -15,7 +15,13 @@ package org.eclipse.store.demo.bookstore.data;
  * #L%
  */
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.AsyncExecutor;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 
 /**
@@ -39,6 +45,11 @@ public class Data
 	private final Shops     shops     = new Shops    ();
 	private final Customers customers = new Customers();
 	private final Purchases purchases = new Purchases();
+	/*
+	 * Transient means it is not persisted by EclipseStore, but created on demand.
+	 */
+	private transient volatile Reorders  reorders;
+	private transient volatile AsyncData async   ;
 
 	public Data()
 	{
@@ -60,7 +71,8 @@ public class Data
 	 */
 	public Shops shops()
 	{
-		return this.shops;
+		// the books resolve the inventories' ordinals, they are not persisted with the shops
+		return this.shops.bind(this.books);
 	}
 
 	/**
@@ -81,20 +93,117 @@ public class Data
 		return this.purchases;
 	}
 
+	/**
+	 * Get the {@link Reorders} engine of this data node, which is started on first access.
+	 * @return the {@link Reorders}
+	 */
+	public Reorders reorders()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.reorders) has to be volatile.
+		 */
+		Reorders reorders = this.reorders;
+		if(reorders == null)
+		{
+			synchronized(this)
+			{
+				if((reorders = this.reorders) == null)
+				{
+					reorders = this.reorders = new Reorders(
+						this.shops(),
+						this.purchases,
+						Reorders.Thresholds.Default()
+					);
+					reorders.start();
+				}
+			}
+		}
+		return reorders;
+	}
+
+	/**
+	 * Get the asynchronous facade of this data node.
+	 * @return the {@link AsyncData}
+	 */
+	public AsyncData async()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.async) has to be volatile.
+		 */
+		AsyncData async = this.async;
+		if(async == null)
+		{
+			synchronized(this)
+			{
+				if((async = this.async) == null)
+				{
+					async = this.async = new AsyncData(this, AsyncExecutor.get());
+				}
+			}
+		}
+		return async;
+	}
+
+	/**
+	 * Collects the heap footprints of all domains, without loading any lazy data.
+	 * Purchases are reported per year.
+	 *
+	 * @return the footprints of books, shops, customers and of each year of purchases
+	 * @see Footprint
+	 */
+	public List<Footprint> footprints()
+	{
+		final List<Footprint> footprints = new ArrayList<>();
+		footprints.add(this.books.footprint());
+		footprints.add(this.shops().footprint());
+		footprints.add(this.customers.footprint());
+		footprints.addAll(this.purchases.footprints());
+		return footprints;
+	}
+
+	/**
+	 * Upgrades data which was loaded from a storage of a previous version of this demo.
+	 * Fields which were added since are <code>null</code> or 0 after loading, because EclipseStore's legacy type mapping
+	 * neither runs constructors nor field initializers, so they are rebuilt from the existing data.
+	 * <p>
+	 * The changes are not stored by this method, so the caller decides whether the storage is upgraded
+	 * or only the loaded data, e.g. the source of a migration.
+	 *
+	 * @return the objects which have to be stored to persist the upgrade, empty if the data was up to date
+	 */
+	public Set<Object> upgrade()
+	{
+		final Set<Object> changedObjects = Shops.newChangedObjects();
+		if(this.books.upgrade(changedObjects))
+		{
+			this.shops().upgradeInventories(changedObjects);
+		}
+		this.shops().upgradeStock(changedObjects);
+		return changedObjects;
+	}
+
 	/**
 	 * This method is used exclusively by the {@link BookStoreDemo}.
 	 */
 	public DataMetrics populate(
 		final RandomDataAmount       initialDataSize,
+		final long                   seed           ,
+		final LocalDate              referenceDate  ,
 		final EmbeddedStorageManager storageManager
 	)
 	{
 		return new RandomDataGenerator(
 			this.books,
-			this.shops,
+			this.shops(),
 			this.customers,
 			this.purchases,
 			initialDataSize,
+			seed,
+			referenceDate,
 			storageManager
 		)
 		.generate();
@@ -0,0 +1,209 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.util.Collection;
+
+import org.eclipse.serializer.reference.Lazy;
+
+
+/**
+ * Heap footprint of a part of the {@link Data} graph: the amount of entities and {@link Lazy} references
+ * which are currently loaded and an estimation of the retained bytes.
+ * <p>
+ * The footprints are collected without loading any {@link Lazy} reference,
+ * so only what is currently in memory is counted. Objects shared between domains,
+ * like the books referenced by purchases, are only counted by their owning domain.
+ * <p>
+ * The estimation assumes a 64 bit JVM with compressed references and compact strings,
+ * it is meant to show the proportions between the domains, not the exact heap usage.
+ *
+ * @see Data#footprints()
+ */
+public class Footprint
+{
+	/*
+	 * Estimated shallow sizes of the JDK and EclipseStore types used in the data graph.
+	 */
+	final static int  HEADER        = 12;
+	final static int  ARRAY_HEADER  = 16;
+	final static int  REFERENCE     = 4 ;
+	final static long LAZY          = object(2, 16);
+	final static long BOXED_INTEGER = object(0, 4 );
+	final static long TIMESTAMP     = object(2, 0) + object(0, 8) + object(0, 8);
+	final static long MONEY         = object(3, 0) + object(2, 16);
+
+	/**
+	 * Estimated size of an object, aligned to eight bytes.
+	 *
+	 * @param references amount of reference fields
+	 * @param primitiveBytes accumulated size of the primitive fields
+	 * @return the estimated size in bytes
+	 */
+	static long object(final int references, final int primitiveBytes)
+	{
+		return align(HEADER + references * REFERENCE + primitiveBytes);
+	}
+
+	static long array(final int length, final int elementBytes)
+	{
+		return align(ARRAY_HEADER + (long)length * elementBytes);
+	}
+
+	static long string(final String value)
+	{
+		return value == null
+			? 0
+			: object(1, 8) + array(value.length(), 1);
+	}
+
+	static long arrayList(final int size)
+	{
+		return object(1, 8) + array(size, REFERENCE);
+	}
+
+	static long hashMap(final int size)
+	{
+		final int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, size * 4 / 3)) << 1);
+		return object(4, 16) + array(capacity, REFERENCE) + size * object(3, 4);
+	}
+
+	/**
+	 * Estimated size of a named entity, including its address if it has one.
+	 * Cities, states and countries are shared and not counted.
+	 *
+	 * @param named the entity
+	 * @return the estimated size in bytes
+	 */
+	static long named(final Named named)
+	{
+		long bytes = object(2, 0) + string(named.name());
+		if(named instanceof NamedWithAddress)
+		{
+			final Address address = ((NamedWithAddress)named).address();
+			bytes += object(4, 0)
+				+ string(address.address() )
+				+ string(address.address2())
+				+ string(address.zipCode() );
+		}
+		return bytes;
+	}
+
+	private static long align(final long bytes)
+	{
+		return bytes + 7 & ~7L;
+	}
+
+	/**
+	 * Sums up footprints of several parts of a domain, e.g. the purchases of all years.
+	 *
+	 * @param domain the name of the domain
+	 * @param footprints the parts
+	 * @return the accumulated footprint
+	 */
+	public static Footprint sum(
+		final String                domain    ,
+		final Collection<Footprint> footprints
+	)
+	{
+		long entities       = 0;
+		long loadedLazies   = 0;
+		long unloadedLazies = 0;
+		long estimatedBytes = 0;
+		for(final Footprint footprint : footprints)
+		{
+			entities       += footprint.entities      ;
+			loadedLazies   += footprint.loadedLazies  ;
+			unloadedLazies += footprint.unloadedLazies;
+			estimatedBytes += footprint.estimatedBytes;
+		}
+		return new Footprint(domain, entities, loadedLazies, unloadedLazies, estimatedBytes);
+	}
+
+
+	private final String domain        ;
+	private final long   entities      ;
+	private final long   loadedLazies  ;
+	private final long   unloadedLazies;
+	private final long   estimatedBytes;
+
+	public Footprint(
+		final String domain        ,
+		final long   entities      ,
+		final long   loadedLazies  ,
+		final long   unloadedLazies,
+		final long   estimatedBytes
+	)
+	{
+		super();
+		this.domain         = domain        ;
+		this.entities       = entities      ;
+		this.loadedLazies   = loadedLazies  ;
+		this.unloadedLazies = unloadedLazies;
+		this.estimatedBytes = estimatedBytes;
+	}
+
+	/**
+	 * @return the name of the domain, e.g. <code>books</code> or <code>purchases/2024</code>
+	 */
+	public String domain()
+	{
+		return this.domain;
+	}
+
+	/**
+	 * @return the amount of loaded entities
+	 */
+	public long entities()
+	{
+		return this.entities;
+	}
+
+	/**
+	 * @return the amount of {@link Lazy} references whose subject is loaded
+	 */
+	public long loadedLazies()
+	{
+		return this.loadedLazies;
+	}
+
+	/**
+	 * @return the amount of {@link Lazy} references whose subject is not loaded
+	 */
+	public long unloadedLazies()
+	{
+		return this.unloadedLazies;
+	}
+
+	/**
+	 * @return the estimated retained heap size in bytes
+	 */
+	public long estimatedBytes()
+	{
+		return this.estimatedBytes;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.domain               + ": "
+			+ this.entities              + " entities, "
+			+ this.loadedLazies          + " of "
+			+ (this.loadedLazies + this.unloadedLazies) + " lazy references loaded, ~"
+			+ this.estimatedBytes / 1024 + " KiB";
+	}
+
+}
@@ -22,7 +22,9 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -30,11 +32,17 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.util.QueryBuilder;
 import org.eclipse.serializer.exceptions.IORuntimeException;
@@ -68,13 +76,99 @@ public class Index<T> implements Closeable
 	{
 		// simple typing interface
 	}
-	
-	
+
+	/**
+	 * Consumer of a consistent snapshot of the index files, see {@link Index#snapshot(SnapshotConsumer)}.
+	 */
+	@FunctionalInterface
+	public static interface SnapshotConsumer
+	{
+		/**
+		 * Accepts the files of a commit, which are neither changed nor deleted while this method is running.
+		 *
+		 * @param directory the directory of the index
+		 * @param fileNames the names of the files belonging to the commit
+		 * @throws IOException if the files cannot be processed
+		 */
+		public void accept(Path directory, Collection<String> fileNames) throws IOException;
+	}
+
+	/**
+	 * Factory for the Lucene {@link Directory} of an index.
+	 */
+	@FunctionalInterface
+	public static interface DirectoryFactory
+	{
+		/**
+		 * Creates the directory of an index.
+		 *
+		 * @param entityType the object type of the index
+		 * @return the new directory
+		 * @throws IOException if the directory cannot be created
+		 */
+		public Directory create(Class<?> entityType) throws IOException;
+
+		/**
+		 * Memory mapped directories in <code>data/index</code>, which is the default.
+		 *
+		 * @return a new factory
+		 */
+		public static DirectoryFactory MMap()
+		{
+			return MMap(Paths.get("data", "index"));
+		}
+
+		/**
+		 * Memory mapped directories in the given base directory, one per object type.
+		 *
+		 * @param baseDirectory the base directory
+		 * @return a new factory
+		 */
+		public static DirectoryFactory MMap(final Path baseDirectory)
+		{
+			return entityType -> new MMapDirectory(baseDirectory.resolve(entityType.getSimpleName()));
+		}
+
+		/**
+		 * Heap based directories, which are not persistent.
+		 *
+		 * @return a new factory
+		 */
+		public static DirectoryFactory InMemory()
+		{
+			return entityType -> new ByteBuffersDirectory();
+		}
+	}
+
+
+	private final static Map<Class<?>, DirectoryFactory> DIRECTORY_FACTORIES = new ConcurrentHashMap<>();
+
+	/**
+	 * Configures the directories of all indices of a specific object type, which are created afterwards.
+	 *
+	 * @param entityType the object type
+	 * @param directoryFactory the factory of the directories
+	 * @return the previously configured factory, or <code>null</code>
+	 */
+	public static DirectoryFactory configure(
+		final Class<?>         entityType      ,
+		final DirectoryFactory directoryFactory
+	)
+	{
+		return DIRECTORY_FACTORIES.put(
+			Objects.requireNonNull(entityType),
+			Objects.requireNonNull(directoryFactory)
+		);
+	}
+
+
 	private final Class<T>             entityType       ;
 	private final DocumentPopulator<T> documentPopulator;
 	private final EntityMatcher<T>     entityMatcher    ;
-	private MMapDirectory              directory        ;
+	private final DirectoryFactory     directoryFactory ;
+	private Directory                  directory        ;
 	private IndexWriter                writer           ;
+	private SnapshotDeletionPolicy     snapshots        ;
 	private DirectoryReader            reader           ;
 	private IndexSearcher              searcher         ;
 
@@ -91,11 +185,36 @@ public class Index<T> implements Closeable
 		final DocumentPopulator<T> documentPopulator,
 		final EntityMatcher<T>     entityMatcher
 	)
+	{
+		this(
+			entityType,
+			documentPopulator,
+			entityMatcher,
+			DIRECTORY_FACTORIES.getOrDefault(entityType, DirectoryFactory.MMap())
+		);
+	}
+
+	/**
+	 * Constructor to create a new {@link Index} with a specific directory.
+	 *
+	 * @param <T> the object type
+	 * @param entityType not <code>null</code>
+	 * @param documentPopulator not <code>null</code>
+	 * @param entityMatcher not <code>null</code>
+	 * @param directoryFactory not <code>null</code>
+	 */
+	public Index(
+		final Class<T>             entityType       ,
+		final DocumentPopulator<T> documentPopulator,
+		final EntityMatcher<T>     entityMatcher    ,
+		final DirectoryFactory     directoryFactory
+	)
 	{
 		super();
 		this.entityType        = Objects.requireNonNull(entityType, () -> "EntityType cannot be null");
 		this.documentPopulator = Objects.requireNonNull(documentPopulator, () -> "DocumentPopulator cannot be null");
 		this.entityMatcher     = Objects.requireNonNull(entityMatcher, () -> "EntityMatcher cannot be null");
+		this.directoryFactory  = Objects.requireNonNull(directoryFactory, () -> "DirectoryFactory cannot be null");
 	}
 
 	/**
@@ -237,6 +356,78 @@ public class Index<T> implements Closeable
 		);
 	}
 
+	/**
+	 * Hands the files of the last commit to a consumer, e.g. to copy them for a backup.
+	 * The commit is retained by a {@link SnapshotDeletionPolicy} until the consumer is done,
+	 * while the index can still be used and changed.
+	 *
+	 * @param consumer the consumer of the snapshot
+	 * @return <code>true</code> if the consumer was called,
+	 *         <code>false</code> if this index is not file based and there is nothing to copy
+	 */
+	public boolean snapshot(final SnapshotConsumer consumer)
+	{
+		final SnapshotDeletionPolicy snapshots;
+		final IndexCommit            commit   ;
+		final Path                   directory;
+		synchronized(this)
+		{
+			this.lazyInit();
+
+			if(!(this.directory instanceof FSDirectory))
+			{
+				return false;
+			}
+			try
+			{
+				// ensures there is a commit, even if nothing has been added yet
+				this.writer.commit();
+				snapshots = this.snapshots;
+				commit    = snapshots.snapshot();
+				directory = ((FSDirectory)this.directory).getDirectory();
+			}
+			catch(final IOException e)
+			{
+				throw new IORuntimeException(e);
+			}
+		}
+
+		// the lock is not held while the files are consumed, so the index can be searched meanwhile
+		try
+		{
+			consumer.accept(directory, commit.getFileNames());
+			return true;
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+		finally
+		{
+			this.release(snapshots, commit);
+		}
+	}
+
+	private synchronized void release(
+		final SnapshotDeletionPolicy snapshots,
+		final IndexCommit            commit
+	)
+	{
+		// if the index has been closed in the meantime, the snapshot is gone anyway
+		if(this.snapshots == snapshots)
+		{
+			try
+			{
+				snapshots.release(commit);
+				this.writer.deleteUnusedFiles();
+			}
+			catch(final IOException e)
+			{
+				throw new IORuntimeException(e);
+			}
+		}
+	}
+
 	/**
 	 * Get the amount of entries in this index.
 	 *
@@ -255,15 +446,12 @@ public class Index<T> implements Closeable
 		{
 			if(this.directory == null)
 			{
-				final Path path = Paths.get(
-					"data",
-					"index",
-					this.entityType.getSimpleName()
-				);
-				this.directory = new MMapDirectory(path);
-				this.writer = new IndexWriter(
+				this.directory = this.directoryFactory.create(this.entityType);
+				this.snapshots = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+				this.writer    = new IndexWriter(
 					this.directory,
 					new IndexWriterConfig(new StandardAnalyzer())
+						.setIndexDeletionPolicy(this.snapshots)
 				);
 				this.searcher = new IndexSearcher(
 					this.reader = DirectoryReader.open(this.writer)
@@ -297,6 +485,7 @@ public class Index<T> implements Closeable
 
 			this.directory = null;
 			this.writer    = null;
+			this.snapshots = null;
 			this.reader    = null;
 			this.searcher  = null;
 		}
@@ -15,44 +15,134 @@ package org.eclipse.store.demo.bookstore.data;
  */
 
 import static java.util.stream.Collectors.toList;
-import static org.eclipse.serializer.util.X.coalesce;
+import static org.eclipse.store.demo.bookstore.util.ValidationUtils.requireZeroOrPositive;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLocked;
+import org.eclipse.serializer.persistence.types.PersistenceStoring;
+import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLockedOptimistic;
 
 /**
  * Inventory entity which holds {@link Book}s and amounts of them.
  * <p>
+ * The slots are kept in two parallel primitive arrays, sorted by {@link Book#ordinal()}.
+ * This avoids boxed amounts and map entries, lookups are done by binary search.
+ * <p>
+ * The inventory doesn't reference the {@link Books} which resolve the ordinals,
+ * they are passed in by the callers, usually {@link Shops}.
+ * <p>
  * All operations on this type are thread safe.
  *
- * @see ReadWriteLocked
+ * @see ReadWriteLockedOptimistic
  */
-public class Inventory extends ReadWriteLocked
+public class Inventory extends ReadWriteLockedOptimistic
 {
-	private final Map<Book, Integer> inventoryMap;
+	/**
+	 * Consumer of inventory slots, used to iterate without boxing or entry allocation.
+	 */
+	@FunctionalInterface
+	public static interface SlotConsumer
+	{
+		/**
+		 * Accepts a single slot.
+		 *
+		 * @param book the book of the slot
+		 * @param amount the amount of the book
+		 */
+		public void accept(Book book, int amount);
+	}
+
+
+	/*
+	 * Parallel arrays, sorted by book ordinal. Only the first [size] elements are used.
+	 */
+	private int[]              ordinals    ;
+	private int[]              amounts     ;
+	private int                size        ;
+	/*
+	 * Slots of storages from previous versions, which are loaded into this field by the legacy type mapping.
+	 * It is null after the inventory is upgraded, see upgrade(Set).
+	 */
+	private Map<Book, Integer> inventoryMap;
 
+	/**
+	 * Creates an empty inventory.
+	 */
 	public Inventory()
 	{
-		this(new HashMap<>());
+		this(Map.of());
 	}
 
 	/**
 	 * Package-private constructor used by {@link RandomDataGenerator}.
 	 */
-	Inventory(final Map<Book, Integer> inventoryMap)
+	Inventory(final Map<Book, Integer> slots)
 	{
 		super();
-		
-		this.inventoryMap = inventoryMap;
+
+		this.pack(slots);
 	}
-	
+
+	/**
+	 * Fills the arrays with the given slots.
+	 */
+	private void pack(final Map<Book, Integer> slots)
+	{
+		/*
+		 * Pack ordinal and amount into one long, so a single primitive sort orders both arrays.
+		 */
+		final long[] packed = new long[slots.size()];
+		int i = 0;
+		for(final Entry<Book, Integer> slot : slots.entrySet())
+		{
+			packed[i++] = (long)slot.getKey().ordinal() << 32 | slot.getValue() & 0xFFFFFFFFL;
+		}
+		Arrays.sort(packed);
+
+		this.size     = packed.length;
+		this.ordinals = new int[this.size];
+		this.amounts  = new int[this.size];
+		for(i = 0; i < this.size; i++)
+		{
+			this.ordinals[i] = (int)(packed[i] >>> 32);
+			this.amounts[i]  = (int)packed[i];
+		}
+	}
+
+	/**
+	 * Upgrades an inventory which was loaded from a storage of a previous version,
+	 * which kept the slots in a map instead of the arrays.
+	 * The ordinals of the books have to be assigned already, see {@link Books#upgrade(Set)}.
+	 *
+	 * @param changedObjects collects the objects which have to be stored to persist the upgrade
+	 */
+	void upgrade(final Set<Object> changedObjects)
+	{
+		this.write(() ->
+		{
+			if(this.ordinals != null)
+			{
+				return;
+			}
+
+			this.pack(this.inventoryMap != null
+				? this.inventoryMap
+				: Map.of()
+			);
+			this.inventoryMap = null;
+			changedObjects.add(this);
+		});
+	}
+
 	/**
 	 * Get the amount of a specific book in this inventory.
 	 *
@@ -61,28 +151,166 @@ public class Inventory extends ReadWriteLocked
 	 */
 	public int amount(final Book book)
 	{
-		return this.read(() -> coalesce(
-			this.inventoryMap.get(book),
-			0
-		));
+		return this.readOptimistic(() ->
+		{
+			final int index = Arrays.binarySearch(this.ordinals, 0, this.size, book.ordinal());
+			return index >= 0
+				? this.amounts[index]
+				: 0;
+		});
+	}
+
+	/**
+	 * Sets the amount of a specific book in this inventory and stores the changes with the given persister.
+	 * An amount of zero removes the book's slot.
+	 * <p>
+	 * This method is used exclusively by {@link Shops}, which keeps its stock index in sync.
+	 *
+	 * @param book the book
+	 * @param amount the new amount, zero or positive
+	 * @param persister the persister to store the changes with
+	 * @return the previous amount of the given book
+	 */
+	int put(
+		final Book               book     ,
+		final int                amount   ,
+		final PersistenceStoring persister
+	)
+	{
+		requireZeroOrPositive(amount, () -> "Amount cannot be negative");
+
+		return this.write(() ->
+		{
+			final int index = Arrays.binarySearch(this.ordinals, 0, this.size, book.ordinal());
+			final int previous;
+			if(index >= 0)
+			{
+				previous = this.amounts[index];
+				if(amount > 0)
+				{
+					this.amounts[index] = amount;
+				}
+				else
+				{
+					final int moved = this.size - index - 1;
+					System.arraycopy(this.ordinals, index + 1, this.ordinals, index, moved);
+					System.arraycopy(this.amounts , index + 1, this.amounts , index, moved);
+					this.size--;
+				}
+			}
+			else
+			{
+				previous = 0;
+				if(amount > 0)
+				{
+					if(this.size == this.ordinals.length)
+					{
+						final int capacity = Math.max(8, this.size + (this.size >> 1));
+						this.ordinals = Arrays.copyOf(this.ordinals, capacity);
+						this.amounts  = Arrays.copyOf(this.amounts , capacity);
+					}
+					final int insertion = -index - 1;
+					final int moved     = this.size - insertion;
+					System.arraycopy(this.ordinals, insertion, this.ordinals, insertion + 1, moved);
+					System.arraycopy(this.amounts , insertion, this.amounts , insertion + 1, moved);
+					this.ordinals[insertion] = book.ordinal();
+					this.amounts [insertion] = amount;
+					this.size++;
+				}
+			}
+
+			if(previous != amount)
+			{
+				/*
+				 * The arrays are modified in place, so they have to be stored explicitly.
+				 */
+				persister.storeAll(this, this.ordinals, this.amounts);
+			}
+
+			return previous;
+		});
+	}
+
+	/**
+	 * Iterates over all slots of this inventory, without boxing or entry allocation.
+	 * <p>
+	 * The consumer is called while the read lock is held, so it must not modify this inventory.
+	 *
+	 * @param books the books which resolve the ordinals of the slots
+	 * @param consumer the slot consumer
+	 */
+	public void forEach(
+		final Books        books   ,
+		final SlotConsumer consumer
+	)
+	{
+		this.read(() ->
+			books.computeByOrdinals(resolver ->
+			{
+				for(int i = 0; i < this.size; i++)
+				{
+					consumer.accept(resolver.apply(this.ordinals[i]), this.amounts[i]);
+				}
+				return null;
+			})
+		);
 	}
 
 	/**
 	 * Executes a function with a {@link Stream} of {@link Entry}s and returns the computed value.
+	 * <p>
+	 * Note that an entry is created per slot, prefer {@link #forEach(Books, SlotConsumer)} for full scans.
 	 *
 	 * @param <T> the return type
+	 * @param books the books which resolve the ordinals of the slots
 	 * @param streamFunction computing function
 	 * @return the computed result
 	 */
-	public <T> T compute(final Function<Stream<Entry<Book, Integer>>, T> streamFunction)
+	public <T> T compute(
+		final Books                                     books         ,
+		final Function<Stream<Entry<Book, Integer>>, T> streamFunction
+	)
 	{
 		return this.read(() ->
-			streamFunction.apply(
-				this.inventoryMap.entrySet().stream()
+			books.computeByOrdinals(resolver ->
+				streamFunction.apply(
+					IntStream.range(0, this.size).<Entry<Book, Integer>>mapToObj(i ->
+						new SimpleImmutableEntry<>(resolver.apply(this.ordinals[i]), this.amounts[i])
+					)
+				)
 			)
 		);
 	}
 
+	/**
+	 * Creates a {@link Stream} of {@link InventoryItem}s of a snapshot of this inventory.
+	 * The items are created lazily, while the stream is consumed.
+	 *
+	 * @param books the books which resolve the ordinals of the slots
+	 * @param shop the shop this inventory belongs to
+	 * @return a stream of inventory items
+	 */
+	Stream<InventoryItem> items(
+		final Books books,
+		final Shop  shop
+	)
+	{
+		return this.read(() ->
+			books.computeByOrdinals(resolver ->
+			{
+				final Book[] slotBooks = new Book[this.size];
+				final int[]  amounts   = Arrays.copyOf(this.amounts, this.size);
+				for(int i = 0; i < this.size; i++)
+				{
+					slotBooks[i] = resolver.apply(this.ordinals[i]);
+				}
+				return IntStream.range(0, slotBooks.length).mapToObj(i ->
+					new InventoryItem(shop, slotBooks[i], amounts[i])
+				);
+			})
+		);
+	}
+
 	/**
 	 * Get the total amount of slots (different books) in this inventory.
 	 *
@@ -90,8 +318,21 @@ public class Inventory extends ReadWriteLocked
 	 */
 	public int slotCount()
 	{
-		return this.read(() ->
-			this.inventoryMap.size()
+		return this.readOptimistic(() ->
+			this.size
+		);
+	}
+
+	/**
+	 * @return the estimated heap size of this inventory in bytes
+	 * @see Footprint
+	 */
+	long estimatedBytes()
+	{
+		return this.readOptimistic(() ->
+			Footprint.object(2, 4)
+				+ Footprint.array(this.ordinals.length, Integer.BYTES)
+				+ Footprint.array(this.amounts.length , Integer.BYTES)
 		);
 	}
 
@@ -99,12 +340,13 @@ public class Inventory extends ReadWriteLocked
 	 * Gets all books and their amount as a {@link List}.
 	 * Modifications to the returned list are not reflected to the backed data.
 	 *
+	 * @param books the books which resolve the ordinals of the slots
 	 * @return all books and their amount
 	 */
-	public List<Entry<Book, Integer>> slots()
+	public List<Entry<Book, Integer>> slots(final Books books)
 	{
-		return this.read(() ->
-			new ArrayList<>(this.inventoryMap.entrySet())
+		return this.compute(books, entries ->
+			entries.collect(toList())
 		);
 	}
 
@@ -112,13 +354,14 @@ public class Inventory extends ReadWriteLocked
 	 * Gets all books as a {@link List}.
 	 * Modifications to the returned list are not reflected to the backed data.
 	 *
+	 * @param books the books which resolve the ordinals of the slots
 	 * @return all books
 	 */
-	public List<Book> books()
+	public List<Book> books(final Books books)
 	{
-		return this.read(() ->
-			this.inventoryMap.keySet().stream().collect(toList())
-		);
+		final List<Book> slotBooks = new ArrayList<>();
+		this.forEach(books, (book, amount) -> slotBooks.add(book));
+		return slotBooks;
 	}
 
 }
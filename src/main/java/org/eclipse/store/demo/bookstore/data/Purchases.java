@@ -18,20 +18,26 @@ package org.eclipse.store.demo.bookstore.data;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.summingInt;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableList;
 import static org.eclipse.store.demo.bookstore.util.CollectionUtils.ensureParallelStream;
 import static org.eclipse.store.demo.bookstore.util.CollectionUtils.maxKey;
 import static org.eclipse.store.demo.bookstore.util.CollectionUtils.summingMonetaryAmount;
 import static org.eclipse.store.demo.bookstore.util.LazyUtils.clearIfStored;
+import static org.eclipse.store.demo.bookstore.util.concurrent.ComputePool.PURCHASES;
 import static org.javamoney.moneta.function.MonetaryFunctions.summarizingMonetary;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -41,8 +47,15 @@ import javax.money.MonetaryAmount;
 import org.eclipse.serializer.persistence.types.PersistenceStoring;
 import org.eclipse.serializer.reference.Lazy;
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.ChunkedPublisher;
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
+import org.eclipse.store.demo.bookstore.util.concurrent.LockStriping;
 import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLocked;
 import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLockedStriped;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.eclipse.store.demo.bookstore.util.concurrent.SingleFlight;
+import org.eclipse.store.demo.bookstore.util.concurrent.ValueOperation;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 
 import com.google.common.collect.Range;
@@ -53,12 +66,32 @@ import com.google.common.collect.Range;
  * This type is used to read and write the {@link Purchase}s and statistics thereof.
  * <p>
  * All operations on this type are thread safe.
+ * <p>
+ * Results of analytics queries are cached until the next write to the according year, see {@link ResultCache}.
+ * Concurrent identical queries share one computation, see {@link SingleFlight}.
+ * The returned lists are shared and therefore unmodifiable.
+ * Large results can be published chunk by chunk instead, e.g. {@link #publishPurchasesOfForeigners(int)}.
  *
  * @see Data#purchases()
  * @see ReadWriteLocked
  */
 public class Purchases extends ReadWriteLockedStriped
 {
+	/**
+	 * Listener which is notified about new purchases.
+	 */
+	@FunctionalInterface
+	public static interface PurchaseListener
+	{
+		/**
+		 * Called after a purchase was added, while the write lock of its year is still held.
+		 * Implementations should return quickly and must not call back into {@link Purchases}.
+		 *
+		 * @param purchase the new purchase
+		 */
+		public void purchaseAdded(Purchase purchase);
+	}
+
 	/**
 	 * This class hold all purchases made in a specific year.
 	 * <p>
@@ -89,10 +122,27 @@ public class Purchases extends ReadWriteLockedStriped
 			final PersistenceStoring persister
 		)
 		{
-			final List<Object> changedObjects = new ArrayList<>();
-			addToMap(this.shopToPurchases,     purchase.shop(),     purchase, changedObjects);
-			addToMap(this.employeeToPurchases, purchase.employee(), purchase, changedObjects);
-			addToMap(this.customerToPurchases, purchase.customer(), purchase, changedObjects);
+			return this.addAll(List.of(purchase), persister);
+		}
+
+		/**
+		 * Adds purchases to all collections used by this class.
+		 * Every changed collection is stored only once.
+		 *
+		 * @param purchases the purchases to add
+		 */
+		YearlyPurchases addAll(
+			final Collection<? extends Purchase> purchases,
+			final PersistenceStoring             persister
+		)
+		{
+			final Set<Object> changedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+			for(final Purchase purchase : purchases)
+			{
+				addToMap(this.shopToPurchases,     purchase.shop(),     purchase, changedObjects);
+				addToMap(this.employeeToPurchases, purchase.employee(), purchase, changedObjects);
+				addToMap(this.customerToPurchases, purchase.customer(), purchase, changedObjects);
+			}
 			if(persister != null && changedObjects.size() > 0)
 			{
 				persister.storeAll(changedObjects);
@@ -113,7 +163,7 @@ public class Purchases extends ReadWriteLockedStriped
 			final Map<K, Lazy<List<Purchase>>> map,
 			final K key,
 			final Purchase purchase,
-			final List<Object> changedObjects
+			final Set<Object> changedObjects
 		)
 		{
 			Lazy<List<Purchase>> lazy = map.get(key);
@@ -134,7 +184,8 @@ public class Purchases extends ReadWriteLockedStriped
 		}
 
 		/**
-		 * Clears all {@link Lazy} references used by this type
+		 * Clears all {@link Lazy} references used by this type.
+		 * The lists themselves are left untouched, the storage may hand out the same instances again when reloading.
 		 */
 		void clear()
 		{
@@ -153,9 +204,61 @@ public class Purchases extends ReadWriteLockedStriped
 			final Map<K, Lazy<List<Purchase>>> map
 		)
 		{
-			map.values().forEach(lazy ->
-				clearIfStored(lazy).ifPresent(List::clear)
-			);
+			map.values().forEach(lazy -> clearIfStored(lazy));
+		}
+
+		/**
+		 * Collects the heap footprint of this year without loading any list, including the {@link Lazy} reference to it.
+		 * Purchases are counted via the shop lists, the customer and employee lists only reference them.
+		 *
+		 * @param domain the name of the domain
+		 * @return the footprint of this year
+		 */
+		Footprint footprint(
+			final String domain
+		)
+		{
+			final long[] counts = {0, 1, 0}; // entities, loaded and unloaded lazy references
+			final long   bytes  = Footprint.LAZY
+				+ Footprint.object(3, 0)
+				+ footprint(this.shopToPurchases    , true , counts)
+				+ footprint(this.employeeToPurchases, false, counts)
+				+ footprint(this.customerToPurchases, false, counts);
+			return new Footprint(domain, counts[0], counts[1], counts[2], bytes);
+		}
+
+		private static <K> long footprint(
+			final Map<K, Lazy<List<Purchase>>> map   ,
+			final boolean                      owning,
+			final long[]                       counts
+		)
+		{
+			long bytes = Footprint.hashMap(map.size());
+			for(final Lazy<List<Purchase>> lazy : map.values())
+			{
+				bytes += Footprint.LAZY;
+				if(!lazy.isLoaded())
+				{
+					counts[2]++;
+					continue;
+				}
+				counts[1]++;
+				final List<Purchase> list = lazy.get();
+				bytes += Footprint.arrayList(list.size());
+				if(owning)
+				{
+					counts[0] += list.size();
+					for(final Purchase purchase : list)
+					{
+						final int items = purchase.itemCount();
+						bytes += Footprint.object(5, 0)
+							+ Footprint.TIMESTAMP
+							+ Footprint.arrayList(items)
+							+ items * Footprint.object(3, 4);
+					}
+				}
+			}
+			return bytes;
 		}
 
 		/**
@@ -217,39 +320,49 @@ public class Purchases extends ReadWriteLockedStriped
 	 * Map with {@link YearlyPurchases}, indexed by the year, of course.
 	 */
 	private final Map<Integer, Lazy<YearlyPurchases>> yearlyPurchases = new ConcurrentHashMap<>(32);
+	/*
+	 * Transient means it is not persisted by EclipseStore, but created on demand.
+	 */
+	private transient volatile List<PurchaseListener> purchaseListeners;
+	private transient volatile SingleFlight           analytics        ;
+	private transient volatile ResultCache            results          ;
 
 	public Purchases()
 	{
 		super();
 	}
+
+	/**
+	 * Years have a low cardinality, so every year gets its own lock by default.
+	 * This way writes to one year never block reads of another year.
+	 * Year 0 is used to guard the set of years.
+	 */
+	@Override
+	protected LockStriping defaultStriping()
+	{
+		return LockStriping.PerKey();
+	}
 	
 	/**
 	 * This method is used exclusively by the {@link RandomDataGenerator}
 	 * and it's not published by the {@link Purchases} interface.
+	 * <p>
+	 * Adds a chunk of purchases of a specific year and stores the changes.
+	 * The year stays loaded until its last chunk is stored and is unloaded afterwards,
+	 * so the generator's memory footprint doesn't grow with the amount of years.
 	 */
-	Set<Customer> init(
-		final int year,
+	void init(
+		final int                year     ,
 		final List<Purchase>     purchases,
+		final boolean            lastChunk,
 		final PersistenceStoring persister
 	)
 	{
-		return this.write(year, () ->
+		this.addAll(purchases, persister);
+		if(lastChunk)
 		{
-			final YearlyPurchases yearlyPurchases = new YearlyPurchases();
-			purchases.forEach(p -> yearlyPurchases.add(p, null));
-
-			final Lazy<YearlyPurchases> lazy = Lazy.Reference(yearlyPurchases);
-			this.yearlyPurchases.put(year, lazy);
-
-			persister.store(this.yearlyPurchases);
-
-			final Set<Customer> customers = new HashSet<>(yearlyPurchases.customerToPurchases.keySet());
-
-			yearlyPurchases.clear();
-			lazy.clear();
-
-			return customers;
-		});
+			this.clear(year);
+		}
 	}
 	
 	/**
@@ -296,9 +409,169 @@ public class Purchases extends ReadWriteLockedStriped
 					persister.store(this.yearlyPurchases);
 				});
 			}
+			this.invalidate(year);
+			this.firePurchaseAdded(purchase);
 		});
 	}
 
+	/**
+	 * Adds a range of new purchases and stores them with the {@link BookStoreDemo}'s {@link EmbeddedStorageManager}.
+	 * <p>
+	 * This is a synonym for:<pre>this.addAll(purchases, BookStoreDemo.getInstance().storageManager())</pre>
+	 *
+	 * @param purchases the new purchases
+	 */
+	public void addAll(final Collection<? extends Purchase> purchases)
+	{
+		this.addAll(purchases, BookStoreDemo.getInstance().storageManager());
+	}
+
+	/**
+	 * Adds a range of new purchases and stores them with the given persister.
+	 * <p>
+	 * The purchases are grouped by year, every year is locked and its changed collections are stored only once.
+	 *
+	 * @param purchases the new purchases
+	 * @param persister the persister to store them with
+	 * @see #addAll(Collection)
+	 */
+	public void addAll(
+		final Collection<? extends Purchase> purchases,
+		final PersistenceStoring             persister
+	)
+	{
+		final Map<Integer, List<Purchase>> byYear = purchases.stream().collect(
+			groupingBy(purchase -> purchase.timestamp().getYear())
+		);
+		byYear.forEach((year, yearPurchases) ->
+			this.write(year, () ->
+			{
+				final Lazy<YearlyPurchases> lazy = this.yearlyPurchases.get(year);
+				if(lazy != null)
+				{
+					lazy.get().addAll(yearPurchases, persister);
+				}
+				else
+				{
+					this.write(0, () -> {
+						this.yearlyPurchases.put(
+							year,
+							Lazy.Reference(
+								new YearlyPurchases().addAll(yearPurchases, null)
+							)
+						);
+						persister.store(this.yearlyPurchases);
+					});
+				}
+				this.invalidate(year);
+				yearPurchases.forEach(this::firePurchaseAdded);
+			})
+		);
+	}
+
+	/**
+	 * Registers a listener which is notified about all subsequently added purchases.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addPurchaseListener(final PurchaseListener listener)
+	{
+		this.purchaseListeners().add(listener);
+	}
+
+	private List<PurchaseListener> purchaseListeners()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.purchaseListeners) has to be volatile.
+		 */
+		List<PurchaseListener> listeners = this.purchaseListeners;
+		if(listeners == null)
+		{
+			synchronized(this)
+			{
+				if((listeners = this.purchaseListeners) == null)
+				{
+					listeners = this.purchaseListeners = new CopyOnWriteArrayList<>();
+				}
+			}
+		}
+		return listeners;
+	}
+
+	private void firePurchaseAdded(final Purchase purchase)
+	{
+		final List<PurchaseListener> listeners = this.purchaseListeners;
+		if(listeners != null)
+		{
+			listeners.forEach(listener -> listener.purchaseAdded(purchase));
+		}
+	}
+
+	private SingleFlight analytics()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.analytics) has to be volatile.
+		 */
+		SingleFlight analytics = this.analytics;
+		if(analytics == null)
+		{
+			synchronized(this)
+			{
+				if((analytics = this.analytics) == null)
+				{
+					analytics = this.analytics = SingleFlight.New(Purchases.class);
+				}
+			}
+		}
+		return analytics;
+	}
+
+	private ResultCache results()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.results) has to be volatile.
+		 */
+		ResultCache results = this.results;
+		if(results == null)
+		{
+			synchronized(this)
+			{
+				if((results = this.results) == null)
+				{
+					results = this.results = ResultCache.New(Purchases.class);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Gets the cached result of an analytics computation of a specific year, see {@link ResultCache}.
+	 * If there is none, the computation is executed or an identical one is joined, see {@link SingleFlight}.
+	 */
+	private <T> T coalesce(
+		final int               year     ,
+		final List<Object>      key      ,
+		final ValueOperation<T> operation
+	)
+	{
+		return this.results().get(year, key, () ->
+			this.analytics().execute(year, key, operation)
+		);
+	}
+
+	private void invalidate(final int year)
+	{
+		this.results().invalidate(year);
+		this.analytics().invalidate(year);
+	}
+
 	/**
 	 * Gets the range of all years in which purchases were made.
 	 *
@@ -314,6 +587,64 @@ public class Purchases extends ReadWriteLockedStriped
 		});
 	}
 
+	/**
+	 * Gets all years whose purchases are currently loaded, which are the recently used ones.
+	 *
+	 * @return the loaded years, in ascending order
+	 */
+	public List<Integer> loadedYears()
+	{
+		return this.read(0, () ->
+			this.yearlyPurchases.entrySet().stream()
+				.filter(entry -> entry.getValue().isLoaded())
+				.map(Map.Entry::getKey)
+				.sorted()
+				.collect(toList())
+		);
+	}
+
+	/**
+	 * Collects the heap footprint of each year, named <code>purchases/&lt;year&gt;</code>.
+	 * No year and no list is loaded by this method, so unloaded years only count as one unloaded {@link Lazy} reference.
+	 *
+	 * @return the footprints of all years, in ascending order
+	 */
+	public List<Footprint> footprints()
+	{
+		final List<Integer> years = this.read(0, () ->
+			new ArrayList<>(this.yearlyPurchases.keySet())
+		);
+		Collections.sort(years);
+		return years.stream()
+			.map(year -> this.read(year, () ->
+			{
+				final String                domain = "purchases/" + year;
+				final Lazy<YearlyPurchases> lazy   = this.yearlyPurchases.get(year);
+				return lazy.isLoaded()
+					? lazy.get().footprint(domain)
+					: new Footprint(domain, 0, 0, 1, Footprint.LAZY);
+			}))
+			.collect(toList());
+	}
+
+	/**
+	 * Loads the purchases of a year including all shop lists in the calling thread, without using the compute pool,
+	 * so the first query of the year doesn't have to wait for the storage.
+	 *
+	 * @param year the year to load
+	 */
+	public void warmUp(final int year)
+	{
+		this.read(year, () ->
+		{
+			final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
+			if(yearlyPurchases != null)
+			{
+				yearlyPurchases.shopToPurchases.values().forEach(lazy -> lazy.get());
+			}
+		});
+	}
+
 	/**
 	 * Clears all {@link Lazy} references regarding all purchases.
 	 * This frees the used memory but you do not lose the persisted data. It is loaded again on demand.
@@ -340,9 +671,13 @@ public class Purchases extends ReadWriteLockedStriped
 	)
 	{
 		this.write(year, () ->
+		{
 			clearIfStored(this.yearlyPurchases.get(year))
-				.ifPresent(YearlyPurchases::clear)
-		);
+				.ifPresent(YearlyPurchases::clear);
+			// release cached results and running computations, which may reference purchases of the cleared year
+			this.results().evict(year);
+			this.analytics().invalidate(year);
+		});
 	}
 
 	/**
@@ -360,13 +695,20 @@ public class Purchases extends ReadWriteLockedStriped
 	{
 		return this.read(year, () ->
 		{
+			final Deadline deadline = Deadline.current();
+			deadline.check();
 			final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
-			return streamFunction.apply(
-				yearlyPurchases == null
-					? Stream.empty()
-					: yearlyPurchases.shopToPurchases.values().parallelStream()
-						.map(l -> l.get())
-						.flatMap(List::stream)
+			return ComputePool.get(PURCHASES).compute(() ->
+				streamFunction.apply(
+					yearlyPurchases == null
+						? Stream.empty()
+						: deadline.guard(
+							yearlyPurchases.shopToPurchases.values().parallelStream()
+								.peek(l -> deadline.check())
+								.map(l -> l.get())
+								.flatMap(List::stream)
+						)
+				)
 			);
 		});
 	}
@@ -388,11 +730,15 @@ public class Purchases extends ReadWriteLockedStriped
 	{
 		return this.read(year, () ->
 		{
+			final Deadline deadline = Deadline.current();
+			deadline.check();
 			final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
-			return streamFunction.apply(
-				yearlyPurchases == null
-					? Stream.empty()
-					: yearlyPurchases.byShop(shop)
+			return ComputePool.get(PURCHASES).compute(() ->
+				streamFunction.apply(
+					yearlyPurchases == null
+						? Stream.empty()
+						: deadline.guard(yearlyPurchases.byShop(shop))
+				)
 			);
 		});
 	}
@@ -414,11 +760,15 @@ public class Purchases extends ReadWriteLockedStriped
 	{
 		return this.read(year, () ->
 		{
+			final Deadline deadline = Deadline.current();
+			deadline.check();
 			final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
-			return streamFunction.apply(
-				yearlyPurchases == null
-					? Stream.empty()
-					: yearlyPurchases.byShops(shopSelector)
+			return ComputePool.get(PURCHASES).compute(() ->
+				streamFunction.apply(
+					yearlyPurchases == null
+						? Stream.empty()
+						: deadline.guard(yearlyPurchases.byShops(shopSelector))
+				)
 			);
 		});
 	}
@@ -440,11 +790,15 @@ public class Purchases extends ReadWriteLockedStriped
 	{
 		return this.read(year, () ->
 		{
+			final Deadline deadline = Deadline.current();
+			deadline.check();
 			final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
-			return streamFunction.apply(
-				yearlyPurchases == null
-					? Stream.empty()
-					: yearlyPurchases.byEmployee(employee)
+			return ComputePool.get(PURCHASES).compute(() ->
+				streamFunction.apply(
+					yearlyPurchases == null
+						? Stream.empty()
+						: deadline.guard(yearlyPurchases.byEmployee(employee))
+				)
 			);
 		});
 	}
@@ -466,11 +820,15 @@ public class Purchases extends ReadWriteLockedStriped
 	{
 		return this.read(year, () ->
 		{
+			final Deadline deadline = Deadline.current();
+			deadline.check();
 			final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
-			return streamFunction.apply(
-				yearlyPurchases == null
-					? Stream.empty()
-					: yearlyPurchases.byCustomer(customer)
+			return ComputePool.get(PURCHASES).compute(() ->
+				streamFunction.apply(
+					yearlyPurchases == null
+						? Stream.empty()
+						: deadline.guard(yearlyPurchases.byCustomer(customer))
+				)
 			);
 		});
 	}
@@ -483,9 +841,11 @@ public class Purchases extends ReadWriteLockedStriped
 	 */
 	public List<BookSales> bestSellerList(final int year)
 	{
-		return this.computeByYear(
-			year,
-			this::bestSellerList
+		return this.coalesce(year, List.of("bestSellerList"), () ->
+			this.computeByYear(
+				year,
+				this::bestSellerList
+			)
 		);
 	}
 
@@ -501,10 +861,12 @@ public class Purchases extends ReadWriteLockedStriped
 		final Country country
 	)
 	{
-		return this.computeByShopsAndYear(
-			shopInCountryPredicate(country),
-			year,
-			this::bestSellerList
+		return this.coalesce(year, List.of("bestSellerList", country), () ->
+			this.computeByShopsAndYear(
+				shopInCountryPredicate(country),
+				year,
+				this::bestSellerList
+			)
 		);
 	}
 	
@@ -522,7 +884,7 @@ public class Purchases extends ReadWriteLockedStriped
 			.stream()
 			.map(e -> new BookSales(e.getKey(), e.getValue()))
 			.sorted()
-			.collect(toList());
+			.collect(toUnmodifiableList());
 	}
 
 	/**
@@ -533,9 +895,11 @@ public class Purchases extends ReadWriteLockedStriped
 	 */
 	public long countPurchasesOfForeigners(final int year)
 	{
-		return this.computePurchasesOfForeigners(
-			year,
-			purchases -> purchases.count()
+		return this.coalesce(year, List.of("countPurchasesOfForeigners"), () ->
+			this.computePurchasesOfForeigners(
+				year,
+				purchases -> purchases.count()
+			)
 		);
 	}
 
@@ -547,9 +911,11 @@ public class Purchases extends ReadWriteLockedStriped
 	 */
 	public List<Purchase> purchasesOfForeigners(final int year)
 	{
-		return this.computePurchasesOfForeigners(
-			year,
-			purchases -> purchases.collect(toList())
+		return this.coalesce(year, List.of("purchasesOfForeigners"), () ->
+			this.computePurchasesOfForeigners(
+				year,
+				purchases -> purchases.collect(toUnmodifiableList())
+			)
 		);
 	}
 	
@@ -580,10 +946,12 @@ public class Purchases extends ReadWriteLockedStriped
 		final Country country
 	)
 	{
-		return this.computePurchasesOfForeigners(
-			year,
-			country,
-			purchases -> purchases.count()
+		return this.coalesce(year, List.of("countPurchasesOfForeigners", country), () ->
+			this.computePurchasesOfForeigners(
+				year,
+				country,
+				purchases -> purchases.count()
+			)
 		);
 	}
 
@@ -599,13 +967,115 @@ public class Purchases extends ReadWriteLockedStriped
 		final Country country
 	)
 	{
-		return this.computePurchasesOfForeigners(
+		return this.coalesce(year, List.of("purchasesOfForeigners", country), () ->
+			this.computePurchasesOfForeigners(
+				year,
+				country,
+				purchases -> purchases.collect(toUnmodifiableList())
+			)
+		);
+	}
+
+	/**
+	 * Publishes all purchases which were made by customers in foreign cities, see {@link #publishByShopsAndYear(Predicate, int, Predicate)}.
+	 *
+	 * @param year the year to filter by
+	 * @return a publisher of the purchases
+	 */
+	public Flow.Publisher<Purchase> publishPurchasesOfForeigners(final int year)
+	{
+		return this.publishByShopsAndYear(
+			shop -> true,
+			year,
+			purchaseOfForeignerPredicate()
+		);
+	}
+
+	/**
+	 * Publishes all purchases which were made by customers in foreign cities, see {@link #publishByShopsAndYear(Predicate, int, Predicate)}.
+	 *
+	 * @param year the year to filter by
+	 * @param country the country to filter by
+	 * @return a publisher of the purchases
+	 */
+	public Flow.Publisher<Purchase> publishPurchasesOfForeigners(
+		final int     year   ,
+		final Country country
+	)
+	{
+		return this.publishByShopsAndYear(
+			shopInCountryPredicate(country),
 			year,
-			country,
-			purchases -> purchases.collect(toList())
+			purchaseOfForeignerPredicate()
 		);
 	}
 
+	/**
+	 * Publishes purchases of specific shops in a year, without collecting them first.
+	 * <p>
+	 * The year partition is walked shop by shop, as subscribers request items.
+	 * The purchases of a shop are loaded, filtered and copied into a chunk,
+	 * and released again afterwards if they weren't loaded before.
+	 * So at most the purchases of one shop are held per subscription.
+	 * Purchases added after a shop's chunk was loaded are not published.
+	 *
+	 * @param shopSelector predicate for shops to filter by
+	 * @param year year to filter by
+	 * @param filter predicate for purchases to filter by
+	 * @return a publisher of the purchases
+	 * @see ChunkedPublisher
+	 */
+	public Flow.Publisher<Purchase> publishByShopsAndYear(
+		final Predicate<Shop>             shopSelector,
+		final int                         year        ,
+		final Predicate<? super Purchase> filter
+	)
+	{
+		return ChunkedPublisher.New(() ->
+			this.read(year, () ->
+			{
+				Deadline.current().check();
+				final YearlyPurchases yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
+				return yearlyPurchases == null
+					? List.<ValueOperation<List<Purchase>>>of()
+					: yearlyPurchases.shopToPurchases.keySet().stream()
+						.filter(shopSelector)
+						.map(shop -> (ValueOperation<List<Purchase>>)() -> this.loadChunk(shop, year, filter))
+						.collect(toList())
+				;
+			})
+		);
+	}
+
+	private List<Purchase> loadChunk(
+		final Shop                        shop  ,
+		final int                         year  ,
+		final Predicate<? super Purchase> filter
+	)
+	{
+		return this.read(year, () ->
+		{
+			final YearlyPurchases      yearlyPurchases = Lazy.get(this.yearlyPurchases.get(year));
+			final Lazy<List<Purchase>> lazy            = yearlyPurchases == null
+				? null
+				: yearlyPurchases.shopToPurchases.get(shop);
+			if(lazy == null)
+			{
+				return List.<Purchase>of();
+			}
+			final boolean        loaded = lazy.isLoaded();
+			final List<Purchase> chunk  = lazy.get().stream()
+				.filter(filter)
+				.collect(toList());
+			if(!loaded)
+			{
+				// only release the reference, other readers may still use the list
+				clearIfStored(lazy);
+			}
+			return chunk;
+		});
+	}
+
 	private <T> T computePurchasesOfForeigners(
 		final int                            year          ,
 		final Country                        country       ,
@@ -645,13 +1115,15 @@ public class Purchases extends ReadWriteLockedStriped
 		final int  year
 	)
 	{
-		return this.computeByShopAndYear(
-			shop,
-			year,
-			purchases -> purchases
-				.map(Purchase::total)
-				.collect(summarizingMonetary(BookStoreDemo.CURRENCY_UNIT))
-				.getSum()
+		return this.coalesce(year, List.of("revenueOfShopInYear", shop), () ->
+			this.computeByShopAndYear(
+				shop,
+				year,
+				purchases -> purchases
+					.map(Purchase::total)
+					.collect(summarizingMonetary(BookStoreDemo.CURRENCY_UNIT))
+					.getSum()
+			)
 		);
 	}
 
@@ -663,9 +1135,11 @@ public class Purchases extends ReadWriteLockedStriped
 	 */
 	public Employee employeeOfTheYear(final int year)
 	{
-		return this.computeByYear(
-			year,
-			bestPerformingEmployeeFunction()
+		return this.coalesce(year, List.of("employeeOfTheYear"), () ->
+			this.computeByYear(
+				year,
+				bestPerformingEmployeeFunction()
+			)
 		);
 	}
 
@@ -681,10 +1155,12 @@ public class Purchases extends ReadWriteLockedStriped
 		final Country country
 	)
 	{
-		return this.computeByShopsAndYear(
-			shopInCountryPredicate(country) ,
-			year,
-			bestPerformingEmployeeFunction()
+		return this.coalesce(year, List.of("employeeOfTheYear", country), () ->
+			this.computeByShopsAndYear(
+				shopInCountryPredicate(country) ,
+				year,
+				bestPerformingEmployeeFunction()
+			)
 		);
 	}
 
@@ -15,14 +15,90 @@ package org.eclipse.store.demo.bookstore.data;
  * #L%
  */
 
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+
 /**
  * Data amount boundaries for the {@link RandomDataGenerator}.
+ * <p>
+ * Besides the presets, data amounts can be defined by properties, see {@link #fromProperties(Function)}:
+ * <ul>
+ * <li><code>base</code>: name of the preset the other properties are applied to, default is <code>medium</code></li>
+ * <li><code>scale-factor</code>: scales the base linearly, see {@link #scale(double)}</li>
+ * <li><code>profile</code>: a properties file, or a resource in <code>data-profiles/</code>,
+ * with defaults for all other properties</li>
+ * <li>every single dimension, e.g. <code>max-shops-per-city</code>, see {@link #DIMENSIONS}</li>
+ * </ul>
  *
  */
 public class RandomDataAmount
 {
+	/**
+	 * Property names of all dimensions, in order of the constructor's parameters.
+	 */
+	public final static List<String> DIMENSIONS = List.of(
+		"min-ratio",
+		"max-genres",
+		"max-countries",
+		"max-publishers-per-country",
+		"max-authors-per-country",
+		"max-books-per-country",
+		"max-cities-per-country",
+		"max-customers-per-city",
+		"max-shops-per-city",
+		"max-books-per-shop",
+		"max-age-of-shops-in-years",
+		"max-employees-per-shop",
+		"max-purchases-per-employee-per-year",
+		"max-items-per-purchase"
+	);
+
+	/**
+	 * Names of all properties, which are accepted by {@link #fromProperties(Function)}.
+	 */
+	public final static List<String> PROPERTIES = Stream.concat(
+		Stream.of("base", "scale-factor", "profile"),
+		DIMENSIONS.stream()
+	)
+	.collect(toUnmodifiableList());
+
+	/**
+	 * Gets a data amount by name, which is either
+	 * <ul>
+	 * <li>a preset: minimal, small, medium, large or humongous</li>
+	 * <li>a scaled preset, e.g. <code>humongous:10</code>, see {@link #scale(double)}</li>
+	 * <li>a profile, which is a path to a properties file, see {@link #fromProperties(Function)}</li>
+	 * </ul>
+	 *
+	 * @param name the data amount's name
+	 * @return the data amount
+	 */
 	public static RandomDataAmount valueOf(final String name)
 	{
+		if(name.endsWith(".properties"))
+		{
+			return fromProperties(Map.of("profile", name)::get);
+		}
+
+		final int scaleIndex = name.lastIndexOf(':');
+		if(scaleIndex > 0)
+		{
+			return valueOf(name.substring(0, scaleIndex))
+				.scale(Double.parseDouble(name.substring(scaleIndex + 1)));
+		}
+
 		switch(name.toLowerCase())
 		{
 			case "minimal"  : return Minimal();
@@ -33,8 +109,119 @@ public class RandomDataAmount
 			
 			default:
 				throw new IllegalArgumentException("Invalid data amount: " + name
-					+ ", supported values: minimal, small, medium, large, humongous");
+					+ ", supported values: minimal, small, medium, large, humongous, <preset>:<scale-factor>"
+					+ " or a .properties file");
+		}
+	}
+
+	/**
+	 * Creates a data amount from properties, see {@link RandomDataAmount} for the supported properties.
+	 * Properties which are not set are taken from the profile, if any, and then from the base preset.
+	 * The scale factor is applied to the base, single dimensions override the scaled values.
+	 *
+	 * @param properties lookup of the property values by name, returns <code>null</code> for missing properties
+	 * @return the data amount
+	 */
+	public static RandomDataAmount fromProperties(final Function<String, String> properties)
+	{
+		final Properties profile = loadProfile(properties.apply("profile"));
+		final Function<String, String> lookup = name ->
+		{
+			final String value = properties.apply(name);
+			return value != null
+				? value
+				: profile.getProperty(name);
+		};
+
+		final String           base        = lookup.apply("base");
+		final String           scaleFactor = lookup.apply("scale-factor");
+		final RandomDataAmount baseAmount  = valueOf(base != null ? base.trim() : "medium");
+		final RandomDataAmount scaled      = scaleFactor != null
+			? baseAmount.scale(Double.parseDouble(scaleFactor.trim()))
+			: baseAmount;
+
+		final double minRatio = doubleProperty(lookup, "min-ratio", scaled.minRatio);
+		if(minRatio < 0.0 || minRatio > 1.0)
+		{
+			throw new IllegalArgumentException("min-ratio must be between 0 and 1: " + minRatio);
 		}
+		final int maxCountries = intProperty(lookup, "max-countries", scaled.maxCountries, -1);
+
+		return new RandomDataAmount(
+			minRatio,
+			intProperty(lookup, "max-genres"                         , scaled.maxGenres                     , 1),
+			maxCountries,
+			intProperty(lookup, "max-publishers-per-country"         , scaled.maxPublishersPerCountry       , 1),
+			intProperty(lookup, "max-authors-per-country"            , scaled.maxAuthorsPerCountry          , 1),
+			intProperty(lookup, "max-books-per-country"              , scaled.maxBooksPerCountry            , 1),
+			intProperty(lookup, "max-cities-per-country"             , scaled.maxCitiesPerCountry           , 1),
+			intProperty(lookup, "max-customers-per-city"             , scaled.maxCustomersPerCity           , 1),
+			intProperty(lookup, "max-shops-per-city"                 , scaled.maxShopsPerCity               , 1),
+			intProperty(lookup, "max-books-per-shop"                 , scaled.maxBooksPerShop               , 1),
+			intProperty(lookup, "max-age-of-shops-in-years"          , scaled.maxAgeOfShopsInYears          , 1),
+			intProperty(lookup, "max-employees-per-shop"             , scaled.maxEmployeesPerShop           , 1),
+			intProperty(lookup, "max-purchases-per-employee-per-year", scaled.maxPurchasesPerEmployeePerYear, 1),
+			intProperty(lookup, "max-items-per-purchase"             , scaled.maxItemsPerPurchase           , 1)
+		);
+	}
+
+	private static Properties loadProfile(final String profile)
+	{
+		final Properties properties = new Properties();
+		if(profile == null)
+		{
+			return properties;
+		}
+
+		final Path path = Paths.get(profile.trim());
+		try(InputStream input = Files.exists(path)
+			? Files.newInputStream(path)
+			: RandomDataAmount.class.getResourceAsStream("/data-profiles/" + profile.trim())
+		)
+		{
+			if(input == null)
+			{
+				throw new IllegalArgumentException("Data profile not found: " + profile);
+			}
+			properties.load(input);
+			return properties;
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private static double doubleProperty(
+		final Function<String, String> lookup      ,
+		final String                   name        ,
+		final double                   defaultValue
+	)
+	{
+		final String value = lookup.apply(name);
+		return value != null
+			? Double.parseDouble(value.trim())
+			: defaultValue;
+	}
+
+	private static int intProperty(
+		final Function<String, String> lookup      ,
+		final String                   name        ,
+		final int                      defaultValue,
+		final int                      minValue
+	)
+	{
+		final String value = lookup.apply(name);
+		if(value == null)
+		{
+			return defaultValue;
+		}
+		final int intValue = Integer.parseInt(value.trim());
+		if(intValue < minValue)
+		{
+			throw new IllegalArgumentException(name + " must be at least " + minValue + ": " + intValue);
+		}
+		return intValue;
 	}
 
 
@@ -189,6 +376,48 @@ public class RandomDataAmount
 		this.maxItemsPerPurchase            = maxItemsPerPurchase           ;
 	}
 	
+	/**
+	 * Scales this data amount linearly, like the scale factor of the TPC benchmarks.
+	 * <p>
+	 * The amount of books, authors, customers and shops is multiplied by the factor, so are all purchases,
+	 * since they are made in the shops. All other dimensions are kept: the countries are limited by the supported
+	 * locales, and the cities by the names the generator can come up with.
+	 *
+	 * @param factor the scale factor, greater than zero
+	 * @return the scaled data amount
+	 */
+	public RandomDataAmount scale(final double factor)
+	{
+		if(!(factor > 0.0))
+		{
+			throw new IllegalArgumentException("Scale factor must be greater than zero: " + factor);
+		}
+		return new RandomDataAmount(
+			this.minRatio,
+			this.maxGenres,
+			this.maxCountries,
+			this.maxPublishersPerCountry,
+			scale(this.maxAuthorsPerCountry, factor),
+			scale(this.maxBooksPerCountry, factor),
+			this.maxCitiesPerCountry,
+			scale(this.maxCustomersPerCity, factor),
+			scale(this.maxShopsPerCity, factor),
+			this.maxBooksPerShop,
+			this.maxAgeOfShopsInYears,
+			this.maxEmployeesPerShop,
+			this.maxPurchasesPerEmployeePerYear,
+			this.maxItemsPerPurchase
+		);
+	}
+
+	private static int scale(
+		final int    value ,
+		final double factor
+	)
+	{
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(value * factor)));
+	}
+
 	public double minRatio()
 	{
 		return this.minRatio;
@@ -259,4 +488,25 @@ public class RandomDataAmount
 		return this.maxItemsPerPurchase;
 	}
 
+	@Override
+	public String toString()
+	{
+		return "RandomDataAmount ["
+			+ "minRatio=" + this.minRatio
+			+ ", maxGenres=" + this.maxGenres
+			+ ", maxCountries=" + this.maxCountries
+			+ ", maxPublishersPerCountry=" + this.maxPublishersPerCountry
+			+ ", maxAuthorsPerCountry=" + this.maxAuthorsPerCountry
+			+ ", maxBooksPerCountry=" + this.maxBooksPerCountry
+			+ ", maxCitiesPerCountry=" + this.maxCitiesPerCountry
+			+ ", maxCustomersPerCity=" + this.maxCustomersPerCity
+			+ ", maxShopsPerCity=" + this.maxShopsPerCity
+			+ ", maxBooksPerShop=" + this.maxBooksPerShop
+			+ ", maxAgeOfShopsInYears=" + this.maxAgeOfShopsInYears
+			+ ", maxEmployeesPerShop=" + this.maxEmployeesPerShop
+			+ ", maxPurchasesPerEmployeePerYear=" + this.maxPurchasesPerEmployeePerYear
+			+ ", maxItemsPerPurchase=" + this.maxItemsPerPurchase
+			+ "]";
+	}
+
 }
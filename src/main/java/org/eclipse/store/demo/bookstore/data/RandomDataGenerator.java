@@ -24,6 +24,7 @@ import java.time.Month;
 import java.time.Year;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,13 +32,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javax.money.MonetaryAmount;
 
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 import org.rapidpm.dependencies.core.logger.HasLogger;
 
@@ -47,28 +48,38 @@ import com.github.javafaker.Faker;
  * Random data generator for the {@link BookStoreDemo}'s {@link Data} root.
  * <p>
  * Data amount boundaries can be controlled with {@link RandomDataAmount}.
+ * <p>
+ * The generated data is determined by the seed: every unit of work (country, city, shop and year)
+ * uses its own random stream, which is derived from the seed and the unit's position.
+ * So the result doesn't depend on the amount or the scheduling of the worker threads,
+ * which run in the {@link ComputePool#GENERATOR} pool.
+ * The timestamps of the purchases end at the reference date, which is a parameter as well,
+ * so the same seed and reference date always generate the same data, see {@link #defaultReferenceDate()}.
+ * <p>
+ * Purchases, which are the bulk of the data, are stored in chunks and each year is unloaded after its last chunk,
+ * so the needed memory doesn't grow with the amount of years.
  *
  */
 public class RandomDataGenerator implements HasLogger
 {
 	private static class CountryData extends ArrayList<City>
 	{
-		Faker                     faker ;
-		Locale                    locale;
-		List<Shop>                shops ;
+		final int                 index ;
+		final Locale              locale;
+		final List<Shop>          shops ;
 		Map<City, List<Customer>> people;
 
 		CountryData(
-			final Faker  faker ,
+			final int    index ,
 			final Locale locale
 		)
 		{
 			super(512);
 
-			this.faker   = faker ;
-			this.locale  = locale;
+			this.index  = index ;
+			this.locale = locale;
 
-			this.shops = new ArrayList<>();
+			this.shops  = new ArrayList<>();
 		}
 
 		City randomCity(final Random random)
@@ -89,11 +100,7 @@ public class RandomDataGenerator implements HasLogger
 
 		void dispose()
 		{
-			this.faker = null;
-			this.locale = null;
-
 			this.shops.clear();
-			this.shops = null;
 
 			this.people.values().forEach(List::clear);
 			this.people.clear();
@@ -102,30 +109,114 @@ public class RandomDataGenerator implements HasLogger
 		}
 	}
 
+	private static class CityData
+	{
+		final CountryData country        ;
+		final int         index          ;
+		final City        city           ;
+		int               firstCustomerId;
+		int               customerCount  ;
+
+		CityData(
+			final CountryData country,
+			final int         index
+		)
+		{
+			super();
+
+			this.country = country           ;
+			this.index   = index             ;
+			this.city    = country.get(index);
+		}
+	}
+
+	/**
+	 * A {@link Faker} with its own {@link Random}, which is reseeded for every unit of work.
+	 * Creating a {@link Faker} is expensive, so there is one per worker thread and locale.
+	 */
+	private static class SeededFaker
+	{
+		final Random random;
+		final Faker  faker ;
+
+		SeededFaker(final Locale locale)
+		{
+			super();
+
+			this.random = new Random();
+			this.faker  = new Faker(locale, this.random);
+		}
+	}
+
+	/*
+	 * Keys of the units of work, used to derive their random streams from the seed.
+	 */
+	private final static long COUNTRY   = 1;
+	private final static long CITY_SIZE = 2;
+	private final static long CUSTOMERS = 3;
+	private final static long GENRES    = 4;
+	private final static long BOOKS     = 5;
+	private final static long SHOPS     = 6;
+	private final static long YEARS     = 7;
+	private final static long PURCHASES = 8;
+
+	/*
+	 * The sequential numbers of the books are scrambled into ISBNs by a bijection of [0, 10^9),
+	 * the multiplier is coprime to 10.
+	 */
+	private final static long ISBN_RANGE      = 1_000_000_000L;
+	private final static long ISBN_MULTIPLIER = 387_420_489L  ;
+
+	/**
+	 * Upper bound of the purchases which are generated and stored at once.
+	 */
+	private final static int PURCHASES_PER_CHUNK = 100_000;
+
 	private final Books                  books         ;
 	private final Shops                  shops         ;
 	private final Customers              customers     ;
 	private final Purchases              purchases     ;
 	private final RandomDataAmount       dataAmount    ;
+	private final long                   seed          ;
+	private final LocalDate              referenceDate ;
 	private final EmbeddedStorageManager storageManager;
 
-	private final Random                 random     = new Random()         ;
-	private final Faker                  faker      = Faker.instance()     ;
-	private final LocalDate              today      = LocalDate.now();
-	private final AtomicInteger          customerId = new AtomicInteger(0) ;
-	private final Set<String>            usedIsbns  = new HashSet<>(4096)  ;
-	private final List<Book>             bookList   = new ArrayList<>(4096);
+	private final ThreadLocal<Map<Locale, SeededFaker>> fakers   = ThreadLocal.withInitial(HashMap::new);
+	private final List<Book>                            bookList = new ArrayList<>(4096)                ;
 
 	private final BigDecimal             minPrice   = new BigDecimal(5)                    ;
 	private final BigDecimal             maxPrice   = new BigDecimal(25)                   ;
 	private final BigDecimal             priceRange = this.maxPrice.subtract(this.minPrice);
 
+	/**
+	 * The default reference date of reproducible data: the last day of the previous month.
+	 * So the data of a seed only changes once a month, and the current year consists of complete months.
+	 *
+	 * @return the default reference date
+	 */
+	public static LocalDate defaultReferenceDate()
+	{
+		return LocalDate.now().withDayOfMonth(1).minusDays(1);
+	}
+
+	/**
+	 * @param books the books to add to
+	 * @param shops the shops to add to
+	 * @param customers the customers to add to
+	 * @param purchases the purchases to add to
+	 * @param dataAmount the amount of data to generate
+	 * @param seed the seed of the random data
+	 * @param referenceDate the last day with generated purchases
+	 * @param storageManager the storage manager to store the data with
+	 */
 	public RandomDataGenerator(
 		final Books                  books         ,
 		final Shops                  shops         ,
 		final Customers              customers     ,
 		final Purchases              purchases     ,
 		final RandomDataAmount       dataAmount    ,
+		final long                   seed          ,
+		final LocalDate              referenceDate ,
 		final EmbeddedStorageManager storageManager
 	)
 	{
@@ -136,22 +227,39 @@ public class RandomDataGenerator implements HasLogger
 		this.customers      = customers     ;
 		this.purchases      = purchases     ;
 		this.dataAmount     = dataAmount    ;
+		this.seed           = seed          ;
+		this.referenceDate  = referenceDate ;
 		this.storageManager = storageManager;
 	}
 
 	public DataMetrics generate()
+	{
+		return ComputePool.get(ComputePool.GENERATOR).compute(this::generateInPool);
+	}
+
+	private DataMetrics generateInPool()
 	{
 		final List<Locale> locales = this.supportedLocales();
 
-		this.logger().info("+ " + locales.size() + " locales");
+		this.logger().info("+ " + locales.size() + " locales, seed " + this.seed + ", reference date " + this.referenceDate);
 
-		final List<CountryData> countries = locales.parallelStream()
-			.map(this::createCountry)
+		final List<CountryData> countries = IntStream.range(0, locales.size())
+			.parallel()
+			.mapToObj(index -> this.createCountry(index, locales.get(index)))
 			.collect(toList());
+		final List<CityData>    cities    = countries.stream()
+			.flatMap(country -> IntStream.range(0, country.size()).mapToObj(index -> new CityData(country, index)))
+			.collect(toList());
+
+		this.createCustomers(countries, cities);
 
 		this.createBooks(countries);
 
-		this.createShops(countries);
+		this.createShops(countries, cities);
+
+		// books and cities are not needed for the purchases, release them early
+		this.bookList.clear();
+		cities.clear();
 
 		this.createPurchases(countries);
 
@@ -162,13 +270,9 @@ public class RandomDataGenerator implements HasLogger
 		);
 
 		this.shops.clear();
-		this.usedIsbns.clear();
-		this.bookList.clear();
 		countries.forEach(CountryData::dispose);
 		countries.clear();
 
-		System.gc();
-
 		return metrics;
 	}
 
@@ -197,21 +301,24 @@ public class RandomDataGenerator implements HasLogger
 			: locales.subList(0, max);
 	}
 
-	private CountryData createCountry(final Locale locale)
+	private CountryData createCountry(
+		final int    index ,
+		final Locale locale
+	)
 	{
 		this.logger().info("> country " + locale.getDisplayCountry());
 
-		final Faker              faker       = Faker.instance(locale);
+		final SeededFaker        faker       = this.faker(locale, COUNTRY, index);
 		final Set<String>        cityNameSet = new HashSet<>();
 		final Map<String, State> stateMap    = new HashMap<>();
 		final Country            country     = new Country(
 			locale.getDisplayCountry(Locale.ENGLISH),
 			locale.getCountry()
 		);
-		final CountryData        countryData = new CountryData(faker, locale);
-		this.randomRange(this.dataAmount.maxCitiesPerCountry()).forEach(i ->
+		final CountryData        countryData = new CountryData(index, locale);
+		this.randomRange(faker.random, this.dataAmount.maxCitiesPerCountry()).forEach(i ->
 		{
-			final com.github.javafaker.Address fakerAddress = faker.address();
+			final com.github.javafaker.Address fakerAddress = faker.faker.address();
 			final String                       cityName     = fakerAddress.city();
 			if(cityNameSet.add(cityName))
 			{
@@ -224,207 +331,312 @@ public class RandomDataGenerator implements HasLogger
 			}
 		});
 
-		countryData.people = new HashMap<>(countryData.size(), 1.0f);
-		countryData.parallelStream().forEach(city -> {
-			countryData.people.put(city, this.createCustomers(countryData, city));
-		});
-
 		this.logger().info(
-			"+ country " + locale.getDisplayCountry() + " [" + countryData.size() + " cities, " +
-				countryData.people.values().stream().mapToInt(List::size).sum() + " customers] "
+			"+ country " + locale.getDisplayCountry() + " [" + countryData.size() + " cities]"
 		);
 
 		return countryData;
 	}
 
-	private List<Customer> createCustomers(
-		final CountryData countryData,
-		final City        city
+	private void createCustomers(
+		final List<CountryData> countries,
+		final List<CityData>    cities
 	)
 	{
-		return this.randomRange(this.dataAmount.maxCustomersPerCity())
+		/*
+		 * Customer ids are assigned in order of the cities, so the sizes are determined upfront.
+		 */
+		int nextCustomerId = 1;
+		for(final CityData city : cities)
+		{
+			final Random random  = this.random(CITY_SIZE, city.country.index, city.index);
+			city.firstCustomerId = nextCustomerId;
+			city.customerCount   = this.randomMax(random, this.dataAmount.maxCustomersPerCity()) + 1;
+			nextCustomerId      += city.customerCount;
+		}
+
+		final List<List<Customer>> people = cities.parallelStream()
+			.map(this::createCustomers)
+			.collect(toList());
+
+		countries.forEach(country -> country.people = new HashMap<>(country.size(), 1.0f));
+		for(int i = 0; i < cities.size(); i++)
+		{
+			final CityData city = cities.get(i);
+			city.country.people.put(city.city, people.get(i));
+		}
+
+		this.logger().info("+ " + (nextCustomerId - 1) + " customers");
+	}
+
+	private List<Customer> createCustomers(final CityData city)
+	{
+		final SeededFaker faker = this.faker(city.country.locale, CUSTOMERS, city.country.index, city.index);
+		return IntStream.range(0, city.customerCount)
 			.mapToObj(i -> new Customer(
-				this.customerId.incrementAndGet(),
-				countryData.faker.name().fullName(),
-				this.createAddress(city, countryData.faker)
+				city.firstCustomerId + i,
+				faker.faker.name().fullName(),
+				this.createAddress(city.city, faker.faker)
 			))
 			.collect(toList());
 	}
 
 	private void createBooks(final List<CountryData> countries)
 	{
-		final List<Genre> genres = this.createGenres();
-		countries.parallelStream().forEach(country ->
-		{
-			this.logger().info("> books in " + country.locale.getDisplayCountry());
-
-			final List<Publisher> publishers = this.createPublishers(country);
-			final List<Author>    authors    = this.createAuthors(country);
-			final Language        language   = new Language(country.locale);
-			final List<Book>      books      = IntStream.range(0, this.dataAmount.maxBooksPerCountry())
-				.mapToObj(i -> country.faker.book().title())
-				.map(title -> this.createBook(country, genres, publishers, authors, language, title))
-				.collect(toList());
-
-			synchronized(this.bookList)
-			{
-				this.bookList.addAll(books);
-			}
+		final List<Genre>      genres = this.createGenres();
+		final List<List<Book>> books  = countries.parallelStream()
+			.map(country -> this.createBooks(country, genres))
+			.collect(toList());
 
-			this.logger().info("+ " + books.size() + " books in "+ country.locale.getDisplayCountry());
-		});
+		books.forEach(this.bookList::addAll);
 
 		this.books.addAll(this.bookList, this.storageManager);
 	}
 
+	private List<Book> createBooks(
+		final CountryData country,
+		final List<Genre> genres
+	)
+	{
+		this.logger().info("> books in " + country.locale.getDisplayCountry());
+
+		final SeededFaker     faker      = this.faker(country.locale, BOOKS, country.index);
+		final List<Publisher> publishers = this.createPublishers(country, faker);
+		final List<Author>    authors    = this.createAuthors(country, faker);
+		final Language        language   = new Language(country.locale);
+		final int             bookCount  = this.dataAmount.maxBooksPerCountry();
+		final List<Book>      books      = IntStream.range(0, bookCount)
+			.mapToObj(i -> this.createBook(
+				faker,
+				genres,
+				publishers,
+				authors,
+				language,
+				(long)country.index * bookCount + i
+			))
+			.collect(toList());
+
+		this.logger().info("+ " + books.size() + " books in "+ country.locale.getDisplayCountry());
+
+		return books;
+	}
+
 	private Book createBook(
-		final CountryData     country   ,
+		final SeededFaker     faker     ,
 		final List<Genre>     genres    ,
 		final List<Publisher> publishers,
 		final List<Author>    authors   ,
 		final Language        language  ,
-		final String          title
+		final long            number
 	)
 	{
-		String isbn;
-		synchronized(this.usedIsbns)
-		{
-			while(!this.usedIsbns.add(isbn = this.faker.code().isbn13(true)))
-			{
-				// empty loop
-			}
-		}
-		final Genre          genre         = genres.get(this.random.nextInt(genres.size()));
-		final Publisher      publisher     = publishers.get(this.random.nextInt(publishers.size()));
-		final Author         author        = authors.get(this.random.nextInt(authors.size()));
-		final MonetaryAmount purchasePrice = BookStoreDemo.money(this.randomPurchasePrice());
+		final Random         random        = faker.random;
+		final String         title         = faker.faker.book().title();
+		final String         isbn          = this.isbn13(number);
+		final Genre          genre         = genres.get(random.nextInt(genres.size()));
+		final Publisher      publisher     = publishers.get(random.nextInt(publishers.size()));
+		final Author         author        = authors.get(random.nextInt(authors.size()));
+		final MonetaryAmount purchasePrice = BookStoreDemo.money(this.randomPurchasePrice(random));
 		final MonetaryAmount retailPrice   = BookStoreDemo.retailPrice(purchasePrice);
 		return new Book(isbn, title, author, genre, publisher, language, purchasePrice, retailPrice);
 	}
 
+	/**
+	 * Creates a unique ISBN for the sequential number of a book, without any coordination between the workers.
+	 */
+	private String isbn13(final long number)
+	{
+		final long   scrambled = (number * ISBN_MULTIPLIER + Math.floorMod(this.seed, ISBN_RANGE)) % ISBN_RANGE;
+		final String digits    = String.format("978%09d", scrambled);
+
+		int total = 0;
+		for(int i = 0; i < 12; i++)
+		{
+			final int digit = digits.charAt(i) - '0';
+			total += i % 2 == 0
+				? digit
+				: digit * 3;
+		}
+		final int checksum = (10 - total % 10) % 10;
+
+		return digits.substring(0, 3)
+			+ "-" + digits.substring(3, 4)
+			+ "-" + digits.substring(4, 7)
+			+ "-" + digits.substring(7, 12)
+			+ "-" + checksum;
+	}
+
 	private List<Genre> createGenres()
 	{
-		return this.randomRange(this.dataAmount.maxGenres())
-			.mapToObj(i -> this.faker.book().genre())
+		final SeededFaker faker = this.faker(Locale.ENGLISH, GENRES);
+		return this.randomRange(faker.random, this.dataAmount.maxGenres())
+			.mapToObj(i -> faker.faker.book().genre())
 			.distinct()
 			.map(Genre::new)
 			.collect(toList());
 	}
 
-	private List<Publisher> createPublishers(final CountryData countryData)
+	private List<Publisher> createPublishers(
+		final CountryData countryData,
+		final SeededFaker faker
+	)
 	{
-		return this.randomRange(this.dataAmount.maxPublishersPerCountry())
-			.mapToObj(i -> countryData.faker.book().publisher())
+		return this.randomRange(faker.random, this.dataAmount.maxPublishersPerCountry())
+			.mapToObj(i -> faker.faker.book().publisher())
 			.distinct()
-			.map(name -> new Publisher(name, this.createAddress(countryData.randomCity(this.random), countryData.faker)))
+			.map(name -> new Publisher(name, this.createAddress(countryData.randomCity(faker.random), faker.faker)))
 			.collect(toList());
 	}
 
-	private List<Author> createAuthors(final CountryData countryData)
+	private List<Author> createAuthors(
+		final CountryData countryData,
+		final SeededFaker faker
+	)
 	{
-		return this.randomRange(this.dataAmount.maxAuthorsPerCountry())
-			.mapToObj(i -> countryData.faker.book().author())
+		return this.randomRange(faker.random, this.dataAmount.maxAuthorsPerCountry())
+			.mapToObj(i -> faker.faker.book().author())
 			.distinct()
-			.map(name -> new Author(name, this.createAddress(countryData.randomCity(this.random), countryData.faker)))
+			.map(name -> new Author(name, this.createAddress(countryData.randomCity(faker.random), faker.faker)))
 			.collect(toList());
 	}
 
-	private void createShops(final List<CountryData> countries)
+	private void createShops(
+		final List<CountryData> countries,
+		final List<CityData>    cities
+	)
 	{
-		countries.parallelStream().forEach(country ->
-		{
-			this.logger().info("> shops in " + country.locale.getDisplayCountry());
+		this.logger().info("> shops");
 
-			country.forEach(
-				city -> this.randomRange(this.dataAmount.maxShopsPerCity()).forEach(
-					i -> country.shops.add(this.createShop(countries, country, city, i))
-				)
-			);
+		final List<List<Shop>> shops = cities.parallelStream()
+			.map(this::createShops)
+			.collect(toList());
+		for(int i = 0; i < cities.size(); i++)
+		{
+			cities.get(i).country.shops.addAll(shops.get(i));
+		}
 
+		countries.forEach(country ->
+		{
 			this.logger().info("+ " + country.shops.size() + " shops in " + country.locale.getDisplayCountry());
+			this.shops.addAll(country.shops, this.storageManager);
 		});
+	}
 
-		countries.forEach(country -> this.shops.addAll(country.shops, this.storageManager));
+	private List<Shop> createShops(final CityData city)
+	{
+		final SeededFaker faker = this.faker(city.country.locale, SHOPS, city.country.index, city.index);
+		return this.randomRange(faker.random, this.dataAmount.maxShopsPerCity())
+			.mapToObj(nr -> this.createShop(faker, city.city, nr))
+			.collect(toList());
 	}
 
 	private Shop createShop(
-		final List<CountryData> countries  ,
-		final CountryData       countryData,
-		final City              city       ,
-		final int               nr
+		final SeededFaker faker,
+		final City        city ,
+		final int         nr
 	)
 	{
+		final Random             random    = faker.random;
 		final String             name      = city.name() + " Shop " + nr;
-		final Address            address   = this.createAddress(city, countryData.faker);
-		final List<Employee>     employees = this.createEmployees(countryData, city);
-		final Map<Book, Integer> inventory = this.randomRange(this.dataAmount.maxBooksPerShop())
-			.mapToObj(i -> this.randomBook())
+		final Address            address   = this.createAddress(city, faker.faker);
+		final List<Employee>     employees = this.createEmployees(faker, city);
+		final Map<Book, Integer> inventory = this.randomRange(random, this.dataAmount.maxBooksPerShop())
+			.mapToObj(i -> this.randomBook(random))
 			.distinct()
 			.collect(toMap(
 				book -> book,
-				book -> this.random.nextInt(50) + 1
+				book -> random.nextInt(50) + 1
 			));
 		return new Shop(name, address, employees, new Inventory(inventory));
 	}
 
 	private void createPurchases(final List<CountryData> countries)
 	{
-		final Set<Customer> customers = new HashSet<>(4096);
+		final List<CountryData> shopCountries = new ArrayList<>();
+		final List<Shop>        shops         = new ArrayList<>();
+		countries.forEach(country -> country.shops.forEach(shop ->
+		{
+			shopCountries.add(country);
+			shops.add(shop);
+		}));
+
+		/*
+		 * Only customers who made a purchase are added, the ids are dense, so a bit set is sufficient.
+		 */
+		final BitSet        customerIds = new BitSet();
 
-		final int           thisYear  = Year.now().getValue();
-		final int           startYear = thisYear - this.randomMax(this.dataAmount.maxAgeOfShopsInYears()) + 1;
+		final int           thisYear    = this.referenceDate.getYear();
+		final int           startYear   = thisYear - this.randomMax(this.random(YEARS), this.dataAmount.maxAgeOfShopsInYears()) + 1;
 		IntStream.rangeClosed(startYear, thisYear).forEach(
-			year -> this.createPurchases(countries, year, customers)
+			year -> this.createPurchases(shopCountries, shops, year, customerIds)
 		);
 
+		final List<Customer> customers = countries.stream()
+			.flatMap(country -> country.stream().map(country.people::get))
+			.flatMap(List::stream)
+			.filter(customer -> customerIds.get(customer.customerId()))
+			.collect(toList());
 		this.customers.addAll(customers, this.storageManager);
-		customers.clear();
+
+		this.logger().info("+ " + customers.size() + " customers with purchases");
 	}
 
+	/**
+	 * The purchases of a year are generated and stored in chunks of shops,
+	 * so only the changed lists are stored per chunk and only one year is in memory at a time,
+	 * regardless of the amount of years.
+	 */
 	private void createPurchases(
-		final List<CountryData> countries,
-		final int               year     ,
-		final Set<Customer>     customers
+		final List<CountryData> shopCountries,
+		final List<Shop>        shops        ,
+		final int               year         ,
+		final BitSet            customerIds
 	)
 	{
 		this.logger().info("> purchases in " + year);
 
-		final List<Purchase> purchases = countries.parallelStream()
-			.flatMap(
-				country -> country.shops.stream().flatMap(
-					shop -> this.createPurchases(country, year, shop)
-				)
-			)
-			.collect(toList());
-
-		final Set<Customer> customersForYear = this.purchases.init(year, purchases, this.storageManager);
-
-		this.logger().info("+ " + purchases.size() + " purchases in " + year);
+		final int maxPurchasesPerShop = (this.dataAmount.maxEmployeesPerShop() + 1)
+			* (this.dataAmount.maxPurchasesPerEmployeePerYear() + 1);
+		final int shopsPerChunk       = Math.max(1, PURCHASES_PER_CHUNK / maxPurchasesPerShop);
 
-		customers.addAll(customersForYear);
+		long count = 0;
+		for(int from = 0; from < shops.size(); from += shopsPerChunk)
+		{
+			final List<Purchase> purchases = IntStream.range(from, Math.min(from + shopsPerChunk, shops.size()))
+				.parallel()
+				.mapToObj(i -> this.createPurchases(
+					shopCountries.get(i),
+					year,
+					shops.get(i),
+					this.random(PURCHASES, year, i)
+				))
+				.flatMap(shopPurchases -> shopPurchases)
+				.collect(toList());
 
-		customersForYear.clear();
-		purchases.clear();
+			purchases.forEach(purchase -> customerIds.set(purchase.customer().customerId()));
+			this.purchases.init(year, purchases, from + shopsPerChunk >= shops.size(), this.storageManager);
+			count += purchases.size();
+		}
 
-		System.gc();
+		this.logger().info("+ " + count + " purchases in " + year);
 	}
 
 	private Stream<Purchase> createPurchases(
 		final CountryData countryData,
 		final int         year       ,
-		final Shop        shop
+		final Shop        shop       ,
+		final Random      random
 	)
 	{
-		final List<Book>     books      = shop.inventory().books();
+		final List<Book>     books      = shop.inventory().books(this.books);
 		final boolean        isLeapYear = Year.of(year).isLeap();
-		final Random         random     = this.random;
 		return shop.employees().flatMap(employee ->
-			this.randomRange(this.dataAmount.maxPurchasesPerEmployeePerYear()).mapToObj(pi -> {
+			this.randomRange(random, this.dataAmount.maxPurchasesPerEmployeePerYear()).mapToObj(pi -> {
 				final Customer customer = pi % 10 == 0
 					? countryData.randomCustomer(random)
 					: countryData.randomCustomer(random, shop.address().city());
 				final LocalDateTime timestamp = this.randomDateTime(year, isLeapYear, random);
-				final List<PurchaseItem> items = this.randomRange(this.dataAmount.maxItemsPerPurchase())
+				final List<PurchaseItem> items = this.randomRange(random, this.dataAmount.maxItemsPerPurchase())
 					.mapToObj(ii -> new PurchaseItem(books.get(random.nextInt(books.size())), random.nextInt(3) + 1))
 					.collect(toList());
 				return new Purchase(shop, employee, customer, timestamp, items);
@@ -441,13 +653,13 @@ public class RandomDataGenerator implements HasLogger
 		Month month;
 		int   dayOfMonth;
 		
-		if(year == this.today.getYear())
+		if(year == this.referenceDate.getYear())
 		{
-			month      = Month.of(random.nextInt(this.today.getMonthValue()) + 1);
+			month      = Month.of(random.nextInt(this.referenceDate.getMonthValue()) + 1);
 			dayOfMonth = random.nextInt(month.length(isLeapYear)) + 1;
-			if(month == this.today.getMonth() && dayOfMonth >= this.today.getDayOfMonth())
+			if(month == this.referenceDate.getMonth() && dayOfMonth > this.referenceDate.getDayOfMonth())
 			{
-				dayOfMonth = this.today.getDayOfMonth() - 1;
+				dayOfMonth = this.referenceDate.getDayOfMonth();
 			}
 		}
 		else
@@ -462,20 +674,20 @@ public class RandomDataGenerator implements HasLogger
 		return LocalDateTime.of(year, month.getValue(), dayOfMonth, hour, minute, second);
 	}
 
-	private Book randomBook()
+	private Book randomBook(final Random random)
 	{
-		return this.bookList.get(this.random.nextInt(this.bookList.size()));
+		return this.bookList.get(random.nextInt(this.bookList.size()));
 	}
 
 	private List<Employee> createEmployees(
-		final CountryData countryData,
+		final SeededFaker faker,
 		final City        city
 	)
 	{
-		return this.randomRange(this.dataAmount.maxEmployeesPerShop())
+		return this.randomRange(faker.random, this.dataAmount.maxEmployeesPerShop())
 			.mapToObj(i -> new Employee(
-				countryData.faker.name().fullName(),
-				this.createAddress(city, countryData.faker)
+				faker.faker.name().fullName(),
+				this.createAddress(city, faker.faker)
 			))
 			.collect(toList());
 	}
@@ -494,20 +706,26 @@ public class RandomDataGenerator implements HasLogger
 		);
 	}
 
-	private BigDecimal randomPurchasePrice()
+	private BigDecimal randomPurchasePrice(final Random random)
 	{
 		return this.minPrice
-			.add(new BigDecimal(Math.random()).multiply(this.priceRange));
+			.add(new BigDecimal(random.nextDouble()).multiply(this.priceRange));
 	}
 
-	private IntStream randomRange(final int upperBoundInclusive)
+	private IntStream randomRange(
+		final Random random             ,
+		final int    upperBoundInclusive
+	)
 	{
-		return IntStream.rangeClosed(0, this.randomMax(upperBoundInclusive));
+		return IntStream.rangeClosed(0, this.randomMax(random, upperBoundInclusive));
 	}
 
-	private int randomMax(final int upperBoundInclusive)
+	private int randomMax(
+		final Random random             ,
+		final int    upperBoundInclusive
+	)
 	{
-		int max = this.random.nextInt(upperBoundInclusive);
+		int max = random.nextInt(upperBoundInclusive);
 		final double minRatio;
 		if((minRatio = this.dataAmount.minRatio()) > 0)
 		{
@@ -516,4 +734,48 @@ public class RandomDataGenerator implements HasLogger
 		return max;
 	}
 
+	/**
+	 * Gets the {@link Faker} of the current thread for a locale, reseeded for a unit of work.
+	 * It must not be used after another unit of work has been started by the same thread,
+	 * so units of work don't start nested parallel operations.
+	 */
+	private SeededFaker faker(
+		final Locale  locale,
+		final long... keys
+	)
+	{
+		final SeededFaker faker = this.fakers.get().computeIfAbsent(locale, SeededFaker::new);
+		faker.random.setSeed(this.seed(keys));
+		return faker;
+	}
+
+	private Random random(final long... keys)
+	{
+		return new Random(this.seed(keys));
+	}
+
+	/**
+	 * Derives the seed of a unit of work from the generator's seed and the unit's keys.
+	 */
+	private long seed(final long... keys)
+	{
+		long seed = this.seed;
+		for(final long key : keys)
+		{
+			seed = mix(seed + 0x9E3779B97F4A7C15L * (key + 1));
+		}
+		return seed;
+	}
+
+	/**
+	 * Finalizer of the SplitMix64 generator, which spreads similar inputs over the whole value range.
+	 */
+	private static long mix(final long value)
+	{
+		long z = value;
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
 }
@@ -0,0 +1,124 @@
+
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.eclipse.store.demo.bookstore.util.ValidationUtils.requireZeroOrPositive;
+
+import java.util.Objects;
+
+/**
+ * View of an inventory slot which is running low and should be reordered.
+ * <p>
+ * This type is immutable and therefor inherently thread safe.
+ *
+ * @see Reorders
+ */
+public class ReorderItem
+{
+	private final Shop shop         ;
+	private final Book book         ;
+	private final int  amount       ;
+	private final int  threshold    ;
+	private final int  reorderAmount;
+
+	/**
+	 * Constructor to create a new {@link ReorderItem} instance.
+	 *
+	 * @param shop not <code>null</code>
+	 * @param book not <code>null</code>
+	 * @param amount zero or positive current amount
+	 * @param threshold zero or positive amount below which the slot has to be reordered
+	 * @param reorderAmount zero or positive amount to reorder
+	 */
+	public ReorderItem(
+		final Shop shop         ,
+		final Book book         ,
+		final int  amount       ,
+		final int  threshold    ,
+		final int  reorderAmount
+	)
+	{
+		super();
+		this.shop          = Objects.requireNonNull(shop, () -> "Shop cannot be null");
+		this.book          = Objects.requireNonNull(book, () -> "Book cannot be null");
+		this.amount        = requireZeroOrPositive(amount, () -> "Amount cannot be negative");
+		this.threshold     = requireZeroOrPositive(threshold, () -> "Threshold cannot be negative");
+		this.reorderAmount = requireZeroOrPositive(reorderAmount, () -> "Reorder amount cannot be negative");
+	}
+
+	/**
+	 * Get the shop which has to reorder
+	 *
+	 * @return the shop
+	 */
+	public Shop shop()
+	{
+		return this.shop;
+	}
+
+	/**
+	 * Get the book to reorder
+	 *
+	 * @return the book
+	 */
+	public Book book()
+	{
+		return this.book;
+	}
+
+	/**
+	 * Get the current amount in the shop's inventory
+	 *
+	 * @return the current amount
+	 */
+	public int amount()
+	{
+		return this.amount;
+	}
+
+	/**
+	 * Get the amount below which the book has to be reordered
+	 *
+	 * @return the threshold
+	 */
+	public int threshold()
+	{
+		return this.threshold;
+	}
+
+	/**
+	 * Get the amount to reorder
+	 *
+	 * @return the reorder amount
+	 */
+	public int reorderAmount()
+	{
+		return this.reorderAmount;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ReorderItem"
+			+ " [shop="          + this.shop
+			+ ", book="          + this.book
+			+ ", amount="        + this.amount
+			+ ", threshold="     + this.threshold
+			+ ", reorderAmount=" + this.reorderAmount
+			+ "]";
+	}
+
+}
@@ -0,0 +1,554 @@
+
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.eclipse.store.demo.bookstore.util.ValidationUtils.requirePositive;
+import static org.eclipse.store.demo.bookstore.util.ValidationUtils.requireZeroOrPositive;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.rapidpm.dependencies.core.logger.HasLogger;
+
+/**
+ * Incrementally maintained list of inventory slots which are running low and should be reordered.
+ * <p>
+ * {@link Shops} notifies this engine about every inventory change and {@link Purchases} about every new purchase.
+ * The changes are applied by a single low priority background thread, so maintaining the list costs O(changes),
+ * instead of periodic scans over all inventories. Only the initial state is built by a full scan, in the background as well.
+ * It covers the inventories and the recent purchases, so sold out books, which have no inventory slot anymore, are reordered too.
+ * <p>
+ * The threshold of a slot is the configured minimum amount, or the amount which is expected to be sold
+ * during the lead time, whichever is higher. Sales rates decay exponentially with the configured sales window,
+ * so a sale counts less the older it is, and slots without recent sales are forgotten eventually.
+ * <p>
+ * All operations on this type are thread safe.
+ *
+ * @see Data#reorders()
+ */
+public class Reorders implements Shops.InventoryListener, Purchases.PurchaseListener, HasLogger
+{
+	/**
+	 * Threshold settings for the {@link Reorders} engine.
+	 * <p>
+	 * This type is immutable and therefor inherently thread safe.
+	 */
+	public static class Thresholds
+	{
+		public static Thresholds Default()
+		{
+			return new Thresholds(
+				5,  // minAmount
+				20, // targetAmount
+				14, // leadTimeDays
+				30  // salesWindowDays
+			);
+		}
+
+
+		private final int minAmount      ;
+		private final int targetAmount   ;
+		private final int leadTimeDays   ;
+		private final int salesWindowDays;
+
+		/**
+		 * Constructor to create a new {@link Thresholds} instance.
+		 *
+		 * @param minAmount zero or positive amount below which a slot is always reordered
+		 * @param targetAmount zero or positive amount a slot is refilled to
+		 * @param leadTimeDays zero or positive days until a reorder is delivered
+		 * @param salesWindowDays positive decay time of the sales rates in days,
+		 * a sale's weight drops to about a third after this time
+		 */
+		public Thresholds(
+			final int minAmount      ,
+			final int targetAmount   ,
+			final int leadTimeDays   ,
+			final int salesWindowDays
+		)
+		{
+			super();
+			this.minAmount       = requireZeroOrPositive(minAmount, () -> "Minimum amount cannot be negative");
+			this.targetAmount    = requireZeroOrPositive(targetAmount, () -> "Target amount cannot be negative");
+			this.leadTimeDays    = requireZeroOrPositive(leadTimeDays, () -> "Lead time cannot be negative");
+			this.salesWindowDays = requirePositive(salesWindowDays, () -> "Sales window must be positive");
+		}
+
+		public int minAmount()
+		{
+			return this.minAmount;
+		}
+
+		public int targetAmount()
+		{
+			return this.targetAmount;
+		}
+
+		public int leadTimeDays()
+		{
+			return this.leadTimeDays;
+		}
+
+		public int salesWindowDays()
+		{
+			return this.salesWindowDays;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Thresholds"
+				+ " [minAmount="       + this.minAmount
+				+ ", targetAmount="    + this.targetAmount
+				+ ", leadTimeDays="    + this.leadTimeDays
+				+ ", salesWindowDays=" + this.salesWindowDays
+				+ "]";
+		}
+	}
+
+
+	/**
+	 * Known state of a single inventory slot, ordered by urgency.
+	 * <p>
+	 * Note that this class doesn't need to handle concurrency in any way,
+	 * since it is only used by the Reorders implementation which handles thread safety.
+	 * The fields used by {@link #compareTo(Slot)} must only be changed while the slot is not queued.
+	 */
+	private static class Slot implements Comparable<Slot>
+	{
+		final Shop shop     ;
+		final Book book     ;
+		final long sequence ;
+		int        amount   ;
+		int        threshold;
+		/*
+		 * Exponentially decayed sales per day, as of the day [rateDay].
+		 */
+		double     rate     ;
+		double     rateDay  ;
+		boolean    queued   ;
+
+		Slot(
+			final Shop shop    ,
+			final Book book    ,
+			final long sequence
+		)
+		{
+			super();
+			this.shop     = shop    ;
+			this.book     = book    ;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Adds a sale to the decayed rate, sales may arrive out of order.
+		 */
+		void sold(
+			final int    amount    ,
+			final double day       ,
+			final double windowDays
+		)
+		{
+			if(day >= this.rateDay)
+			{
+				this.rate    = this.rate(day, windowDays) + amount / windowDays;
+				this.rateDay = day;
+			}
+			else
+			{
+				this.rate += amount / windowDays * Math.exp((day - this.rateDay) / windowDays);
+			}
+		}
+
+		/**
+		 * @return the decayed sales per day as of the given day
+		 */
+		double rate(
+			final double day       ,
+			final double windowDays
+		)
+		{
+			return this.rate == 0
+				? 0
+				: this.rate * Math.exp(-Math.max(0, day - this.rateDay) / windowDays);
+		}
+
+		@Override
+		public int compareTo(final Slot other)
+		{
+			/*
+			 * Lowest coverage of the threshold first, without floating point division.
+			 */
+			final int result = Long.compare(
+				(long)this.amount  * other.threshold,
+				(long)other.amount * this.threshold
+			);
+			return result != 0
+				? result
+				: Long.compare(this.sequence, other.sequence);
+		}
+	}
+
+
+	/**
+	 * Slots whose decayed sales within one window drop below this amount are forgotten, unless they are queued.
+	 */
+	private final static double MIN_REMEMBERED_SALES = 0.5;
+
+	/**
+	 * Windows of purchases which are scanned by a rebuild, older sales have decayed to less than 5%.
+	 */
+	private final static int    HISTORY_WINDOWS      = 3;
+
+	private final    Shops                      shops                                 ;
+	private final    Purchases                  purchases                             ;
+	private final    ExecutorService            executor                              ;
+	private final    Map<Shop, Map<Book, Slot>> slots          = new HashMap<>(1024)  ;
+	private final    TreeSet<Slot>              queue          = new TreeSet<>()      ;
+	private final    AtomicBoolean              rebuildQueued  = new AtomicBoolean()  ;
+	private          long                       sequence                              ;
+	private volatile Thresholds                 thresholds                            ;
+	private volatile Future<?>                  initialization                        ;
+
+	/**
+	 * Package-private constructor used by {@link Data#reorders()}.
+	 */
+	Reorders(
+		final Shops      shops     ,
+		final Purchases  purchases ,
+		final Thresholds thresholds
+	)
+	{
+		super();
+		this.shops      = shops     ;
+		this.purchases  = purchases ;
+		this.thresholds = thresholds;
+		this.executor   = Executors.newSingleThreadExecutor(runnable ->
+		{
+			final Thread thread = new Thread(runnable, "BookStore-Reorders");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Registers this engine as listener and builds the initial state in the background.
+	 */
+	void start()
+	{
+		this.shops.addInventoryListener(this);
+		this.purchases.addPurchaseListener(this);
+		this.requestRebuild();
+	}
+
+	/**
+	 * Get the current threshold settings.
+	 *
+	 * @return the thresholds
+	 */
+	public Thresholds thresholds()
+	{
+		return this.thresholds;
+	}
+
+	/**
+	 * Changes the threshold settings, which rebuilds the reorder list in the background.
+	 *
+	 * @param thresholds the new thresholds
+	 */
+	public synchronized void thresholds(final Thresholds thresholds)
+	{
+		this.thresholds = thresholds;
+		this.requestRebuild();
+	}
+
+	/**
+	 * Queues a rebuild, unless one is queued which hasn't started yet, since it will read the current thresholds.
+	 * Queued rebuilds are never cancelled, so waiting for the initialization doesn't fail.
+	 */
+	private synchronized void requestRebuild()
+	{
+		if(this.rebuildQueued.compareAndSet(false, true))
+		{
+			this.initialization = this.executor.submit(this::rebuild);
+		}
+	}
+
+	/**
+	 * Gets the most urgent slots to reorder, lowest coverage of the threshold first.
+	 * <p>
+	 * This waits until the initial state is built.
+	 *
+	 * @param limit the maximum amount of slots
+	 * @return list of slots to reorder
+	 */
+	public List<ReorderItem> reorderList(final int limit)
+	{
+		this.awaitInitialization();
+
+		synchronized(this)
+		{
+			final int targetAmount = this.thresholds.targetAmount();
+			return this.queue.stream()
+				.limit(limit)
+				.map(slot -> new ReorderItem(
+					slot.shop,
+					slot.book,
+					slot.amount,
+					slot.threshold,
+					Math.max(targetAmount, slot.threshold) - slot.amount
+				))
+				.collect(toList());
+		}
+	}
+
+	/**
+	 * Gets the total amount of slots which should be reordered.
+	 * <p>
+	 * This waits until the initial state is built.
+	 *
+	 * @return the amount of slots to reorder
+	 */
+	public int reorderCount()
+	{
+		this.awaitInitialization();
+
+		synchronized(this)
+		{
+			return this.queue.size();
+		}
+	}
+
+	@Override
+	public void inventoryChanged(
+		final Shop shop  ,
+		final Book book  ,
+		final int  amount
+	)
+	{
+		this.executor.execute(() -> this.applyAmount(shop, book, amount));
+	}
+
+	@Override
+	public void purchaseAdded(final Purchase purchase)
+	{
+		this.executor.execute(() -> this.applySales(purchase));
+	}
+
+	private void awaitInitialization()
+	{
+		try
+		{
+			this.initialization.get();
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		catch(final ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private synchronized void applyAmount(
+		final Shop shop  ,
+		final Book book  ,
+		final int  amount
+	)
+	{
+		final Slot slot = this.slot(shop, book);
+		this.dequeue(slot);
+		slot.amount = amount;
+		this.enqueueIfLow(slot);
+	}
+
+	private synchronized void applySales(final Purchase purchase)
+	{
+		final Shop   shop       = purchase.shop();
+		final double day        = day(purchase.timestamp());
+		final double windowDays = this.thresholds.salesWindowDays();
+		purchase.items().forEach(item ->
+		{
+			final Slot slot = this.slot(shop, item.book());
+			this.dequeue(slot);
+			if(slot.amount < 0)
+			{
+				// only loads the inventory of the purchase's shop
+				slot.amount = shop.inventory().amount(item.book());
+			}
+			slot.sold(item.amount(), day, windowDays);
+			this.enqueueIfLow(slot);
+		});
+	}
+
+	/**
+	 * Initial full scan, or after the thresholds have changed.
+	 * Changes which occur meanwhile are queued in the executor and applied afterwards.
+	 * <p>
+	 * Besides the inventories, the purchases of the last {@link #HISTORY_WINDOWS} sales windows are scanned,
+	 * since sold out books are removed from the inventories and only show up in the sales history.
+	 */
+	private void rebuild()
+	{
+		this.rebuildQueued.set(false);
+
+		final Thresholds          thresholds = this.thresholds;
+		final int                 minAmount  = thresholds.minAmount();
+		final List<InventoryItem> lowItems   = this.shops.computeInventory(items ->
+			items.filter(item -> item.amount() < minAmount)
+				.collect(toList())
+		);
+		final LocalDateTime       now        = LocalDateTime.now();
+		final List<Purchase>      recent     = this.recentPurchases(
+			now.minusDays((long)HISTORY_WINDOWS * thresholds.salesWindowDays()),
+			now
+		);
+
+		synchronized(this)
+		{
+			this.queue.clear();
+			final List<Slot> slots = new ArrayList<>();
+			this.slots.values().forEach(bookToSlot -> slots.addAll(bookToSlot.values()));
+			slots.forEach(slot ->
+			{
+				slot.queued = false;
+				// derived from the history again, which includes the purchases applied so far
+				slot.rate   = 0;
+			});
+
+			for(final InventoryItem item : lowItems)
+			{
+				final Slot slot = this.slot(item.shop(), item.book());
+				if(slot.amount < 0)
+				{
+					slot.amount = item.amount();
+					slots.add(slot);
+				}
+			}
+
+			final double windowDays = thresholds.salesWindowDays();
+			for(final Purchase purchase : recent)
+			{
+				final double day = day(purchase.timestamp());
+				purchase.items().forEach(item ->
+				{
+					final Slot slot = this.slot(purchase.shop(), item.book());
+					if(slot.amount < 0)
+					{
+						// zero if sold out
+						slot.amount = purchase.shop().inventory().amount(item.book());
+						slots.add(slot);
+					}
+					slot.sold(item.amount(), day, windowDays);
+				});
+			}
+
+			slots.forEach(this::enqueueIfLow);
+
+			this.logger().info("Reorder list built: " + this.queue.size() + " slots, " + thresholds);
+		}
+	}
+
+	private List<Purchase> recentPurchases(
+		final LocalDateTime from,
+		final LocalDateTime to
+	)
+	{
+		final List<Purchase> purchases = new ArrayList<>();
+		for(int year = from.getYear(); year <= to.getYear(); year++)
+		{
+			purchases.addAll(this.purchases.computeByYear(year, stream ->
+				stream.filter(purchase -> purchase.timestamp().isAfter(from))
+					.collect(toList())
+			));
+		}
+		return purchases;
+	}
+
+	private Slot slot(
+		final Shop shop,
+		final Book book
+	)
+	{
+		return this.slots.computeIfAbsent(shop, s -> new HashMap<>())
+			.computeIfAbsent(book, b ->
+			{
+				final Slot slot = new Slot(shop, book, this.sequence++);
+				slot.amount = -1; // unknown
+				return slot;
+			});
+	}
+
+	private void dequeue(final Slot slot)
+	{
+		if(slot.queued)
+		{
+			this.queue.remove(slot);
+			slot.queued = false;
+		}
+	}
+
+	private void enqueueIfLow(final Slot slot)
+	{
+		final Thresholds thresholds   = this.thresholds;
+		final double     rate         = slot.rate(day(LocalDateTime.now()), thresholds.salesWindowDays());
+		final boolean    recentlySold = rate * thresholds.salesWindowDays() >= MIN_REMEMBERED_SALES;
+		slot.threshold = Math.max(
+			thresholds.minAmount(),
+			recentlySold
+				? (int)Math.ceil(rate * thresholds.leadTimeDays())
+				: 0
+		);
+
+		if(slot.amount >= 0 && slot.amount < slot.threshold)
+		{
+			slot.queued = this.queue.add(slot);
+		}
+		else if(!recentlySold)
+		{
+			// nothing worth to remember
+			final Map<Book, Slot> bookToSlot = this.slots.get(slot.shop);
+			bookToSlot.remove(slot.book);
+			if(bookToSlot.isEmpty())
+			{
+				this.slots.remove(slot.shop);
+			}
+		}
+	}
+
+	/**
+	 * @return the fractional day of a timestamp, the time base of the sales rates
+	 */
+	private static double day(final LocalDateTime timestamp)
+	{
+		return timestamp.toEpochSecond(ZoneOffset.UTC) / 86_400.0;
+	}
+
+}
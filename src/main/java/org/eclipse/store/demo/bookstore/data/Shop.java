@@ -97,6 +97,14 @@ public class Shop extends NamedWithAddress
 		return this.inventory.get();
 	}
 
+	/**
+	 * @return <code>true</code> if the inventory is currently loaded
+	 */
+	boolean isInventoryLoaded()
+	{
+		return this.inventory.isLoaded();
+	}
+
 	/**
 	 * Clears all {@link Lazy} references held by this shop.
 	 * This frees the used memory but you do not lose the persisted data. It is loaded again on demand.
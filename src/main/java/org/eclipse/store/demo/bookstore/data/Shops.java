@@ -14,15 +14,35 @@ package org.eclipse.store.demo.bookstore.data;
  * #L%
  */
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static org.eclipse.store.demo.bookstore.util.LazyUtils.clearIfStored;
+import static org.eclipse.store.demo.bookstore.util.concurrent.ComputePool.SHOPS;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.eclipse.serializer.persistence.types.PersistenceStoring;
+import org.eclipse.serializer.reference.Lazy;
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
-import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLocked;
+import org.eclipse.store.demo.bookstore.util.concurrent.ChunkedPublisher;
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
+import org.eclipse.store.demo.bookstore.util.concurrent.ReadWriteLockedOptimistic;
+import org.eclipse.store.demo.bookstore.util.concurrent.ResultCache;
+import org.eclipse.store.demo.bookstore.util.concurrent.ValueOperation;
 import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
 
 /**
@@ -31,21 +51,172 @@ import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
  * This type is used to read and write the {@link Shop}s, their {@link Employee}s and {@link Inventory}s.
  * <p>
  * All operations on this type are thread safe.
+ * <p>
+ * The stock of a book is cached until its next change, see {@link ResultCache}.
  *
  * @see Data#shops()
- * @see ReadWriteLocked
+ * @see ReadWriteLockedOptimistic
  */
-public class Shops extends ReadWriteLocked
+public class Shops extends ReadWriteLockedOptimistic
 {
+	/**
+	 * Listener which is notified about inventory changes.
+	 */
+	@FunctionalInterface
+	public static interface InventoryListener
+	{
+		/**
+		 * Called after a slot of an inventory was changed, while the write lock is still held.
+		 * Implementations should return quickly and must not call back into {@link Shops}.
+		 *
+		 * @param shop the shop the inventory belongs to
+		 * @param book the book of the changed slot
+		 * @param amount the new amount, zero if the book was removed
+		 */
+		public void inventoryChanged(Shop shop, Book book, int amount);
+	}
+
+	/**
+	 * Postings of a single book: all shops which hold it in their inventory and the respective amount.
+	 * <p>
+	 * Note that this class doesn't need to handle concurrency in any way,
+	 * since it is only used by the Shops implementation which handles thread safety.
+	 */
+	private static class Stock
+	{
+		Shop[] shops   = new Shop[8];
+		int[]  amounts = new int[8];
+		int    size   ;
+
+		Stock()
+		{
+			super();
+		}
+
+		/**
+		 * Sets the amount of the book in a specific shop, an amount of zero removes the posting.
+		 *
+		 * @param shop the shop
+		 * @param amount the new amount
+		 * @param changedObjects collector of objects which have to be stored
+		 */
+		void put(
+			final Shop        shop          ,
+			final int         amount        ,
+			final Set<Object> changedObjects
+		)
+		{
+			for(int i = 0; i < this.size; i++)
+			{
+				if(this.shops[i] == shop)
+				{
+					if(amount > 0)
+					{
+						this.amounts[i] = amount;
+					}
+					else
+					{
+						// order is irrelevant, move the last posting into the gap
+						final int last = --this.size;
+						this.shops  [i]    = this.shops  [last];
+						this.amounts[i]    = this.amounts[last];
+						this.shops  [last] = null;
+					}
+					this.addTo(changedObjects);
+					return;
+				}
+			}
+
+			if(amount > 0)
+			{
+				if(this.size == this.shops.length)
+				{
+					final int capacity = this.size << 1;
+					this.shops   = Arrays.copyOf(this.shops  , capacity);
+					this.amounts = Arrays.copyOf(this.amounts, capacity);
+				}
+				this.shops  [this.size] = shop;
+				this.amounts[this.size] = amount;
+				this.size++;
+				this.addTo(changedObjects);
+			}
+		}
+
+		/**
+		 * The arrays are modified in place, so they have to be stored explicitly.
+		 */
+		private void addTo(final Set<Object> changedObjects)
+		{
+			changedObjects.add(this);
+			changedObjects.add(this.shops);
+			changedObjects.add(this.amounts);
+		}
+
+		long estimatedBytes()
+		{
+			return Footprint.object(2, 4)
+				+ Footprint.array(this.shops.length  , Footprint.REFERENCE)
+				+ Footprint.array(this.amounts.length, Integer.BYTES      );
+		}
+
+		Stream<InventoryItem> items(final Book book)
+		{
+			return IntStream.range(0, this.size).mapToObj(i ->
+				new InventoryItem(this.shops[i], book, this.amounts[i])
+			);
+		}
+	}
+
+
 	/**
 	 * Simple list to hold the shops.
 	 */
-	private final List<Shop> shops = new ArrayList<>(1024);
+	private final List<Shop>             shops       = new ArrayList<>(1024);
+	/**
+	 * Reverse index of all inventories, used by {@link #stockOf(Book)}.
+	 * Each book's postings are loaded lazily, so no inventory has to be touched for a lookup.
+	 */
+	private       Map<Book, Lazy<Stock>> bookToStock = new HashMap<>(4096);
+	/*
+	 * Transient means it is not persisted by EclipseStore, but created on demand.
+	 */
+	private transient volatile List<InventoryListener> inventoryListeners;
+	private transient volatile ResultCache             results           ;
+	/*
+	 * Resolves the book ordinals of the inventories, bound by the owning Data, see #bind(Books).
+	 */
+	private transient volatile Books                   books             ;
 
 	public Shops()
 	{
 		super();
 	}
+
+	/**
+	 * Binds the {@link Books} which resolve the book ordinals of the inventories.
+	 * They are not persisted with the shops, so this method is used by {@link Data} on every access.
+	 *
+	 * @param books the books of the same data node
+	 * @return this shops instance
+	 */
+	Shops bind(final Books books)
+	{
+		if(this.books != books)
+		{
+			this.books = books;
+		}
+		return this;
+	}
+
+	private Books books()
+	{
+		final Books books = this.books;
+		if(books == null)
+		{
+			throw new IllegalStateException("Shops are not bound to books");
+		}
+		return books;
+	}
 	
 	/**
 	 * Adds a new shop and stores it with the {@link BookStoreDemo}'s {@link EmbeddedStorageManager}.
@@ -73,7 +244,10 @@ public class Shops extends ReadWriteLocked
 	{
 		this.write(() -> {
 			this.shops.add(shop);
-			persister.store(this.shops);
+			final Set<Object> changedObjects = newChangedObjects();
+			changedObjects.add(this.shops);
+			this.addToStock(shop, changedObjects);
+			persister.storeAll(changedObjects);
 		});
 	}
 
@@ -103,10 +277,176 @@ public class Shops extends ReadWriteLocked
 	{
 		this.write(() -> {
 			this.shops.addAll(shops);
-			persister.store(this.shops);
+			final Set<Object> changedObjects = newChangedObjects();
+			changedObjects.add(this.shops);
+			shops.forEach(shop -> this.addToStock(shop, changedObjects));
+			persister.storeAll(changedObjects);
+		});
+	}
+
+	/**
+	 * Sets the amount of a specific book in a shop's inventory
+	 * and stores it with the {@link BookStoreDemo}'s {@link EmbeddedStorageManager}.
+	 * <p>
+	 * This is a synonym for:<pre>this.updateInventory(shop, book, amount, BookStoreDemo.getInstance().storageManager())</pre>
+	 *
+	 * @param shop the shop
+	 * @param book the book
+	 * @param amount the new amount, zero removes the book from the inventory
+	 * @return the previous amount
+	 */
+	public int updateInventory(
+		final Shop shop  ,
+		final Book book  ,
+		final int  amount
+	)
+	{
+		return this.updateInventory(shop, book, amount, BookStoreDemo.getInstance().storageManager());
+	}
+
+	/**
+	 * Sets the amount of a specific book in a shop's inventory and stores it with the given persister.
+	 * <p>
+	 * This is the only way to modify an {@link Inventory}, which keeps the stock index in sync.
+	 *
+	 * @param shop the shop
+	 * @param book the book
+	 * @param amount the new amount, zero removes the book from the inventory
+	 * @param persister the persister to store the changes with
+	 * @return the previous amount
+	 * @see #updateInventory(Shop, Book, int)
+	 */
+	public int updateInventory(
+		final Shop               shop     ,
+		final Book               book     ,
+		final int                amount   ,
+		final PersistenceStoring persister
+	)
+	{
+		return this.write(() ->
+		{
+			final int previous = shop.inventory().put(book, amount, persister);
+			if(previous != amount)
+			{
+				final Set<Object> changedObjects = newChangedObjects();
+				this.updateStock(shop, book, amount, changedObjects);
+				persister.storeAll(changedObjects);
+				this.fireInventoryChanged(shop, book, amount);
+			}
+			return previous;
+		});
+	}
+
+	/**
+	 * Registers a listener which is notified about all subsequent inventory changes.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addInventoryListener(final InventoryListener listener)
+	{
+		this.inventoryListeners().add(listener);
+	}
+
+	private List<InventoryListener> inventoryListeners()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.inventoryListeners) has to be volatile.
+		 */
+		List<InventoryListener> listeners = this.inventoryListeners;
+		if(listeners == null)
+		{
+			synchronized(this)
+			{
+				if((listeners = this.inventoryListeners) == null)
+				{
+					listeners = this.inventoryListeners = new CopyOnWriteArrayList<>();
+				}
+			}
+		}
+		return listeners;
+	}
+
+	private void fireInventoryChanged(
+		final Shop shop  ,
+		final Book book  ,
+		final int  amount
+	)
+	{
+		final List<InventoryListener> listeners = this.inventoryListeners;
+		if(listeners != null)
+		{
+			listeners.forEach(listener -> listener.inventoryChanged(shop, book, amount));
+		}
+	}
+
+	static Set<Object> newChangedObjects()
+	{
+		/*
+		 * Identity based, the persisted collections and arrays must not be hashed by content.
+		 */
+		return Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	/**
+	 * Adds all slots of a shop's inventory to the stock index.
+	 */
+	private void addToStock(
+		final Shop        shop          ,
+		final Set<Object> changedObjects
+	)
+	{
+		shop.inventory().forEach(this.books(), (book, amount) ->
+		{
+			this.updateStock(shop, book, amount, changedObjects);
+			this.fireInventoryChanged(shop, book, amount);
 		});
 	}
 
+	private void updateStock(
+		final Shop        shop          ,
+		final Book        book          ,
+		final int         amount        ,
+		final Set<Object> changedObjects
+	)
+	{
+		final Lazy<Stock> lazy = this.bookToStock.get(book);
+		if(lazy != null)
+		{
+			lazy.get().put(shop, amount, changedObjects);
+		}
+		else if(amount > 0)
+		{
+			final Stock stock = new Stock();
+			stock.put(shop, amount, changedObjects);
+			this.bookToStock.put(book, Lazy.Reference(stock));
+			changedObjects.add(this.bookToStock);
+		}
+		this.results().invalidate(book);
+	}
+
+	private ResultCache results()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.results) has to be volatile.
+		 */
+		ResultCache results = this.results;
+		if(results == null)
+		{
+			synchronized(this)
+			{
+				if((results = this.results) == null)
+				{
+					results = this.results = ResultCache.New(Shops.class);
+				}
+			}
+		}
+		return results;
+	}
+
 	/**
 	 * Gets the total amount of all shops.
 	 *
@@ -114,7 +454,7 @@ public class Shops extends ReadWriteLocked
 	 */
 	public int shopCount()
 	{
-		return this.read(
+		return this.readOptimistic(
 			this.shops::size
 		);
 	}
@@ -132,6 +472,96 @@ public class Shops extends ReadWriteLocked
 		);
 	}
 
+	/**
+	 * Collects the heap footprint of all shops, their employees, the loaded inventories
+	 * and the loaded postings of the reverse stock index. No inventory is loaded by this method.
+	 *
+	 * @return the footprint of the shops
+	 */
+	public Footprint footprint()
+	{
+		return this.read(() ->
+		{
+			long loaded   = 0;
+			long unloaded = 0;
+			long bytes    = Footprint.arrayList(this.shops.size())
+				+ Footprint.hashMap(this.bookToStock.size());
+			for(final Shop shop : this.shops)
+			{
+				bytes += Footprint.named(shop)
+					+ Footprint.LAZY
+					+ Footprint.arrayList((int)shop.employees().count())
+					+ shop.employees().mapToLong(Footprint::named).sum();
+				if(shop.isInventoryLoaded())
+				{
+					bytes += shop.inventory().estimatedBytes();
+					loaded++;
+				}
+				else
+				{
+					unloaded++;
+				}
+			}
+			for(final Lazy<Stock> lazy : this.bookToStock.values())
+			{
+				bytes += Footprint.LAZY;
+				if(lazy.isLoaded())
+				{
+					bytes += lazy.get().estimatedBytes();
+					loaded++;
+				}
+				else
+				{
+					unloaded++;
+				}
+			}
+			return new Footprint("shops", this.shops.size(), loaded, unloaded, bytes);
+		});
+	}
+
+	/**
+	 * Upgrades the inventories of all shops which were loaded from a storage of a previous version.
+	 * The books have to be upgraded first, see {@link Books#upgrade(Set)}.
+	 * <p>
+	 * All inventories are loaded by this method, use {@link #clear()} afterwards to free the memory.
+	 *
+	 * @param changedObjects collects the objects which have to be stored to persist the upgrade
+	 */
+	void upgradeInventories(final Set<Object> changedObjects)
+	{
+		this.write(() ->
+			this.shops.forEach(shop -> shop.inventory().upgrade(changedObjects))
+		);
+	}
+
+	/**
+	 * Rebuilds the stock index if it was loaded from a storage of a previous version, which had none yet.
+	 * The inventories have to be upgraded first, see {@link #upgradeInventories(Set)}.
+	 * <p>
+	 * All inventories are loaded by this method, use {@link #clear()} afterwards to free the memory.
+	 *
+	 * @param changedObjects collects the objects which have to be stored to persist the upgrade
+	 */
+	void upgradeStock(final Set<Object> changedObjects)
+	{
+		this.write(() ->
+		{
+			if(this.bookToStock != null)
+			{
+				return;
+			}
+
+			this.bookToStock = new HashMap<>(4096);
+			for(final Shop shop : this.shops)
+			{
+				shop.inventory().forEach(this.books(), (book, amount) ->
+					this.updateStock(shop, book, amount, changedObjects)
+				);
+			}
+			changedObjects.add(this);
+		});
+	}
+
 	/**
 	 * Clears all {@link Lazy} references used by all shops.
 	 * This frees the used memory but you do not lose the persisted data. It is loaded again on demand.
@@ -141,8 +571,11 @@ public class Shops extends ReadWriteLocked
 	public void clear()
 	{
 		this.write(() ->
-			this.shops.forEach(Shop::clear)
-		);
+		{
+			this.shops.forEach(Shop::clear);
+			this.bookToStock.values().forEach(lazy -> clearIfStored(lazy));
+			this.results().invalidateAll();
+		});
 	}
 
 	/**
@@ -155,8 +588,10 @@ public class Shops extends ReadWriteLocked
 	public <T> T compute(final Function<Stream<Shop>, T> streamFunction)
 	{
 		return this.read(() ->
-			streamFunction.apply(
-				this.shops.parallelStream()
+			ComputePool.get(SHOPS).compute(() ->
+				streamFunction.apply(
+					Deadline.current().guard(this.shops.parallelStream())
+				)
 			)
 		);
 	}
@@ -171,16 +606,97 @@ public class Shops extends ReadWriteLocked
 	public <T> T computeInventory(final Function<Stream<InventoryItem>, T> function)
 	{
 		return this.read(() ->
-			function.apply(
-				this.shops.parallelStream().flatMap(shop ->
-					shop.inventory().compute(entries ->
-						entries.map(entry -> new InventoryItem(shop, entry.getKey(), entry.getValue()))
+			ComputePool.get(SHOPS).compute(() ->
+				function.apply(
+					Deadline.current().guard(
+						this.shops.parallelStream().flatMap(shop ->
+							shop.inventory().items(this.books(), shop)
+						)
 					)
 				)
 			)
 		);
 	}
 
+	/**
+	 * Publishes the {@link InventoryItem}s of all shops, without collecting them first.
+	 * <p>
+	 * The shops are walked one by one, as subscribers request items.
+	 * The inventory of a shop is loaded and copied into a chunk,
+	 * and released again afterwards if it wasn't loaded before.
+	 *
+	 * @return a publisher of the inventory items
+	 * @see ChunkedPublisher
+	 */
+	public Flow.Publisher<InventoryItem> publishInventory()
+	{
+		return ChunkedPublisher.New(() ->
+			this.read(() ->
+				this.shops.stream()
+					.map(shop -> (ValueOperation<List<InventoryItem>>)() -> this.loadInventoryChunk(shop))
+					.collect(toList())
+			)
+		);
+	}
+
+	private List<InventoryItem> loadInventoryChunk(final Shop shop)
+	{
+		return this.read(() ->
+		{
+			final boolean             loaded = shop.isInventoryLoaded();
+			final List<InventoryItem> chunk  = shop.inventory().items(this.books(), shop)
+				.collect(toList());
+			if(!loaded)
+			{
+				// only release the reference, other readers may still use the inventory
+				shop.clear();
+			}
+			return chunk;
+		});
+	}
+
+	/**
+	 * Executes a function with a {@link Stream} of {@link InventoryItem}s of a specific book and returns the computed value.
+	 * <p>
+	 * This uses the stock index, so only the postings of the given book are loaded, no inventories at all.
+	 *
+	 * @param <T> the return type
+	 * @param book the book to get the stock of
+	 * @param function computing function
+	 * @return the computed result
+	 */
+	public <T> T computeStockOf(
+		final Book                               book    ,
+		final Function<Stream<InventoryItem>, T> function
+	)
+	{
+		return this.read(() ->
+		{
+			final Stock stock = Lazy.get(this.bookToStock.get(book));
+			return function.apply(
+				stock == null
+					? Stream.empty()
+					: stock.items(book)
+			);
+		});
+	}
+
+	/**
+	 * Gets all shops which hold a specific book in their inventory, and the respective amount.
+	 *
+	 * @param book the book to get the stock of
+	 * @return a list of inventory items
+	 */
+	public List<InventoryItem> stockOf(final Book book)
+	{
+		return this.results().get(book, "stockOf", () ->
+			this.computeStockOf(
+				book,
+				items -> items.collect(toUnmodifiableList())
+			)
+		);
+	}
+
 	/**
 	 * Gets the shop with a specific name or <code>null</code> if none was found.
 	 *
@@ -0,0 +1,288 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.stream.Collectors.toMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+
+import com.google.common.collect.Range;
+
+/**
+ * Preloads hot partitions of the data after startup, so the first users don't have to wait for the storage:
+ * the purchases of the configured and the most recent years, the inventories of the hot shops and the full text index.
+ * <p>
+ * Hot partitions are the ones which were loaded when the application was shut down the last time.
+ * They are recorded in a file by {@link #shutdown()} and read again by {@link #start()}.
+ * <p>
+ * The partitions are loaded one after another by a single low priority background thread,
+ * without using the compute pools, so concurrent queries are not slowed down.
+ * <p>
+ * All operations on this type are thread safe.
+ */
+public class WarmUp implements HasLogger
+{
+	/**
+	 * State of a {@link WarmUp}.
+	 */
+	public static enum State
+	{
+		PENDING,
+		RUNNING,
+		/**
+		 * All partitions are loaded.
+		 */
+		READY,
+		/**
+		 * Loading failed, the remaining partitions are loaded on demand.
+		 */
+		FAILED;
+
+		/**
+		 * @return <code>true</code> if the application should receive traffic
+		 */
+		public boolean isReady()
+		{
+			return this == READY || this == FAILED;
+		}
+	}
+
+
+	private final static String YEAR = "year";
+	private final static String SHOP = "shop";
+
+	private final    Data            data                                  ;
+	private final    Set<Integer>    years                                 ;
+	private final    int             recentYears                           ;
+	private final    Path            hotPartitions                         ;
+	private final    ExecutorService executor                              ;
+	private final    AtomicInteger   loadedPartitions = new AtomicInteger();
+	private volatile int             totalPartitions                       ;
+	private volatile State           state            = State.PENDING      ;
+	private volatile Duration        duration         = Duration.ZERO      ;
+
+	/**
+	 * Creates a new warm-up, which has to be started with {@link #start()}.
+	 *
+	 * @param data the data to warm up
+	 * @param years the years whose purchases are always loaded
+	 * @param recentYears the amount of most recent years whose purchases are loaded
+	 * @param hotPartitions the file in which the hot partitions are recorded, or <code>null</code> if they shouldn't be
+	 */
+	public WarmUp(
+		final Data         data         ,
+		final Set<Integer> years        ,
+		final int          recentYears  ,
+		final Path         hotPartitions
+	)
+	{
+		super();
+		this.data          = data             ;
+		this.years         = Set.copyOf(years);
+		this.recentYears   = recentYears      ;
+		this.hotPartitions = hotPartitions    ;
+		this.executor      = Executors.newSingleThreadExecutor(runnable ->
+		{
+			final Thread thread = new Thread(runnable, "BookStore-WarmUp");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Starts loading the partitions in the background.
+	 */
+	public synchronized void start()
+	{
+		if(this.state == State.PENDING)
+		{
+			this.state = State.RUNNING;
+			this.executor.execute(this::run);
+		}
+	}
+
+	/**
+	 * Stops loading and records the currently hot partitions for the next start.
+	 */
+	public synchronized void shutdown()
+	{
+		this.executor.shutdownNow();
+		if(this.hotPartitions != null)
+		{
+			this.recordHotPartitions();
+		}
+	}
+
+	/**
+	 * @return the current state
+	 */
+	public State state()
+	{
+		return this.state;
+	}
+
+	/**
+	 * @return <code>true</code> if the application should receive traffic
+	 */
+	public boolean isReady()
+	{
+		return this.state.isReady();
+	}
+
+	/**
+	 * @return the amount of already loaded partitions
+	 */
+	public int loadedPartitions()
+	{
+		return this.loadedPartitions.get();
+	}
+
+	/**
+	 * @return the amount of partitions to load, which is known after the start
+	 */
+	public int totalPartitions()
+	{
+		return this.totalPartitions;
+	}
+
+	/**
+	 * @return the time it took to load all partitions, or zero if not completed yet
+	 */
+	public Duration duration()
+	{
+		return this.duration;
+	}
+
+	private void run()
+	{
+		final long start = System.nanoTime();
+		try
+		{
+			final Set<Integer> years = new TreeSet<>(this.years);
+			final List<String> shops = new ArrayList<>();
+			this.readHotPartitions(years, shops);
+			final Range<Integer> available = this.data.purchases().years();
+			for(int i = 0; i < this.recentYears; i++)
+			{
+				years.add(available.upperEndpoint() - i);
+			}
+			years.removeIf(year -> !available.contains(year));
+
+			this.totalPartitions = years.size() + shops.size() + 1;
+			this.logger().info("Warming up years " + years + " and " + shops.size() + " shops");
+
+			this.data.books().warmUp();
+			this.loadedPartitions.incrementAndGet();
+			for(final int year : years)
+			{
+				this.data.purchases().warmUp(year);
+				this.loadedPartitions.incrementAndGet();
+			}
+			final Map<String, Shop> shopsByName = this.data.shops().all().stream()
+				.collect(toMap(Shop::name, Function.identity(), (shop1, shop2) -> shop1));
+			for(final String name : shops)
+			{
+				final Shop shop = shopsByName.get(name);
+				if(shop != null)
+				{
+					shop.inventory();
+				}
+				this.loadedPartitions.incrementAndGet();
+			}
+
+			this.duration = Duration.ofNanos(System.nanoTime() - start);
+			this.state    = State.READY;
+			this.logger().info("Warm-up completed in " + this.duration.toMillis() + " ms");
+		}
+		catch(final RuntimeException e)
+		{
+			this.duration = Duration.ofNanos(System.nanoTime() - start);
+			this.state    = State.FAILED;
+			this.logger().warning("Warm-up failed, remaining partitions are loaded on demand", e);
+		}
+	}
+
+	private void readHotPartitions(
+		final Set<Integer> years,
+		final List<String> shops
+	)
+	{
+		if(this.hotPartitions == null || !Files.exists(this.hotPartitions))
+		{
+			return;
+		}
+		try
+		{
+			for(final String line : Files.readAllLines(this.hotPartitions))
+			{
+				final int separator = line.indexOf('=');
+				if(line.startsWith("#") || separator < 0)
+				{
+					continue;
+				}
+				final String key   = line.substring(0, separator).trim();
+				final String value = line.substring(separator + 1).trim();
+				if(YEAR.equals(key))
+				{
+					years.add(Integer.valueOf(value));
+				}
+				else if(SHOP.equals(key))
+				{
+					shops.add(value);
+				}
+			}
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private void recordHotPartitions()
+	{
+		final List<String> lines = new ArrayList<>();
+		lines.add("# partitions which were loaded at the last shutdown, see " + WarmUp.class.getName());
+		this.data.purchases().loadedYears().forEach(year -> lines.add(YEAR + "=" + year));
+		this.data.shops().all().stream()
+			.filter(Shop::isInventoryLoaded)
+			.forEach(shop -> lines.add(SHOP + "=" + shop.name()));
+		try
+		{
+			Files.write(this.hotPartitions, lines);
+		}
+		catch(final IOException e)
+		{
+			this.logger().warning("Hot partitions could not be recorded", e);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.eclipse.store.demo.bookstore.export;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import org.eclipse.store.demo.bookstore.data.Country;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * REST controller which exposes GET /export/purchases to download the purchases of a year.
+ * <p>
+ * Parameters:
+ * <ul>
+ * <li><code>year</code>: the year to export</li>
+ * <li><code>country</code>: optional country code to filter the shops by</li>
+ * <li><code>format</code>: <code>ndjson</code> (default) or <code>csv</code>, see {@link ExportFormat}</li>
+ * </ul>
+ * The rows are streamed to the response while they are read, see {@link PurchaseExporter}.
+ */
+@RestController
+@RequestMapping("/export")
+public class ExportController
+{
+	private final PurchaseExporter exporter;
+
+	ExportController(final PurchaseExporter exporter)
+	{
+		super();
+		this.exporter = exporter;
+	}
+
+	@GetMapping("/purchases")
+	ResponseEntity<?> purchases(
+		@RequestParam("year")                                   final int    year       ,
+		@RequestParam(name = "country", required = false)       final String countryCode,
+		@RequestParam(name = "format", defaultValue = "ndjson") final String formatName
+	)
+	{
+		final ExportFormat format;
+		try
+		{
+			format = ExportFormat.ofName(formatName);
+		}
+		catch(final IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+
+		final Country country;
+		if(countryCode == null || countryCode.isBlank())
+		{
+			country = null;
+		}
+		else if((country = this.exporter.countryByCode(countryCode)) == null)
+		{
+			return ResponseEntity.badRequest().body("Unknown country: " + countryCode);
+		}
+
+		final String fileName = "purchases-" + year
+			+ (country == null ? "" : "-" + country.code().toLowerCase())
+			+ "." + format.extension();
+		final StreamingResponseBody body = outputStream ->
+			this.exporter.export(year, country, format, outputStream);
+		return ResponseEntity.ok()
+			.contentType(MediaType.parseMediaType(format.mediaType()))
+			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+			.body(body);
+	}
+
+}
@@ -0,0 +1,243 @@
+package org.eclipse.store.demo.bookstore.export;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+import javax.money.MonetaryAmount;
+
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.PurchaseItem;
+
+/**
+ * Output formats of the purchase export.
+ * <p>
+ * Rows are written directly, without an intermediate object graph.
+ * Monetary amounts are written as plain decimal numbers, the currency is a separate field.
+ */
+public enum ExportFormat
+{
+	/**
+	 * Newline delimited JSON, one object with all items per purchase.
+	 */
+	NDJSON("application/x-ndjson", "ndjson")
+	{
+		@Override
+		void writeHeader(final Writer writer)
+		{
+			// no header
+		}
+
+		@Override
+		int write(final Purchase purchase, final Writer writer) throws IOException
+		{
+			writer.write("{\"timestamp\":\"");
+			writer.write(purchase.timestamp().toString());
+			writer.write("\",\"shop\":");
+			writeJsonString(purchase.shop().name(), writer);
+			writer.write(",\"employee\":");
+			writeJsonString(purchase.employee().name(), writer);
+			writer.write(",\"customerId\":");
+			writer.write(Integer.toString(purchase.customer().customerId()));
+			writer.write(",\"customer\":");
+			writeJsonString(purchase.customer().name(), writer);
+			writer.write(",\"currency\":\"");
+			writer.write(purchase.total().getCurrency().getCurrencyCode());
+			writer.write("\",\"total\":");
+			writer.write(plain(purchase.total()));
+			writer.write(",\"items\":[");
+			boolean first = true;
+			for(final PurchaseItem item : (Iterable<PurchaseItem>)purchase.items()::iterator)
+			{
+				if(!first)
+				{
+					writer.write(',');
+				}
+				first = false;
+				writer.write("{\"isbn13\":\"");
+				writer.write(item.book().isbn13());
+				writer.write("\",\"title\":");
+				writeJsonString(item.book().title(), writer);
+				writer.write(",\"amount\":");
+				writer.write(Integer.toString(item.amount()));
+				writer.write(",\"price\":");
+				writer.write(plain(item.price()));
+				writer.write('}');
+			}
+			writer.write("]}\n");
+			return 1;
+		}
+	},
+
+	/**
+	 * Comma separated values with a header line, one row per purchase item.
+	 */
+	CSV("text/csv", "csv")
+	{
+		@Override
+		void writeHeader(final Writer writer) throws IOException
+		{
+			writer.write("timestamp,shop,employee,customerId,customer,isbn13,title,amount,price,currency\n");
+		}
+
+		@Override
+		int write(final Purchase purchase, final Writer writer) throws IOException
+		{
+			final String timestamp  = purchase.timestamp().toString();
+			final String customerId = Integer.toString(purchase.customer().customerId());
+			int          rows       = 0;
+			for(final PurchaseItem item : (Iterable<PurchaseItem>)purchase.items()::iterator)
+			{
+				writer.write(timestamp);
+				writer.write(',');
+				writeCsvField(purchase.shop().name(), writer);
+				writer.write(',');
+				writeCsvField(purchase.employee().name(), writer);
+				writer.write(',');
+				writer.write(customerId);
+				writer.write(',');
+				writeCsvField(purchase.customer().name(), writer);
+				writer.write(',');
+				writer.write(item.book().isbn13());
+				writer.write(',');
+				writeCsvField(item.book().title(), writer);
+				writer.write(',');
+				writer.write(Integer.toString(item.amount()));
+				writer.write(',');
+				writer.write(plain(item.price()));
+				writer.write(',');
+				writer.write(item.price().getCurrency().getCurrencyCode());
+				writer.write('\n');
+				rows++;
+			}
+			return rows;
+		}
+	};
+
+
+	private final String mediaType;
+	private final String extension;
+
+	private ExportFormat(
+		final String mediaType,
+		final String extension
+	)
+	{
+		this.mediaType = mediaType;
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the media type of the response
+	 */
+	public String mediaType()
+	{
+		return this.mediaType;
+	}
+
+	/**
+	 * @return the file extension of the download
+	 */
+	public String extension()
+	{
+		return this.extension;
+	}
+
+	/**
+	 * Writes the header, if the format has one.
+	 */
+	abstract void writeHeader(Writer writer) throws IOException;
+
+	/**
+	 * Writes a purchase.
+	 *
+	 * @return the amount of written rows
+	 */
+	abstract int write(Purchase purchase, Writer writer) throws IOException;
+
+	/**
+	 * Gets a format by its name, ignoring the case.
+	 *
+	 * @param name the format's name
+	 * @return the according format
+	 * @throws IllegalArgumentException if no format with the given name exists
+	 */
+	public static ExportFormat ofName(final String name)
+	{
+		for(final ExportFormat format : values())
+		{
+			if(format.name().equalsIgnoreCase(name))
+			{
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unknown export format: " + name);
+	}
+
+	private static String plain(final MonetaryAmount amount)
+	{
+		return amount.getNumber().numberValue(BigDecimal.class).toPlainString();
+	}
+
+	private static void writeJsonString(
+		final String value ,
+		final Writer writer
+	)
+	throws IOException
+	{
+		writer.write('"');
+		for(int i = 0, length = value.length(); i < length; i++)
+		{
+			final char c = value.charAt(i);
+			switch(c)
+			{
+				case '"' : writer.write("\\\""); break;
+				case '\\': writer.write("\\\\"); break;
+				case '\n': writer.write("\\n" ); break;
+				case '\r': writer.write("\\r" ); break;
+				case '\t': writer.write("\\t" ); break;
+				default:
+					if(c < 0x20)
+					{
+						writer.write(String.format("\\u%04x", (int)c));
+					}
+					else
+					{
+						writer.write(c);
+					}
+			}
+		}
+		writer.write('"');
+	}
+
+	private static void writeCsvField(
+		final String value ,
+		final Writer writer
+	)
+	throws IOException
+	{
+		if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+		{
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+
+}
@@ -0,0 +1,308 @@
+package org.eclipse.store.demo.bookstore.export;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.Country;
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.Shop;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Streams purchases of a year from the year partition to an output stream, with constant memory.
+ * <p>
+ * The purchases are consumed from {@link org.eclipse.store.demo.bookstore.data.Purchases#publishByShopsAndYear(Predicate, int, Predicate)},
+ * which loads them shop by shop, only as fast as they can be written.
+ * <p>
+ * Following meters are recorded, tagged by <code>format</code>:
+ * <ul>
+ * <li><code>bookstore.export.rows</code>: written rows, the rate is rows per second</li>
+ * <li><code>bookstore.export.bytes</code>: written bytes, the rate is bytes per second</li>
+ * <li><code>bookstore.export.duration</code>: duration of complete exports</li>
+ * </ul>
+ */
+@Service
+public class PurchaseExporter implements HasLogger
+{
+	/**
+	 * Amount of purchases requested from the publisher at once.
+	 */
+	private final static int BATCH_SIZE = 256;
+
+	private final BookStoreDemo bookStoreDemo;
+	private final MeterRegistry registry     ;
+	private final Duration      budget       ;
+
+	PurchaseExporter(
+		final BookStoreDemo                                       bookStoreDemo,
+		final MeterRegistry                                       registry     ,
+		@Value("${bookstore.deadlines.export:10m}") final Duration budget
+	)
+	{
+		super();
+		this.bookStoreDemo = bookStoreDemo;
+		this.registry      = registry     ;
+		this.budget        = budget       ;
+	}
+
+	/**
+	 * Resolves a country by its code.
+	 *
+	 * @param countryCode the code to search for
+	 * @return the matching country or <code>null</code>
+	 */
+	public Country countryByCode(final String countryCode)
+	{
+		return this.bookStoreDemo.data().shops().compute(shops ->
+			shops
+				.map(s -> s.address().city().state().country())
+				.filter(c -> c.code().equalsIgnoreCase(countryCode))
+				.findAny()
+				.orElse(null)
+		);
+	}
+
+	/**
+	 * Writes all purchases of a year, optionally of a specific country, to an output stream.
+	 * The stream is flushed but not closed.
+	 *
+	 * @param year the year to export
+	 * @param country the country to export, or <code>null</code> for all countries
+	 * @param format the output format
+	 * @param outputStream the stream to write to
+	 * @return the amount of written rows
+	 * @throws IOException if writing to the stream fails
+	 */
+	public long export(
+		final int          year        ,
+		final Country      country     ,
+		final ExportFormat format      ,
+		final OutputStream outputStream
+	)
+	throws IOException
+	{
+		final String  tag   = format.name().toLowerCase();
+		final Counter rows  = Counter.builder("bookstore.export.rows")
+			.description("Rows written by purchase exports")
+			.tag("format", tag)
+			.register(this.registry);
+		final Counter bytes = Counter.builder("bookstore.export.bytes")
+			.description("Bytes written by purchase exports")
+			.tag("format", tag)
+			.register(this.registry);
+		final Timer   timer = Timer.builder("bookstore.export.duration")
+			.description("Duration of complete purchase exports")
+			.tag("format", tag)
+			.register(this.registry);
+
+		final CountingOutputStream counter = new CountingOutputStream(outputStream, bytes);
+		final Writer               writer  = new BufferedWriter(
+			new OutputStreamWriter(counter, StandardCharsets.UTF_8),
+			64 * 1024
+		);
+		final Predicate<Shop> shopSelector = country == null
+			? shop -> true
+			: shop -> shop.address().city().state().country() == country;
+
+		final long start = System.nanoTime();
+		format.writeHeader(writer);
+		final WritingSubscriber subscriber = new WritingSubscriber(format, writer, rows);
+		Deadline.within(this.budget).execute(() ->
+		{
+			this.bookStoreDemo.data().purchases()
+				.publishByShopsAndYear(shopSelector, year, purchase -> true)
+				.subscribe(subscriber);
+			return null;
+		});
+		final long rowCount = subscriber.await();
+		writer.flush();
+
+		final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+		timer.record(duration);
+		final double seconds = Math.max(duration.toMillis(), 1) / 1000.0;
+		this.logger().info(String.format(
+			"Exported %d rows (%d bytes) of %d as %s in %d ms, %.0f rows/s, %.0f bytes/s",
+			rowCount,
+			counter.count(),
+			year,
+			tag,
+			duration.toMillis(),
+			rowCount / seconds,
+			counter.count() / seconds
+		));
+		return rowCount;
+	}
+
+
+	/**
+	 * Writes the published purchases on the delivering thread, requesting more after each batch.
+	 */
+	private static class WritingSubscriber implements Flow.Subscriber<Purchase>
+	{
+		private final ExportFormat            format  ;
+		private final Writer                  writer  ;
+		private final Counter                 rows    ;
+		private final CompletableFuture<Long> done     = new CompletableFuture<>();
+		private       Flow.Subscription       subscription;
+		private       long                    rowCount;
+		private       int                     received;
+
+		WritingSubscriber(
+			final ExportFormat format,
+			final Writer       writer,
+			final Counter      rows
+		)
+		{
+			super();
+			this.format = format;
+			this.writer = writer;
+			this.rows   = rows  ;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription)
+		{
+			this.subscription = subscription;
+			// keep one batch in flight while the other one is written
+			subscription.request(2 * BATCH_SIZE);
+		}
+
+		@Override
+		public void onNext(final Purchase purchase)
+		{
+			try
+			{
+				final int written = this.format.write(purchase, this.writer);
+				this.rowCount += written;
+				this.rows.increment(written);
+			}
+			catch(final IOException e)
+			{
+				// most likely the client disconnected
+				this.subscription.cancel();
+				this.done.completeExceptionally(e);
+				return;
+			}
+			if(++this.received == BATCH_SIZE)
+			{
+				this.received = 0;
+				this.subscription.request(BATCH_SIZE);
+			}
+		}
+
+		@Override
+		public void onError(final Throwable throwable)
+		{
+			this.done.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete()
+		{
+			this.done.complete(this.rowCount);
+		}
+
+		long await() throws IOException
+		{
+			try
+			{
+				return this.done.get();
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				this.subscription.cancel();
+				throw new IOException("Export interrupted", e);
+			}
+			catch(final ExecutionException e)
+			{
+				final Throwable cause = e.getCause();
+				if(cause instanceof IOException)
+				{
+					throw (IOException)cause;
+				}
+				if(cause instanceof RuntimeException)
+				{
+					throw (RuntimeException)cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+
+	}
+
+
+	private static class CountingOutputStream extends FilterOutputStream
+	{
+		private final Counter bytes;
+		private       long    count;
+
+		CountingOutputStream(
+			final OutputStream out  ,
+			final Counter      bytes
+		)
+		{
+			super(out);
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void write(final int b) throws IOException
+		{
+			this.out.write(b);
+			this.count(1);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException
+		{
+			this.out.write(b, off, len);
+			this.count(len);
+		}
+
+		private void count(final int length)
+		{
+			this.count += length;
+			this.bytes.increment(length);
+		}
+
+		long count()
+		{
+			return this.count;
+		}
+
+	}
+
+}
@@ -14,16 +14,24 @@ package org.eclipse.store.demo.bookstore.graphql;
  * #L%
  */
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.AsyncData;
 import org.eclipse.store.demo.bookstore.data.Book;
 import org.eclipse.store.demo.bookstore.data.BookSales;
 import org.eclipse.store.demo.bookstore.data.Country;
 import org.eclipse.store.demo.bookstore.data.Employee;
+import org.eclipse.store.demo.bookstore.data.InventoryItem;
 import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.ReorderItem;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import graphql.kickstart.tools.GraphQLQueryResolver;
@@ -34,11 +42,29 @@ public class BookStoreQueryResolver implements GraphQLQueryResolver
 	@Autowired
 	private BookStoreDemo bookStoreDemo;
 
+	/**
+	 * Time budget of a single query, see {@link Deadline}.
+	 */
+	@Value("${bookstore.deadlines.graphql:10s}")
+	private Duration budget;
+
 	public BookStoreQueryResolver()
 	{
 		super();
 	}
 
+	/**
+	 * Executes an operation asynchronously with the time budget of a single query.
+	 * Operations spanning multiple domains are executed as a single asynchronous operation,
+	 * since the budget is propagated only to operations started within it.
+	 */
+	private <T> CompletableFuture<T> withinBudget(final Function<AsyncData, CompletableFuture<T>> operation)
+	{
+		return Deadline.within(this.budget).execute(() ->
+			operation.apply(this.bookStoreDemo.data().async())
+		);
+	}
+
 	private Country countryByCode(final String countryCode)
 	{
 		return this.bookStoreDemo.data().shops().compute(shops ->
@@ -50,42 +76,81 @@ public class BookStoreQueryResolver implements GraphQLQueryResolver
 		);
 	}
 
-	public List<Book> booksByTitle(final String title)
+	public CompletableFuture<List<Book>> booksByTitle(final String title)
 	{
-		return this.bookStoreDemo.data().books().searchByTitle(title);
+		return this.withinBudget(async ->
+			async.books(books -> books.searchByTitle(title))
+		);
 	}
 
-	public Employee employeeOfTheYear(final int year)
+	public CompletableFuture<Employee> employeeOfTheYear(final int year)
 	{
-		return this.bookStoreDemo.data().purchases().employeeOfTheYear(year);
+		return this.withinBudget(async ->
+			async.purchases(purchases -> purchases.employeeOfTheYear(year))
+		);
 	}
 
-	public List<BookSales> bestSellerList(final int year)
+	public CompletableFuture<List<BookSales>> bestSellerList(final int year)
 	{
-		return this.bookStoreDemo.data().purchases().bestSellerList(year);
+		return this.withinBudget(async ->
+			async.purchases(purchases -> purchases.bestSellerList(year))
+		);
 	}
 
-	public List<BookSales> bestSellerListByCountry(final int year, final String countryCode)
+	public CompletableFuture<List<BookSales>> bestSellerListByCountry(final int year, final String countryCode)
 	{
-		final Country country = this.countryByCode(countryCode);
-		return country == null
-			? Collections.emptyList()
-			: this.bookStoreDemo.data().purchases().bestSellerList(year, country)
-		;
+		return this.withinBudget(async ->
+			async.supply(() ->
+			{
+				final Country country = this.countryByCode(countryCode);
+				return country == null
+					? Collections.emptyList()
+					: this.bookStoreDemo.data().purchases().bestSellerList(year, country)
+				;
+			})
+		);
 	}
 
-	public List<Purchase> purchasesOfForeigners(final int year)
+	public CompletableFuture<List<InventoryItem>> stockOfBook(final String isbn13)
 	{
-		return this.bookStoreDemo.data().purchases().purchasesOfForeigners(year);
+		return this.withinBudget(async ->
+			async.supply(() ->
+			{
+				final Book book = this.bookStoreDemo.data().books().ofIsbn13(isbn13);
+				return book == null
+					? Collections.emptyList()
+					: this.bookStoreDemo.data().shops().stockOf(book)
+				;
+			})
+		);
 	}
 
-	public List<Purchase> purchasesOfForeignersByCountry(final int year, final String countryCode)
+	public CompletableFuture<List<ReorderItem>> reorderList(final int limit)
 	{
-		final Country country = this.countryByCode(countryCode);
-		return country == null
-			? Collections.emptyList()
-			: this.bookStoreDemo.data().purchases().purchasesOfForeigners(year, country)
-		;
+		return this.withinBudget(async ->
+			async.supply(() -> this.bookStoreDemo.data().reorders().reorderList(limit))
+		);
+	}
+
+	public CompletableFuture<List<Purchase>> purchasesOfForeigners(final int year)
+	{
+		return this.withinBudget(async ->
+			async.purchases(purchases -> purchases.purchasesOfForeigners(year))
+		);
+	}
+
+	public CompletableFuture<List<Purchase>> purchasesOfForeignersByCountry(final int year, final String countryCode)
+	{
+		return this.withinBudget(async ->
+			async.supply(() ->
+			{
+				final Country country = this.countryByCode(countryCode);
+				return country == null
+					? Collections.emptyList()
+					: this.bookStoreDemo.data().purchases().purchasesOfForeigners(year, country)
+				;
+			})
+		);
 	}
 
 }
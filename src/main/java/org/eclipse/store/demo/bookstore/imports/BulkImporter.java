@@ -0,0 +1,345 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.eclipse.store.demo.bookstore.util.concurrent.ComputePool.IMPORTS;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.eclipse.serializer.persistence.types.Storer;
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.AsyncExecutor;
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
+
+/**
+ * Streaming bulk loader for {@link ImportKind}s in {@link ImportFormat}s.
+ * <p>
+ * The input is processed by a staged pipeline:
+ * <ol>
+ * <li>Parse: the calling thread reads the input and groups the records into batches.</li>
+ * <li>Validate: batches are validated and resolved in parallel, in the {@link ComputePool#IMPORTS} pool.
+ * Invalid records are rejected and reported, they don't abort the import.</li>
+ * <li>Commit: batch after batch in input order, the unique keys of the valid entities, like ISBNs, are claimed,
+ * so the first record with a key wins and the following ones are rejected as duplicates.
+ * The remaining entities of a batch are added with one <code>addAll</code> call and stored with one storage commit.</li>
+ * </ol>
+ * At most <code>window</code> batches are in flight at the same time, so memory usage is bounded
+ * and parsing waits for the storage if it can't keep up.
+ * <p>
+ * An import is not atomic, batches committed before a failure remain stored.
+ */
+public class BulkImporter
+{
+	public final static int DEFAULT_BATCH_SIZE = 10_000;
+	public final static int DEFAULT_WINDOW     = 4     ;
+
+	/**
+	 * Maximum amount of validation errors kept in the {@link ImportProgress}.
+	 */
+	private final static int MAX_ERRORS = 100;
+
+	private final BookStoreDemo bookStoreDemo;
+	private final int           batchSize    ;
+	private final int           window       ;
+
+	public BulkImporter(final BookStoreDemo bookStoreDemo)
+	{
+		this(bookStoreDemo, DEFAULT_BATCH_SIZE, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * @param bookStoreDemo the demo to import into
+	 * @param batchSize the amount of records per batch and storage commit
+	 * @param window the maximum amount of batches in flight
+	 */
+	public BulkImporter(
+		final BookStoreDemo bookStoreDemo,
+		final int           batchSize    ,
+		final int           window
+	)
+	{
+		super();
+		if(batchSize <= 0 || window <= 0)
+		{
+			throw new IllegalArgumentException("Batch size and window must be positive: " + batchSize + ", " + window);
+		}
+		this.bookStoreDemo = bookStoreDemo;
+		this.batchSize     = batchSize    ;
+		this.window        = window       ;
+	}
+
+	/**
+	 * Imports all records of an input stream, which is read as UTF-8 but not closed.
+	 *
+	 * @param input the input to read
+	 * @param kind the kind of entities to import
+	 * @param format the format of the input
+	 * @param progressListener notified after every committed batch and when the import is finished
+	 * @return the final progress
+	 * @throws IOException if reading the input fails
+	 */
+	public ImportProgress run(
+		final InputStream              input           ,
+		final ImportKind               kind            ,
+		final ImportFormat             format          ,
+		final Consumer<ImportProgress> progressListener
+	)
+	throws IOException
+	{
+		return new Run(kind, progressListener).execute(
+			format.reader(
+				new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16),
+				kind::groupKey
+			)
+		);
+	}
+
+
+	/**
+	 * Invalid record, with the reason.
+	 */
+	private static class Rejection
+	{
+		final ImportRecord record;
+		final String       reason;
+
+		Rejection(
+			final ImportRecord record,
+			final String       reason
+		)
+		{
+			super();
+			this.record = record;
+			this.reason = reason;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "line " + this.record.line() + ": " + this.reason;
+		}
+	}
+
+
+	/**
+	 * Result of the validation stage of a batch.
+	 */
+	private static class Batch
+	{
+		final List<ImportRecord> records  = new ArrayList<>();
+		final List<Object>       entities = new ArrayList<>();
+		final List<String>       errors   = new ArrayList<>();
+	}
+
+
+	/**
+	 * State of a single import.
+	 */
+	private class Run
+	{
+		private final ImportKind               kind            ;
+		private final Consumer<ImportProgress> progressListener;
+		private final ImportContext            context         ;
+		private final long                     start            = System.nanoTime();
+		private final AtomicLong               read             = new AtomicLong();
+		private final AtomicLong               imported         = new AtomicLong();
+		private final AtomicLong               rejected         = new AtomicLong();
+		private final AtomicLong               batches          = new AtomicLong();
+		private final List<String>             errors           = new ArrayList<>();
+
+		Run(
+			final ImportKind               kind            ,
+			final Consumer<ImportProgress> progressListener
+		)
+		{
+			super();
+			this.kind             = kind            ;
+			this.progressListener = progressListener;
+			this.context          = new ImportContext(BulkImporter.this.bookStoreDemo.data());
+		}
+
+		ImportProgress execute(final ImportFormat.RecordReader reader) throws IOException
+		{
+			final Semaphore         inFlight  = new Semaphore(BulkImporter.this.window);
+			CompletableFuture<Void> committed = CompletableFuture.completedFuture(null);
+			try
+			{
+				List<ImportRecord> records;
+				while(!committed.isCompletedExceptionally()
+					&& !(records = this.readBatch(reader)).isEmpty()
+				)
+				{
+					inFlight.acquire();
+					final List<ImportRecord>       batch     = records;
+					final CompletableFuture<Batch> validated = AsyncExecutor.get().supply(() ->
+						ComputePool.get(IMPORTS).compute(() -> this.validate(batch))
+					);
+					committed = committed
+						.thenCombine(validated, (ignored, result) -> result)
+						.thenAccept(this::commit)
+						.whenComplete((ignored, t) -> inFlight.release());
+				}
+				committed.join();
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return this.finish("interrupted");
+			}
+			catch(final CompletionException e)
+			{
+				final Throwable cause = e.getCause() != null ? e.getCause() : e;
+				return this.finish(String.valueOf(cause.getMessage()));
+			}
+			return this.finish(null);
+		}
+
+		private List<ImportRecord> readBatch(final ImportFormat.RecordReader reader) throws IOException
+		{
+			final List<ImportRecord> records = new ArrayList<>(BulkImporter.this.batchSize);
+			ImportRecord record;
+			while(records.size() < BulkImporter.this.batchSize && (record = reader.next()) != null)
+			{
+				records.add(record);
+			}
+			this.read.addAndGet(records.size());
+			return records;
+		}
+
+		private Batch validate(final List<ImportRecord> records)
+		{
+			final Batch        batch   = new Batch();
+			final List<Object> results = records.parallelStream()
+				.map(record ->
+				{
+					if(record.error() != null)
+					{
+						return new Rejection(record, record.error());
+					}
+					try
+					{
+						return this.kind.resolve(record, this.context);
+					}
+					catch(final RuntimeException e)
+					{
+						return new Rejection(record, e.getMessage());
+					}
+				})
+				// keep the input order
+				.collect(toList());
+			for(int i = 0; i < results.size(); i++)
+			{
+				final Object result = results.get(i);
+				if(result instanceof Rejection)
+				{
+					batch.errors.add(result.toString());
+				}
+				else
+				{
+					batch.records.add(records.get(i));
+					batch.entities.add(result);
+				}
+			}
+			return batch;
+		}
+
+		private void commit(final Batch batch)
+		{
+			final List<Object> entities = this.claimUniqueKeys(batch);
+			if(!entities.isEmpty())
+			{
+				final Storer storer = BulkImporter.this.bookStoreDemo.storageManager().createStorer();
+				this.kind.addAll(BulkImporter.this.bookStoreDemo.data(), entities, storer);
+				storer.commit();
+			}
+			this.imported.addAndGet(entities.size());
+			this.rejected.addAndGet(batch.errors.size());
+			this.batches.incrementAndGet();
+			synchronized(this.errors)
+			{
+				batch.errors.stream()
+					.limit(Math.max(0, MAX_ERRORS - this.errors.size()))
+					.forEach(this.errors::add);
+			}
+			this.progressListener.accept(this.progress(false, null));
+		}
+
+		/**
+		 * Claims the unique keys of the validated entities of a batch, in input order.
+		 * Entities with keys of preceding records are rejected as duplicates.
+		 */
+		private List<Object> claimUniqueKeys(final Batch batch)
+		{
+			final List<Object> entities = new ArrayList<>(batch.entities.size());
+			for(int i = 0; i < batch.entities.size(); i++)
+			{
+				final Object entity = batch.entities.get(i);
+				final Object key    = this.kind.uniqueKey(entity);
+				if(key != null && !this.context.claim(key))
+				{
+					batch.errors.add(new Rejection(batch.records.get(i), "Duplicate: " + key).toString());
+				}
+				else
+				{
+					entities.add(entity);
+				}
+			}
+			return entities;
+		}
+
+		private ImportProgress finish(final String failure)
+		{
+			final ImportProgress progress = this.progress(true, failure);
+			this.progressListener.accept(progress);
+			return progress;
+		}
+
+		private ImportProgress progress(
+			final boolean done   ,
+			final String  failure
+		)
+		{
+			synchronized(this.errors)
+			{
+				return new ImportProgress(
+					this.kind,
+					this.read.get(),
+					this.imported.get(),
+					this.rejected.get(),
+					this.batches.get(),
+					Duration.ofNanos(System.nanoTime() - this.start),
+					done,
+					failure,
+					this.errors
+				);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,192 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.eclipse.store.demo.bookstore.data.Author;
+import org.eclipse.store.demo.bookstore.data.City;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Employee;
+import org.eclipse.store.demo.bookstore.data.Genre;
+import org.eclipse.store.demo.bookstore.data.Language;
+import org.eclipse.store.demo.bookstore.data.Named;
+import org.eclipse.store.demo.bookstore.data.NamedWithAddress;
+import org.eclipse.store.demo.bookstore.data.Publisher;
+import org.eclipse.store.demo.bookstore.data.Shop;
+
+/**
+ * Lookups of referenced entities for the validation stage of an import.
+ * <p>
+ * Rarely changing reference data, like authors or cities, is indexed once per import, on first use.
+ * All methods are thread safe.
+ */
+final class ImportContext
+{
+	private final Data                data    ;
+	private final Set<Object>         claimed = ConcurrentHashMap.newKeySet();
+	private final Map<String, Object> indices = new ConcurrentHashMap<>();
+
+	ImportContext(final Data data)
+	{
+		super();
+		this.data = data;
+	}
+
+	Data data()
+	{
+		return this.data;
+	}
+
+	/**
+	 * Claims a unique key, like an ISBN, for the current import.
+	 *
+	 * @return <code>false</code> if the key was claimed already
+	 */
+	boolean claim(final Object key)
+	{
+		return this.claimed.add(key);
+	}
+
+	Author author(final String name)
+	{
+		return require("author", name, this.index("authors", () -> byName(this.data.books().authors())));
+	}
+
+	Genre genre(final String name)
+	{
+		return require("genre", name, this.index("genres", () -> byName(this.data.books().genres())));
+	}
+
+	Publisher publisher(final String name)
+	{
+		return require("publisher", name, this.index("publishers", () -> byName(this.data.books().publishers())));
+	}
+
+	/**
+	 * @param name the display name or the language tag, e.g. <code>en</code>
+	 */
+	Language language(final String name)
+	{
+		return require("language", name, this.index("languages", () ->
+		{
+			final Map<String, Language> languages = new HashMap<>();
+			this.data.books().languages().forEach(language ->
+			{
+				languages.put(key(language.name()), language);
+				languages.put(key(language.locale().toLanguageTag()), language);
+			});
+			return languages;
+		}));
+	}
+
+	/**
+	 * Gets a city where shops or customers are located.
+	 *
+	 * @param name the city's name
+	 * @param countryCode the country's code, to distinguish cities with the same name, may be <code>null</code>
+	 */
+	City city(
+		final String name       ,
+		final String countryCode
+	)
+	{
+		final Map<String, City> cities = this.index("cities", () ->
+		{
+			final Map<String, City> index = new HashMap<>();
+			final Function<NamedWithAddress, City> city = entity -> entity.address().city();
+			this.data.shops().all().stream().map(city).forEach(c -> putCity(index, c));
+			this.data.customers().compute(customers ->
+				customers.map(city).distinct().collect(toList())
+			)
+			.forEach(c -> putCity(index, c));
+			return index;
+		});
+		return require(
+			"city",
+			countryCode == null ? name : name + ", " + countryCode,
+			cities
+		);
+	}
+
+	private static void putCity(
+		final Map<String, City> index,
+		final City              city
+	)
+	{
+		index.putIfAbsent(key(city.name()), city);
+		index.putIfAbsent(key(city.name() + ", " + city.state().country().code()), city);
+	}
+
+	Shop shop(final String name)
+	{
+		return require("shop", name, this.index("shops", () -> byName(this.data.shops().all())));
+	}
+
+	Employee employee(
+		final Shop   shop,
+		final String name
+	)
+	{
+		return shop.employees()
+			.filter(employee -> employee.name().equalsIgnoreCase(name))
+			.findAny()
+			.orElseThrow(() -> new IllegalArgumentException("Unknown employee of " + shop.name() + ": " + name));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Map<String, T> index(
+		final String                   name   ,
+		final Supplier<Map<String, T>> factory
+	)
+	{
+		return (Map<String, T>)this.indices.computeIfAbsent(name, n -> factory.get());
+	}
+
+	private static <T extends Named> Map<String, T> byName(final List<T> entities)
+	{
+		final Map<String, T> index = new HashMap<>();
+		entities.forEach(entity -> index.putIfAbsent(key(entity.name()), entity));
+		return index;
+	}
+
+	private static <T> T require(
+		final String         type ,
+		final String         name ,
+		final Map<String, T> index
+	)
+	{
+		final T entity = index.get(key(name));
+		if(entity == null)
+		{
+			throw new IllegalArgumentException("Unknown " + type + ": " + name);
+		}
+		return entity;
+	}
+
+	private static String key(final String name)
+	{
+		return name.toLowerCase();
+	}
+
+}
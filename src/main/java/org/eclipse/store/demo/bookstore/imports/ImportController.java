@@ -0,0 +1,157 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for bulk imports, see {@link BulkImporter}.
+ * <ul>
+ * <li>POST /import/{kind}?format=csv|ndjson imports the request body and returns the final {@link ImportProgress}</li>
+ * <li>GET /import/jobs returns the progress of the running and the last finished imports</li>
+ * <li>GET /import/jobs/{id} returns the progress of a specific import</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/import")
+public class ImportController implements HasLogger
+{
+	/**
+	 * Amount of finished imports whose progress is kept.
+	 */
+	private final static int MAX_JOBS = 16;
+
+	private final static String BATCH_SIZE = "" + BulkImporter.DEFAULT_BATCH_SIZE;
+
+	private final BookStoreDemo                bookStoreDemo;
+	private final AtomicInteger                jobIds        = new AtomicInteger();
+	private final Map<Integer, ImportProgress> jobs          = new LinkedHashMap<>()
+	{
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, ImportProgress> eldest)
+		{
+			return this.size() > MAX_JOBS && eldest.getValue().done();
+		}
+	};
+
+	ImportController(final BookStoreDemo bookStoreDemo)
+	{
+		super();
+		this.bookStoreDemo = bookStoreDemo;
+	}
+
+	@PostMapping(
+		value    = "/{kind}",
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	ResponseEntity<?> run(
+		@PathVariable("kind")                                        final String      kindName  ,
+		@RequestParam(name = "format", defaultValue = "ndjson")      final String      formatName,
+		@RequestParam(name = "batchSize", defaultValue = BATCH_SIZE) final int         batchSize ,
+		                                                             final InputStream input
+	)
+	{
+		final ImportKind   kind    ;
+		final ImportFormat format  ;
+		final BulkImporter importer;
+		try
+		{
+			kind     = ImportKind.ofName(kindName);
+			format   = ImportFormat.ofName(formatName);
+			importer = new BulkImporter(this.bookStoreDemo, batchSize, BulkImporter.DEFAULT_WINDOW);
+		}
+		catch(final IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+
+		final int id = this.jobIds.incrementAndGet();
+		this.logger().info("Import " + id + " of " + kind.name().toLowerCase() + " started");
+		try
+		{
+			final ImportProgress progress = importer.run(
+				input,
+				kind,
+				format,
+				p -> this.update(id, p)
+			);
+			this.logger().info("Import " + id + " finished, " + progress);
+			return progress.failure() == null
+				? ResponseEntity.ok(progress)
+				: ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(progress);
+		}
+		catch(final IOException e)
+		{
+			this.logger().warning("Import " + id + " failed", e);
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@GetMapping(
+		value    = "/jobs",
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	Map<Integer, ImportProgress> jobs()
+	{
+		synchronized(this.jobs)
+		{
+			return new LinkedHashMap<>(this.jobs);
+		}
+	}
+
+	@GetMapping(
+		value    = "/jobs/{id}",
+		produces = MediaType.APPLICATION_JSON_VALUE
+	)
+	ResponseEntity<ImportProgress> job(@PathVariable("id") final int id)
+	{
+		final ImportProgress progress;
+		synchronized(this.jobs)
+		{
+			progress = this.jobs.get(id);
+		}
+		return progress != null
+			? ResponseEntity.ok(progress)
+			: ResponseEntity.notFound().build();
+	}
+
+	private void update(
+		final int            id      ,
+		final ImportProgress progress
+	)
+	{
+		synchronized(this.jobs)
+		{
+			this.jobs.put(id, progress);
+		}
+	}
+
+}
@@ -0,0 +1,284 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Input formats of the bulk import, compatible with the output of {@link org.eclipse.store.demo.bookstore.export.ExportFormat}.
+ */
+public enum ImportFormat
+{
+	/**
+	 * Newline delimited JSON, one object per line.
+	 * Nested entities are contained in an <code>items</code> array.
+	 */
+	NDJSON
+	{
+		@Override
+		RecordReader reader(
+			final BufferedReader                        reader  ,
+			final Function<Map<String, String>, Object> groupKey
+		)
+		{
+			final ObjectMapper mapper = new ObjectMapper();
+			final long[]       line   = {0};
+			return () ->
+			{
+				String text;
+				do
+				{
+					if((text = reader.readLine()) == null)
+					{
+						return null;
+					}
+					line[0]++;
+				}
+				while(text.isBlank());
+
+				try
+				{
+					final JsonNode node = mapper.readTree(text);
+					if(!node.isObject())
+					{
+						return ImportRecord.Error(line[0], "JSON object expected");
+					}
+					final List<Map<String, String>> items = new ArrayList<>();
+					final JsonNode                  array = node.get("items");
+					if(array != null && array.isArray())
+					{
+						array.forEach(item -> items.add(fields(item)));
+					}
+					return new ImportRecord(line[0], fields(node), items);
+				}
+				catch(final IOException e)
+				{
+					return ImportRecord.Error(line[0], "Malformed JSON: " + e.getMessage());
+				}
+			};
+		}
+
+		private Map<String, String> fields(final JsonNode node)
+		{
+			final Map<String, String> fields = new HashMap<>();
+			for(final Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext();)
+			{
+				final Map.Entry<String, JsonNode> field = it.next();
+				if(!field.getValue().isContainerNode() && !field.getValue().isNull())
+				{
+					fields.put(field.getKey(), field.getValue().asText());
+				}
+			}
+			return fields;
+		}
+	},
+
+	/**
+	 * Comma separated values with a header line.
+	 * Consecutive rows which belong to the same entity, e.g. the items of a purchase, are merged.
+	 * Fields must not contain line breaks.
+	 */
+	CSV
+	{
+		@Override
+		RecordReader reader(
+			final BufferedReader                        reader  ,
+			final Function<Map<String, String>, Object> groupKey
+		)
+		throws IOException
+		{
+			final String header = reader.readLine();
+			if(header == null)
+			{
+				return () -> null;
+			}
+			final List<String> columns = parseLine(header);
+			return new RecordReader()
+			{
+				long         line      = 1;
+				ImportRecord pending   ;
+				Object       pendingKey;
+
+				@Override
+				public ImportRecord next() throws IOException
+				{
+					String text;
+					while((text = reader.readLine()) != null)
+					{
+						this.line++;
+						if(text.isBlank())
+						{
+							continue;
+						}
+						final List<String> values = parseLine(text);
+						if(values.size() != columns.size())
+						{
+							final ImportRecord error = ImportRecord.Error(
+								this.line,
+								"Expected " + columns.size() + " fields but found " + values.size()
+							);
+							return this.emit(null, error);
+						}
+						final Map<String, String> row = new HashMap<>();
+						for(int i = 0; i < columns.size(); i++)
+						{
+							row.put(columns.get(i), values.get(i));
+						}
+						final Object key = groupKey.apply(row);
+						if(key != null && this.pending != null && Objects.equals(key, this.pendingKey))
+						{
+							this.pending.items().add(row);
+							continue;
+						}
+						final List<Map<String, String>> items = new ArrayList<>();
+						items.add(row);
+						final ImportRecord record = new ImportRecord(this.line, row, items);
+						if(key == null)
+						{
+							return this.emit(null, record);
+						}
+						final ImportRecord previous = this.pending;
+						this.pending    = record;
+						this.pendingKey = key   ;
+						if(previous != null)
+						{
+							return previous;
+						}
+					}
+					return this.emit(null, null);
+				}
+
+				/**
+				 * Emits the pending record first, if there is one.
+				 */
+				private ImportRecord emit(
+					final Object       key   ,
+					final ImportRecord record
+				)
+				{
+					final ImportRecord previous = this.pending;
+					if(previous == null)
+					{
+						return record;
+					}
+					this.pending    = record;
+					this.pendingKey = key   ;
+					return previous;
+				}
+			};
+		}
+	};
+
+
+	/**
+	 * Reader of {@link ImportRecord}s.
+	 */
+	@FunctionalInterface
+	static interface RecordReader
+	{
+		/**
+		 * @return the next record or <code>null</code> if there are no more records
+		 */
+		public ImportRecord next() throws IOException;
+	}
+
+	/**
+	 * Creates a reader of records.
+	 *
+	 * @param reader the input
+	 * @param groupKey key of rows which belong to the same record, or <code>null</code> if a row is a record on its own
+	 */
+	abstract RecordReader reader(
+		BufferedReader                        reader  ,
+		Function<Map<String, String>, Object> groupKey
+	)
+	throws IOException;
+
+	/**
+	 * Gets a format by its name, ignoring the case.
+	 *
+	 * @param name the format's name
+	 * @return the according format
+	 * @throws IllegalArgumentException if no format with the given name exists
+	 */
+	public static ImportFormat ofName(final String name)
+	{
+		for(final ImportFormat format : values())
+		{
+			if(format.name().equalsIgnoreCase(name))
+			{
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unknown import format: " + name);
+	}
+
+	private static List<String> parseLine(final String line)
+	{
+		final List<String>  values  = new ArrayList<>();
+		final StringBuilder value   = new StringBuilder();
+		boolean             quoted  = false;
+		for(int i = 0, length = line.length(); i < length; i++)
+		{
+			final char c = line.charAt(i);
+			if(quoted)
+			{
+				if(c == '"')
+				{
+					if(i + 1 < length && line.charAt(i + 1) == '"')
+					{
+						value.append('"');
+						i++;
+					}
+					else
+					{
+						quoted = false;
+					}
+				}
+				else
+				{
+					value.append(c);
+				}
+			}
+			else if(c == '"')
+			{
+				quoted = true;
+			}
+			else if(c == ',')
+			{
+				values.add(value.toString());
+				value.setLength(0);
+			}
+			else
+			{
+				value.append(c);
+			}
+		}
+		values.add(value.toString());
+		return values;
+	}
+
+}
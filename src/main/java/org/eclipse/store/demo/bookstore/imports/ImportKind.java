@@ -0,0 +1,277 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.money.MonetaryAmount;
+
+import org.eclipse.serializer.persistence.types.PersistenceStoring;
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.Address;
+import org.eclipse.store.demo.bookstore.data.Book;
+import org.eclipse.store.demo.bookstore.data.Customer;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.PurchaseItem;
+import org.eclipse.store.demo.bookstore.data.Shop;
+
+/**
+ * Kinds of entities which can be imported.
+ * <p>
+ * Each kind validates and resolves records to entities, and adds batches of them to the according domain class.
+ * References to other entities, like the author of a book or the shop of a purchase, have to exist already.
+ */
+public enum ImportKind
+{
+	/**
+	 * {@link Book}s with the fields
+	 * <code>isbn13, title, author, genre, publisher, language, purchasePrice</code> and optionally <code>retailPrice</code>.
+	 */
+	BOOKS
+	{
+		@Override
+		Object resolve(
+			final ImportRecord  record ,
+			final ImportContext context
+		)
+		{
+			final String isbn13 = Book.validateIsbn13(record.require("isbn13"));
+			if(context.data().books().ofIsbn13(isbn13) != null)
+			{
+				throw new IllegalArgumentException("Book exists already: " + isbn13);
+			}
+
+			final MonetaryAmount purchasePrice = money(record.require("purchasePrice"));
+			final String         retailPrice   = record.get("retailPrice");
+			final Book           book          = new Book(
+				isbn13,
+				record.require("title"),
+				context.author(record.require("author")),
+				context.genre(record.require("genre")),
+				context.publisher(record.require("publisher")),
+				context.language(record.require("language")),
+				purchasePrice,
+				retailPrice != null
+					? money(retailPrice)
+					: BookStoreDemo.retailPrice(purchasePrice)
+			);
+			return book;
+		}
+
+		@Override
+		Object uniqueKey(final Object entity)
+		{
+			return ((Book)entity).isbn13();
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		void addAll(
+			final Data               data     ,
+			final List<?>            entities ,
+			final PersistenceStoring persister
+		)
+		{
+			data.books().addAll((Collection<Book>)entities, persister);
+		}
+	},
+
+	/**
+	 * {@link Customer}s with the fields
+	 * <code>customerId, name, address, city, zipCode</code> and optionally <code>address2, country</code>.
+	 * The city has to be a city of an existing shop or customer, the country code distinguishes cities with the same name.
+	 */
+	CUSTOMERS
+	{
+		@Override
+		Object resolve(
+			final ImportRecord  record ,
+			final ImportContext context
+		)
+		{
+			final int customerId = Integer.parseInt(record.require("customerId"));
+			if(context.data().customers().ofId(customerId) != null)
+			{
+				throw new IllegalArgumentException("Customer exists already: " + customerId);
+			}
+			return new Customer(
+				customerId,
+				record.require("name"),
+				new Address(
+					record.require("address"),
+					record.get("address2"),
+					record.require("zipCode"),
+					context.city(record.require("city"), record.get("country"))
+				)
+			);
+		}
+
+		@Override
+		Object uniqueKey(final Object entity)
+		{
+			return ((Customer)entity).customerId();
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		void addAll(
+			final Data               data     ,
+			final List<?>            entities ,
+			final PersistenceStoring persister
+		)
+		{
+			data.customers().addAll((Collection<Customer>)entities, persister);
+		}
+	},
+
+	/**
+	 * {@link Purchase}s with the fields <code>timestamp, shop, employee, customerId</code>
+	 * and items with the fields <code>isbn13, amount</code>.
+	 * The prices are the books' current retail prices.
+	 * <p>
+	 * In CSV files every row is an item, consecutive rows with the same purchase fields form one purchase.
+	 */
+	PURCHASES
+	{
+		@Override
+		Object groupKey(final Map<String, String> row)
+		{
+			return List.of(
+				String.valueOf(row.get("timestamp")),
+				String.valueOf(row.get("shop")),
+				String.valueOf(row.get("employee")),
+				String.valueOf(row.get("customerId"))
+			);
+		}
+
+		@Override
+		Object resolve(
+			final ImportRecord  record ,
+			final ImportContext context
+		)
+		{
+			final Shop     shop       = context.shop(record.require("shop"));
+			final int      customerId = Integer.parseInt(record.require("customerId"));
+			final Customer customer   = context.data().customers().ofId(customerId);
+			if(customer == null)
+			{
+				throw new IllegalArgumentException("Unknown customer: " + customerId);
+			}
+			if(record.items().isEmpty())
+			{
+				throw new IllegalArgumentException("Purchase without items");
+			}
+			final List<PurchaseItem> items = new ArrayList<>(record.items().size());
+			for(final Map<String, String> item : record.items())
+			{
+				final String isbn13 = ImportRecord.require(item, "isbn13");
+				final Book   book   = context.data().books().ofIsbn13(isbn13);
+				if(book == null)
+				{
+					throw new IllegalArgumentException("Unknown book: " + isbn13);
+				}
+				final int amount = Integer.parseInt(ImportRecord.require(item, "amount"));
+				if(amount <= 0)
+				{
+					throw new IllegalArgumentException("Amount must be positive: " + amount);
+				}
+				items.add(new PurchaseItem(book, amount));
+			}
+			return new Purchase(
+				shop,
+				context.employee(shop, record.require("employee")),
+				customer,
+				LocalDateTime.parse(record.require("timestamp")),
+				items
+			);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		void addAll(
+			final Data               data     ,
+			final List<?>            entities ,
+			final PersistenceStoring persister
+		)
+		{
+			data.purchases().addAll((Collection<Purchase>)entities, persister);
+		}
+	};
+
+
+	/**
+	 * Key of rows which belong to the same record, see {@link ImportFormat#CSV}.
+	 *
+	 * @return the key or <code>null</code> if every row is a record on its own
+	 */
+	Object groupKey(final Map<String, String> row)
+	{
+		return null;
+	}
+
+	/**
+	 * Validates a record and resolves it to an entity.
+	 *
+	 * @throws RuntimeException if the record is invalid
+	 */
+	abstract Object resolve(ImportRecord record, ImportContext context);
+
+	/**
+	 * Key which has to be unique among the imported entities, like the ISBN of a book.
+	 * It is claimed in the commit stage, in input order, after the record passed validation.
+	 *
+	 * @return the key or <code>null</code> if the entities have no unique key
+	 */
+	Object uniqueKey(final Object entity)
+	{
+		return null;
+	}
+
+	/**
+	 * Adds a batch of resolved entities to the according domain class.
+	 */
+	abstract void addAll(Data data, List<?> entities, PersistenceStoring persister);
+
+	/**
+	 * Gets a kind by its name, ignoring the case.
+	 *
+	 * @param name the kind's name
+	 * @return the according kind
+	 * @throws IllegalArgumentException if no kind with the given name exists
+	 */
+	public static ImportKind ofName(final String name)
+	{
+		for(final ImportKind kind : values())
+		{
+			if(kind.name().equalsIgnoreCase(name))
+			{
+				return kind;
+			}
+		}
+		throw new IllegalArgumentException("Unknown import kind: " + name);
+	}
+
+	private static MonetaryAmount money(final String value)
+	{
+		return BookStoreDemo.money(new BigDecimal(value));
+	}
+
+}
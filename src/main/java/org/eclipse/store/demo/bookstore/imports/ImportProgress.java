@@ -0,0 +1,157 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the progress of an import, see {@link BulkImporter}.
+ */
+public class ImportProgress
+{
+	private final ImportKind   kind    ;
+	private final long         read    ;
+	private final long         imported;
+	private final long         rejected;
+	private final long         batches ;
+	private final Duration     elapsed ;
+	private final boolean      done    ;
+	private final String       failure ;
+	private final List<String> errors  ;
+
+	ImportProgress(
+		final ImportKind   kind    ,
+		final long         read    ,
+		final long         imported,
+		final long         rejected,
+		final long         batches ,
+		final Duration     elapsed ,
+		final boolean      done    ,
+		final String       failure ,
+		final List<String> errors
+	)
+	{
+		super();
+		this.kind     = kind    ;
+		this.read     = read    ;
+		this.imported = imported;
+		this.rejected = rejected;
+		this.batches  = batches ;
+		this.elapsed  = elapsed ;
+		this.done     = done    ;
+		this.failure  = failure ;
+		this.errors   = List.copyOf(errors);
+	}
+
+	/**
+	 * @return the kind of imported entities
+	 */
+	public ImportKind kind()
+	{
+		return this.kind;
+	}
+
+	/**
+	 * @return the amount of records read so far
+	 */
+	public long read()
+	{
+		return this.read;
+	}
+
+	/**
+	 * @return the amount of records imported and committed so far
+	 */
+	public long imported()
+	{
+		return this.imported;
+	}
+
+	/**
+	 * @return the amount of invalid records so far
+	 */
+	public long rejected()
+	{
+		return this.rejected;
+	}
+
+	/**
+	 * @return the amount of committed batches so far
+	 */
+	public long batches()
+	{
+		return this.batches;
+	}
+
+	/**
+	 * @return the time since the import was started
+	 */
+	public Duration elapsed()
+	{
+		return this.elapsed;
+	}
+
+	/**
+	 * @return <code>true</code> if the import is finished, successfully or not
+	 */
+	public boolean done()
+	{
+		return this.done;
+	}
+
+	/**
+	 * @return the reason the import was aborted, or <code>null</code>
+	 */
+	public String failure()
+	{
+		return this.failure;
+	}
+
+	/**
+	 * @return the first validation errors, with line numbers
+	 */
+	public List<String> errors()
+	{
+		return this.errors;
+	}
+
+	/**
+	 * @return the amount of imported records per second
+	 */
+	public double importedPerSecond()
+	{
+		return this.imported * 1000.0 / Math.max(this.elapsed.toMillis(), 1);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+			"%s: %d read, %d imported, %d rejected, %d batches in %d ms (%.0f/s)%s",
+			this.kind.name().toLowerCase(),
+			this.read,
+			this.imported,
+			this.rejected,
+			this.batches,
+			this.elapsed.toMillis(),
+			this.importedPerSecond(),
+			this.failure != null
+				? ", failed: " + this.failure
+				: this.done ? ", done" : ""
+		);
+	}
+
+}
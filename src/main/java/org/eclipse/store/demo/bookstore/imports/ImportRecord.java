@@ -0,0 +1,132 @@
+package org.eclipse.store.demo.bookstore.imports;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed but not yet validated record of an import file.
+ * <p>
+ * Records of nested entities, like the items of a purchase, are kept in {@link #items()}.
+ * Records which could not be parsed carry an {@link #error()} instead.
+ */
+final class ImportRecord
+{
+	static ImportRecord Error(
+		final long   line ,
+		final String error
+	)
+	{
+		return new ImportRecord(line, Map.of(), new ArrayList<>(), error);
+	}
+
+
+	private final long                      line  ;
+	private final Map<String, String>       fields;
+	private final List<Map<String, String>> items ;
+	private final String                    error ;
+
+	ImportRecord(
+		final long                      line  ,
+		final Map<String, String>       fields,
+		final List<Map<String, String>> items
+	)
+	{
+		this(line, fields, items, null);
+	}
+
+	private ImportRecord(
+		final long                      line  ,
+		final Map<String, String>       fields,
+		final List<Map<String, String>> items ,
+		final String                    error
+	)
+	{
+		super();
+		this.line   = line  ;
+		this.fields = fields;
+		this.items  = items ;
+		this.error  = error ;
+	}
+
+	long line()
+	{
+		return this.line;
+	}
+
+	Map<String, String> fields()
+	{
+		return this.fields;
+	}
+
+	List<Map<String, String>> items()
+	{
+		return this.items;
+	}
+
+	String error()
+	{
+		return this.error;
+	}
+
+	/**
+	 * @return the trimmed value of a field or <code>null</code> if it is missing or empty
+	 */
+	String get(final String name)
+	{
+		return value(this.fields, name);
+	}
+
+	/**
+	 * @return the trimmed value of a field
+	 * @throws IllegalArgumentException if the field is missing or empty
+	 */
+	String require(final String name)
+	{
+		return require(this.fields, name);
+	}
+
+	static String value(
+		final Map<String, String> fields,
+		final String              name
+	)
+	{
+		final String value = fields.get(name);
+		if(value == null)
+		{
+			return null;
+		}
+		final String trimmed = value.trim();
+		return trimmed.isEmpty()
+			? null
+			: trimmed;
+	}
+
+	static String require(
+		final Map<String, String> fields,
+		final String              name
+	)
+	{
+		final String value = value(fields, name);
+		if(value == null)
+		{
+			throw new IllegalArgumentException("Missing field: " + name);
+		}
+		return value;
+	}
+
+}
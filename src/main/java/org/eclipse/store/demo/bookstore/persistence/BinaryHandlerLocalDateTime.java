@@ -0,0 +1,97 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.eclipse.serializer.persistence.binary.types.AbstractBinaryHandlerCustomValueFixedLength;
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.eclipse.serializer.persistence.types.PersistenceLoadHandler;
+import org.eclipse.serializer.persistence.types.PersistenceStoreHandler;
+
+/**
+ * Persists {@link LocalDateTime} as seconds since the epoch (interpreted as UTC) and nanoseconds
+ * in a single record, instead of separate records for the date and the time part.
+ */
+public final class BinaryHandlerLocalDateTime
+	extends AbstractBinaryHandlerCustomValueFixedLength<LocalDateTime, LocalDateTime>
+{
+	private final static long BINARY_OFFSET_EPOCH_SECOND = 0                                        ;
+	private final static long BINARY_OFFSET_NANO         = BINARY_OFFSET_EPOCH_SECOND + Long.BYTES  ;
+	private final static long BINARY_LENGTH              = BINARY_OFFSET_NANO         + Integer.BYTES;
+
+	public static BinaryHandlerLocalDateTime New()
+	{
+		return new BinaryHandlerLocalDateTime();
+	}
+
+
+	BinaryHandlerLocalDateTime()
+	{
+		super(
+			LocalDateTime.class,
+			CustomFields(
+				CustomField(long.class, "epochSecond"),
+				CustomField(int.class , "nano"       )
+			)
+		);
+	}
+
+	private static LocalDateTime binaryState(final Binary data)
+	{
+		return LocalDateTime.ofEpochSecond(
+			data.read_long(BINARY_OFFSET_EPOCH_SECOND),
+			data.read_int(BINARY_OFFSET_NANO),
+			ZoneOffset.UTC
+		);
+	}
+
+	@Override
+	public void store(
+		final Binary                          data    ,
+		final LocalDateTime                   instance,
+		final long                            objectId,
+		final PersistenceStoreHandler<Binary> handler
+	)
+	{
+		data.storeEntityHeader(BINARY_LENGTH, this.typeId(), objectId);
+		data.store_long(BINARY_OFFSET_EPOCH_SECOND, instance.toEpochSecond(ZoneOffset.UTC));
+		data.store_int(BINARY_OFFSET_NANO, instance.getNano());
+	}
+
+	@Override
+	public LocalDateTime create(
+		final Binary                 data   ,
+		final PersistenceLoadHandler handler
+	)
+	{
+		return binaryState(data);
+	}
+
+	@Override
+	public LocalDateTime getValidationStateFromInstance(final LocalDateTime instance)
+	{
+		return instance;
+	}
+
+	@Override
+	public LocalDateTime getValidationStateFromBinary(final Binary data)
+	{
+		return binaryState(data);
+	}
+
+}
@@ -0,0 +1,148 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.math.BigDecimal;
+
+import javax.money.CurrencyUnit;
+import javax.money.Monetary;
+
+import org.eclipse.serializer.persistence.binary.types.AbstractBinaryHandlerCustomValueFixedLength;
+import org.eclipse.serializer.persistence.binary.types.Binary;
+import org.eclipse.serializer.persistence.types.PersistenceLoadHandler;
+import org.eclipse.serializer.persistence.types.PersistenceStoreHandler;
+import org.javamoney.moneta.RoundedMoney;
+
+/**
+ * Persists {@link RoundedMoney} as amount in the currency's minor unit (e.g. cents) and the currency code,
+ * instead of a graph of a {@link BigDecimal}, a currency and a monetary context.
+ * <p>
+ * Amounts with more fraction digits than the currency's default are rejected, since they would be truncated.
+ */
+public final class BinaryHandlerRoundedMoney
+	extends AbstractBinaryHandlerCustomValueFixedLength<RoundedMoney, String>
+{
+	private final static long BINARY_OFFSET_MINOR_UNITS = 0                                            ;
+	private final static long BINARY_OFFSET_CURRENCY    = BINARY_OFFSET_MINOR_UNITS + Long.BYTES       ;
+	private final static int  CURRENCY_CODE_LENGTH      = 3                                            ;
+	private final static long BINARY_LENGTH             = BINARY_OFFSET_CURRENCY + CURRENCY_CODE_LENGTH * Character.BYTES;
+
+	public static BinaryHandlerRoundedMoney New()
+	{
+		return new BinaryHandlerRoundedMoney();
+	}
+
+
+	BinaryHandlerRoundedMoney()
+	{
+		super(
+			RoundedMoney.class,
+			CustomFields(
+				CustomField(long.class, "minorUnits"),
+				CustomField(char.class, "currency0" ),
+				CustomField(char.class, "currency1" ),
+				CustomField(char.class, "currency2" )
+			)
+		);
+	}
+
+	private static int fractionDigits(final CurrencyUnit currency)
+	{
+		return Math.max(0, currency.getDefaultFractionDigits());
+	}
+
+	private static long minorUnits(final RoundedMoney instance)
+	{
+		try
+		{
+			return instance.getNumberStripped()
+				.movePointRight(fractionDigits(instance.getCurrency()))
+				.longValueExact();
+		}
+		catch(final ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Amount cannot be persisted in minor units: " + instance, e);
+		}
+	}
+
+	private static String instanceState(final RoundedMoney instance)
+	{
+		return instance.getCurrency().getCurrencyCode() + minorUnits(instance);
+	}
+
+	private static String binaryState(final Binary data)
+	{
+		return currencyCode(data) + data.read_long(BINARY_OFFSET_MINOR_UNITS);
+	}
+
+	private static String currencyCode(final Binary data)
+	{
+		final char[] code = new char[CURRENCY_CODE_LENGTH];
+		for(int i = 0; i < CURRENCY_CODE_LENGTH; i++)
+		{
+			code[i] = data.read_char(BINARY_OFFSET_CURRENCY + i * Character.BYTES);
+		}
+		return new String(code);
+	}
+
+	@Override
+	public void store(
+		final Binary                          data    ,
+		final RoundedMoney                    instance,
+		final long                            objectId,
+		final PersistenceStoreHandler<Binary> handler
+	)
+	{
+		final String currencyCode = instance.getCurrency().getCurrencyCode();
+		if(currencyCode.length() != CURRENCY_CODE_LENGTH)
+		{
+			throw new IllegalArgumentException("Unsupported currency: " + currencyCode);
+		}
+
+		data.storeEntityHeader(BINARY_LENGTH, this.typeId(), objectId);
+		data.store_long(BINARY_OFFSET_MINOR_UNITS, minorUnits(instance));
+		for(int i = 0; i < CURRENCY_CODE_LENGTH; i++)
+		{
+			data.store_char(BINARY_OFFSET_CURRENCY + i * Character.BYTES, currencyCode.charAt(i));
+		}
+	}
+
+	@Override
+	public RoundedMoney create(
+		final Binary                 data   ,
+		final PersistenceLoadHandler handler
+	)
+	{
+		final CurrencyUnit currency = Monetary.getCurrency(currencyCode(data));
+		return RoundedMoney.of(
+			BigDecimal.valueOf(data.read_long(BINARY_OFFSET_MINOR_UNITS), fractionDigits(currency)),
+			currency
+		);
+	}
+
+	@Override
+	public String getValidationStateFromInstance(final RoundedMoney instance)
+	{
+		return instanceState(instance);
+	}
+
+	@Override
+	public String getValidationStateFromBinary(final Binary data)
+	{
+		return binaryState(data);
+	}
+
+}
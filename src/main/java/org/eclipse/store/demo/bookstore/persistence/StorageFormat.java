@@ -0,0 +1,142 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageFoundation;
+
+/**
+ * Persistent format of the bookstore's value types.
+ * <p>
+ * The format of a storage is recorded in the marker file {@value #MARKER} in its directory.
+ * New storages are always created in the {@link #COMPACT} format, storages without a marker
+ * were created before the format was introduced and are {@link #LEGACY}.
+ * They can be converted with the {@link StorageMigration}.
+ */
+public enum StorageFormat
+{
+	/**
+	 * Generic, reflection based handlers, money amounts and timestamps are stored as graphs of several records.
+	 */
+	LEGACY
+	{
+		@Override
+		public void configure(final EmbeddedStorageFoundation<?> foundation)
+		{
+			// default handlers
+		}
+	},
+
+	/**
+	 * Custom handlers, which store money amounts and timestamps as single fixed-length records.
+	 *
+	 * @see BinaryHandlerRoundedMoney
+	 * @see BinaryHandlerLocalDateTime
+	 */
+	COMPACT
+	{
+		@Override
+		public void configure(final EmbeddedStorageFoundation<?> foundation)
+		{
+			foundation.onConnectionFoundation(connectionFoundation ->
+				connectionFoundation
+					.registerCustomTypeHandler(BinaryHandlerRoundedMoney.New())
+					.registerCustomTypeHandler(BinaryHandlerLocalDateTime.New())
+			);
+		}
+	};
+
+	/**
+	 * Name of the marker file in the storage directory.
+	 */
+	public final static String MARKER = "storage.format";
+
+	/**
+	 * Registers the type handlers of this format.
+	 *
+	 * @param foundation the foundation of the storage manager
+	 */
+	public abstract void configure(EmbeddedStorageFoundation<?> foundation);
+
+	/**
+	 * Writes the marker of this format into a storage directory.
+	 *
+	 * @param storageDirectory the storage directory
+	 */
+	public void mark(final Path storageDirectory)
+	{
+		try
+		{
+			Files.createDirectories(storageDirectory);
+			Files.writeString(storageDirectory.resolve(MARKER), this.name());
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * Detects the format of a storage. New, empty storages are marked as {@link #COMPACT}.
+	 *
+	 * @param storageDirectory the storage directory
+	 * @return the format of the storage
+	 */
+	public static StorageFormat detect(final Path storageDirectory)
+	{
+		final Path marker = storageDirectory.resolve(MARKER);
+		try
+		{
+			if(Files.exists(marker))
+			{
+				return ofName(Files.readString(marker));
+			}
+			if(isEmpty(storageDirectory))
+			{
+				COMPACT.mark(storageDirectory);
+				return COMPACT;
+			}
+			return LEGACY;
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	private static boolean isEmpty(final Path directory) throws IOException
+	{
+		if(!Files.isDirectory(directory))
+		{
+			return true;
+		}
+		try(Stream<Path> entries = Files.list(directory))
+		{
+			return entries.findAny().isEmpty();
+		}
+	}
+
+	public static StorageFormat ofName(final String name)
+	{
+		return valueOf(name.trim().toUpperCase());
+	}
+
+}
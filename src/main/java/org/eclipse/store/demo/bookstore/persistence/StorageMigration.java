@@ -0,0 +1,238 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.stream.Collectors.toList;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.store.demo.bookstore.ReplApplication;
+import org.eclipse.store.demo.bookstore.data.Book;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Index;
+import org.eclipse.store.demo.bookstore.data.Index.DirectoryFactory;
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.Shop;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+
+import com.google.common.collect.Range;
+
+/**
+ * Copies a storage into a new {@link StorageFormat#COMPACT} one, to convert a {@link StorageFormat#LEGACY} storage
+ * or to change settings which can't be changed for an existing storage, like the channel count.
+ * <p>
+ * Both storages are opened side by side and the data is copied domain by domain: books, customers, shops
+ * and the purchases year by year, which are unloaded again afterwards, so only one year is in memory at a time.
+ * The source storage is not modified, the application has to be stopped during the migration.
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=org.eclipse.store.demo.bookstore.persistence.StorageMigration -Dexec.args="--source=data/storage --storage-directory=data/storage-compact --channel-count=4"
+ * </pre>
+ * Afterwards the target directory replaces the old storage directory, the Lucene indices can be kept.
+ */
+public final class StorageMigration implements HasLogger
+{
+	private final Path            source;
+	private final StorageSettings target;
+
+	/**
+	 * @param source the directory of the existing storage
+	 * @param target the settings of the new storage, its directory must not exist or be empty
+	 */
+	public StorageMigration(
+		final Path            source,
+		final StorageSettings target
+	)
+	{
+		super();
+		this.source = source;
+		this.target = target;
+	}
+
+	/**
+	 * Copies all data from the source to the target storage.
+	 *
+	 * @throws IllegalStateException if the source doesn't exist or the target isn't an empty storage
+	 */
+	public void migrate()
+	{
+		StorageSettings source = StorageSettings.Default(this.source);
+		if(source.existingChannelCount() == 0)
+		{
+			throw new IllegalStateException("No storage found: " + this.source);
+		}
+		source = source.with(StorageSettings.CHANNEL_COUNT, Integer.toString(source.existingChannelCount()));
+		final StorageFormat sourceFormat = StorageFormat.detect(this.source);
+
+		final Path targetDirectory = this.target.storageDirectory();
+		if(this.target.existingChannelCount() > 0 || StorageFormat.detect(targetDirectory) != StorageFormat.COMPACT)
+		{
+			throw new IllegalStateException("Target storage is not empty: " + targetDirectory);
+		}
+
+		final long start = System.currentTimeMillis();
+
+		// the books' index of the source storage is reused, the copy is indexed in memory only
+		final DirectoryFactory previousIndex = Index.configure(Book.class, DirectoryFactory.InMemory());
+
+		final EmbeddedStorageManager sourceStorage = source
+			.createFoundation(sourceFormat)
+			.createEmbeddedStorageManager()
+			.start();
+		try
+		{
+			final EmbeddedStorageManager targetStorage = this.target
+				.createFoundation(StorageFormat.COMPACT)
+				.createEmbeddedStorageManager()
+				.start();
+			try
+			{
+				this.copy((Data)sourceStorage.root(), targetStorage);
+			}
+			finally
+			{
+				targetStorage.shutdown();
+			}
+		}
+		finally
+		{
+			sourceStorage.shutdown();
+			Index.configure(Book.class, previousIndex != null ? previousIndex : DirectoryFactory.MMap());
+		}
+
+		this.logger().info(
+			"Storage " + this.source + " migrated to " + targetDirectory
+				+ " in " + (System.currentTimeMillis() - start) + " ms"
+		);
+	}
+
+	private void copy(
+		final Data                   source       ,
+		final EmbeddedStorageManager targetStorage
+	)
+	{
+		if(source == null)
+		{
+			throw new IllegalStateException("No data found in " + this.source);
+		}
+
+		// storages of previous versions are upgraded in memory only, the source is not modified
+		final int upgraded = source.upgrade().size();
+		if(upgraded > 0)
+		{
+			this.logger().info("Source upgraded from a previous version: " + upgraded + " objects");
+		}
+
+		final Data target = new Data();
+		targetStorage.setRoot(target);
+		targetStorage.storeRoot();
+
+		// in ordinal order, the books keep their ordinals, which the copied inventories refer to
+		target.books().addAll(source.books().allInOrdinalOrder(), targetStorage);
+		this.logger().info("Books migrated: " + target.books().bookCount());
+
+		target.customers().addAll(source.customers().all(), targetStorage);
+		this.logger().info("Customers migrated: " + target.customers().customerCount());
+
+		final List<Shop> shops = source.shops().all();
+		// lazy references are stored with their subject only if it is loaded
+		shops.forEach(Shop::inventory);
+		target.shops().addAll(shops, targetStorage);
+		this.verifyInventories(source, target);
+		shops.forEach(Shop::clear);
+		this.logger().info("Shops migrated: " + target.shops().shopCount());
+
+		final Range<Integer> years = source.purchases().years();
+		for(int year = years.lowerEndpoint(); year <= years.upperEndpoint(); year++)
+		{
+			final List<Purchase> purchases = source.purchases().computeByYear(
+				year,
+				stream -> stream.collect(toList())
+			);
+			if(!purchases.isEmpty())
+			{
+				target.purchases().addAll(purchases, targetStorage);
+				target.purchases().clear(year);
+				source.purchases().clear(year);
+				this.logger().info("Purchases of " + year + " migrated: " + purchases.size());
+			}
+		}
+	}
+
+	/**
+	 * Ensures that every shop's inventory resolves to the same books and amounts in the target as in the source.
+	 *
+	 * @throws IllegalStateException if an inventory differs
+	 */
+	private void verifyInventories(
+		final Data source,
+		final Data target
+	)
+	{
+		final List<Shop> shops = target.shops().all();
+		if(shops.size() != source.shops().shopCount())
+		{
+			throw new IllegalStateException(
+				"Shop count differs after migration: " + source.shops().shopCount() + " != " + shops.size()
+			);
+		}
+		for(final Shop shop : shops)
+		{
+			if(!slots(shop, source).equals(slots(shop, target)))
+			{
+				throw new IllegalStateException("Inventory of shop " + shop.name() + " differs after migration");
+			}
+		}
+		this.logger().info("Inventories verified: " + shops.size());
+	}
+
+	private static List<String> slots(
+		final Shop shop,
+		final Data data
+	)
+	{
+		return shop.inventory().slots(data.books()).stream()
+			.map(slot -> slot.getKey().isbn13() + "=" + slot.getValue())
+			.collect(toList());
+	}
+
+
+	/**
+	 * Migrates a legacy storage, see {@link StorageMigration}.
+	 *
+	 * @param args <code>--source=&lt;directory&gt;</code> and the {@link StorageSettings} of the new storage,
+	 * at least <code>--storage-directory=&lt;directory&gt;</code>
+	 */
+	public static void main(final String[] args)
+	{
+		final Map<String, String> options = ReplApplication.parseOptions(args, List.of("source"));
+		if(!options.containsKey("source") || !options.containsKey(StorageSettings.STORAGE_DIRECTORY))
+		{
+			throw new IllegalArgumentException(
+				"Usage: --source=<existing storage> --storage-directory=<new storage> [storage settings]"
+			);
+		}
+		new StorageMigration(
+			Paths.get(options.get("source")),
+			StorageSettings.fromProperties(options::get)
+		)
+		.migrate();
+	}
+
+}
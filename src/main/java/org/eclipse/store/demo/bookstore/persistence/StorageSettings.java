@@ -0,0 +1,253 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.eclipse.serializer.exceptions.IORuntimeException;
+import org.eclipse.serializer.persistence.binary.jdk8.types.BinaryHandlersJDK8;
+import org.eclipse.store.storage.embedded.configuration.types.EmbeddedStorageConfiguration;
+import org.eclipse.store.storage.embedded.configuration.types.EmbeddedStorageConfigurationBuilder;
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageFoundation;
+
+/**
+ * Settings of the EclipseStore storage, which are passed to its configuration as they are.
+ * All supported properties are listed in {@link #PROPERTIES}, they have the same names and notation
+ * as EclipseStore's configuration, e.g.:
+ * <ul>
+ * <li><code>storage-directory</code>: defaults to <code>data/storage</code></li>
+ * <li><code>channel-count</code>: power of two, defaults to the amount of processors minus one, rounded down</li>
+ * <li><code>backup-directory</code>: directory of EclipseStore's continuous backup, which is updated with every store,
+ * not set by default. It is the source of incremental backups of the <code>BackupService</code></li>
+ * <li><code>housekeeping-interval</code> and <code>housekeeping-time-budget</code>, e.g. <code>1s</code> and <code>10ms</code></li>
+ * <li><code>entity-cache-threshold</code> and <code>entity-cache-timeout</code>: how long and how much
+ * loaded data is kept in the storage's cache, e.g. <code>1000000000</code> and <code>1d</code></li>
+ * <li><code>data-file-minimum-size</code>, <code>data-file-maximum-size</code> and <code>data-file-minimum-use-ratio</code>:
+ * when storage files are consolidated, e.g. <code>1 MiB</code>, <code>8 MiB</code> and <code>0.75</code></li>
+ * </ul>
+ * Properties which are not set keep EclipseStore's defaults.
+ */
+public final class StorageSettings
+{
+	public final static String STORAGE_DIRECTORY = "storage-directory";
+	public final static String CHANNEL_COUNT     = "channel-count"    ;
+	public final static String BACKUP_DIRECTORY  = "backup-directory" ;
+
+	private final static String CHANNEL_DIRECTORY_PREFIX = "channel_";
+
+	/**
+	 * Names of all properties, which are accepted by {@link #fromProperties(Function)}.
+	 */
+	public final static List<String> PROPERTIES = List.of(
+		STORAGE_DIRECTORY,
+		CHANNEL_COUNT,
+		BACKUP_DIRECTORY,
+		"housekeeping-interval",
+		"housekeeping-time-budget",
+		"entity-cache-threshold",
+		"entity-cache-timeout",
+		"data-file-minimum-size",
+		"data-file-maximum-size",
+		"data-file-minimum-use-ratio",
+		"data-file-cleanup-head-file"
+	);
+
+	/**
+	 * Creates settings from properties, see {@link StorageSettings} for the supported properties.
+	 *
+	 * @param properties lookup of the property values by name, returns <code>null</code> for missing properties
+	 * @return the settings
+	 */
+	public static StorageSettings fromProperties(final Function<String, String> properties)
+	{
+		final Map<String, String> values = new TreeMap<>();
+		for(final String name : PROPERTIES)
+		{
+			final String value = properties.apply(name);
+			if(value != null && !value.isBlank())
+			{
+				values.put(name, value.trim());
+			}
+		}
+		values.putIfAbsent(STORAGE_DIRECTORY, Paths.get("data", "storage").toString());
+		values.putIfAbsent(CHANNEL_COUNT, Integer.toString(defaultChannelCount()));
+		return new StorageSettings(values);
+	}
+
+	/**
+	 * Creates the default settings for a storage directory.
+	 *
+	 * @param storageDirectory the directory of the storage
+	 * @return the settings
+	 */
+	public static StorageSettings Default(final Path storageDirectory)
+	{
+		return fromProperties(Map.of(STORAGE_DIRECTORY, storageDirectory.toString())::get);
+	}
+
+	private static int defaultChannelCount()
+	{
+		return Math.max(
+			1, // minimum one channel, if only 1 core is available
+			Integer.highestOneBit(Runtime.getRuntime().availableProcessors() - 1)
+		);
+	}
+
+
+	private final Map<String, String> properties;
+
+	private StorageSettings(final Map<String, String> properties)
+	{
+		super();
+		final int channelCount = Integer.parseInt(properties.get(CHANNEL_COUNT));
+		if(channelCount < 1 || Integer.bitCount(channelCount) != 1)
+		{
+			throw new IllegalArgumentException(CHANNEL_COUNT + " must be a power of two: " + channelCount);
+		}
+		this.properties = Collections.unmodifiableMap(properties);
+	}
+
+	/**
+	 * Creates a copy of these settings with a changed property.
+	 *
+	 * @param name the name of the property, see {@link #PROPERTIES}
+	 * @param value the new value
+	 * @return the changed settings
+	 */
+	public StorageSettings with(
+		final String name ,
+		final String value
+	)
+	{
+		if(!PROPERTIES.contains(name))
+		{
+			throw new IllegalArgumentException("Unknown storage property: " + name);
+		}
+		final Map<String, String> properties = new TreeMap<>(this.properties);
+		properties.put(name, value.trim());
+		return new StorageSettings(properties);
+	}
+
+	/**
+	 * @return the directory of the storage
+	 */
+	public Path storageDirectory()
+	{
+		return Paths.get(this.properties.get(STORAGE_DIRECTORY));
+	}
+
+	/**
+	 * @return the directory of the continuous backup, or <code>null</code> if it is disabled
+	 */
+	public Path backupDirectory()
+	{
+		final String backupDirectory = this.properties.get(BACKUP_DIRECTORY);
+		return backupDirectory != null
+			? Paths.get(backupDirectory)
+			: null;
+	}
+
+	/**
+	 * @return the amount of storage channels
+	 */
+	public int channelCount()
+	{
+		return Integer.parseInt(this.properties.get(CHANNEL_COUNT));
+	}
+
+	/**
+	 * @return all properties which are set, by name
+	 */
+	public Map<String, String> properties()
+	{
+		return this.properties;
+	}
+
+	/**
+	 * Counts the channels of an existing storage in the storage directory.
+	 *
+	 * @return the channel count of the existing storage, or 0 if there is none
+	 */
+	public int existingChannelCount()
+	{
+		final Path directory = this.storageDirectory();
+		if(!Files.isDirectory(directory))
+		{
+			return 0;
+		}
+		try(Stream<Path> entries = Files.list(directory))
+		{
+			return (int)entries
+				.filter(Files::isDirectory)
+				.filter(path -> path.getFileName().toString().startsWith(CHANNEL_DIRECTORY_PREFIX))
+				.count();
+		}
+		catch(final IOException e)
+		{
+			throw new IORuntimeException(e);
+		}
+	}
+
+	/**
+	 * Checks if the channel count matches the one of an existing storage, since it can't be changed afterwards.
+	 *
+	 * @throws IllegalStateException if the storage exists with a different channel count
+	 */
+	public void checkChannelCount()
+	{
+		final int existingChannelCount = this.existingChannelCount();
+		if(existingChannelCount > 0 && existingChannelCount != this.channelCount())
+		{
+			throw new IllegalStateException(
+				"Storage " + this.storageDirectory() + " has " + existingChannelCount + " channels, "
+					+ CHANNEL_COUNT + " is " + this.channelCount()
+					+ ", copy it with " + StorageMigration.class.getName() + " to change it"
+			);
+		}
+	}
+
+	/**
+	 * Creates the foundation of a storage manager with these settings.
+	 *
+	 * @param format the persistent format of the storage
+	 * @return the configured foundation
+	 */
+	public EmbeddedStorageFoundation<?> createFoundation(final StorageFormat format)
+	{
+		final EmbeddedStorageConfigurationBuilder builder = EmbeddedStorageConfiguration.Builder();
+		this.properties.forEach(builder::set);
+		final EmbeddedStorageFoundation<?> foundation = builder.createEmbeddedStorageFoundation();
+		foundation.onConnectionFoundation(BinaryHandlersJDK8::registerJDK8TypeHandlers);
+		format.configure(foundation);
+		return foundation;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.properties.toString();
+	}
+
+}
@@ -1,7 +1,9 @@
 package org.eclipse.store.demo.bookstore.scripting;
 
+import org.eclipse.store.demo.bookstore.util.concurrent.DeadlineExceededException;
 import org.rapidpm.dependencies.core.logger.HasLogger;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -47,9 +49,26 @@ public class ScriptingController implements HasLogger
 		}
 		catch(final Exception e)
 		{
+			final DeadlineExceededException deadlineExceeded = deadlineExceeded(e);
+			if(deadlineExceeded != null)
+			{
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(deadlineExceeded.getMessage());
+			}
 			return ResponseEntity.badRequest().body(e.getMessage());
 		}
 	}
+
+	private static DeadlineExceededException deadlineExceeded(final Throwable t)
+	{
+		for(Throwable cause = t; cause != null; cause = cause.getCause())
+		{
+			if(cause instanceof DeadlineExceededException)
+			{
+				return (DeadlineExceededException)cause;
+			}
+		}
+		return null;
+	}
 	
 	/**
 	 * Custom Jackson object mapper for JSON serialization.
@@ -1,11 +1,15 @@
 package org.eclipse.store.demo.bookstore.scripting;
 
+import java.time.Duration;
+
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlFeatures;
 import org.apache.commons.jexl3.MapContext;
 import org.apache.commons.jexl3.introspection.JexlPermissions;
 import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.util.concurrent.Deadline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.github.javafaker.Faker;
@@ -22,19 +26,26 @@ public class ScriptingService
 		.silent(false)
 		.create()
 	;
+
+	/**
+	 * Time budget of a single script, see {@link Deadline}.
+	 */
+	@Value("${bookstore.deadlines.script:30s}")
+	private Duration budget;
 	
 	
 	/**
-	 * Executes the JEXL script and returns the result.
+	 * Executes the JEXL script within the configured time budget and returns the result.
 	 * 
 	 * @param script the script to execute
 	 * @return the script's result
 	 */
 	Object runScript(final String script)
 	{
-		return this.jexl.createScript(script)
-			.execute(this.createContext())
-		;
+		return Deadline.within(this.budget).execute(() ->
+			this.jexl.createScript(script)
+				.execute(this.createContext())
+		);
 	}
 
 
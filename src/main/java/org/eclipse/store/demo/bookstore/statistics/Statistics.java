@@ -0,0 +1,124 @@
+package org.eclipse.store.demo.bookstore.statistics;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.stream.Collectors.toList;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.eclipse.store.demo.bookstore.data.Footprint;
+
+
+/**
+ * Snapshot of the heap footprint of the data graph and of the storage files, see {@link StatisticsService}.
+ */
+public class Statistics
+{
+	/**
+	 * Domains the footprints are summed up by, the purchases of all years are merged into one.
+	 */
+	public final static List<String> DOMAINS = List.of("books", "shops", "customers", "purchases");
+
+	private final Instant         collected ;
+	private final Duration        duration  ;
+	private final List<Footprint> footprints;
+	private final List<Footprint> domains   ;
+	private final Footprint       total     ;
+	private final StorageFiles    storage   ;
+
+	public Statistics(
+		final Instant         collected ,
+		final Duration        duration  ,
+		final List<Footprint> footprints,
+		final StorageFiles    storage
+	)
+	{
+		super();
+		this.collected  = collected ;
+		this.duration   = duration  ;
+		this.footprints = List.copyOf(footprints);
+		this.domains    = DOMAINS.stream()
+			.map(domain -> Footprint.sum(
+				domain,
+				footprints.stream()
+					.filter(footprint -> footprint.domain().equals(domain) || footprint.domain().startsWith(domain + "/"))
+					.collect(toList())
+			))
+			.collect(toList());
+		this.total      = Footprint.sum("total", this.domains);
+		this.storage    = storage   ;
+	}
+
+	/**
+	 * @return the point in time this snapshot was collected
+	 */
+	public Instant collected()
+	{
+		return this.collected;
+	}
+
+	/**
+	 * @return the time it took to collect this snapshot
+	 */
+	public Duration duration()
+	{
+		return this.duration;
+	}
+
+	/**
+	 * @return the footprints of the {@link #DOMAINS}
+	 */
+	public List<Footprint> domains()
+	{
+		return this.domains;
+	}
+
+	/**
+	 * @param domain one of the {@link #DOMAINS}
+	 * @return the footprint of the domain
+	 */
+	public Footprint domain(final String domain)
+	{
+		return this.domains.stream()
+			.filter(footprint -> footprint.domain().equals(domain))
+			.findAny()
+			.orElseThrow(() -> new IllegalArgumentException("Unknown domain: " + domain));
+	}
+
+	/**
+	 * @return the detailed footprints, purchases per year
+	 */
+	public List<Footprint> footprints()
+	{
+		return this.footprints;
+	}
+
+	/**
+	 * @return the sum of all footprints
+	 */
+	public Footprint total()
+	{
+		return this.total;
+	}
+
+	public StorageFiles storage()
+	{
+		return this.storage;
+	}
+
+}
@@ -0,0 +1,52 @@
+package org.eclipse.store.demo.bookstore.statistics;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller which exposes GET /statistics, the heap footprint of the data graph and the storage file statistics.
+ * <p>
+ * The last snapshot is returned as long as it is not older than the configured maximum age,
+ * the parameter <code>refresh=true</code> forces a new one, see {@link StatisticsService}.
+ */
+@RestController
+@RequestMapping("/statistics")
+public class StatisticsController
+{
+	private final StatisticsService service;
+
+	StatisticsController(final StatisticsService service)
+	{
+		super();
+		this.service = service;
+	}
+
+	@GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+	Statistics statistics(
+		@RequestParam(name = "refresh", defaultValue = "false") final boolean refresh
+	)
+	{
+		return refresh
+			? this.service.refresh()
+			: this.service.statistics();
+	}
+
+}
@@ -0,0 +1,176 @@
+package org.eclipse.store.demo.bookstore.statistics;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Footprint;
+import org.eclipse.store.storage.types.StorageRawFileStatistics;
+import org.rapidpm.dependencies.core.logger.HasLogger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+
+/**
+ * Collects {@link Statistics} about the heap footprint of the {@link Data} graph and the storage files.
+ * <p>
+ * Collecting walks the loaded part of the graph under the read locks of the domains, but never loads lazy data.
+ * The last snapshot is reused until it is older than the configured maximum age,
+ * so the REST endpoint, the gauges and the REPL can be polled frequently without walking the graph each time.
+ * <p>
+ * If bound to a registry with {@link #bindTo(MeterRegistry)}, following gauges are recorded,
+ * tagged by <code>domain</code>, see {@link Statistics#DOMAINS}:
+ * <ul>
+ * <li><code>bookstore.footprint.entities</code>: loaded entities</li>
+ * <li><code>bookstore.footprint.lazy.loaded</code>: lazy references whose subject is loaded</li>
+ * <li><code>bookstore.footprint.lazy.unloaded</code>: lazy references whose subject is not loaded</li>
+ * <li><code>bookstore.footprint.bytes</code>: estimated retained heap size</li>
+ * </ul>
+ * and following gauges for the storage files, which are totals of the whole storage,
+ * since the storage doesn't attribute file bytes to types or subgraphs:
+ * <ul>
+ * <li><code>bookstore.storage.files</code>: amount of data files</li>
+ * <li><code>bookstore.storage.live.bytes</code>: bytes of the live data</li>
+ * <li><code>bookstore.storage.total.bytes</code>: bytes of all data files</li>
+ * </ul>
+ */
+public class StatisticsService implements HasLogger
+{
+	public final static Duration DEFAULT_MAX_AGE = Duration.ofSeconds(10);
+
+	private final BookStoreDemo       bookStoreDemo;
+	private final Duration            maxAge       ;
+	private       volatile Statistics statistics   ;
+
+	public StatisticsService(final BookStoreDemo bookStoreDemo)
+	{
+		this(bookStoreDemo, DEFAULT_MAX_AGE);
+	}
+
+	public StatisticsService(
+		final BookStoreDemo bookStoreDemo,
+		final Duration      maxAge
+	)
+	{
+		super();
+		this.bookStoreDemo = bookStoreDemo;
+		this.maxAge        = maxAge       ;
+	}
+
+	/**
+	 * Gets the last snapshot, or collects a new one if the last is older than the maximum age.
+	 *
+	 * @return the current statistics
+	 */
+	public Statistics statistics()
+	{
+		/*
+		 * Double-checked locking, so concurrent pollers wait for a single collection.
+		 * The field (this.statistics) has to be volatile.
+		 */
+		Statistics statistics = this.statistics;
+		if(statistics == null || this.isExpired(statistics))
+		{
+			synchronized(this)
+			{
+				if((statistics = this.statistics) == null || this.isExpired(statistics))
+				{
+					statistics = this.statistics = this.collect();
+				}
+			}
+		}
+		return statistics;
+	}
+
+	private boolean isExpired(final Statistics statistics)
+	{
+		return statistics.collected().plus(this.maxAge).isBefore(Instant.now());
+	}
+
+	/**
+	 * Collects a new snapshot, regardless of the age of the last one.
+	 *
+	 * @return the new statistics
+	 */
+	public synchronized Statistics refresh()
+	{
+		return this.statistics = this.collect();
+	}
+
+	private Statistics collect()
+	{
+		final Instant                  collected  = Instant.now();
+		final long                     start      = System.nanoTime();
+		final List<Footprint>          footprints = this.bookStoreDemo.data().footprints();
+		final StorageRawFileStatistics storage    = this.bookStoreDemo.storageManager().createStorageStatistics();
+		final Statistics               statistics = new Statistics(
+			collected,
+			Duration.ofNanos(System.nanoTime() - start),
+			footprints,
+			StorageFiles.of(storage)
+		);
+		this.logger().fine("Statistics collected in " + statistics.duration().toMillis() + " ms");
+		return statistics;
+	}
+
+	/**
+	 * Registers the gauges, which read the current statistics.
+	 *
+	 * @param registry the registry to bind to
+	 */
+	public void bindTo(final MeterRegistry registry)
+	{
+		for(final String domain : Statistics.DOMAINS)
+		{
+			this.registerGauge(registry, "bookstore.footprint.entities",      domain, Footprint::entities      );
+			this.registerGauge(registry, "bookstore.footprint.lazy.loaded",   domain, Footprint::loadedLazies  );
+			this.registerGauge(registry, "bookstore.footprint.lazy.unloaded", domain, Footprint::unloadedLazies);
+			this.registerGauge(registry, "bookstore.footprint.bytes",         domain, Footprint::estimatedBytes);
+		}
+		this.registerGauge(registry, "bookstore.storage.files",       s -> s.storage().fileCount()      );
+		this.registerGauge(registry, "bookstore.storage.live.bytes",  s -> s.storage().liveDataLength() );
+		this.registerGauge(registry, "bookstore.storage.total.bytes", s -> s.storage().totalDataLength());
+	}
+
+	private void registerGauge(
+		final MeterRegistry                registry,
+		final String                       name    ,
+		final String                       domain  ,
+		final ToDoubleFunction<Footprint>  value
+	)
+	{
+		Gauge.builder(name, this, service -> value.applyAsDouble(service.statistics().domain(domain)))
+			.tag("domain", domain)
+			.register(registry);
+	}
+
+	private void registerGauge(
+		final MeterRegistry                registry,
+		final String                       name    ,
+		final ToDoubleFunction<Statistics> value
+	)
+	{
+		Gauge.builder(name, this, service -> value.applyAsDouble(service.statistics()))
+			.register(registry);
+	}
+
+}
@@ -0,0 +1,103 @@
+package org.eclipse.store.demo.bookstore.statistics;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import org.eclipse.store.storage.types.StorageRawFileStatistics;
+
+
+/**
+ * File statistics of the storage, accumulated over all channels.
+ * They are totals of the whole storage, the per domain figures are the heap footprints of {@link Statistics}.
+ * The difference between total and live data is the garbage which is reclaimed by the housekeeping.
+ */
+public class StorageFiles
+{
+	public static StorageFiles of(final StorageRawFileStatistics statistics)
+	{
+		return new StorageFiles(
+			statistics.channelCount()   ,
+			statistics.fileCount()      ,
+			statistics.liveDataLength() ,
+			statistics.totalDataLength()
+		);
+	}
+
+
+	private final int  channelCount   ;
+	private final long fileCount      ;
+	private final long liveDataLength ;
+	private final long totalDataLength;
+
+	public StorageFiles(
+		final int  channelCount   ,
+		final long fileCount      ,
+		final long liveDataLength ,
+		final long totalDataLength
+	)
+	{
+		super();
+		this.channelCount    = channelCount   ;
+		this.fileCount       = fileCount      ;
+		this.liveDataLength  = liveDataLength ;
+		this.totalDataLength = totalDataLength;
+	}
+
+	public int channelCount()
+	{
+		return this.channelCount;
+	}
+
+	public long fileCount()
+	{
+		return this.fileCount;
+	}
+
+	/**
+	 * @return the bytes of all data files which are still referenced
+	 */
+	public long liveDataLength()
+	{
+		return this.liveDataLength;
+	}
+
+	/**
+	 * @return the bytes of all data files
+	 */
+	public long totalDataLength()
+	{
+		return this.totalDataLength;
+	}
+
+	/**
+	 * @return the ratio of live data, between 0 and 1
+	 */
+	public double liveRatio()
+	{
+		return this.totalDataLength == 0
+			? 1.0
+			: (double)this.liveDataLength / this.totalDataLength;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.fileCount                    + " files in "
+			+ this.channelCount                  + " channels, "
+			+ this.totalDataLength / 1024        + " KiB, "
+			+ Math.round(this.liveRatio() * 100) + " % live";
+	}
+
+}
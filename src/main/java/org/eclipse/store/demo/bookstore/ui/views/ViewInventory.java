@@ -59,7 +59,15 @@ public class ViewInventory extends ViewEntity<InventoryItem>
 
 	@Override
 	public <R> R compute(final SerializableFunction<Stream<InventoryItem>, R> function) {
-		return BookStoreDemo.getInstance().data().shops().computeInventory(function);
+		/*
+		 * If filtered by book, use the stock index instead of scanning all inventories.
+		 */
+		final Book book = this.bookFilter != null
+			? this.bookFilter.getValue()
+			: null;
+		return book != null
+			? BookStoreDemo.getInstance().data().shops().computeStockOf(book, function)
+			: BookStoreDemo.getInstance().data().shops().computeInventory(function);
 	}
 
 }
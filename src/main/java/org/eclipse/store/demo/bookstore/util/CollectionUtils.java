@@ -24,6 +24,7 @@ import java.util.stream.Stream;
 import javax.money.CurrencyUnit;
 import javax.money.MonetaryAmount;
 
+import org.eclipse.store.demo.bookstore.util.concurrent.ComputePool;
 import org.javamoney.moneta.function.DefaultMonetarySummaryStatistics;
 import org.javamoney.moneta.function.MonetarySummaryStatistics;
 
@@ -69,6 +70,8 @@ public interface CollectionUtils
 
 	/**
 	 * Computes the maximum key of a {@link Map} based on the {@link Comparable} values.
+	 * <p>
+	 * The map is processed in parallel, in the pool of the calling thread, see {@link ComputePool}.
 	 *
 	 * @param <K> the key type
 	 * @param <V> the value type
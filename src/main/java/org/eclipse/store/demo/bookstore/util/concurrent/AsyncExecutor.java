@@ -0,0 +1,201 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the asynchronous API of the domain classes, see {@link org.eclipse.store.demo.bookstore.data.AsyncData}.
+ * <p>
+ * Asynchronous operations mostly wait, for locks or for partitions to be loaded from the storage,
+ * so virtual threads are used if the runtime supports them (Java 21+).
+ * Otherwise, or if configured so, a fixed pool of platform threads is used.
+ * <p>
+ * The {@link Deadline} of the calling thread is propagated to the executing thread.
+ * Note that dependent stages of the returned futures are not bound to it.
+ * Computations of the operations are still executed in the according {@link ComputePool}.
+ */
+public final class AsyncExecutor implements Executor
+{
+	public final static String VIRTUAL  = "virtual" ;
+	public final static String PLATFORM = "platform";
+
+	public final static int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors() * 4;
+
+	private static volatile AsyncExecutor instance;
+
+	/**
+	 * Configures the executor.
+	 * This has to be done before the executor is used for the first time.
+	 *
+	 * @param type either {@link #VIRTUAL} or {@link #PLATFORM}
+	 * @param threads the amount of platform threads, if used
+	 */
+	public static synchronized void configure(
+		final String type   ,
+		final int    threads
+	)
+	{
+		final AsyncExecutor previous = instance;
+		instance = new AsyncExecutor(requireNonNull(type), threads);
+		if(previous != null)
+		{
+			previous.executor.shutdown();
+		}
+	}
+
+	/**
+	 * Gets the executor, which is created with virtual threads if not configured.
+	 *
+	 * @return the executor
+	 */
+	public static AsyncExecutor get()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (instance) has to be volatile.
+		 */
+		AsyncExecutor executor = instance;
+		if(executor == null)
+		{
+			synchronized(AsyncExecutor.class)
+			{
+				if((executor = instance) == null)
+				{
+					executor = instance = new AsyncExecutor(VIRTUAL, DEFAULT_THREADS);
+				}
+			}
+		}
+		return executor;
+	}
+
+
+	private final ExecutorService executor;
+	private final boolean         virtual ;
+
+	private AsyncExecutor(
+		final String type   ,
+		final int    threads
+	)
+	{
+		super();
+		final ExecutorService virtualExecutor = VIRTUAL.equals(type)
+			? createVirtualExecutor()
+			: null;
+		if(virtualExecutor != null)
+		{
+			this.executor = virtualExecutor;
+			this.virtual  = true;
+		}
+		else if(VIRTUAL.equals(type) || PLATFORM.equals(type))
+		{
+			if(threads <= 0)
+			{
+				throw new IllegalArgumentException("Thread count must be positive: " + threads);
+			}
+			this.executor = Executors.newFixedThreadPool(threads, createPlatformThreadFactory());
+			this.virtual  = false;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unknown executor type: " + type);
+		}
+	}
+
+	private static ExecutorService createVirtualExecutor()
+	{
+		/*
+		 * Compiled for Java 17, so the factory of Java 21 has to be looked up reflectively.
+		 */
+		try
+		{
+			return (ExecutorService)Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor")
+				.invoke(null);
+		}
+		catch(final ReflectiveOperationException e)
+		{
+			return null;
+		}
+	}
+
+	private static ThreadFactory createPlatformThreadFactory()
+	{
+		final AtomicInteger threadCount = new AtomicInteger();
+		return runnable ->
+		{
+			final Thread thread = new Thread(runnable, "BookStore-Async-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * @return <code>true</code> if operations are executed by virtual threads
+	 */
+	public boolean isVirtual()
+	{
+		return this.virtual;
+	}
+
+	/**
+	 * Executes a task asynchronously, without propagating the {@link Deadline}.
+	 */
+	@Override
+	public void execute(final Runnable task)
+	{
+		this.executor.execute(task);
+	}
+
+	/**
+	 * Executes an operation asynchronously.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return a future of the operation's result
+	 */
+	public <T> CompletableFuture<T> supply(final ValueOperation<T> operation)
+	{
+		final Deadline deadline = Deadline.current();
+		return CompletableFuture.supplyAsync(
+			() -> deadline.execute(operation),
+			this.executor
+		);
+	}
+
+	/**
+	 * Executes an operation asynchronously.
+	 *
+	 * @param operation the operation to execute
+	 * @return a future which completes when the operation is done
+	 */
+	public CompletableFuture<Void> run(final VoidOperation operation)
+	{
+		return this.supply(() ->
+		{
+			operation.execute();
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,217 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Flow.Publisher} which loads its items chunk by chunk, only as subscribers request them.
+ * <p>
+ * The chunks are determined per subscription, when the first item is requested.
+ * A chunk is loaded when all items of the previous one were delivered and there is outstanding demand,
+ * so at most one chunk per subscription is held in memory, no matter how slow the subscriber is.
+ * Loaders are expected to release the backing data, e.g. {@link org.eclipse.serializer.reference.Lazy} references,
+ * after they have copied a chunk.
+ * <p>
+ * Items are delivered by the {@link AsyncExecutor}, with the {@link Deadline} of the subscribing thread.
+ * Exceptions of the loaders are signalled with {@link Flow.Subscriber#onError(Throwable)}.
+ *
+ * @param <T> the item type
+ */
+public final class ChunkedPublisher<T> implements Flow.Publisher<T>
+{
+	/**
+	 * Creates a new publisher.
+	 *
+	 * @param <T> the item type
+	 * @param chunks operation which returns the loaders of all chunks
+	 * @return the new publisher
+	 */
+	public static <T> ChunkedPublisher<T> New(
+		final ValueOperation<? extends List<? extends ValueOperation<? extends List<? extends T>>>> chunks
+	)
+	{
+		return new ChunkedPublisher<>(requireNonNull(chunks), AsyncExecutor.get());
+	}
+
+
+	private final ValueOperation<? extends List<? extends ValueOperation<? extends List<? extends T>>>> chunks  ;
+	private final Executor                                                                          executor;
+
+	private ChunkedPublisher(
+		final ValueOperation<? extends List<? extends ValueOperation<? extends List<? extends T>>>> chunks  ,
+		final Executor                                                                          executor
+	)
+	{
+		super();
+		this.chunks   = chunks  ;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super T> subscriber)
+	{
+		final Subscription subscription = new Subscription(requireNonNull(subscriber), Deadline.current());
+		subscriber.onSubscribe(subscription);
+	}
+
+
+	private final class Subscription implements Flow.Subscription
+	{
+		private final    Flow.Subscriber<? super T> subscriber;
+		private final    Deadline                   deadline  ;
+		private final    AtomicLong                 demand     = new AtomicLong();
+		private final    AtomicInteger              work       = new AtomicInteger();
+		private volatile boolean                    terminated;
+		/*
+		 * Error of an invalid request, which is signalled by the draining thread.
+		 */
+		private volatile Throwable                  error     ;
+
+		/*
+		 * Only accessed by the draining thread.
+		 */
+		private Iterator<? extends ValueOperation<? extends List<? extends T>>> chunkLoaders;
+		private Iterator<? extends T>                                           chunk       ;
+
+		Subscription(
+			final Flow.Subscriber<? super T> subscriber,
+			final Deadline                   deadline
+		)
+		{
+			super();
+			this.subscriber = subscriber;
+			this.deadline   = deadline  ;
+		}
+
+		@Override
+		public void request(final long n)
+		{
+			if(this.terminated)
+			{
+				return;
+			}
+			if(n <= 0)
+			{
+				// not signalled by the calling thread, onError must not run concurrently with onNext
+				this.error = new IllegalArgumentException("Requested amount must be positive: " + n);
+				this.schedule();
+				return;
+			}
+			// add, capped at Long.MAX_VALUE, which means unbounded
+			this.demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+			this.schedule();
+		}
+
+		@Override
+		public void cancel()
+		{
+			this.terminated = true;
+			this.schedule();
+		}
+
+		private void schedule()
+		{
+			if(this.work.getAndIncrement() == 0)
+			{
+				ChunkedPublisher.this.executor.execute(this::drain);
+			}
+		}
+
+		private void drain()
+		{
+			int missed = 1;
+			do
+			{
+				final Throwable error = this.error;
+				if(error != null && !this.terminated)
+				{
+					this.terminated   = true;
+					this.chunkLoaders = null;
+					this.chunk        = null;
+					this.subscriber.onError(error);
+				}
+				else if(this.terminated)
+				{
+					// release the current chunk
+					this.chunkLoaders = null;
+					this.chunk        = null;
+				}
+				else
+				{
+					try
+					{
+						this.deadline.execute(() ->
+						{
+							this.emit();
+							return null;
+						});
+					}
+					catch(final Throwable t)
+					{
+						this.terminated = true;
+						this.subscriber.onError(t);
+					}
+				}
+			}
+			while((missed = this.work.addAndGet(-missed)) != 0);
+		}
+
+		private void emit()
+		{
+			if(this.chunkLoaders == null)
+			{
+				this.chunkLoaders = ChunkedPublisher.this.chunks.execute().iterator();
+			}
+			while(!this.terminated && this.error == null)
+			{
+				if(this.chunk != null && this.chunk.hasNext())
+				{
+					if(this.demand.get() == 0)
+					{
+						return;
+					}
+					this.subscriber.onNext(this.chunk.next());
+					this.demand.getAndUpdate(d -> d == Long.MAX_VALUE ? d : d - 1);
+				}
+				else if(this.chunkLoaders.hasNext())
+				{
+					this.chunk = null;
+					if(this.demand.get() == 0)
+					{
+						return;
+					}
+					this.deadline.check();
+					this.chunk = this.chunkLoaders.next().execute().iterator();
+				}
+				else
+				{
+					this.terminated = true;
+					this.chunk      = null;
+					this.subscriber.onComplete();
+				}
+			}
+		}
+
+	}
+
+}
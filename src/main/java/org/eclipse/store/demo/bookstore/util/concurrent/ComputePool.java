@@ -0,0 +1,241 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Named, bounded {@link ForkJoinPool}s for parallel streams, one per workload class.
+ * <p>
+ * Parallel streams run in the pool of the thread which executes the terminal operation,
+ * which is the JVM's common pool by default. The common pool is shared with all other parts of the application,
+ * so heavy computations would starve everything else.
+ * {@link #compute(ValueOperation)} executes an operation in the workload's pool instead,
+ * so all parallel streams of the operation run there as well.
+ * <p>
+ * The threads of all pools are terminated when idle.
+ * <p>
+ * The {@link Deadline} of the calling thread is propagated to the pool.
+ * <p>
+ * If bound to a registry with {@link #bindTo(MeterRegistry)}, following gauges are recorded,
+ * tagged by <code>pool</code> (the workload) and <code>parallelism</code>:
+ * <ul>
+ * <li><code>bookstore.pool.queued.submissions</code>: requests waiting to be executed</li>
+ * <li><code>bookstore.pool.queued.tasks</code>: forked subtasks waiting to be executed</li>
+ * <li><code>bookstore.pool.active</code>: threads currently executing tasks</li>
+ * </ul>
+ */
+public final class ComputePool
+{
+	public final static String PURCHASES = "purchases";
+	public final static String CUSTOMERS = "customers";
+	public final static String SHOPS     = "shops"    ;
+	public final static String IMPORTS   = "imports"  ;
+	public final static String GENERATOR = "generator";
+
+	public final static List<String> WORKLOADS = List.of(PURCHASES, CUSTOMERS, SHOPS, IMPORTS, GENERATOR);
+
+	public final static int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private final static long KEEP_ALIVE_SECONDS = 60;
+
+	private final static Map<String, ComputePool> POOLS = new ConcurrentHashMap<>();
+
+	private static volatile MeterRegistry registry;
+
+	/**
+	 * Configures the pool of a specific workload.
+	 * This has to be done before the pool is used for the first time.
+	 *
+	 * @param workload the workload's name
+	 * @param parallelism the maximum amount of threads of the workload's pool
+	 */
+	public static void configure(
+		final String workload   ,
+		final int    parallelism
+	)
+	{
+		POOLS.put(requireNonNull(workload), new ComputePool(workload, parallelism));
+	}
+
+	/**
+	 * Gets the pool of a specific workload, which is created with the default parallelism if not configured.
+	 *
+	 * @param workload the workload's name
+	 * @return the workload's pool
+	 */
+	public static ComputePool get(final String workload)
+	{
+		return POOLS.computeIfAbsent(
+			workload,
+			w -> new ComputePool(w, DEFAULT_PARALLELISM)
+		);
+	}
+
+	/**
+	 * Records the queue depth of all existing and future pools to the given registry.
+	 *
+	 * @param meterRegistry the registry to record the gauges to
+	 */
+	public static synchronized void bindTo(final MeterRegistry meterRegistry)
+	{
+		registry = meterRegistry;
+		POOLS.values().forEach(ComputePool::registerGauges);
+	}
+
+
+	private final    String       workload   ;
+	private final    int          parallelism;
+	private volatile ForkJoinPool pool       ;
+
+	private ComputePool(
+		final String workload   ,
+		final int    parallelism
+	)
+	{
+		super();
+		if(parallelism <= 0)
+		{
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		this.workload    = workload   ;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Executes an operation in this pool and waits for its result.
+	 * If the current thread already belongs to this workload's pool, the operation is executed directly.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return the operation's result
+	 */
+	public <T> T compute(final ValueOperation<T> operation)
+	{
+		final ForkJoinPool pool   = this.pool();
+		final Thread       thread = Thread.currentThread();
+		if(thread instanceof ForkJoinWorkerThread
+			&& ((ForkJoinWorkerThread)thread).getPool() == pool
+		)
+		{
+			return operation.execute();
+		}
+
+		final Deadline deadline = Deadline.current();
+		return pool.submit(() -> deadline.execute(operation)).join();
+	}
+
+	private ForkJoinPool pool()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.pool) has to be volatile.
+		 */
+		ForkJoinPool pool = this.pool;
+		if(pool == null)
+		{
+			synchronized(this)
+			{
+				if((pool = this.pool) == null)
+				{
+					pool = this.pool = this.createPool();
+					this.registerGauges();
+				}
+			}
+		}
+		return pool;
+	}
+
+	private ForkJoinPool createPool()
+	{
+		final int           parallelism = this.parallelism;
+		final String        namePrefix  = "BookStore-" + this.workload + "-";
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ForkJoinPool  pool        = new ForkJoinPool(
+			parallelism,
+			p ->
+			{
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setName(namePrefix + threadCount.incrementAndGet());
+				return thread;
+			},
+			null,
+			false,
+			0,
+			parallelism,
+			1,
+			p -> true,
+			KEEP_ALIVE_SECONDS,
+			TimeUnit.SECONDS
+		);
+		return pool;
+	}
+
+	private synchronized void registerGauges()
+	{
+		final MeterRegistry registry = ComputePool.registry;
+		final ForkJoinPool  pool     = this.pool;
+		if(registry == null || pool == null)
+		{
+			return;
+		}
+		final String parallelismTag = Integer.toString(this.parallelism);
+		Gauge.builder("bookstore.pool.queued.submissions", pool, ForkJoinPool::getQueuedSubmissionCount)
+			.description("Requests waiting to be executed")
+			.tag("pool", this.workload)
+			.tag("parallelism", parallelismTag)
+			.register(registry);
+		Gauge.builder("bookstore.pool.queued.tasks", pool, ForkJoinPool::getQueuedTaskCount)
+			.description("Subtasks waiting to be executed")
+			.tag("pool", this.workload)
+			.tag("parallelism", parallelismTag)
+			.register(registry);
+		Gauge.builder("bookstore.pool.active", pool, ForkJoinPool::getActiveThreadCount)
+			.description("Threads executing tasks")
+			.tag("pool", this.workload)
+			.tag("parallelism", parallelismTag)
+			.register(registry);
+	}
+
+	/**
+	 * @return the name of this pool's workload
+	 */
+	public String workload()
+	{
+		return this.workload;
+	}
+
+	/**
+	 * @return the maximum amount of threads of this pool
+	 */
+	public int parallelism()
+	{
+		return this.parallelism;
+	}
+
+}
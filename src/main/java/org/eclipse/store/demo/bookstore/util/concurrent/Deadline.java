@@ -0,0 +1,175 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+/**
+ * Deadline and cancellation context for computations.
+ * <p>
+ * A deadline is bound to the current thread with {@link #execute(ValueOperation)}.
+ * The compute functions of the domain classes check the {@link #current()} deadline inside their stream pipelines
+ * and while iterating partitions, and abort with a {@link DeadlineExceededException} if it expired or was cancelled.
+ * This releases all locks held by the computation.
+ * The checks are cooperative, so a computation is aborted not before the next element is processed.
+ * <p>
+ * The deadline is propagated to the threads of the {@link ComputePool}s.
+ */
+public final class Deadline
+{
+	private final static Deadline NONE = new Deadline(Long.MAX_VALUE, null);
+
+	private final static ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * @param budget the maximum duration of the computation, zero or negative for no limit
+	 * @return a new deadline which expires after the given budget
+	 */
+	public static Deadline within(final Duration budget)
+	{
+		return budget.isZero() || budget.isNegative()
+			? new Deadline(Long.MAX_VALUE, null)
+			: new Deadline(System.nanoTime() + budget.toNanos(), budget);
+	}
+
+	/**
+	 * @return a deadline which never expires and cannot be cancelled
+	 */
+	public static Deadline none()
+	{
+		return NONE;
+	}
+
+	/**
+	 * @return the deadline bound to the current thread, or {@link #none()}
+	 */
+	public static Deadline current()
+	{
+		final Deadline deadline = CURRENT.get();
+		return deadline != null
+			? deadline
+			: NONE;
+	}
+
+
+	private final    long     expiresAt;
+	private final    Duration budget   ;
+	private volatile boolean  cancelled;
+
+	private Deadline(
+		final long     expiresAt,
+		final Duration budget
+	)
+	{
+		super();
+		this.expiresAt = expiresAt;
+		this.budget    = budget   ;
+	}
+
+	/**
+	 * Executes an operation with this deadline bound to the current thread.
+	 * If another deadline is bound already, the one which expires first is used.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return the operation's result
+	 */
+	public <T> T execute(final ValueOperation<T> operation)
+	{
+		final Deadline previous = CURRENT.get();
+		if(previous != null && previous.expiresNotAfter(this))
+		{
+			return operation.execute();
+		}
+
+		CURRENT.set(this);
+		try
+		{
+			return operation.execute();
+		}
+		finally
+		{
+			if(previous == null)
+			{
+				CURRENT.remove();
+			}
+			else
+			{
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	private boolean expiresNotAfter(final Deadline other)
+	{
+		return this.budget != null
+			&& (other.budget == null || this.expiresAt - other.expiresAt <= 0);
+	}
+
+	/**
+	 * Cancels all computations using this deadline.
+	 */
+	public void cancel()
+	{
+		if(this == NONE)
+		{
+			throw new UnsupportedOperationException("Deadline.none() cannot be cancelled");
+		}
+		this.cancelled = true;
+	}
+
+	/**
+	 * @return <code>true</code> if this deadline expired or was cancelled
+	 */
+	public boolean isExpired()
+	{
+		return this.cancelled
+			|| this.budget != null && System.nanoTime() - this.expiresAt >= 0;
+	}
+
+	/**
+	 * Checks if this deadline expired or was cancelled.
+	 *
+	 * @throws DeadlineExceededException if this deadline expired or was cancelled
+	 */
+	public void check()
+	{
+		if(this.isExpired())
+		{
+			throw new DeadlineExceededException(
+				this.cancelled
+					? "Computation cancelled"
+					: "Computation exceeded its budget of " + this.budget.toMillis() + " ms"
+			);
+		}
+	}
+
+	/**
+	 * Adds a check of this deadline for each element of a stream.
+	 *
+	 * @param <T> the stream's element type
+	 * @param stream the stream to guard
+	 * @return the guarded stream
+	 */
+	public <T> Stream<T> guard(final Stream<T> stream)
+	{
+		return this == NONE
+			? stream
+			: stream.peek(e -> this.check());
+	}
+
+}
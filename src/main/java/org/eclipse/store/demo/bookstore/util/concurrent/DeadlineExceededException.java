@@ -0,0 +1,27 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+/**
+ * Thrown when a computation exceeds its {@link Deadline} or the deadline was cancelled.
+ */
+public class DeadlineExceededException extends RuntimeException
+{
+	public DeadlineExceededException(final String message)
+	{
+		super(message);
+	}
+}
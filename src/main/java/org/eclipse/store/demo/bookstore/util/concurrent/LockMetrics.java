@@ -0,0 +1,264 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Optional instrumentation of the lock facilities {@link ReadWriteLocked}, {@link ReadWriteLockedOptimistic}
+ * and {@link ReadWriteLockedStriped}.
+ * <p>
+ * It is disabled by default. When enabled, following meters are recorded to the given {@link MeterRegistry},
+ * tagged by <code>domain</code> (the simple name of the locked class), <code>operation</code> (read or write)
+ * and <code>stripe</code> (the stripe index or key, or <code>none</code> for non-striped locks):
+ * <ul>
+ * <li><code>bookstore.lock.wait</code>: the time threads wait to acquire a lock</li>
+ * <li><code>bookstore.lock.hold</code>: the time a lock is held</li>
+ * <li><code>bookstore.lock.queued</code>: the amount of threads currently acquiring a lock,
+ * which is the amount of queued readers or writers respectively, plus uncontended acquisitions for the moment they take</li>
+ * <li><code>bookstore.lock.blocked</code>: acquisitions which waited longer than an uncontended one can take,
+ * see {@link #BLOCKED_THRESHOLD_NANOS}</li>
+ * <li><code>bookstore.lock.optimistic</code>: optimistic reads, tagged by <code>outcome</code>
+ * (valid or retried)</li>
+ * </ul>
+ * Both timers publish percentile histograms, so they can be aggregated over all instances.
+ */
+public final class LockMetrics
+{
+	public final static String READ  = "read" ;
+	public final static String WRITE = "write";
+
+	/**
+	 * Wait time from which on an acquisition counts as blocked, far above an uncontended acquisition,
+	 * which takes well below a microsecond, and below parking and unparking a thread.
+	 */
+	public final static long BLOCKED_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+	private final static String NO_STRIPE = "none";
+
+	private static volatile LockMetrics current;
+
+	/**
+	 * Enables the instrumentation of all locks.
+	 *
+	 * @param registry the registry to record the meters to
+	 */
+	public static synchronized void enable(final MeterRegistry registry)
+	{
+		current = new LockMetrics(registry);
+	}
+
+	/**
+	 * Disables the instrumentation of all locks.
+	 * Already registered meters stay in their registry.
+	 */
+	public static synchronized void disable()
+	{
+		current = null;
+	}
+
+	/**
+	 * @return the current lock metrics, or <code>null</code> if the instrumentation is disabled
+	 */
+	public static LockMetrics current()
+	{
+		return current;
+	}
+
+
+	private final MeterRegistry        registry;
+	private final Map<String, Probe>   probes             = new ConcurrentHashMap<>();
+	private final Map<String, Counter> optimisticCounters = new ConcurrentHashMap<>();
+
+	private LockMetrics(final MeterRegistry registry)
+	{
+		super();
+		this.registry = registry;
+	}
+
+	/**
+	 * Gets the probe for a specific lock.
+	 *
+	 * @param owner the object which is locked
+	 * @param operation {@link #READ} or {@link #WRITE}
+	 * @param stripe the stripe tag, or <code>null</code> for non-striped locks
+	 * @return the probe for the lock
+	 */
+	public Probe probe(
+		final Object owner    ,
+		final String operation,
+		final String stripe
+	)
+	{
+		final String domain    = owner.getClass().getSimpleName();
+		final String stripeTag = stripe == null
+			? NO_STRIPE
+			: stripe;
+		return this.probes.computeIfAbsent(
+			domain + '/' + operation + '/' + stripeTag,
+			key -> new Probe(this.registry, domain, operation, stripeTag)
+		);
+	}
+
+	/**
+	 * Records the outcome of an optimistic read.
+	 *
+	 * @param owner the object which is locked
+	 * @param valid <code>true</code> if the optimistic read was valid,
+	 *        <code>false</code> if it had to be retried with a read lock
+	 */
+	public void optimisticRead(
+		final Object  owner,
+		final boolean valid
+	)
+	{
+		final String domain  = owner.getClass().getSimpleName();
+		final String outcome = valid
+			? "valid"
+			: "retried";
+		this.optimisticCounters.computeIfAbsent(
+			domain + '/' + outcome,
+			key -> Counter.builder("bookstore.lock.optimistic")
+				.description("Optimistic reads")
+				.tag("domain", domain)
+				.tag("outcome", outcome)
+				.register(this.registry)
+		).increment();
+	}
+
+
+	/**
+	 * Measures the wait and hold times of a specific lock.
+	 */
+	public final static class Probe
+	{
+		private final Timer         waitTimer     ;
+		private final Timer         holdTimer     ;
+		private final Counter       blockedCounter;
+		private final AtomicInteger queued         = new AtomicInteger();
+
+		Probe(
+			final MeterRegistry registry ,
+			final String        domain   ,
+			final String        operation,
+			final String        stripe
+		)
+		{
+			super();
+			this.waitTimer = Timer.builder("bookstore.lock.wait")
+				.description("Time waited to acquire a lock")
+				.tag("domain", domain)
+				.tag("operation", operation)
+				.tag("stripe", stripe)
+				.publishPercentileHistogram()
+				.register(registry);
+			this.holdTimer = Timer.builder("bookstore.lock.hold")
+				.description("Time a lock was held")
+				.tag("domain", domain)
+				.tag("operation", operation)
+				.tag("stripe", stripe)
+				.publishPercentileHistogram()
+				.register(registry);
+			this.blockedCounter = Counter.builder("bookstore.lock.blocked")
+				.description("Acquisitions of a lock which blocked")
+				.tag("domain", domain)
+				.tag("operation", operation)
+				.tag("stripe", stripe)
+				.register(registry);
+			Gauge.builder("bookstore.lock.queued", this.queued, AtomicInteger::get)
+				.description("Threads waiting to acquire a lock")
+				.tag("domain", domain)
+				.tag("operation", operation)
+				.tag("stripe", stripe)
+				.register(registry);
+		}
+
+		/**
+		 * Executes an operation protected by the given lock and measures the wait and hold time.
+		 *
+		 * @param <T> the operation's return type
+		 * @param lock the lock to acquire
+		 * @param operation the operation to execute
+		 * @return the operation's result
+		 */
+		public <T> T execute(
+			final Lock              lock     ,
+			final ValueOperation<T> operation
+		)
+		{
+			/*
+			 * No tryLock beforehand, it would let readers barge past queued writers,
+			 * whether the thread blocked is derived from the wait time instead.
+			 */
+			final long start = System.nanoTime();
+			this.queued.incrementAndGet();
+			try
+			{
+				lock.lock();
+			}
+			finally
+			{
+				this.queued.decrementAndGet();
+			}
+			final long acquired = System.nanoTime();
+			final long waited   = acquired - start;
+			this.waitTimer.record(waited, TimeUnit.NANOSECONDS);
+			if(waited >= BLOCKED_THRESHOLD_NANOS)
+			{
+				this.blockedCounter.increment();
+			}
+
+			try
+			{
+				return operation.execute();
+			}
+			finally
+			{
+				final long released = System.nanoTime();
+				lock.unlock();
+				this.holdTimer.record(released - acquired, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		/**
+		 * Executes an operation protected by the given lock and measures the wait and hold time.
+		 *
+		 * @param lock the lock to acquire
+		 * @param operation the operation to execute
+		 */
+		public void execute(
+			final Lock          lock     ,
+			final VoidOperation operation
+		)
+		{
+			this.execute(lock, () ->
+			{
+				operation.execute();
+				return null;
+			});
+		}
+	}
+
+}
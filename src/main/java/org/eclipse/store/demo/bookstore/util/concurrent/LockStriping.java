@@ -0,0 +1,622 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.util.concurrent.Striped;
+
+/**
+ * Configuration of the locks used by {@link ReadWriteLockedStriped}.
+ * <p>
+ * Supported modes are:
+ * <ul>
+ * <li>{@link #Striped(int)}: a fixed amount of strongly referenced stripes</li>
+ * <li>{@link #WeakStriped(int)}: a fixed amount of lazily created, weakly referenced stripes</li>
+ * <li>{@link #Adaptive(int, int, int)}: stripes which are doubled under contention, up to a maximum</li>
+ * <li>{@link #PerKey()}: a dedicated lock per key, suitable for keys with a low cardinality, like years</li>
+ * </ul>
+ * The striping can be configured per domain class with {@link #configure(Class, LockStriping)},
+ * or with a system property, e.g. <code>-Dbookstore.locks.purchases=adaptive:4:64:100</code>.
+ * This has to be done before the domain's locks are used for the first time.
+ */
+public final class LockStriping
+{
+	public static LockStriping valueOf(final String value)
+	{
+		final String[] parts = value.trim().toLowerCase().split(":");
+		try
+		{
+			switch(parts[0])
+			{
+				case "striped"     : return Striped(Integer.parseInt(parts[1]));
+				case "weak-striped": return WeakStriped(Integer.parseInt(parts[1]));
+				case "adaptive"    : return Adaptive(
+					Integer.parseInt(parts[1]),
+					Integer.parseInt(parts[2]),
+					Integer.parseInt(parts[3])
+				);
+				case "per-key"     : return PerKey();
+
+				default:
+					// fall through to exception
+			}
+		}
+		catch(final NumberFormatException | ArrayIndexOutOfBoundsException e)
+		{
+			// fall through to exception
+		}
+		throw new IllegalArgumentException("Invalid lock striping: " + value
+			+ ", supported values: striped:<stripes>, weak-striped:<stripes>, "
+			+ "adaptive:<initialStripes>:<maxStripes>:<contentionThreshold>, per-key");
+	}
+
+	/**
+	 * @param stripes the amount of stripes
+	 * @return a fixed amount of strongly referenced stripes
+	 */
+	public static LockStriping Striped(final int stripes)
+	{
+		return new LockStriping(MODE_STRIPED, positive(stripes), stripes, 0, false);
+	}
+
+	/**
+	 * @param stripes the amount of stripes
+	 * @return a fixed amount of lazily created, weakly referenced stripes
+	 */
+	public static LockStriping WeakStriped(final int stripes)
+	{
+		return new LockStriping(MODE_STRIPED, positive(stripes), stripes, 0, true);
+	}
+
+	/**
+	 * @param initialStripes the initial amount of stripes
+	 * @param maxStripes the maximum amount of stripes
+	 * @param contentionThreshold the amount of contended lock acquisitions after which the stripes are doubled
+	 * @return stripes which are doubled under contention
+	 */
+	public static LockStriping Adaptive(
+		final int initialStripes     ,
+		final int maxStripes         ,
+		final int contentionThreshold
+	)
+	{
+		if(maxStripes < initialStripes)
+		{
+			throw new IllegalArgumentException("maxStripes < initialStripes");
+		}
+		return new LockStriping(
+			MODE_ADAPTIVE,
+			positive(initialStripes),
+			maxStripes,
+			positive(contentionThreshold),
+			false
+		);
+	}
+
+	/**
+	 * @return a dedicated lock per key
+	 */
+	public static LockStriping PerKey()
+	{
+		return new LockStriping(MODE_PER_KEY, 0, 0, 0, false);
+	}
+
+	/**
+	 * Configures the lock striping of a specific domain class.
+	 *
+	 * @param domain the domain class
+	 * @param striping the striping to use
+	 */
+	public static void configure(
+		final Class<? extends ReadWriteLockedStriped> domain  ,
+		final LockStriping                            striping
+	)
+	{
+		CONFIGURATION.put(requireNonNull(domain), requireNonNull(striping));
+	}
+
+	/**
+	 * Gets the configured lock striping of a specific domain class.
+	 *
+	 * @param domain the domain class
+	 * @return the configured striping, or <code>null</code> if none is configured
+	 */
+	public static LockStriping configured(final Class<?> domain)
+	{
+		final LockStriping striping = CONFIGURATION.get(domain);
+		if(striping != null)
+		{
+			return striping;
+		}
+		final String property = System.getProperty(
+			"bookstore.locks." + domain.getSimpleName().toLowerCase()
+		);
+		return property != null
+			? valueOf(property)
+			: null;
+	}
+
+	private static int positive(final int value)
+	{
+		if(value <= 0)
+		{
+			throw new IllegalArgumentException("Value must be positive: " + value);
+		}
+		return value;
+	}
+
+
+	private final static int MODE_STRIPED  = 0;
+	private final static int MODE_ADAPTIVE = 1;
+	private final static int MODE_PER_KEY  = 2;
+
+	private final static Map<Class<?>, LockStriping> CONFIGURATION = new ConcurrentHashMap<>();
+
+	private final int     mode               ;
+	private final int     stripes            ;
+	private final int     maxStripes         ;
+	private final int     contentionThreshold;
+	private final boolean weak               ;
+
+	private LockStriping(
+		final int     mode               ,
+		final int     stripes            ,
+		final int     maxStripes         ,
+		final int     contentionThreshold,
+		final boolean weak
+	)
+	{
+		super();
+		this.mode                = mode               ;
+		this.stripes             = stripes            ;
+		this.maxStripes          = maxStripes         ;
+		this.contentionThreshold = contentionThreshold;
+		this.weak                = weak               ;
+	}
+
+	Stripes createStripes()
+	{
+		switch(this.mode)
+		{
+			case MODE_ADAPTIVE:
+				return new AdaptiveStripes(this.stripes, this.maxStripes, this.contentionThreshold);
+
+			case MODE_PER_KEY:
+				return new PerKeyStripes();
+
+			default:
+				return new FixedStripes(
+					this.weak
+						? Striped.lazyWeakReadWriteLock(this.stripes)
+						: Striped.readWriteLock(this.stripes)
+				);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		switch(this.mode)
+		{
+			case MODE_ADAPTIVE:
+				return "adaptive:" + this.stripes + ":" + this.maxStripes + ":" + this.contentionThreshold;
+
+			case MODE_PER_KEY:
+				return "per-key";
+
+			default:
+				return (this.weak ? "weak-striped:" : "striped:") + this.stripes;
+		}
+	}
+
+
+	/**
+	 * The locks of a {@link ReadWriteLockedStriped} instance.
+	 */
+	static interface Stripes
+	{
+		public Lock readLock(Object key);
+
+		public Lock writeLock(Object key);
+
+		/**
+		 * @return the stripe tag used by the {@link LockMetrics}
+		 */
+		public String tag(Object key);
+	}
+
+
+	private static int indexOf(
+		final Striped<ReadWriteLock> striped,
+		final ReadWriteLock          stripe
+	)
+	{
+		for(int i = 0, size = striped.size(); i < size; i++)
+		{
+			if(striped.getAt(i) == stripe)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	private static class FixedStripes implements Stripes
+	{
+		private final Striped<ReadWriteLock> striped;
+
+		FixedStripes(final Striped<ReadWriteLock> striped)
+		{
+			super();
+			this.striped = striped;
+		}
+
+		@Override
+		public Lock readLock(final Object key)
+		{
+			return this.striped.get(key).readLock();
+		}
+
+		@Override
+		public Lock writeLock(final Object key)
+		{
+			return this.striped.get(key).writeLock();
+		}
+
+		@Override
+		public String tag(final Object key)
+		{
+			return Integer.toString(indexOf(this.striped, this.striped.get(key)));
+		}
+	}
+
+
+	private static class PerKeyStripes implements Stripes
+	{
+		private final Map<Object, ReadWriteLock> locks = new ConcurrentHashMap<>();
+
+		PerKeyStripes()
+		{
+			super();
+		}
+
+		private ReadWriteLock get(final Object key)
+		{
+			return this.locks.computeIfAbsent(key, k -> new ReentrantReadWriteLock());
+		}
+
+		@Override
+		public Lock readLock(final Object key)
+		{
+			return this.get(key).readLock();
+		}
+
+		@Override
+		public Lock writeLock(final Object key)
+		{
+			return this.get(key).writeLock();
+		}
+
+		@Override
+		public String tag(final Object key)
+		{
+			return String.valueOf(key);
+		}
+	}
+
+
+	/**
+	 * Stripes are organized in generations. When the contention threshold of the current generation
+	 * is exceeded, a new generation with twice the stripes is created by the contended thread,
+	 * before it blocks and only if it holds no lock of this instance. Write locks are reentrant,
+	 * so a thread holding a stripe could acquire all write locks and switch the generation while
+	 * still holding an old stripe, which would break the mutual exclusion.
+	 * The switch happens only while all write locks of the old generation can be acquired, so no
+	 * lock of the old generation is held afterwards. Threads which acquired an outdated lock
+	 * release it and retry with the current generation.
+	 */
+	private static class AdaptiveStripes implements Stripes
+	{
+		private final static long GROW_TIMEOUT_MS = 100;
+
+		private final    int                maxStripes         ;
+		private final    int                contentionThreshold;
+		private final    AtomicBoolean      growing            = new AtomicBoolean();
+		// amount of stripes of this instance held by the current thread
+		private final    ThreadLocal<int[]> held               = ThreadLocal.withInitial(() -> new int[1]);
+		private volatile Generation         current            ;
+
+		AdaptiveStripes(
+			final int initialStripes     ,
+			final int maxStripes         ,
+			final int contentionThreshold
+		)
+		{
+			super();
+			this.maxStripes          = maxStripes         ;
+			this.contentionThreshold = contentionThreshold;
+			this.current             = new Generation(initialStripes);
+		}
+
+		@Override
+		public Lock readLock(final Object key)
+		{
+			return new AdaptiveLock(key, false);
+		}
+
+		@Override
+		public Lock writeLock(final Object key)
+		{
+			return new AdaptiveLock(key, true);
+		}
+
+		@Override
+		public String tag(final Object key)
+		{
+			final Striped<ReadWriteLock> striped = this.current.striped;
+			return Integer.toString(indexOf(striped, striped.get(key)));
+		}
+
+		/**
+		 * Counts a contended acquisition and grows the stripes inline if the threshold is reached,
+		 * unless the current thread holds a stripe of this instance, e.g. in nested operations.
+		 *
+		 * @return <code>true</code> if a new generation was created
+		 */
+		private boolean contended(final Generation generation)
+		{
+			generation.contention.increment();
+			if(this.held.get()[0] == 0
+				&& generation.contention.sum() >= this.contentionThreshold
+				&& generation.striped.size() < this.maxStripes
+				&& this.growing.compareAndSet(false, true)
+			)
+			{
+				try
+				{
+					return this.grow(generation);
+				}
+				finally
+				{
+					this.growing.set(false);
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Creates a new generation if all write locks of the given one can be acquired in time.
+		 * It must only be called by threads holding no stripe of this instance, see {@link #contended(Generation)}.
+		 * If other threads hold a stripe, the attempt times out and is repeated after the next contention threshold is reached.
+		 */
+		private boolean grow(final Generation generation)
+		{
+			if(generation != this.current)
+			{
+				return false;
+			}
+
+			final Striped<ReadWriteLock> striped = generation.striped;
+			final List<Lock>             locked  = new ArrayList<>(striped.size());
+			try
+			{
+				for(int i = 0, size = striped.size(); i < size; i++)
+				{
+					final Lock lock = striped.getAt(i).writeLock();
+					if(!lock.tryLock(GROW_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+					{
+						// busy, try again after next contention threshold is reached
+						generation.contention.reset();
+						return false;
+					}
+					locked.add(lock);
+				}
+				this.current = new Generation(Math.min(striped.size() * 2, this.maxStripes));
+				return true;
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			finally
+			{
+				for(int i = locked.size(); --i >= 0;)
+				{
+					locked.get(i).unlock();
+				}
+			}
+		}
+
+
+		private static class Generation
+		{
+			final Striped<ReadWriteLock> striped   ;
+			final LongAdder              contention = new LongAdder();
+
+			Generation(final int stripes)
+			{
+				super();
+				this.striped = Striped.readWriteLock(stripes);
+			}
+		}
+
+
+		/**
+		 * A blocking acquisition of a stripe's lock, after the non-blocking attempt failed.
+		 */
+		@FunctionalInterface
+		private static interface Acquisition
+		{
+			public boolean acquire(Lock lock) throws InterruptedException;
+		}
+
+
+		private class AdaptiveLock implements Lock
+		{
+			private final Object  key     ;
+			private final boolean write   ;
+			private       Lock    acquired;
+
+			AdaptiveLock(
+				final Object  key  ,
+				final boolean write
+			)
+			{
+				super();
+				this.key   = key  ;
+				this.write = write;
+			}
+
+			private Lock stripe(final Generation generation)
+			{
+				final ReadWriteLock stripe = generation.striped.get(this.key);
+				return this.write
+					? stripe.writeLock()
+					: stripe.readLock();
+			}
+
+			/**
+			 * Acquires the stripe of the current generation and re-checks the generation afterwards,
+			 * an outdated stripe is released and the acquisition is repeated.
+			 *
+			 * @param acquisition the blocking acquisition, <code>null</code> for a non-blocking one
+			 */
+			private boolean acquire(final Acquisition acquisition) throws InterruptedException
+			{
+				while(true)
+				{
+					final Generation generation = AdaptiveStripes.this.current;
+					final Lock       lock       = this.stripe(generation);
+					if(!lock.tryLock())
+					{
+						if(acquisition == null)
+						{
+							return false;
+						}
+						if(AdaptiveStripes.this.contended(generation))
+						{
+							// stripes have grown, use the new generation
+							continue;
+						}
+						if(!acquisition.acquire(lock))
+						{
+							return false;
+						}
+					}
+					if(generation == AdaptiveStripes.this.current)
+					{
+						this.acquired = lock;
+						AdaptiveStripes.this.held.get()[0]++;
+						return true;
+					}
+					lock.unlock();
+				}
+			}
+
+			@Override
+			public void lock()
+			{
+				try
+				{
+					this.acquire(lock ->
+					{
+						lock.lock();
+						return true;
+					});
+				}
+				catch(final InterruptedException e)
+				{
+					// not thrown by Lock#lock()
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public void lockInterruptibly() throws InterruptedException
+			{
+				this.acquire(lock ->
+				{
+					lock.lockInterruptibly();
+					return true;
+				});
+			}
+
+			@Override
+			public boolean tryLock()
+			{
+				try
+				{
+					return this.acquire(null);
+				}
+				catch(final InterruptedException e)
+				{
+					// not thrown by a non-blocking acquisition
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public boolean tryLock(
+				final long     time,
+				final TimeUnit unit
+			)
+				throws InterruptedException
+			{
+				final long deadline = System.nanoTime() + unit.toNanos(time);
+				return this.acquire(lock ->
+					lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+				);
+			}
+
+			@Override
+			public void unlock()
+			{
+				this.acquired.unlock();
+				this.acquired = null;
+				AdaptiveStripes.this.held.get()[0]--;
+			}
+
+			/**
+			 * The condition is bound to the acquired stripe, or to the one of the current generation if none is held.
+			 * Stripes can't grow while one is held, so it should be created and used while holding this lock.
+			 */
+			@Override
+			public Condition newCondition()
+			{
+				final Lock acquired = this.acquired;
+				return acquired != null
+					? acquired.newCondition()
+					: this.stripe(AdaptiveStripes.this.current).newCondition();
+			}
+		}
+	}
+
+}
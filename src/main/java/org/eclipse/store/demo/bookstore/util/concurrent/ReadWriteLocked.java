@@ -23,6 +23,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
  * <p>
  * Non-reentrant read operations are not allowed until all write operations have been finished.
  * Additionally, a write operation can acquire the read lock, but not vice-versa.
+ *
+ * @see LockMetrics
  */
 public class ReadWriteLocked
 {
@@ -66,7 +68,13 @@ public class ReadWriteLocked
 	 */
 	public final <T> T read(final ValueOperation<T> operation)
 	{
-		final ReadLock readLock = this.mutex().readLock();
+		final ReadLock    readLock = this.mutex().readLock();
+		final LockMetrics metrics  = LockMetrics.current();
+		if(metrics != null)
+		{
+			return metrics.probe(this, LockMetrics.READ, null).execute(readLock, operation);
+		}
+
 		readLock.lock();
 
 		try
@@ -86,7 +94,14 @@ public class ReadWriteLocked
 	 */
 	public final void read(final VoidOperation operation)
 	{
-		final ReadLock readLock = this.mutex().readLock();
+		final ReadLock    readLock = this.mutex().readLock();
+		final LockMetrics metrics  = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.probe(this, LockMetrics.READ, null).execute(readLock, operation);
+			return;
+		}
+
 		readLock.lock();
 
 		try
@@ -108,7 +123,13 @@ public class ReadWriteLocked
 	 */
 	public final <T> T write(final ValueOperation<T> operation)
 	{
-		final WriteLock writeLock = this.mutex().writeLock();
+		final WriteLock   writeLock = this.mutex().writeLock();
+		final LockMetrics metrics   = LockMetrics.current();
+		if(metrics != null)
+		{
+			return metrics.probe(this, LockMetrics.WRITE, null).execute(writeLock, operation);
+		}
+
 		writeLock.lock();
 
 		try
@@ -128,7 +149,14 @@ public class ReadWriteLocked
 	 */
 	public final void write(final VoidOperation operation)
 	{
-		final WriteLock writeLock = this.mutex().writeLock();
+		final WriteLock   writeLock = this.mutex().writeLock();
+		final LockMetrics metrics   = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.probe(this, LockMetrics.WRITE, null).execute(writeLock, operation);
+			return;
+		}
+
 		writeLock.lock();
 
 		try
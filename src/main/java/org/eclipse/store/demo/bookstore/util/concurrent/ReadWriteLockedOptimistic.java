@@ -0,0 +1,223 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Facility to execute operations with read and write locks, based on a {@link StampedLock}.
+ * <p>
+ * In addition to the operations of {@link ReadWriteLocked}, trivial reads can be executed with
+ * {@link #readOptimistic(ValueOperation)}. As long as there are no concurrent writes, these don't write
+ * to shared memory at all, which avoids contention on the reader count on many-core machines.
+ * <p>
+ * The locks are not reentrant, neither read nor write operations must be nested.
+ *
+ * @see LockMetrics
+ */
+public class ReadWriteLockedOptimistic
+{
+	/*
+	 * Transient means it is not persisted by EclipseStore, but created on demand.
+	 */
+	private transient volatile StampedLock mutex;
+
+	public ReadWriteLockedOptimistic()
+	{
+		super();
+	}
+
+	private StampedLock mutex()
+	{
+		/*
+		 * Double-checked locking to reduce the overhead of acquiring a lock
+		 * by testing the locking criterion.
+		 * The field (this.mutex) has to be volatile.
+		 */
+		StampedLock mutex = this.mutex;
+		if(mutex == null)
+		{
+			synchronized(this)
+			{
+				if((mutex = this.mutex) == null)
+				{
+					mutex = this.mutex = new StampedLock();
+				}
+			}
+		}
+		return mutex;
+	}
+
+	/**
+	 * Executes an operation optimistically without a lock, and validates afterwards that no write occurred meanwhile.
+	 * If a write occurred, the operation is executed again, protected by a read lock.
+	 * <p>
+	 * The operation may see inconsistent state and may therefore be executed twice.
+	 * So it must be short, free of side effects and only read fields of this object.
+	 * Exceptions caused by inconsistent state are suppressed, if the validation fails.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return the operation's result
+	 */
+	public final <T> T readOptimistic(final ValueOperation<T> operation)
+	{
+		final StampedLock mutex = this.mutex();
+		final long        stamp = mutex.tryOptimisticRead();
+		if(stamp != 0L)
+		{
+			try
+			{
+				final T result = operation.execute();
+				if(mutex.validate(stamp))
+				{
+					final LockMetrics metrics = LockMetrics.current();
+					if(metrics != null)
+					{
+						metrics.optimisticRead(this, true);
+					}
+					return result;
+				}
+			}
+			catch(final RuntimeException e)
+			{
+				if(mutex.validate(stamp))
+				{
+					throw e;
+				}
+				// inconsistent state due to a concurrent write, retry with lock
+			}
+		}
+
+		final LockMetrics metrics = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.optimisticRead(this, false);
+		}
+		return this.read(operation);
+	}
+
+	/**
+	 * Executes an operation protected by a read lock.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return the operation's result
+	 */
+	public final <T> T read(final ValueOperation<T> operation)
+	{
+		final StampedLock mutex   = this.mutex();
+		final LockMetrics metrics = LockMetrics.current();
+		if(metrics != null)
+		{
+			return metrics.probe(this, LockMetrics.READ, null).execute(mutex.asReadLock(), operation);
+		}
+
+		final long stamp = mutex.readLock();
+
+		try
+		{
+			return operation.execute();
+		}
+		finally
+		{
+			mutex.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Executes an operation protected by a read lock.
+	 *
+	 * @param operation the operation to execute
+	 */
+	public final void read(final VoidOperation operation)
+	{
+		final StampedLock mutex   = this.mutex();
+		final LockMetrics metrics = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.probe(this, LockMetrics.READ, null).execute(mutex.asReadLock(), operation);
+			return;
+		}
+
+		final long stamp = mutex.readLock();
+
+		try
+		{
+			operation.execute();
+		}
+		finally
+		{
+			mutex.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Executes an operation protected by a write lock.
+	 *
+	 * @param <T> the operation's return type
+	 * @param operation the operation to execute
+	 * @return the operation's result
+	 */
+	public final <T> T write(final ValueOperation<T> operation)
+	{
+		final StampedLock mutex   = this.mutex();
+		final LockMetrics metrics = LockMetrics.current();
+		if(metrics != null)
+		{
+			return metrics.probe(this, LockMetrics.WRITE, null).execute(mutex.asWriteLock(), operation);
+		}
+
+		final long stamp = mutex.writeLock();
+
+		try
+		{
+			return operation.execute();
+		}
+		finally
+		{
+			mutex.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Executes an operation protected by a write lock.
+	 *
+	 * @param operation the operation to execute
+	 */
+	public final void write(final VoidOperation operation)
+	{
+		final StampedLock mutex   = this.mutex();
+		final LockMetrics metrics = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.probe(this, LockMetrics.WRITE, null).execute(mutex.asWriteLock(), operation);
+			return;
+		}
+
+		final long stamp = mutex.writeLock();
+
+		try
+		{
+			operation.execute();
+		}
+		finally
+		{
+			mutex.unlockWrite(stamp);
+		}
+	}
+
+}
@@ -15,9 +15,6 @@ package org.eclipse.store.demo.bookstore.util.concurrent;
  */
 
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-
-import com.google.common.util.concurrent.Striped;
 
 /**
  * Facility to execute operations with striped read and write locks.
@@ -29,40 +26,60 @@ import com.google.common.util.concurrent.Striped;
  * Non-reentrant read operations are not allowed until all write operations of the affected stripe
  * have been finished.
  * Additionally, a write operation can acquire the read lock, but not vice-versa.
+ * <p>
+ * The amount and kind of stripes is defined by a {@link LockStriping}, which can be configured per domain class.
+ *
+ * @see LockStriping
+ * @see LockMetrics
  */
 public class ReadWriteLockedStriped
 {
 	/*
 	 * Transient means it is not persisted by EclipseStore, but created on demand.
 	 */
-	private transient volatile Striped<ReadWriteLock> stripes;
+	private transient volatile LockStriping.Stripes stripes;
 
 	public ReadWriteLockedStriped()
 	{
 		super();
 	}
 	
-	private Striped<ReadWriteLock> stripes()
+	private LockStriping.Stripes stripes()
 	{
 		/*
 		 * Double-checked locking to reduce the overhead of acquiring a lock
 		 * by testing the locking criterion.
-		 * The field (this.delegate) has to be volatile.
+		 * The field (this.stripes) has to be volatile.
 		 */
-		Striped<ReadWriteLock> stripes = this.stripes;
+		LockStriping.Stripes stripes = this.stripes;
 		if(stripes == null)
 		{
 			synchronized(this)
 			{
 				if((stripes = this.stripes) == null)
 				{
-					stripes = this.stripes = Striped.lazyWeakReadWriteLock(4);
+					final LockStriping configured = LockStriping.configured(this.getClass());
+					stripes = this.stripes = (configured != null
+						? configured
+						: this.defaultStriping()
+					).createStripes();
 				}
 			}
 		}
 		return stripes;
 	}
-	
+
+	/**
+	 * Gets the lock striping which is used if none is configured for this domain class.
+	 * The default is {@link LockStriping#Striped(int)} with four stripes.
+	 *
+	 * @return the default lock striping
+	 */
+	protected LockStriping defaultStriping()
+	{
+		return LockStriping.Striped(4);
+	}
+
 	/**
 	 * Executes an operation protected by a read lock for a given key.
 	 *
@@ -76,7 +93,14 @@ public class ReadWriteLockedStriped
 		final ValueOperation<T> operation
 		)
 	{
-		final Lock readLock = this.stripes().get(key).readLock();
+		final LockStriping.Stripes stripes  = this.stripes();
+		final Lock                 readLock = stripes.readLock(key);
+		final LockMetrics          metrics  = LockMetrics.current();
+		if(metrics != null)
+		{
+			return metrics.probe(this, LockMetrics.READ, stripes.tag(key)).execute(readLock, operation);
+		}
+
 		readLock.lock();
 
 		try
@@ -100,7 +124,15 @@ public class ReadWriteLockedStriped
 		final VoidOperation operation
 	)
 	{
-		final Lock readLock = this.stripes().get(key).readLock();
+		final LockStriping.Stripes stripes  = this.stripes();
+		final Lock                 readLock = stripes.readLock(key);
+		final LockMetrics          metrics  = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.probe(this, LockMetrics.READ, stripes.tag(key)).execute(readLock, operation);
+			return;
+		}
+
 		readLock.lock();
 
 		try
@@ -126,7 +158,14 @@ public class ReadWriteLockedStriped
 		final ValueOperation<T> operation
 	)
 	{
-		final Lock writeLock = this.stripes().get(key).writeLock();
+		final LockStriping.Stripes stripes   = this.stripes();
+		final Lock                 writeLock = stripes.writeLock(key);
+		final LockMetrics          metrics   = LockMetrics.current();
+		if(metrics != null)
+		{
+			return metrics.probe(this, LockMetrics.WRITE, stripes.tag(key)).execute(writeLock, operation);
+		}
+
 		writeLock.lock();
 
 		try
@@ -150,7 +189,15 @@ public class ReadWriteLockedStriped
 		final VoidOperation operation
 	)
 	{
-		final Lock writeLock = this.stripes().get(key).writeLock();
+		final LockStriping.Stripes stripes   = this.stripes();
+		final Lock                 writeLock = stripes.writeLock(key);
+		final LockMetrics          metrics   = LockMetrics.current();
+		if(metrics != null)
+		{
+			metrics.probe(this, LockMetrics.WRITE, stripes.tag(key)).execute(writeLock, operation);
+			return;
+		}
+
 		writeLock.lock();
 
 		try
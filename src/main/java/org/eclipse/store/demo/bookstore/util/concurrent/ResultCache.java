@@ -0,0 +1,179 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Size-bounded cache for query results, which is aware of writes.
+ * <p>
+ * Results belong to a partition, e.g. a year or a collection, and carry the version of their partition
+ * at the time the computation started. Writes to a partition bump its version with {@link #invalidate(Object)},
+ * so results computed before are not served anymore, even if the computation was still running.
+ * Hits are served without locking and without touching lazy references.
+ * <p>
+ * The least recently used results are evicted if the maximum amount of entries is reached.
+ */
+public class ResultCache
+{
+	private final static long DEFAULT_MAX_ENTRIES = 1000;
+
+	private final static Map<Class<?>, Long> CONFIGURATION = new ConcurrentHashMap<>();
+
+	/**
+	 * Configures the maximum amount of entries of the result caches of a specific domain class.
+	 * This has to be done before the domain's result cache is used for the first time.
+	 *
+	 * @param domain the domain class
+	 * @param maxEntries the maximum amount of cached results, zero to disable caching
+	 */
+	public static void configure(
+		final Class<?> domain    ,
+		final long     maxEntries
+	)
+	{
+		CONFIGURATION.put(requireNonNull(domain), maxEntries);
+	}
+
+	/**
+	 * Creates a result cache with the configured size of a specific domain class.
+	 *
+	 * @param domain the domain class
+	 * @return a new result cache
+	 */
+	public static ResultCache New(final Class<?> domain)
+	{
+		return new ResultCache(CONFIGURATION.getOrDefault(domain, DEFAULT_MAX_ENTRIES));
+	}
+
+
+	private final Cache<List<Object>, Entry> cache   ;
+	private final Map<Object, AtomicLong>    versions = new ConcurrentHashMap<>();
+	private final AtomicLong                 epoch    = new AtomicLong();
+
+	public ResultCache(final long maxEntries)
+	{
+		super();
+		this.cache = CacheBuilder.newBuilder()
+			.maximumSize(maxEntries)
+			.recordStats()
+			.build();
+	}
+
+	private AtomicLong version(final Object partition)
+	{
+		return this.versions.computeIfAbsent(partition, p -> new AtomicLong());
+	}
+
+	/**
+	 * Gets a cached result, or executes the computation and caches its result.
+	 *
+	 * @param <T> the computation's return type
+	 * @param partition the partition the computation reads
+	 * @param key the key identifying the computation, must implement equals and hashCode
+	 * @param operation the computation
+	 * @return the cached or computed result
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(
+		final Object            partition,
+		final Object            key      ,
+		final ValueOperation<T> operation
+	)
+	{
+		final long         epoch    = this.epoch.get();
+		final long         version  = this.version(partition).get();
+		final List<Object> cacheKey = List.of(partition, key);
+		final Entry        entry    = this.cache.getIfPresent(cacheKey);
+		if(entry != null && entry.epoch == epoch && entry.version == version)
+		{
+			return (T)entry.value;
+		}
+
+		final T result = operation.execute();
+		this.cache.put(cacheKey, new Entry(epoch, version, result));
+		return result;
+	}
+
+	/**
+	 * Invalidates all results of a specific partition.
+	 * The outdated results are evicted lazily.
+	 *
+	 * @param partition the partition which was written to
+	 */
+	public void invalidate(final Object partition)
+	{
+		this.version(partition).incrementAndGet();
+	}
+
+	/**
+	 * Invalidates and evicts all results of a specific partition, so they can be garbage collected.
+	 *
+	 * @param partition the partition to evict
+	 */
+	public void evict(final Object partition)
+	{
+		this.invalidate(partition);
+		this.cache.asMap().keySet().removeIf(key -> key.get(0).equals(partition));
+	}
+
+	/**
+	 * Invalidates all results.
+	 */
+	public void invalidateAll()
+	{
+		this.epoch.incrementAndGet();
+		this.cache.invalidateAll();
+	}
+
+	/**
+	 * @return the statistics of this cache
+	 */
+	public CacheStats stats()
+	{
+		return this.cache.stats();
+	}
+
+
+	private static class Entry
+	{
+		final long   epoch  ;
+		final long   version;
+		final Object value  ;
+
+		Entry(
+			final long   epoch  ,
+			final long   version,
+			final Object value
+		)
+		{
+			super();
+			this.epoch   = epoch  ;
+			this.version = version;
+			this.value   = value  ;
+		}
+	}
+
+}
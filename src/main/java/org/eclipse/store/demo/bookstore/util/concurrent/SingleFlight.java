@@ -0,0 +1,240 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces concurrent identical computations, so that they share one in-flight computation.
+ * <p>
+ * Computations are identified by a key and belong to a partition, e.g. a year.
+ * The result of a computation is kept for a short window after its completion, or until its partition
+ * is invalidated by a write or an unload. Failed computations are not kept.
+ * With a window of zero a computation is removed as soon as it completes, so only callers arriving while
+ * it is in flight join it, and keeping results is left to {@link ResultCache}.
+ * After its partition is invalidated, an in-flight computation isn't joined anymore.
+ * <p>
+ * Callers waiting for a computation of another thread honor their own {@link Deadline}.
+ * If the other thread's deadline expires, the computation is retried.
+ */
+public class SingleFlight
+{
+	private final static Duration DEFAULT_WINDOW = Duration.ofSeconds(1);
+
+	private final static Map<Class<?>, Duration> CONFIGURATION = new ConcurrentHashMap<>();
+
+	/**
+	 * Configures the window of the single flights of a specific domain class.
+	 * This has to be done before the domain's single flights are used for the first time.
+	 *
+	 * @param domain the domain class
+	 * @param window the time results are kept after completion, zero to only share in-flight computations
+	 */
+	public static void configure(
+		final Class<?> domain,
+		final Duration window
+	)
+	{
+		CONFIGURATION.put(requireNonNull(domain), requireNonNull(window));
+	}
+
+	/**
+	 * Creates single flights with the configured window of a specific domain class.
+	 *
+	 * @param domain the domain class
+	 * @return new single flights
+	 */
+	public static SingleFlight New(final Class<?> domain)
+	{
+		return new SingleFlight(CONFIGURATION.getOrDefault(domain, DEFAULT_WINDOW));
+	}
+
+
+	private final long                                windowNanos;
+	private final Map<Object, Map<Object, Flight<?>>> partitions  = new ConcurrentHashMap<>();
+
+	public SingleFlight(final Duration window)
+	{
+		super();
+		this.windowNanos = window.toNanos();
+	}
+
+	/**
+	 * Executes a computation, or joins an identical in-flight or recently completed one.
+	 *
+	 * @param <T> the computation's return type
+	 * @param partition the partition the computation reads
+	 * @param key the key identifying the computation, must implement equals and hashCode
+	 * @param operation the computation
+	 * @return the computation's result
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(
+		final Object            partition,
+		final Object            key      ,
+		final ValueOperation<T> operation
+	)
+	{
+		final Map<Object, Flight<?>> flights = this.partitions.computeIfAbsent(
+			partition,
+			p -> new ConcurrentHashMap<>()
+		);
+		while(true)
+		{
+			final Flight<T> existing = (Flight<T>)flights.get(key);
+			if(existing != null)
+			{
+				if(!existing.future.isDone() || existing.isFresh(this.windowNanos))
+				{
+					try
+					{
+						return existing.await();
+					}
+					catch(final DeadlineExceededException e)
+					{
+						if(Deadline.current().isExpired())
+						{
+							throw e;
+						}
+						// only the other thread's deadline expired, try again
+						continue;
+					}
+				}
+				flights.remove(key, existing);
+			}
+
+			final Flight<T> flight = new Flight<>();
+			if(flights.putIfAbsent(key, flight) != null)
+			{
+				// another thread was faster, join it
+				continue;
+			}
+
+			try
+			{
+				final T result = operation.execute();
+				if(this.windowNanos <= 0)
+				{
+					// removed before completion, so no caller can join a completed flight
+					flights.remove(key, flight);
+				}
+				flight.complete(result);
+				return result;
+			}
+			catch(final RuntimeException | Error e)
+			{
+				flights.remove(key, flight);
+				flight.future.completeExceptionally(e);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Discards all results and in-flight computations of a specific partition, subsequent calls start new ones.
+	 * Callers which already joined a computation still get its result.
+	 *
+	 * @param partition the partition to invalidate
+	 */
+	public void invalidate(final Object partition)
+	{
+		this.partitions.remove(partition);
+	}
+
+	/**
+	 * Discards all results and in-flight computations.
+	 */
+	public void invalidateAll()
+	{
+		this.partitions.clear();
+	}
+
+
+	private static class Flight<T>
+	{
+		final    CompletableFuture<T> future     = new CompletableFuture<>();
+		volatile long                 completedAt;
+
+		Flight()
+		{
+			super();
+		}
+
+		void complete(final T result)
+		{
+			this.completedAt = System.nanoTime();
+			this.future.complete(result);
+		}
+
+		boolean isFresh(final long windowNanos)
+		{
+			return !this.future.isCompletedExceptionally()
+				&& System.nanoTime() - this.completedAt < windowNanos;
+		}
+
+		T await()
+		{
+			final Deadline deadline = Deadline.current();
+			try
+			{
+				if(deadline == Deadline.none())
+				{
+					return this.future.join();
+				}
+				while(true)
+				{
+					deadline.check();
+					try
+					{
+						return this.future.get(10, TimeUnit.MILLISECONDS);
+					}
+					catch(final TimeoutException e)
+					{
+						// check deadline and wait again
+					}
+				}
+			}
+			catch(final CompletionException | ExecutionException e)
+			{
+				final Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException)
+				{
+					throw (RuntimeException)cause;
+				}
+				if(cause instanceof Error)
+				{
+					throw (Error)cause;
+				}
+				throw new CompletionException(cause);
+			}
+			catch(final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new CompletionException(e);
+			}
+		}
+	}
+
+}
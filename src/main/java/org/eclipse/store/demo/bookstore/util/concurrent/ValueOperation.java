@@ -15,7 +15,7 @@ package org.eclipse.store.demo.bookstore.util.concurrent;
  */
 
 /**
- * Operation with a return value, used by {@link ReadWriteLocked} and {@link ReadWriteLockedStriped}.
+ * Operation with a return value, used by {@link ReadWriteLocked}, {@link ReadWriteLockedOptimistic} and {@link ReadWriteLockedStriped}.
  *
  * @param T the return type
  */
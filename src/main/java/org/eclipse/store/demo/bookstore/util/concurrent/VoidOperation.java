@@ -15,7 +15,7 @@ package org.eclipse.store.demo.bookstore.util.concurrent;
  */
 
 /**
- * Operation with no return value, used by {@link ReadWriteLocked} and {@link ReadWriteLockedStriped}.
+ * Operation with no return value, used by {@link ReadWriteLocked}, {@link ReadWriteLockedOptimistic} and {@link ReadWriteLockedStriped}.
  *
  */
 @FunctionalInterface
@@ -0,0 +1,125 @@
+package org.eclipse.store.demo.bookstore;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.store.demo.bookstore.data.Book;
+import org.eclipse.store.demo.bookstore.data.Books;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Index;
+import org.eclipse.store.demo.bookstore.data.Index.DirectoryFactory;
+import org.eclipse.store.demo.bookstore.data.Inventory;
+import org.eclipse.store.demo.bookstore.data.RandomDataAmount;
+import org.eclipse.store.demo.bookstore.data.Shop;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+
+/**
+ * Small, reproducible storages for tests.
+ */
+public final class TestStorage
+{
+	public final static long      SEED           = 42;
+	public final static LocalDate REFERENCE_DATE = LocalDate.of(2024, 12, 31);
+
+	/**
+	 * A few shops in two cities with two years of purchases, which is generated in about a second.
+	 */
+	public static RandomDataAmount amount()
+	{
+		return RandomDataAmount.fromProperties(Map.of(
+			"base"                               , "small",
+			"max-cities-per-country"             , "2"    ,
+			"max-customers-per-city"             , "10"   ,
+			"max-shops-per-city"                 , "2"    ,
+			"max-books-per-country"              , "20"   ,
+			"max-books-per-shop"                 , "10"   ,
+			"max-age-of-shops-in-years"          , "2"    ,
+			"max-employees-per-shop"             , "2"    ,
+			"max-purchases-per-employee-per-year", "10"
+		)::get);
+	}
+
+	/**
+	 * Creates a demo with the storage in the given directory, which is generated on first use.
+	 * The books' index is kept in memory.
+	 */
+	public static BookStoreDemo start(final Path directory)
+	{
+		return start(StorageSettings.Default(directory));
+	}
+
+	/**
+	 * Creates a demo with specific storage settings, see {@link #start(Path)}.
+	 */
+	public static BookStoreDemo start(final StorageSettings storageSettings)
+	{
+		Index.configure(Book.class, DirectoryFactory.InMemory());
+		return new BookStoreDemo(amount(), storageSettings, SEED, REFERENCE_DATE);
+	}
+
+	/**
+	 * Puts the data of a demo into the state which the legacy type mapping produces for a storage
+	 * of the first version of this demo, and stores it:
+	 * the books have no ordinals, the inventories keep their slots in a map and the shops have no stock index.
+	 */
+	public static void downgrade(final BookStoreDemo bookStoreDemo) throws ReflectiveOperationException
+	{
+		final Data        data           = bookStoreDemo.data();
+		final Books       books          = data.books();
+		final Set<Object> changedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(final Shop shop : data.shops().all())
+		{
+			final Inventory          inventory    = shop.inventory();
+			final Map<Book, Integer> inventoryMap = new HashMap<>();
+			inventory.forEach(books, inventoryMap::put);
+			set(inventory, "inventoryMap", inventoryMap);
+			set(inventory, "ordinals"    , null        );
+			set(inventory, "amounts"     , null        );
+			set(inventory, "size"        , 0           );
+			changedObjects.add(inventory);
+		}
+		for(final Book book : books.all())
+		{
+			set(book, "ordinal", 0);
+			changedObjects.add(book);
+		}
+		set(books, "ordinalToBook", null);
+		changedObjects.add(books);
+		set(data.shops(), "bookToStock", null);
+		changedObjects.add(data.shops());
+		bookStoreDemo.storageManager().storeAll(changedObjects);
+	}
+
+	private static void set(
+		final Object object,
+		final String name  ,
+		final Object value
+	)
+	throws ReflectiveOperationException
+	{
+		final Field field = object.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(object, value);
+	}
+
+}
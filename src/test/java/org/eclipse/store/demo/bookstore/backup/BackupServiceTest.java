@@ -0,0 +1,163 @@
+package org.eclipse.store.demo.bookstore.backup;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.TestStorage;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Purchase;
+import org.eclipse.store.demo.bookstore.data.PurchaseItem;
+import org.eclipse.store.demo.bookstore.data.Shop;
+import org.eclipse.store.demo.bookstore.persistence.StorageSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BackupServiceTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void incrementalBackupsLinkUnchangedFiles() throws IOException, InterruptedException
+	{
+		final BookStoreDemo bookStoreDemo = TestStorage.start(this.directory.resolve("storage"));
+		try
+		{
+			final BackupService service = new BackupService(
+				bookStoreDemo,
+				this.directory.resolve("backups"),
+				this.directory.resolve("staging"),
+				0
+			);
+
+			final Backup full = service.backup(BackupMode.FULL);
+			assertEquals(BackupMode.FULL, full.mode());
+			assertEquals(0, full.linkedBytes());
+			assertTrue(full.transferredBytes() > 0);
+
+			final Backup unchanged = service.backup(BackupMode.INCREMENTAL);
+			assertEquals(BackupMode.INCREMENTAL, unchanged.mode());
+			assertEquals(full.id(), unchanged.base());
+			assertTrue(unchanged.linkedBytes() > 0);
+			assertLinkedByChecksum(full, unchanged);
+
+			addPurchase(bookStoreDemo);
+			// backup ids have a resolution of seconds
+			Thread.sleep(1100);
+
+			final Backup changed = service.backup(BackupMode.INCREMENTAL);
+			assertEquals(unchanged.id(), changed.base());
+			assertTrue(changed.transferredBytes() > 0);
+			assertFalse(unchanged.checksums().equals(changed.checksums()));
+			assertLinkedByChecksum(unchanged, changed);
+
+			changed.verify();
+			assertTrue(service.verify(changed).consistent());
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	@Test
+	void incrementalBackupsAreTransferredFromTheContinuousBackup() throws IOException, InterruptedException
+	{
+		final BookStoreDemo bookStoreDemo = TestStorage.start(
+			StorageSettings.Default(this.directory.resolve("storage")).with(
+				StorageSettings.BACKUP_DIRECTORY,
+				this.directory.resolve("continuous").toString()
+			)
+		);
+		try
+		{
+			final Path backups = this.directory.resolve("backups");
+			final Backup full = new BackupService(bookStoreDemo, backups, this.directory.resolve("staging"), 0)
+				.backup(BackupMode.FULL);
+
+			addPurchase(bookStoreDemo);
+			// backup ids have a resolution of seconds
+			Thread.sleep(1100);
+
+			// staging fails in a directory below a regular file, so this service can't fall back to it
+			final Path file = Files.createFile(this.directory.resolve("file"));
+			final BackupService service = new BackupService(bookStoreDemo, backups, file.resolve("staging"), 0);
+
+			final Backup incremental = service.backup(BackupMode.INCREMENTAL);
+			assertEquals(BackupMode.INCREMENTAL, incremental.mode());
+			assertEquals(full.id(), incremental.base());
+			assertEquals(full.channelCount(), incremental.channelCount());
+			assertTrue(incremental.linkedBytes() > 0);
+			assertLinkedByChecksum(full, incremental);
+
+			incremental.verify();
+			assertTrue(service.verify(incremental).consistent());
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	/**
+	 * Files with the same checksum as in the base are hard links to the base's files, all others are copies.
+	 */
+	private static void assertLinkedByChecksum(
+		final Backup base  ,
+		final Backup backup
+	)
+		throws IOException
+	{
+		final Map<String, String> baseChecksums = base.checksums();
+		for(final Map.Entry<String, String> entry : backup.checksums().entrySet())
+		{
+			final Path    file   = backup.directory().resolve(entry.getKey());
+			final Path    origin = base.directory().resolve(entry.getKey());
+			final boolean linked = Files.exists(origin) && Files.isSameFile(file, origin);
+			assertEquals(
+				entry.getValue().equals(baseChecksums.get(entry.getKey())),
+				linked,
+				entry.getKey()
+			);
+		}
+	}
+
+	private static void addPurchase(final BookStoreDemo bookStoreDemo)
+	{
+		final Data data = bookStoreDemo.data();
+		final Shop shop = data.shops().all().get(0);
+		data.purchases().add(
+			new Purchase(
+				shop,
+				shop.employeesList().get(0),
+				data.customers().all().get(0),
+				TestStorage.REFERENCE_DATE.atTime(12, 0),
+				List.of(new PurchaseItem(data.books().all().get(0), 1))
+			),
+			bookStoreDemo.storageManager()
+		);
+	}
+
+}
@@ -0,0 +1,218 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.TestStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BooksTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void ordinalIsWriteOnce()
+	{
+		final BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final Book book = copy(bookStoreDemo.data().books().allInOrdinalOrder().get(0), "9780306406157");
+			book.ordinal(3);
+			book.ordinal(3);
+			assertEquals(3, book.ordinal());
+			assertThrows(IllegalStateException.class, () -> book.ordinal(4));
+			assertEquals(3, book.ordinal());
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	@Test
+	void addRejectsBooksWithOtherOrdinals()
+	{
+		final BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final Books books     = bookStoreDemo.data().books();
+			final int   bookCount = books.bookCount();
+			final Book  book      = copy(books.allInOrdinalOrder().get(0), "9780306406157");
+			book.ordinal(0);
+
+			assertThrows(IllegalArgumentException.class, () -> books.add(book, bookStoreDemo.storageManager()));
+			assertEquals(bookCount, books.bookCount());
+			assertNull(books.ofIsbn13(book.isbn13()));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	@Test
+	void lookupsByNullReturnEmptyLists()
+	{
+		final BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final Books books = bookStoreDemo.data().books();
+			assertTrue(books.allByAuthor(null).isEmpty());
+			assertTrue(books.allByGenre(null).isEmpty());
+			assertTrue(books.allByPublisher(null).isEmpty());
+			assertTrue(books.allByLanguage(null).isEmpty());
+			assertTrue(books.searchByTitle(null).isEmpty());
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	@Test
+	void inventoriesResolveBooksAfterRestart()
+	{
+		final List<String> inventories;
+		BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final Data data = bookStoreDemo.data();
+			inventories = slotsByShop(data);
+			assertFalse(inventories.isEmpty());
+			for(final Shop shop : data.shops().all())
+			{
+				assertTrue(data.books().all().containsAll(shop.inventory().books(data.books())));
+			}
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+
+		bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			assertEquals(inventories, slotsByShop(bookStoreDemo.data()));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	@Test
+	void storagesOfPreviousVersionsAreUpgraded() throws ReflectiveOperationException
+	{
+		final List<String> inventories;
+		BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			inventories = sorted(slotsByShop(bookStoreDemo.data()));
+			TestStorage.downgrade(bookStoreDemo);
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+
+		// the upgrade is done and stored on start
+		bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final List<Book> books = bookStoreDemo.data().books().allInOrdinalOrder();
+			assertEquals(bookStoreDemo.data().books().bookCount(), books.size());
+			for(int i = 0; i < books.size(); i++)
+			{
+				assertEquals(i, books.get(i).ordinal());
+			}
+			assertEquals(inventories, sorted(slotsByShop(bookStoreDemo.data())));
+			assertEquals(inventories, sorted(slotsByStock(bookStoreDemo.data())));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+
+		bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			assertTrue(bookStoreDemo.data().upgrade().isEmpty());
+			assertEquals(inventories, sorted(slotsByShop(bookStoreDemo.data())));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	private static List<String> sorted(final List<String> list)
+	{
+		return list.stream().sorted().collect(toList());
+	}
+
+	/**
+	 * All inventory slots as <code>shop:isbn=amount</code>, in order of the shops.
+	 */
+	private static List<String> slotsByShop(final Data data)
+	{
+		return data.shops().all().stream()
+			.flatMap(shop -> shop.inventory().slots(data.books()).stream()
+				.map(slot -> shop.name() + ":" + slot.getKey().isbn13() + "=" + slot.getValue())
+			)
+			.collect(toList());
+	}
+
+	/**
+	 * All postings of the stock index as <code>shop:isbn=amount</code>.
+	 */
+	private static List<String> slotsByStock(final Data data)
+	{
+		return data.books().all().stream()
+			.flatMap(book -> data.shops().stockOf(book).stream()
+				.map(item -> item.shop().name() + ":" + book.isbn13() + "=" + item.amount())
+			)
+			.collect(toList());
+	}
+
+	private static Book copy(
+		final Book   book  ,
+		final String isbn13
+	)
+	{
+		return new Book(
+			isbn13,
+			book.name(),
+			book.author(),
+			book.genre(),
+			book.publisher(),
+			book.language(),
+			book.purchasePrice(),
+			book.retailPrice()
+		);
+	}
+
+}
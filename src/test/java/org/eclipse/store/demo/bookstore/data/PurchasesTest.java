@@ -0,0 +1,93 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.TestStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PurchasesTest
+{
+	/**
+	 * A year before the first generated purchase.
+	 */
+	private final static int YEAR = TestStorage.REFERENCE_DATE.getYear() - 10;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void chunkedInitKeepsAllChunks()
+	{
+		BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final Data      data      = bookStoreDemo.data();
+			final Purchases purchases = data.purchases();
+			assertEquals(0L, purchases.computeByYear(YEAR, Stream::count));
+
+			purchases.init(YEAR, purchases(data, 3), false, bookStoreDemo.storageManager());
+			assertEquals(3L, purchases.computeByYear(YEAR, Stream::count));
+
+			purchases.init(YEAR, purchases(data, 2), true, bookStoreDemo.storageManager());
+			assertEquals(5L, purchases.computeByYear(YEAR, Stream::count));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+
+		bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			assertEquals(5L, bookStoreDemo.data().purchases().computeByYear(YEAR, Stream::count));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	private static List<Purchase> purchases(
+		final Data data  ,
+		final int  amount
+	)
+	{
+		final Shop     shop     = data.shops().all().get(0);
+		final Employee employee = shop.employeesList().get(0);
+		final Customer customer = data.customers().all().get(0);
+		final Book     book     = data.books().all().get(0);
+		return IntStream.range(0, amount)
+			.mapToObj(i -> new Purchase(
+				shop,
+				employee,
+				customer,
+				LocalDateTime.of(YEAR, 1, 1 + i, 12, 0),
+				List.of(new PurchaseItem(book, 1))
+			))
+			.collect(toList());
+	}
+
+}
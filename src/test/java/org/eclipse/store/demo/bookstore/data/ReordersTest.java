@@ -0,0 +1,87 @@
+package org.eclipse.store.demo.bookstore.data;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.TestStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReordersTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void soldOutTitlesAreReorderedAfterRestart()
+	{
+		final String shopName;
+		final String isbn13;
+		BookStoreDemo bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final Data data = bookStoreDemo.data();
+			final Shop shop = data.shops().all().get(0);
+			final Book book = shop.inventory().books(data.books()).get(0);
+			shopName = shop.name();
+			isbn13   = book.isbn13();
+
+			data.purchases().add(
+				new Purchase(
+					shop,
+					shop.employeesList().get(0),
+					data.customers().all().get(0),
+					LocalDateTime.now().minusHours(1),
+					List.of(new PurchaseItem(book, 1))
+				),
+				bookStoreDemo.storageManager()
+			);
+			data.shops().updateInventory(shop, book, 0, bookStoreDemo.storageManager());
+			assertEquals(0, shop.inventory().amount(book));
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+
+		// the sold out book has no inventory slot anymore, it is found by the rebuild via the recent purchase
+		bookStoreDemo = TestStorage.start(this.directory);
+		try
+		{
+			final List<ReorderItem> reorderList = bookStoreDemo.data().reorders().reorderList(Integer.MAX_VALUE);
+			assertTrue(
+				reorderList.stream().anyMatch(item ->
+					item.shop().name().equals(shopName)
+						&& item.book().isbn13().equals(isbn13)
+						&& item.amount() == 0
+						&& item.reorderAmount() > 0
+				),
+				reorderList.toString()
+			);
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.money.Monetary;
+
+import org.eclipse.store.storage.embedded.types.EmbeddedStorageManager;
+import org.javamoney.moneta.RoundedMoney;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StorageFormatTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void moneyRoundTrip()
+	{
+		final List<RoundedMoney> amounts = List.of(
+			money("19.99"      , "EUR"),
+			money("-12.34"     , "EUR"),
+			money("0"          , "USD"),
+			money("-0.01"      , "USD"),
+			money("1234567.89" , "GBP"),
+			money("500"        , "JPY"),
+			money("-7"         , "JPY"),
+			money("1.234"      , "BHD"),
+			money("-0.001"     , "BHD")
+		);
+
+		assertEquals(describeMoney(amounts), describeMoney(this.roundTrip(amounts)));
+	}
+
+	@Test
+	void timestampRoundTrip()
+	{
+		final List<LocalDateTime> timestamps = List.of(
+			LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_999_999),
+			LocalDateTime.of(2024,  2, 29, 12,  0,  0, 123_456_789),
+			LocalDateTime.of(1970,  1,  1,  0,  0,  0,           1),
+			LocalDateTime.of(1969, 12, 31, 23, 59, 59, 500_000_000),
+			LocalDateTime.of(1900,  1,  1,  0,  0),
+			LocalDateTime.MIN,
+			LocalDateTime.MAX
+		);
+
+		assertEquals(timestamps, this.roundTrip(timestamps));
+	}
+
+	/**
+	 * Stores the values in a new {@link StorageFormat#COMPACT} storage and loads them in a restarted one.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> List<T> roundTrip(final List<T> values)
+	{
+		final StorageSettings settings = StorageSettings.Default(this.directory);
+		assertEquals(StorageFormat.COMPACT, StorageFormat.detect(this.directory));
+
+		EmbeddedStorageManager storageManager = settings.createFoundation(StorageFormat.COMPACT)
+			.createEmbeddedStorageManager()
+			.start();
+		try
+		{
+			storageManager.setRoot(new ArrayList<>(values));
+			storageManager.storeRoot();
+		}
+		finally
+		{
+			storageManager.shutdown();
+		}
+
+		storageManager = settings.createFoundation(StorageFormat.COMPACT)
+			.createEmbeddedStorageManager()
+			.start();
+		try
+		{
+			return new ArrayList<>((List<T>)storageManager.root());
+		}
+		finally
+		{
+			storageManager.shutdown();
+		}
+	}
+
+	private static RoundedMoney money(
+		final String amount  ,
+		final String currency
+	)
+	{
+		return RoundedMoney.of(new BigDecimal(amount), Monetary.getCurrency(currency));
+	}
+
+	/**
+	 * Currency and exact amount, independent of the scale of the amount.
+	 */
+	private static List<String> describeMoney(final List<RoundedMoney> amounts)
+	{
+		return amounts.stream()
+			.map(amount -> amount.getCurrency().getCurrencyCode() + " " + amount.getNumberStripped().toPlainString())
+			.collect(toList());
+	}
+
+}
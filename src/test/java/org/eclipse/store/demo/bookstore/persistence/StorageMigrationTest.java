@@ -0,0 +1,133 @@
+package org.eclipse.store.demo.bookstore.persistence;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.store.demo.bookstore.BookStoreDemo;
+import org.eclipse.store.demo.bookstore.TestStorage;
+import org.eclipse.store.demo.bookstore.data.Data;
+import org.eclipse.store.demo.bookstore.data.Shop;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.Range;
+
+class StorageMigrationTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	void migrationKeepsOrdinalsAndInventories()
+	{
+		final Path source = this.directory.resolve("source");
+		final Path target = this.directory.resolve("target");
+
+		final List<String> expected = contents(source);
+		assertFalse(expected.isEmpty());
+
+		new StorageMigration(source, StorageSettings.Default(target)).migrate();
+
+		assertEquals(expected, contents(target));
+	}
+
+	@Test
+	void migrationConvertsLegacyStorages() throws IOException, ReflectiveOperationException
+	{
+		final Path source = this.directory.resolve("source");
+		final Path target = this.directory.resolve("target");
+
+		// generated with the default handlers and the data layout of the first version of this demo
+		StorageFormat.LEGACY.mark(source);
+		final List<String>  expected;
+		final BookStoreDemo bookStoreDemo = TestStorage.start(source);
+		try
+		{
+			expected = sorted(contents(bookStoreDemo.data()));
+			TestStorage.downgrade(bookStoreDemo);
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+		// storages of the first version have no marker
+		Files.delete(source.resolve(StorageFormat.MARKER));
+		assertEquals(StorageFormat.LEGACY, StorageFormat.detect(source));
+		assertFalse(expected.isEmpty());
+
+		new StorageMigration(source, StorageSettings.Default(target)).migrate();
+
+		assertEquals(StorageFormat.COMPACT, StorageFormat.detect(target));
+		// the ordinals are assigned by the upgrade, so only the sets of books and slots are equal
+		assertEquals(expected, sorted(contents(target)));
+		assertEquals(StorageFormat.LEGACY, StorageFormat.detect(source));
+	}
+
+	private static List<String> contents(final Path storageDirectory)
+	{
+		final BookStoreDemo bookStoreDemo = TestStorage.start(storageDirectory);
+		try
+		{
+			return contents(bookStoreDemo.data());
+		}
+		finally
+		{
+			bookStoreDemo.shutdown();
+		}
+	}
+
+	/**
+	 * The books in ordinal order with their prices, all inventory slots
+	 * and the timestamps and totals of the purchases per year.
+	 */
+	private static List<String> contents(final Data data)
+	{
+		final List<String> contents = new ArrayList<>();
+		data.books().allInOrdinalOrder().stream()
+			.map(book -> book.isbn13() + ":" + book.purchasePrice() + "/" + book.retailPrice())
+			.forEach(contents::add);
+		for(final Shop shop : data.shops().all())
+		{
+			shop.inventory().slots(data.books()).stream()
+				.map(slot -> shop.name() + ":" + slot.getKey().isbn13() + "=" + slot.getValue())
+				.forEach(contents::add);
+		}
+		final Range<Integer> years = data.purchases().years();
+		for(int year = years.lowerEndpoint(); year <= years.upperEndpoint(); year++)
+		{
+			contents.addAll(data.purchases().computeByYear(year, stream -> stream
+				.map(purchase -> purchase.timestamp() + "=" + purchase.total())
+				.sorted()
+				.collect(toList())
+			));
+		}
+		return contents;
+	}
+
+	private static List<String> sorted(final List<String> list)
+	{
+		return list.stream().sorted().collect(toList());
+	}
+
+}
@@ -0,0 +1,217 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.IntStream;
+
+import org.eclipse.store.demo.bookstore.util.concurrent.LockStriping.Stripes;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveStripesTest
+{
+	private final static String KEY = "key";
+
+	@Test
+	void tryLockDoesNotBlockOrGrow() throws InterruptedException
+	{
+		final Stripes stripes = LockStriping.Adaptive(1, 4, 1).createStripes();
+		final Holder  holder  = new Holder(stripes.writeLock(KEY));
+		try
+		{
+			final Lock lock = stripes.readLock(KEY);
+			for(int i = 0; i < 10; i++)
+			{
+				assertFalse(lock.tryLock());
+			}
+			assertFalse(lock.tryLock(10, TimeUnit.MILLISECONDS));
+		}
+		finally
+		{
+			holder.release();
+		}
+		assertEquals(1, stripeCount(stripes));
+
+		final Lock lock = stripes.readLock(KEY);
+		assertTrue(lock.tryLock());
+		lock.unlock();
+	}
+
+	@Test
+	void lockInterruptiblyCanBeInterrupted() throws InterruptedException
+	{
+		final Stripes                    stripes = LockStriping.Adaptive(1, 1, 1).createStripes();
+		final Holder                     holder  = new Holder(stripes.writeLock(KEY));
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		try
+		{
+			final Thread waiter = new Thread(() ->
+			{
+				try
+				{
+					stripes.writeLock(KEY).lockInterruptibly();
+				}
+				catch(final Throwable t)
+				{
+					failure.set(t);
+				}
+			});
+			waiter.start();
+			waiter.interrupt();
+			waiter.join(TimeUnit.SECONDS.toMillis(10));
+			assertFalse(waiter.isAlive());
+		}
+		finally
+		{
+			holder.release();
+		}
+		assertTrue(failure.get() instanceof InterruptedException);
+	}
+
+	@Test
+	void stripesGrowUnderContention() throws InterruptedException
+	{
+		final Stripes stripes = LockStriping.Adaptive(1, 4, 1).createStripes();
+		assertEquals(1, stripeCount(stripes));
+
+		// the waiter has to run into the held lock, which is released while the stripes grow
+		for(int attempt = 0; attempt < 10 && stripeCount(stripes) == 1; attempt++)
+		{
+			final Holder holder = new Holder(stripes.writeLock(KEY));
+			final Thread waiter = new Thread(() ->
+			{
+				final Lock lock = stripes.writeLock(KEY);
+				lock.lock();
+				lock.unlock();
+			});
+			waiter.start();
+			Thread.sleep(20);
+			holder.release();
+			waiter.join(TimeUnit.SECONDS.toMillis(10));
+			assertFalse(waiter.isAlive());
+		}
+		assertEquals(2, stripeCount(stripes));
+	}
+
+	@Test
+	void nestedAcquisitionsDoNotGrow() throws Exception
+	{
+		final Stripes stripes = LockStriping.Adaptive(2, 8, 1).createStripes();
+		final Object  outer   = 0;
+		final Object  inner   = IntStream.range(1, 1000)
+			.boxed()
+			.filter(i -> !stripes.tag(i).equals(stripes.tag(outer)))
+			.findFirst()
+			.orElseThrow();
+
+		final Lock outerLock = stripes.writeLock(outer);
+		outerLock.lock();
+		try
+		{
+			// the inner stripe is released while the nested acquisition could grow the stripes
+			final Holder holder   = new Holder(stripes.writeLock(inner));
+			final Thread releaser = new Thread(() ->
+			{
+				try
+				{
+					Thread.sleep(20);
+					holder.release();
+				}
+				catch(final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			});
+			releaser.start();
+
+			final Lock innerLock = stripes.writeLock(inner);
+			innerLock.lock();
+			try
+			{
+				assertEquals(2, stripeCount(stripes));
+				// the outer stripe is still exclusive
+				assertFalse(CompletableFuture.supplyAsync(() -> stripes.writeLock(outer).tryLock()).get());
+			}
+			finally
+			{
+				innerLock.unlock();
+			}
+			releaser.join();
+		}
+		finally
+		{
+			outerLock.unlock();
+		}
+	}
+
+	private static int stripeCount(final Stripes stripes)
+	{
+		return IntStream.range(0, 1000)
+			.mapToObj(i -> stripes.tag(i))
+			.collect(toSet())
+			.size();
+	}
+
+
+	/**
+	 * Holds a lock in another thread until it is released.
+	 */
+	private static class Holder
+	{
+		private final CountDownLatch locked  = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final Thread         thread  ;
+
+		Holder(final Lock lock) throws InterruptedException
+		{
+			super();
+			this.thread = new Thread(() ->
+			{
+				lock.lock();
+				try
+				{
+					this.locked.countDown();
+					this.release.await();
+				}
+				catch(final InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				finally
+				{
+					lock.unlock();
+				}
+			});
+			this.thread.start();
+			this.locked.await();
+		}
+
+		void release() throws InterruptedException
+		{
+			this.release.countDown();
+			this.thread.join();
+		}
+	}
+
+}
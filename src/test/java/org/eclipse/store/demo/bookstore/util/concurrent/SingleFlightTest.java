@@ -0,0 +1,129 @@
+package org.eclipse.store.demo.bookstore.util.concurrent;
+
+/*-
+ * #%L
+ * EclipseStore BookStore Demo
+ * %%
+ * Copyright (C) 2023 MicroStream Software
+ * %%
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ * 
+ * SPDX-License-Identifier: EPL-2.0
+ * #L%
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest
+{
+	private final static Integer YEAR = 2024;
+	private final static String  KEY  = "bestSellerList";
+
+	private final SingleFlight  singleFlight = new SingleFlight(Duration.ZERO);
+	private final AtomicInteger executions   = new AtomicInteger();
+
+	@Test
+	void concurrentCallsShareOneComputation() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() ->
+			this.singleFlight.execute(YEAR, KEY, () ->
+			{
+				started.countDown();
+				await(release);
+				return this.executions.incrementAndGet();
+			})
+		);
+		started.await();
+		final CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() ->
+			this.singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet)
+		);
+		// give the second caller time to join the in-flight computation
+		Thread.sleep(100);
+		release.countDown();
+
+		assertEquals(1, first.get(10, TimeUnit.SECONDS));
+		assertEquals(1, second.get(10, TimeUnit.SECONDS));
+		assertEquals(1, this.executions.get());
+	}
+
+	@Test
+	void completedComputationsAreNotReused()
+	{
+		assertEquals(1, this.singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+		assertEquals(2, this.singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+	}
+
+	@Test
+	void completedComputationsAreReusedWithinTheWindow()
+	{
+		final SingleFlight singleFlight = new SingleFlight(Duration.ofMinutes(1));
+		assertEquals(1, singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+		assertEquals(1, singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+
+		singleFlight.invalidate(YEAR);
+		assertEquals(2, singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+	}
+
+	@Test
+	void failedComputationsAreNotReused()
+	{
+		final SingleFlight singleFlight = new SingleFlight(Duration.ofMinutes(1));
+		assertThrows(IllegalStateException.class, () ->
+			singleFlight.execute(YEAR, KEY, () ->
+			{
+				throw new IllegalStateException();
+			})
+		);
+		assertEquals(1, singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+	}
+
+	@Test
+	void invalidatedComputationsAreNotJoined() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CompletableFuture<Integer> stale = CompletableFuture.supplyAsync(() ->
+			this.singleFlight.execute(YEAR, KEY, () ->
+			{
+				started.countDown();
+				await(release);
+				return -1;
+			})
+		);
+		started.await();
+
+		this.singleFlight.invalidate(YEAR);
+		// doesn't wait for the stale computation
+		assertEquals(1, this.singleFlight.execute(YEAR, KEY, this.executions::incrementAndGet));
+
+		release.countDown();
+		assertEquals(-1, stale.get(10, TimeUnit.SECONDS));
+	}
+
+	private static void await(final CountDownLatch latch)
+	{
+		try
+		{
+			latch.await();
+		}
+		catch(final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+}